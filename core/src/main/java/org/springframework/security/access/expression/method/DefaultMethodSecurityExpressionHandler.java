@@ -23,6 +23,8 @@ import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -32,6 +34,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.log.LogMessage;
+import org.springframework.expression.BeanResolver;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
@@ -67,6 +70,10 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 
 	private String defaultRolePrefix = "ROLE_";
 
+	private int parallelFilterThreshold = Integer.MAX_VALUE;
+
+	private ForkJoinPool parallelFilterPool = ForkJoinPool.commonPool();
+
 	public DefaultMethodSecurityExpressionHandler() {
 	}
 
@@ -114,7 +121,15 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 	 * <p>
 	 * If a {@code Collection} or {@code Map} is used, the original instance will be
 	 * modified to contain the elements for which the permission expression evaluates to
-	 * {@code true}. For an array, a new array instance will be returned.
+	 * {@code true}. For an array, a new array instance will be returned. A {@code Stream}
+	 * is filtered lazily, as it is consumed.
+	 * <p>
+	 * The supplied {@code EvaluationContext} is reused for every element. Collections and
+	 * arrays with at least {@link #setParallelFilterThreshold(int)} elements are instead
+	 * split into chunks which are evaluated in parallel, each with its own
+	 * {@code EvaluationContext} carrying the variables and bean resolver of the supplied
+	 * one. Contexts other than the one created by this handler are always evaluated
+	 * sequentially.
 	 */
 	@Override
 	public Object filter(Object filterTarget, Expression filterExpression, EvaluationContext ctx) {
@@ -144,10 +159,15 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 		if (this.permissionCacheOptimizer != null) {
 			this.permissionCacheOptimizer.cachePermissionsFor(rootObject.getAuthentication(), filterTarget);
 		}
-		for (T filterObject : filterTarget) {
-			rootObject.setFilterObject(filterObject);
-			if (ExpressionUtils.evaluateAsBoolean(filterExpression, ctx)) {
-				retain.add(filterObject);
+		if (isParallel(filterTarget.size(), ctx)) {
+			retain = filterInParallel(new ArrayList<>(filterTarget), filterExpression, ctx, rootObject);
+		}
+		else {
+			for (T filterObject : filterTarget) {
+				rootObject.setFilterObject(filterObject);
+				if (ExpressionUtils.evaluateAsBoolean(filterExpression, ctx)) {
+					retain.add(filterObject);
+				}
 			}
 		}
 		this.logger.debug(LogMessage.format("Retaining elements: %s", retain));
@@ -160,14 +180,19 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 			MethodSecurityExpressionOperations rootObject) {
 		List<Object> retain = new ArrayList<>(filterTarget.length);
 		this.logger.debug(LogMessage.format("Filtering array with %s elements", filterTarget.length));
+		List<Object> elements = Arrays.asList(filterTarget);
 		if (this.permissionCacheOptimizer != null) {
-			this.permissionCacheOptimizer.cachePermissionsFor(rootObject.getAuthentication(),
-					Arrays.asList(filterTarget));
+			this.permissionCacheOptimizer.cachePermissionsFor(rootObject.getAuthentication(), elements);
 		}
-		for (Object filterObject : filterTarget) {
-			rootObject.setFilterObject(filterObject);
-			if (ExpressionUtils.evaluateAsBoolean(filterExpression, ctx)) {
-				retain.add(filterObject);
+		if (isParallel(filterTarget.length, ctx)) {
+			retain = filterInParallel(elements, filterExpression, ctx, rootObject);
+		}
+		else {
+			for (Object filterObject : filterTarget) {
+				rootObject.setFilterObject(filterObject);
+				if (ExpressionUtils.evaluateAsBoolean(filterExpression, ctx)) {
+					retain.add(filterObject);
+				}
 			}
 		}
 		this.logger.debug(LogMessage.format("Retaining elements: %s", retain));
@@ -202,6 +227,64 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 		}).onClose(filterTarget::close);
 	}
 
+	private boolean isParallel(int size, EvaluationContext ctx) {
+		// a custom context may hold state that a chunk context could not reproduce
+		return size >= this.parallelFilterThreshold && ctx.getClass() == MethodSecurityEvaluationContext.class;
+	}
+
+	private <T> List<T> filterInParallel(List<T> elements, Expression filterExpression, EvaluationContext ctx,
+			MethodSecurityExpressionOperations rootObject) {
+		MethodSecurityEvaluationContext callerCtx = (MethodSecurityEvaluationContext) ctx;
+		MethodInvocation mi = callerCtx.getMethodInvocation();
+		Map<String, Object> variables = callerCtx.getAssignedVariables();
+		BeanResolver beanResolver = callerCtx.getBeanResolver();
+		Authentication authentication = rootObject.getAuthentication();
+		Object returnObject = rootObject.getReturnObject();
+		int chunkSize = Math.max(1, elements.size() / (this.parallelFilterPool.getParallelism() * 4));
+		this.logger.debug(LogMessage.format("Filtering in parallel with chunks of %s elements", chunkSize));
+		Supplier<EvaluationContext> contexts = () -> {
+			MethodSecurityExpressionOperations chunkRoot = createSecurityExpressionRoot(authentication, mi);
+			chunkRoot.setReturnObject(returnObject);
+			MethodSecurityEvaluationContext chunkCtx = new MethodSecurityEvaluationContext(chunkRoot, mi,
+					getParameterNameDiscoverer());
+			chunkCtx.setBeanResolver(beanResolver);
+			chunkCtx.setVariables(variables);
+			return chunkCtx;
+		};
+		return this.parallelFilterPool
+			.invoke(new FilterTask<>(elements, 0, elements.size(), chunkSize, filterExpression, contexts));
+	}
+
+	/**
+	 * Sets the minimum number of elements a collection or array must have for
+	 * {@link #filter(Object, Expression, EvaluationContext)} to evaluate it in parallel.
+	 * Parallel filtering is disabled by default.
+	 * <p>
+	 * Elements are evaluated on the threads of the
+	 * {@link #setParallelFilterPool(ForkJoinPool) parallel filter pool}, so the filter
+	 * expression must not depend on thread-bound state other than the current
+	 * {@link Authentication}, which is captured up front.
+	 * @param parallelFilterThreshold the minimum number of elements to filter in
+	 * parallel, must be at least 2
+	 * @since 5.8
+	 */
+	public void setParallelFilterThreshold(int parallelFilterThreshold) {
+		Assert.isTrue(parallelFilterThreshold > 1, "parallelFilterThreshold must be greater than 1");
+		this.parallelFilterThreshold = parallelFilterThreshold;
+	}
+
+	/**
+	 * Sets the {@link ForkJoinPool} to use when filtering in parallel. The default is
+	 * {@link ForkJoinPool#commonPool()}.
+	 * @param parallelFilterPool the {@link ForkJoinPool} to use
+	 * @since 5.8
+	 * @see #setParallelFilterThreshold(int)
+	 */
+	public void setParallelFilterPool(ForkJoinPool parallelFilterPool) {
+		Assert.notNull(parallelFilterPool, "parallelFilterPool cannot be null");
+		this.parallelFilterPool = parallelFilterPool;
+	}
+
 	/**
 	 * Sets the {@link AuthenticationTrustResolver} to be used. The default is
 	 * {@link AuthenticationTrustResolverImpl}.
@@ -271,4 +354,61 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 		return this.defaultRolePrefix;
 	}
 
+	private static final class FilterTask<T> extends RecursiveTask<List<T>> {
+
+		private final List<T> elements;
+
+		private final int from;
+
+		private final int to;
+
+		private final int chunkSize;
+
+		private final Expression filterExpression;
+
+		private final Supplier<EvaluationContext> contexts;
+
+		private FilterTask(List<T> elements, int from, int to, int chunkSize, Expression filterExpression,
+				Supplier<EvaluationContext> contexts) {
+			this.elements = elements;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.filterExpression = filterExpression;
+			this.contexts = contexts;
+		}
+
+		@Override
+		protected List<T> compute() {
+			if (this.to - this.from <= this.chunkSize) {
+				return filterChunk();
+			}
+			int middle = (this.from + this.to) >>> 1;
+			FilterTask<T> left = new FilterTask<>(this.elements, this.from, middle, this.chunkSize,
+					this.filterExpression, this.contexts);
+			FilterTask<T> right = new FilterTask<>(this.elements, middle, this.to, this.chunkSize,
+					this.filterExpression, this.contexts);
+			left.fork();
+			List<T> retain = right.compute();
+			List<T> result = left.join();
+			result.addAll(retain);
+			return result;
+		}
+
+		private List<T> filterChunk() {
+			EvaluationContext ctx = this.contexts.get();
+			MethodSecurityExpressionOperations rootObject = (MethodSecurityExpressionOperations) ctx.getRootObject()
+				.getValue();
+			List<T> retain = new ArrayList<>(this.to - this.from);
+			for (T filterObject : this.elements.subList(this.from, this.to)) {
+				rootObject.setFilterObject(filterObject);
+				if (ExpressionUtils.evaluateAsBoolean(this.filterExpression, ctx)) {
+					retain.add(filterObject);
+				}
+			}
+			return retain;
+		}
+
+	}
+
 }
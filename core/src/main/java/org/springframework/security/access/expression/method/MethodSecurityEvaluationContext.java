@@ -17,6 +17,8 @@
 package org.springframework.security.access.expression.method;
 
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.aopalliance.intercept.MethodInvocation;
 
@@ -24,6 +26,7 @@ import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.context.expression.MethodBasedEvaluationContext;
 import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.parameters.DefaultSecurityParameterNameDiscoverer;
 
@@ -39,6 +42,10 @@ import org.springframework.security.core.parameters.DefaultSecurityParameterName
  */
 class MethodSecurityEvaluationContext extends MethodBasedEvaluationContext {
 
+	private final MethodInvocation mi;
+
+	private final Map<String, Object> assignedVariables = new HashMap<>();
+
 	/**
 	 * Intended for testing. Don't use in practice as it creates a new parameter resolver
 	 * for each instance. Use the constructor which takes the resolver, as an argument
@@ -51,11 +58,33 @@ class MethodSecurityEvaluationContext extends MethodBasedEvaluationContext {
 	MethodSecurityEvaluationContext(Authentication user, MethodInvocation mi,
 			ParameterNameDiscoverer parameterNameDiscoverer) {
 		super(mi.getThis(), getSpecificMethod(mi), mi.getArguments(), parameterNameDiscoverer);
+		this.mi = mi;
 	}
 
 	MethodSecurityEvaluationContext(MethodSecurityExpressionOperations root, MethodInvocation mi,
 			ParameterNameDiscoverer parameterNameDiscoverer) {
 		super(root, getSpecificMethod(mi), mi.getArguments(), parameterNameDiscoverer);
+		this.mi = mi;
+	}
+
+	@Override
+	public void setVariable(@Nullable String name, @Nullable Object value) {
+		super.setVariable(name, value);
+		if (name != null) {
+			this.assignedVariables.put(name, value);
+		}
+	}
+
+	MethodInvocation getMethodInvocation() {
+		return this.mi;
+	}
+
+	/**
+	 * Returns a copy of the variables assigned to this context so far, including method
+	 * parameters once they have been loaded.
+	 */
+	Map<String, Object> getAssignedVariables() {
+		return new HashMap<>(this.assignedVariables);
 	}
 
 	private static Method getSpecificMethod(MethodInvocation mi) {
@@ -19,11 +19,12 @@ package org.springframework.security.access.method;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.core.log.LogMessage;
 import org.springframework.security.access.ConfigAttribute;
@@ -35,6 +36,10 @@ import org.springframework.util.ObjectUtils;
  * Automatically tries a series of method definition sources, relying on the first source
  * of metadata that provides a non-null/non-empty response. Provides automatic caching of
  * the retrieved metadata.
+ * <p>
+ * Cache hits do not take any lock. The cache holds at most {@link #setMaxCacheSize(int)
+ * maxCacheSize} entries so that proxies generated at runtime cannot grow it without
+ * bound; once full, arbitrary entries are evicted to make room for new ones.
  *
  * @author Ben Alex
  * @author Luke Taylor
@@ -47,9 +52,13 @@ public final class DelegatingMethodSecurityMetadataSource extends AbstractMethod
 
 	private static final List<ConfigAttribute> NULL_CONFIG_ATTRIBUTE = Collections.emptyList();
 
+	private static final int DEFAULT_MAX_CACHE_SIZE = 4096;
+
 	private final List<MethodSecurityMetadataSource> methodSecurityMetadataSources;
 
-	private final Map<DefaultCacheKey, Collection<ConfigAttribute>> attributeCache = new HashMap<>();
+	private final Map<DefaultCacheKey, Collection<ConfigAttribute>> attributeCache = new ConcurrentHashMap<>();
+
+	private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
 
 	public DelegatingMethodSecurityMetadataSource(List<MethodSecurityMetadataSource> methodSecurityMetadataSources) {
 		Assert.notNull(methodSecurityMetadataSources, "MethodSecurityMetadataSources cannot be null");
@@ -59,28 +68,40 @@ public final class DelegatingMethodSecurityMetadataSource extends AbstractMethod
 	@Override
 	public Collection<ConfigAttribute> getAttributes(Method method, Class<?> targetClass) {
 		DefaultCacheKey cacheKey = new DefaultCacheKey(method, targetClass);
-		synchronized (this.attributeCache) {
-			Collection<ConfigAttribute> cached = this.attributeCache.get(cacheKey);
-			// Check for canonical value indicating there is no config attribute,
-			if (cached != null) {
-				return cached;
-			}
-			// No cached value, so query the sources to find a result
-			Collection<ConfigAttribute> attributes = null;
-			for (MethodSecurityMetadataSource s : this.methodSecurityMetadataSources) {
-				attributes = s.getAttributes(method, targetClass);
-				if (attributes != null && !attributes.isEmpty()) {
-					break;
-				}
-			}
-			// Put it in the cache.
-			if (attributes == null || attributes.isEmpty()) {
-				this.attributeCache.put(cacheKey, NULL_CONFIG_ATTRIBUTE);
-				return NULL_CONFIG_ATTRIBUTE;
+		Collection<ConfigAttribute> cached = this.attributeCache.get(cacheKey);
+		// Check for canonical value indicating there is no config attribute,
+		if (cached != null) {
+			return cached;
+		}
+		// No cached value, so query the sources to find a result
+		Collection<ConfigAttribute> attributes = null;
+		for (MethodSecurityMetadataSource s : this.methodSecurityMetadataSources) {
+			attributes = s.getAttributes(method, targetClass);
+			if (attributes != null && !attributes.isEmpty()) {
+				break;
 			}
-			this.logger.debug(LogMessage.format("Caching method [%s] with attributes %s", cacheKey, attributes));
-			this.attributeCache.put(cacheKey, attributes);
-			return attributes;
+		}
+		// Put it in the cache.
+		if (attributes == null || attributes.isEmpty()) {
+			return cache(cacheKey, NULL_CONFIG_ATTRIBUTE);
+		}
+		this.logger.debug(LogMessage.format("Caching method [%s] with attributes %s", cacheKey, attributes));
+		return cache(cacheKey, attributes);
+	}
+
+	private Collection<ConfigAttribute> cache(DefaultCacheKey cacheKey, Collection<ConfigAttribute> attributes) {
+		if (this.attributeCache.size() >= this.maxCacheSize) {
+			evict();
+		}
+		Collection<ConfigAttribute> existing = this.attributeCache.putIfAbsent(cacheKey, attributes);
+		return (existing != null) ? existing : attributes;
+	}
+
+	private void evict() {
+		Iterator<DefaultCacheKey> keys = this.attributeCache.keySet().iterator();
+		while (keys.hasNext() && this.attributeCache.size() >= this.maxCacheSize) {
+			keys.next();
+			keys.remove();
 		}
 	}
 
@@ -100,6 +121,16 @@ public final class DelegatingMethodSecurityMetadataSource extends AbstractMethod
 		return this.methodSecurityMetadataSources;
 	}
 
+	/**
+	 * Sets the maximum number of methods whose attributes are cached. Defaults to 4096.
+	 * @param maxCacheSize the maximum number of cached entries, must be positive
+	 * @since 5.8
+	 */
+	public void setMaxCacheSize(int maxCacheSize) {
+		Assert.isTrue(maxCacheSize > 0, "maxCacheSize must be greater than 0");
+		this.maxCacheSize = maxCacheSize;
+	}
+
 	private static class DefaultCacheKey {
 
 		private final Method method;
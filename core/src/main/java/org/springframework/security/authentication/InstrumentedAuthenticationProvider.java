@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.authentication;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link AuthenticationProvider} that records how long each authentication attempt
+ * takes in the {@code spring.security.authentication.providers} metric, tagged with its
+ * {@code outcome} ({@code success}, {@code failure}, {@code abstain} or {@code error})
+ * and the {@code provider} class.
+ *
+ * <p>
+ * Wrap the providers handed to a {@link ProviderManager} to see which of them consumes
+ * the time spent authenticating:
+ *
+ * <pre>
+ *	new ProviderManager(new InstrumentedAuthenticationProvider(daoAuthenticationProvider, recorder));
+ * </pre>
+ *
+ * @since 5.8
+ */
+public final class InstrumentedAuthenticationProvider implements AuthenticationProvider {
+
+	static final String METRIC_NAME = "spring.security.authentication.providers";
+
+	private final AuthenticationProvider delegate;
+
+	private final SecurityMetricsRecorder recorder;
+
+	private final Map<String, String> success;
+
+	private final Map<String, String> failure;
+
+	private final Map<String, String> abstain;
+
+	private final Map<String, String> error;
+
+	/**
+	 * Construct an {@link InstrumentedAuthenticationProvider}
+	 * @param delegate the {@link AuthenticationProvider} to measure
+	 * @param recorder the {@link SecurityMetricsRecorder} to record to
+	 */
+	public InstrumentedAuthenticationProvider(AuthenticationProvider delegate, SecurityMetricsRecorder recorder) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		Assert.notNull(recorder, "recorder cannot be null");
+		this.delegate = delegate;
+		this.recorder = recorder;
+		String provider = delegate.getClass().getName();
+		this.success = tags(provider, "success");
+		this.failure = tags(provider, "failure");
+		this.abstain = tags(provider, "abstain");
+		this.error = tags(provider, "error");
+	}
+
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		long start = System.nanoTime();
+		Map<String, String> outcome = this.error;
+		try {
+			Authentication result = this.delegate.authenticate(authentication);
+			outcome = (result != null) ? this.success : this.abstain;
+			return result;
+		}
+		catch (AuthenticationException ex) {
+			outcome = this.failure;
+			throw ex;
+		}
+		finally {
+			this.recorder.record(METRIC_NAME, outcome, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public boolean supports(Class<?> authentication) {
+		return this.delegate.supports(authentication);
+	}
+
+	private static Map<String, String> tags(String provider, String outcome) {
+		Map<String, String> tags = new HashMap<>(4);
+		tags.put("provider", provider);
+		tags.put(SecurityMetricsRecorder.OUTCOME_TAG, outcome);
+		return Collections.unmodifiableMap(tags);
+	}
+
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authorization;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.log.LogMessage;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.authorization.event.AuthorizationDeniedEvent;
+import org.springframework.security.authorization.event.AuthorizationEvent;
+import org.springframework.security.authorization.event.AuthorizationGrantedEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link AuthorizationEventPublisher} that hands authorization events to a sink on a
+ * {@link TaskExecutor}, so that neither event listeners nor audit I/O run on the thread
+ * that made the decision.
+ *
+ * <p>
+ * Decisions are sampled before any event is created: by default every denial is kept and
+ * every grant is dropped, mirroring {@link SpringAuthorizationEventPublisher}. Kept
+ * events are placed in a bounded queue and delivered to the sink in batches of up to
+ * {@link #setMaxBatchSize(int) maxBatchSize}. When the queue is full, events are either
+ * dropped or the publishing thread waits for room, depending on the
+ * {@link OverflowPolicy}.
+ *
+ * <p>
+ * Everything an event carries is captured on the publishing thread: the current
+ * {@link Authentication}, and a snapshot of the secured object produced by the
+ * {@link #setSecuredObjectConverter(Converter) secured object converter}. The secured
+ * object itself, such as an {@code HttpServletRequest} that the container recycles once
+ * the request completes, never leaves the publishing thread.
+ *
+ * <p>
+ * Events are delivered while this publisher is {@link #start() started}. It is a
+ * {@link SmartLifecycle}, so a Spring container starts and stops it automatically;
+ * otherwise call {@link #start()} and {@link #destroy()} yourself.
+ *
+ * <p>
+ * For example, to log every denial and one grant in a hundred:
+ *
+ * <pre>
+ *	AsyncAuthorizationEventPublisher publisher = new AsyncAuthorizationEventPublisher(
+ *			(events) -&gt; events.forEach((event) -&gt; logger.info(event)));
+ *	publisher.setGrantedSampleRate(0.01);
+ *	publisher.start();
+ * </pre>
+ *
+ * @since 5.8
+ * @see #fromApplicationEventPublisher(ApplicationEventPublisher)
+ */
+public final class AsyncAuthorizationEventPublisher
+		implements AuthorizationEventPublisher, SmartLifecycle, DisposableBean {
+
+	private static final int DEFAULT_CAPACITY = 8192;
+
+	private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+	private static final long POLL_INTERVAL_MILLIS = 100;
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final Consumer<List<AuthorizationEvent>> sink;
+
+	private final BlockingQueue<AuthorizationEvent> queue;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final Object lifecycleMonitor = new Object();
+
+	private volatile boolean running;
+
+	private volatile boolean destroyed;
+
+	private volatile CountDownLatch drained = new CountDownLatch(0);
+
+	private volatile TaskExecutor taskExecutor = defaultTaskExecutor();
+
+	private volatile Converter<Object, Object> securedObjectConverter = AsyncAuthorizationEventPublisher::snapshot;
+
+	private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+	private volatile double grantedSampleRate = 0.0;
+
+	private volatile double deniedSampleRate = 1.0;
+
+	private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private volatile Duration shutdownTimeout = Duration.ofSeconds(5);
+
+	/**
+	 * Construct this publisher with a queue of 8192 events
+	 * @param sink the sink to deliver batches of events to
+	 */
+	public AsyncAuthorizationEventPublisher(Consumer<List<AuthorizationEvent>> sink) {
+		this(sink, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Construct this publisher
+	 * @param sink the sink to deliver batches of events to
+	 * @param capacity the maximum number of events waiting to be delivered
+	 */
+	public AsyncAuthorizationEventPublisher(Consumer<List<AuthorizationEvent>> sink, int capacity) {
+		Assert.notNull(sink, "sink cannot be null");
+		Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+		this.sink = sink;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * Create a publisher that delivers events through Spring's
+	 * {@link ApplicationEventPublisher}. Listeners are invoked on the
+	 * {@link #setTaskExecutor(TaskExecutor) task executor}, not on the request thread, and
+	 * receive the {@link #setSecuredObjectConverter(Converter) snapshot} of the secured
+	 * object as the event source, so they must not rely on thread-bound state or on the
+	 * secured object itself.
+	 * @param eventPublisher the {@link ApplicationEventPublisher} to use
+	 * @return the {@link AsyncAuthorizationEventPublisher}
+	 */
+	public static AsyncAuthorizationEventPublisher fromApplicationEventPublisher(
+			ApplicationEventPublisher eventPublisher) {
+		Assert.notNull(eventPublisher, "eventPublisher cannot be null");
+		return new AsyncAuthorizationEventPublisher((events) -> events.forEach(eventPublisher::publishEvent));
+	}
+
+	private static TaskExecutor defaultTaskExecutor() {
+		SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("authorization-event-publisher-");
+		taskExecutor.setDaemon(true);
+		return taskExecutor;
+	}
+
+	private static Object snapshot(Object object) {
+		if (object instanceof MethodInvocation) {
+			return ((MethodInvocation) object).getMethod();
+		}
+		return object.toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> void publishAuthorizationEvent(Supplier<Authentication> authentication, T object,
+			AuthorizationDecision decision) {
+		if (decision == null || this.destroyed) {
+			return;
+		}
+		double sampleRate = decision.isGranted() ? this.grantedSampleRate : this.deniedSampleRate;
+		if (!sampled(sampleRate)) {
+			return;
+		}
+		Authentication resolved = authentication.get();
+		Supplier<Authentication> user = () -> resolved;
+		Object source = this.securedObjectConverter.convert(object);
+		AuthorizationEvent event = decision.isGranted() ? new AuthorizationGrantedEvent<>(user, source, decision)
+				: new AuthorizationDeniedEvent<>(user, source, decision);
+		enqueue(event);
+	}
+
+	private boolean sampled(double sampleRate) {
+		if (sampleRate >= 1.0) {
+			return true;
+		}
+		if (sampleRate <= 0.0) {
+			return false;
+		}
+		return ThreadLocalRandom.current().nextDouble() < sampleRate;
+	}
+
+	private void enqueue(AuthorizationEvent event) {
+		if (this.queue.offer(event)) {
+			return;
+		}
+		if (this.overflowPolicy == OverflowPolicy.BLOCK) {
+			try {
+				// only wait while there is a drainer to make room
+				while (this.running) {
+					if (this.queue.offer(event, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+						return;
+					}
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.dropped.incrementAndGet();
+	}
+
+	private void drain(CountDownLatch drained) {
+		List<AuthorizationEvent> batch = new ArrayList<>();
+		try {
+			while (this.running && this.drained == drained) {
+				AuthorizationEvent first = this.queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					this.queue.drainTo(batch, this.maxBatchSize - 1);
+					deliver(batch);
+				}
+			}
+			while (this.queue.drainTo(batch, this.maxBatchSize) > 0) {
+				deliver(batch);
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			drained.countDown();
+		}
+	}
+
+	private void deliver(List<AuthorizationEvent> batch) {
+		try {
+			this.sink.accept(batch);
+		}
+		catch (RuntimeException ex) {
+			this.logger.warn(LogMessage.format("Failed to deliver %s authorization events", batch.size()), ex);
+		}
+		finally {
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Start delivering events on the {@link #setTaskExecutor(TaskExecutor) task
+	 * executor}. Events published before this publisher is started wait in the queue.
+	 */
+	@Override
+	public void start() {
+		synchronized (this.lifecycleMonitor) {
+			Assert.state(!this.destroyed, "publisher has been destroyed");
+			if (this.running) {
+				return;
+			}
+			CountDownLatch drained = new CountDownLatch(1);
+			this.drained = drained;
+			this.running = true;
+			this.taskExecutor.execute(() -> drain(drained));
+		}
+	}
+
+	/**
+	 * Stop delivering events, waiting up to the {@link #setShutdownTimeout(Duration)
+	 * shutdown timeout} for those already queued to be delivered. Events published while
+	 * this publisher is stopped wait in the queue until it is started again.
+	 */
+	@Override
+	public void stop() {
+		CountDownLatch drained;
+		synchronized (this.lifecycleMonitor) {
+			if (!this.running) {
+				return;
+			}
+			this.running = false;
+			drained = this.drained;
+		}
+		try {
+			if (!drained.await(this.shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+				this.logger.warn(LogMessage.format("Timed out waiting for %s authorization events to be delivered",
+						this.queue.size()));
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * Stop accepting events, and wait for those already queued to be delivered. Events
+	 * that could not be delivered are counted in {@link #getDroppedCount()}.
+	 */
+	@Override
+	public void destroy() {
+		this.destroyed = true;
+		stop();
+		int undelivered = this.queue.size();
+		this.queue.clear();
+		if (undelivered > 0) {
+			this.dropped.addAndGet(undelivered);
+			this.logger.warn(LogMessage.format("Dropped %s undelivered authorization events", undelivered));
+		}
+	}
+
+	/**
+	 * The number of events that were sampled but could not be queued
+	 * @return the number of dropped events
+	 */
+	public long getDroppedCount() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * The number of events waiting to be delivered
+	 * @return the number of queued events
+	 */
+	public int getQueueSize() {
+		return this.queue.size();
+	}
+
+	/**
+	 * Use this {@link TaskExecutor} to deliver events. It runs a single long-lived task
+	 * while this publisher is started. Defaults to a {@link SimpleAsyncTaskExecutor}
+	 * that uses daemon threads.
+	 * @param taskExecutor the {@link TaskExecutor} to use
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		Assert.notNull(taskExecutor, "taskExecutor cannot be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Use this {@link Converter} to capture the secured object on the publishing thread.
+	 * Its result becomes the source of the published event and must not be {@code null}.
+	 * Defaults to the {@link java.lang.reflect.Method} of a {@link MethodInvocation} and
+	 * to the {@link Object#toString()} of anything else.
+	 * @param securedObjectConverter the {@link Converter} to use
+	 */
+	public void setSecuredObjectConverter(Converter<Object, Object> securedObjectConverter) {
+		Assert.notNull(securedObjectConverter, "securedObjectConverter cannot be null");
+		this.securedObjectConverter = securedObjectConverter;
+	}
+
+	/**
+	 * How long {@link #stop()} waits for queued events to be delivered. Defaults to 5
+	 * seconds.
+	 * @param shutdownTimeout the time to wait
+	 */
+	public void setShutdownTimeout(Duration shutdownTimeout) {
+		Assert.notNull(shutdownTimeout, "shutdownTimeout cannot be null");
+		Assert.isTrue(!shutdownTimeout.isNegative(), "shutdownTimeout cannot be negative");
+		this.shutdownTimeout = shutdownTimeout;
+	}
+
+	/**
+	 * Use this {@link OverflowPolicy} when the queue is full. Defaults to
+	 * {@link OverflowPolicy#DROP}.
+	 * @param overflowPolicy the {@link OverflowPolicy} to use
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		Assert.notNull(overflowPolicy, "overflowPolicy cannot be null");
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * The fraction, between 0 and 1, of granted decisions to publish. Defaults to 0.
+	 * @param grantedSampleRate the fraction of granted decisions to publish
+	 */
+	public void setGrantedSampleRate(double grantedSampleRate) {
+		Assert.isTrue(grantedSampleRate >= 0.0 && grantedSampleRate <= 1.0,
+				"grantedSampleRate must be between 0 and 1");
+		this.grantedSampleRate = grantedSampleRate;
+	}
+
+	/**
+	 * The fraction, between 0 and 1, of denied decisions to publish. Defaults to 1.
+	 * @param deniedSampleRate the fraction of denied decisions to publish
+	 */
+	public void setDeniedSampleRate(double deniedSampleRate) {
+		Assert.isTrue(deniedSampleRate >= 0.0 && deniedSampleRate <= 1.0, "deniedSampleRate must be between 0 and 1");
+		this.deniedSampleRate = deniedSampleRate;
+	}
+
+	/**
+	 * The maximum number of events to hand to the sink at once. Defaults to 256.
+	 * @param maxBatchSize the maximum batch size
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "maxBatchSize must be greater than 0");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * What to do with an event when the queue is full
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * Drop the event and count it in {@link #getDroppedCount()}
+		 */
+		DROP,
+
+		/**
+		 * Wait on the publishing thread until there is room in the queue. Events are
+		 * dropped instead while this publisher is not started.
+		 */
+		BLOCK
+
+	}
+
+}
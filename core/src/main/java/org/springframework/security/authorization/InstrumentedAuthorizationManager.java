@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.authorization;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link AuthorizationManager} that records how long each decision takes in the
+ * {@code spring.security.authorizations} metric, tagged with its {@code outcome}
+ * ({@code granted}, {@code denied}, {@code abstain} or {@code error}), the
+ * {@code manager} class and a {@code name}.
+ *
+ * <p>
+ * Wrap the {@link AuthorizationManager} given to a component such as
+ * {@code AuthorizationFilter} or {@code AuthorizationManagerBeforeMethodInterceptor}, or
+ * wrap each entry of a delegating manager using the entry's matcher as the name.
+ *
+ * @param <T> the type of object that the authorization check is being done on
+ * @since 5.8
+ */
+public final class InstrumentedAuthorizationManager<T> implements AuthorizationManager<T> {
+
+	static final String METRIC_NAME = "spring.security.authorizations";
+
+	private final AuthorizationManager<T> delegate;
+
+	private final SecurityMetricsRecorder recorder;
+
+	private final Map<String, String> granted;
+
+	private final Map<String, String> denied;
+
+	private final Map<String, String> abstain;
+
+	private final Map<String, String> error;
+
+	/**
+	 * Construct an {@link InstrumentedAuthorizationManager} named after the delegate's
+	 * class
+	 * @param delegate the {@link AuthorizationManager} to measure
+	 * @param recorder the {@link SecurityMetricsRecorder} to record to
+	 */
+	public InstrumentedAuthorizationManager(AuthorizationManager<T> delegate, SecurityMetricsRecorder recorder) {
+		this(delegate, recorder, nameOf(delegate));
+	}
+
+	/**
+	 * Construct an {@link InstrumentedAuthorizationManager}
+	 * @param delegate the {@link AuthorizationManager} to measure
+	 * @param recorder the {@link SecurityMetricsRecorder} to record to
+	 * @param name the value of the {@code name} tag, for example the request matcher the
+	 * delegate is mapped to
+	 */
+	public InstrumentedAuthorizationManager(AuthorizationManager<T> delegate, SecurityMetricsRecorder recorder,
+			String name) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		Assert.notNull(recorder, "recorder cannot be null");
+		Assert.hasText(name, "name cannot be empty");
+		this.delegate = delegate;
+		this.recorder = recorder;
+		String manager = delegate.getClass().getName();
+		this.granted = tags(manager, name, "granted");
+		this.denied = tags(manager, name, "denied");
+		this.abstain = tags(manager, name, "abstain");
+		this.error = tags(manager, name, "error");
+	}
+
+	private static String nameOf(AuthorizationManager<?> delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		String name = delegate.getClass().getSimpleName();
+		// anonymous classes have no simple name
+		return name.isEmpty() ? delegate.getClass().getName() : name;
+	}
+
+	@Override
+	public AuthorizationDecision check(Supplier<Authentication> authentication, T object) {
+		long start = System.nanoTime();
+		Map<String, String> outcome = this.error;
+		try {
+			AuthorizationDecision decision = this.delegate.check(authentication, object);
+			if (decision == null) {
+				outcome = this.abstain;
+			}
+			else {
+				outcome = decision.isGranted() ? this.granted : this.denied;
+			}
+			return decision;
+		}
+		finally {
+			this.recorder.record(METRIC_NAME, outcome, System.nanoTime() - start);
+		}
+	}
+
+	private static Map<String, String> tags(String manager, String name, String outcome) {
+		Map<String, String> tags = new HashMap<>(4);
+		tags.put("manager", manager);
+		tags.put("name", name);
+		tags.put(SecurityMetricsRecorder.OUTCOME_TAG, outcome);
+		return Collections.unmodifiableMap(tags);
+	}
+
+}
@@ -24,6 +24,7 @@ import org.aopalliance.intercept.MethodInvocation;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.concurrent.Queues;
 
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
@@ -55,6 +56,8 @@ public final class PostFilterAuthorizationReactiveMethodInterceptor
 
 	private int order = AuthorizationInterceptorsOrder.POST_FILTER.getOrder();
 
+	private int batchSize = Queues.SMALL_BUFFER_SIZE;
+
 	/**
 	 * Creates an instance.
 	 */
@@ -117,9 +120,10 @@ public final class PostFilterAuthorizationReactiveMethodInterceptor
 	}
 
 	private Flux<?> filterMultiValue(Publisher<?> publisher, EvaluationContext ctx, ExpressionAttribute attribute) {
-		return Flux.from(publisher)
-			.doOnNext((result) -> setFilterObject(ctx, result))
-			.flatMap((result) -> postFilter(ctx, result, attribute));
+		return Flux.from(publisher).filterWhen((result) -> {
+			setFilterObject(ctx, result);
+			return ReactiveExpressionUtils.evaluateAsBoolean(attribute.getExpression(), ctx);
+		}, this.batchSize);
 	}
 
 	private void setFilterObject(EvaluationContext ctx, Object result) {
@@ -155,4 +159,17 @@ public final class PostFilterAuthorizationReactiveMethodInterceptor
 		this.order = order;
 	}
 
+	/**
+	 * Sets how many elements of a multi-value publisher are requested from upstream at a
+	 * time while they are being filtered. Elements are evaluated one after the other,
+	 * reusing the same {@link EvaluationContext}, and in their original order. The
+	 * default is {@link Queues#SMALL_BUFFER_SIZE}.
+	 * @param batchSize the number of elements to request at a time, must be positive
+	 * @since 5.8
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.metrics;
+
+import java.util.Map;
+
+/**
+ * A strategy for recording how long a security component took to do its work, for example
+ * to bridge into Micrometer:
+ *
+ * <pre>
+ *	SecurityMetricsRecorder recorder = (name, tags, nanos) -&gt; Timer.builder(name)
+ *			.tags(tags.entrySet().stream().map((e) -&gt; Tag.of(e.getKey(), e.getValue())).collect(toList()))
+ *			.register(registry)
+ *			.record(nanos, TimeUnit.NANOSECONDS);
+ * </pre>
+ *
+ * Each recording also counts as one occurrence, so a timer is enough to derive counts per
+ * outcome.
+ *
+ * <p>
+ * Instrumentation is opt-in: components only measure anything once a recorder has been
+ * configured.
+ *
+ * @since 5.8
+ */
+@FunctionalInterface
+public interface SecurityMetricsRecorder {
+
+	/**
+	 * The tag holding the outcome of the measured operation
+	 */
+	String OUTCOME_TAG = "outcome";
+
+	/**
+	 * Record one occurrence of an operation
+	 * @param name the name of the metric, for example
+	 * {@code spring.security.authorizations}
+	 * @param tags the tags describing this occurrence, such as its outcome and the
+	 * component that handled it
+	 * @param durationNanos how long the operation took, in nanoseconds
+	 */
+	void record(String name, Map<String, String> tags, long durationNanos);
+
+}
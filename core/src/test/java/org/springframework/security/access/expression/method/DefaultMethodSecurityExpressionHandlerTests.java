@@ -16,11 +16,14 @@
 
 package org.springframework.security.access.expression.method;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.aopalliance.intercept.MethodInvocation;
@@ -35,6 +38,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.security.access.expression.SecurityExpressionRoot;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.core.Authentication;
@@ -172,6 +176,76 @@ public class DefaultMethodSecurityExpressionHandlerTests {
 		verify(upstream).close();
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void filterWhenCollectionAboveParallelThresholdThenFiltersInOrder() {
+		setupMocks();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		this.handler.setParallelFilterThreshold(100);
+		this.handler.setParallelFilterPool(pool);
+		List<Integer> list = IntStream.range(0, 10000).boxed().collect(Collectors.toCollection(ArrayList::new));
+		Expression expression = this.handler.getExpressionParser().parseExpression("filterObject % 3 == 0");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		try {
+			Object filtered = this.handler.filter(list, expression, context);
+			assertThat(filtered).isSameAs(list);
+			assertThat((List<Integer>) filtered)
+				.containsExactlyElementsOf(IntStream.range(0, 10000).filter((i) -> i % 3 == 0).boxed()::iterator);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void filterWhenArrayAboveParallelThresholdThenFiltersInOrder() {
+		setupMocks();
+		this.handler.setParallelFilterThreshold(2);
+		String[] array = { "1", "2", "3", "4", "5" };
+		Expression expression = this.handler.getExpressionParser()
+			.parseExpression("filterObject ne '2' and authentication != null");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		Object filtered = this.handler.filter(array, expression, context);
+		assertThat(filtered).isInstanceOf(String[].class);
+		assertThat((String[]) filtered).containsExactly("1", "3", "4", "5");
+	}
+
+	@Test
+	public void filterWhenParallelAndContextHasVariablesThenChunksSeeVariables() {
+		setupMocks();
+		this.handler.setParallelFilterThreshold(2);
+		String[] array = { "1", "2", "3", "4", "5" };
+		Expression expression = this.handler.getExpressionParser().parseExpression("filterObject ne #excluded");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		context.setVariable("excluded", "3");
+		Object filtered = this.handler.filter(array, expression, context);
+		assertThat((String[]) filtered).containsExactly("1", "2", "4", "5");
+	}
+
+	@Test
+	public void filterWhenParallelAndCustomContextThenFiltersSequentially() {
+		given(this.methodInvocation.getThis()).willReturn(new Foo());
+		this.handler.setParallelFilterThreshold(2);
+		String[] array = { "1", "2", "3" };
+		Expression expression = this.handler.getExpressionParser().parseExpression("filterObject ne #excluded");
+		MethodSecurityExpressionOperations root = this.handler.createSecurityExpressionRoot(this.authentication,
+				this.methodInvocation);
+		StandardEvaluationContext context = new StandardEvaluationContext(root);
+		context.setVariable("excluded", "2");
+		Object filtered = this.handler.filter(array, expression, context);
+		assertThat((String[]) filtered).containsExactly("1", "3");
+	}
+
+	@Test
+	public void setParallelFilterThresholdWhenLessThanTwoThenIllegalArgument() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.handler.setParallelFilterThreshold(1));
+	}
+
+	@Test
+	public void setParallelFilterPoolWhenNullThenIllegalArgument() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.handler.setParallelFilterPool(null));
+	}
+
 	@Test
 	public void createEvaluationContextSupplierAuthentication() {
 		setupMocks();
@@ -21,6 +21,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.junit.jupiter.api.Test;
@@ -30,8 +35,12 @@ import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.util.SimpleMethodInvocation;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author Luke Taylor
@@ -77,4 +86,63 @@ public class DelegatingMethodSecurityMetadataSourceTests {
 			.isEmpty();
 	}
 
+	@Test
+	public void getAttributesWhenCacheFullThenEvictsAndReloads() throws Exception {
+		MethodSecurityMetadataSource delegate = mock(MethodSecurityMetadataSource.class);
+		ConfigAttribute ca = mock(ConfigAttribute.class);
+		List attributes = Arrays.asList(ca);
+		Method toString = String.class.getMethod("toString");
+		Method length = String.class.getMethod("length");
+		given(delegate.getAttributes(toString, String.class)).willReturn(attributes);
+		given(delegate.getAttributes(length, String.class)).willReturn(attributes);
+		this.mds = new DelegatingMethodSecurityMetadataSource(Collections.singletonList(delegate));
+		this.mds.setMaxCacheSize(1);
+		assertThat(this.mds.getAttributes(toString, String.class)).isSameAs(attributes);
+		assertThat(this.mds.getAttributes(length, String.class)).isSameAs(attributes);
+		assertThat(this.mds.getAttributes(toString, String.class)).isSameAs(attributes);
+		verify(delegate, times(2)).getAttributes(toString, String.class);
+		verify(delegate, times(1)).getAttributes(length, String.class);
+	}
+
+	@Test
+	public void setMaxCacheSizeWhenNotPositiveThenIllegalArgument() {
+		this.mds = new DelegatingMethodSecurityMetadataSource(Collections.emptyList());
+		assertThatIllegalArgumentException().isThrownBy(() -> this.mds.setMaxCacheSize(0));
+	}
+
+	@Test
+	public void getAttributesWhenContendedThenAllThreadsSeeCachedAttributes() throws Exception {
+		int threads = 64;
+		MethodSecurityMetadataSource delegate = mock(MethodSecurityMetadataSource.class);
+		ConfigAttribute ca = mock(ConfigAttribute.class);
+		List attributes = Arrays.asList(ca);
+		Method toString = String.class.getMethod("toString");
+		given(delegate.getAttributes(toString, String.class)).willReturn(attributes);
+		this.mds = new DelegatingMethodSecurityMetadataSource(Collections.singletonList(delegate));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					for (int j = 0; j < 1000; j++) {
+						if (this.mds.getAttributes(toString, String.class) != attributes) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			start.countDown();
+			for (Future<Boolean> result : results) {
+				assertThat(result.get(10, TimeUnit.SECONDS)).isTrue();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		verify(delegate, atMost(threads)).getAttributes(toString, String.class);
+	}
+
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link InstrumentedAuthenticationManager}
+ */
+public class InstrumentedAuthenticationManagerTests {
+
+	AuthenticationManager delegate = mock(AuthenticationManager.class);
+
+	SecurityMetricsRecorder recorder = mock(SecurityMetricsRecorder.class);
+
+	Authentication authentication = new TestingAuthenticationToken("user", "password");
+
+	@Test
+	public void constructorWhenRecorderNullThenIllegalArgument() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new InstrumentedAuthenticationManager(this.delegate, null))
+			.withMessage("recorder cannot be null");
+	}
+
+	@Test
+	public void authenticateWhenSuccessThenRecordsSuccess() {
+		Authentication result = TestAuthentication.authenticatedUser();
+		given(this.delegate.authenticate(this.authentication)).willReturn(result);
+		AuthenticationManager manager = new InstrumentedAuthenticationManager(this.delegate, this.recorder);
+		assertThat(manager.authenticate(this.authentication)).isSameAs(result);
+		assertThat(recordedTags()).containsEntry("outcome", "success")
+			.containsEntry("manager", this.delegate.getClass().getName());
+	}
+
+	@Test
+	public void authenticateWhenNullThenRecordsAbstain() {
+		AuthenticationManager manager = new InstrumentedAuthenticationManager(this.delegate, this.recorder);
+		assertThat(manager.authenticate(this.authentication)).isNull();
+		assertThat(recordedTags()).containsEntry("outcome", "abstain");
+	}
+
+	@Test
+	public void authenticateWhenAuthenticationExceptionThenRecordsFailure() {
+		given(this.delegate.authenticate(this.authentication)).willThrow(new BadCredentialsException("bad"));
+		AuthenticationManager manager = new InstrumentedAuthenticationManager(this.delegate, this.recorder);
+		assertThatExceptionOfType(BadCredentialsException.class)
+			.isThrownBy(() -> manager.authenticate(this.authentication));
+		assertThat(recordedTags()).containsEntry("outcome", "failure");
+	}
+
+	@Test
+	public void authenticateWhenOtherExceptionThenRecordsError() {
+		given(this.delegate.authenticate(this.authentication)).willThrow(new IllegalStateException("boom"));
+		AuthenticationManager manager = new InstrumentedAuthenticationManager(this.delegate, this.recorder);
+		assertThatExceptionOfType(IllegalStateException.class)
+			.isThrownBy(() -> manager.authenticate(this.authentication));
+		assertThat(recordedTags()).containsEntry("outcome", "error");
+	}
+
+	@Test
+	public void authenticateWhenProviderThenRecordsProvider() {
+		AuthenticationProvider provider = mock(AuthenticationProvider.class);
+		given(provider.supports(TestingAuthenticationToken.class)).willReturn(true);
+		given(provider.authenticate(this.authentication)).willReturn(this.authentication);
+		AuthenticationProvider instrumented = new InstrumentedAuthenticationProvider(provider, this.recorder);
+		assertThat(instrumented.supports(TestingAuthenticationToken.class)).isTrue();
+		assertThat(instrumented.authenticate(this.authentication)).isSameAs(this.authentication);
+		ArgumentCaptor<Map<String, String>> tags = ArgumentCaptor.forClass(Map.class);
+		verify(this.recorder).record(eq(InstrumentedAuthenticationProvider.METRIC_NAME), tags.capture(), anyLong());
+		assertThat(tags.getValue()).containsEntry("outcome", "success")
+			.containsEntry("provider", provider.getClass().getName());
+	}
+
+	private Map<String, String> recordedTags() {
+		ArgumentCaptor<Map<String, String>> tags = ArgumentCaptor.forClass(Map.class);
+		verify(this.recorder).record(eq(InstrumentedAuthenticationManager.METRIC_NAME), tags.capture(), anyLong());
+		return tags.getValue();
+	}
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authorization;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.authentication.TestAuthentication;
+import org.springframework.security.authorization.event.AuthorizationDeniedEvent;
+import org.springframework.security.authorization.event.AuthorizationEvent;
+import org.springframework.security.authorization.event.AuthorizationGrantedEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link AsyncAuthorizationEventPublisher}
+ */
+public class AsyncAuthorizationEventPublisherTests {
+
+	Authentication user = TestAuthentication.authenticatedUser();
+
+	Supplier<Authentication> authentication = () -> this.user;
+
+	List<AuthorizationEvent> delivered = new CopyOnWriteArrayList<>();
+
+	AsyncAuthorizationEventPublisher publisher;
+
+	@AfterEach
+	public void cleanup() throws Exception {
+		if (this.publisher != null) {
+			this.publisher.destroy();
+		}
+	}
+
+	@Test
+	public void constructorWhenSinkNullThenIllegalArgument() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new AsyncAuthorizationEventPublisher(null))
+			.withMessage("sink cannot be null");
+	}
+
+	@Test
+	public void publishWhenDeniedThenDeliveredWithResolvedAuthentication() throws Exception {
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		this.publisher.start();
+		this.publisher.publishAuthorizationEvent(this.authentication, "object", new AuthorizationDecision(false));
+		this.publisher.destroy();
+		assertThat(this.delivered).hasSize(1);
+		assertThat(this.delivered.get(0)).isInstanceOf(AuthorizationDeniedEvent.class);
+		assertThat(this.delivered.get(0).getAuthentication().get()).isSameAs(this.user);
+	}
+
+	@Test
+	public void publishWhenGrantedThenNotDeliveredByDefault() throws Exception {
+		Supplier<Authentication> authentication = mock(Supplier.class);
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		this.publisher.start();
+		this.publisher.publishAuthorizationEvent(authentication, "object", new AuthorizationDecision(true));
+		this.publisher.destroy();
+		assertThat(this.delivered).isEmpty();
+		verifyNoInteractions(authentication);
+	}
+
+	@Test
+	public void publishWhenGrantedAndSampledThenDelivered() throws Exception {
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		this.publisher.setGrantedSampleRate(1.0);
+		this.publisher.setDeniedSampleRate(0.0);
+		this.publisher.start();
+		this.publisher.publishAuthorizationEvent(this.authentication, "granted", new AuthorizationDecision(true));
+		this.publisher.publishAuthorizationEvent(this.authentication, "denied", new AuthorizationDecision(false));
+		this.publisher.destroy();
+		assertThat(this.delivered).hasSize(1);
+		assertThat(this.delivered.get(0)).isInstanceOf(AuthorizationGrantedEvent.class);
+		assertThat(this.delivered.get(0).getSource()).isEqualTo("granted");
+	}
+
+	@Test
+	public void publishWhenQueueFullAndDropPolicyThenDropped() throws Exception {
+		CountDownLatch delivering = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		this.publisher = new AsyncAuthorizationEventPublisher((events) -> {
+			delivering.countDown();
+			await(release);
+			this.delivered.addAll(events);
+		}, 1);
+		this.publisher.start();
+		AuthorizationDecision denied = new AuthorizationDecision(false);
+		this.publisher.publishAuthorizationEvent(this.authentication, "first", denied);
+		assertThat(delivering.await(5, TimeUnit.SECONDS)).isTrue();
+		this.publisher.publishAuthorizationEvent(this.authentication, "second", denied);
+		this.publisher.publishAuthorizationEvent(this.authentication, "third", denied);
+		assertThat(this.publisher.getDroppedCount()).isEqualTo(1);
+		release.countDown();
+		this.publisher.destroy();
+		assertThat(this.delivered).extracting(AuthorizationEvent::getSource).containsExactly("first", "second");
+	}
+
+	@Test
+	public void publishWhenSinkFailsThenKeepsDelivering() throws Exception {
+		this.publisher = new AsyncAuthorizationEventPublisher((events) -> {
+			if (events.get(0).getSource().equals("fail")) {
+				throw new IllegalStateException("sink failure");
+			}
+			this.delivered.addAll(events);
+		});
+		this.publisher.setMaxBatchSize(1);
+		this.publisher.start();
+		AuthorizationDecision denied = new AuthorizationDecision(false);
+		this.publisher.publishAuthorizationEvent(this.authentication, "fail", denied);
+		this.publisher.publishAuthorizationEvent(this.authentication, "ok", denied);
+		this.publisher.destroy();
+		assertThat(this.delivered).extracting(AuthorizationEvent::getSource).containsExactly("ok");
+	}
+
+	@Test
+	public void fromApplicationEventPublisherWhenDeniedThenPublished() throws Exception {
+		ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+		this.publisher = AsyncAuthorizationEventPublisher.fromApplicationEventPublisher(eventPublisher);
+		this.publisher.start();
+		this.publisher.publishAuthorizationEvent(this.authentication, "object", new AuthorizationDecision(false));
+		verify(eventPublisher, timeout(5000)).publishEvent(isA(AuthorizationDeniedEvent.class));
+	}
+
+	@Test
+	public void publishWhenMethodInvocationThenSourceIsMethod() throws Exception {
+		MethodInvocation invocation = new SimpleMethodInvocation(new Object(), Object.class.getMethod("toString"));
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		this.publisher.start();
+		this.publisher.publishAuthorizationEvent(this.authentication, invocation, new AuthorizationDecision(false));
+		this.publisher.destroy();
+		assertThat(this.delivered).extracting(AuthorizationEvent::getSource)
+			.containsExactly(Object.class.getMethod("toString"));
+	}
+
+	@Test
+	public void publishWhenCustomSecuredObjectConverterThenSourceIsConverted() throws Exception {
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		this.publisher.setSecuredObjectConverter((object) -> "converted");
+		this.publisher.start();
+		this.publisher.publishAuthorizationEvent(this.authentication, new Object(), new AuthorizationDecision(false));
+		this.publisher.destroy();
+		assertThat(this.delivered).extracting(AuthorizationEvent::getSource).containsExactly("converted");
+	}
+
+	@Test
+	public void publishWhenNotStartedThenQueuedUntilStarted() throws Exception {
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		this.publisher.publishAuthorizationEvent(this.authentication, "object", new AuthorizationDecision(false));
+		assertThat(this.publisher.getQueueSize()).isEqualTo(1);
+		assertThat(this.delivered).isEmpty();
+		this.publisher.start();
+		this.publisher.destroy();
+		assertThat(this.delivered).hasSize(1);
+	}
+
+	@Test
+	public void publishWhenBlockPolicyAndNotRunningThenDroppedInsteadOfBlocking() {
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll, 1);
+		this.publisher.setOverflowPolicy(AsyncAuthorizationEventPublisher.OverflowPolicy.BLOCK);
+		AuthorizationDecision denied = new AuthorizationDecision(false);
+		this.publisher.publishAuthorizationEvent(this.authentication, "first", denied);
+		this.publisher.publishAuthorizationEvent(this.authentication, "second", denied);
+		assertThat(this.publisher.getDroppedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void destroyWhenEventsUndeliveredThenCountedAsDropped() {
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		this.publisher.publishAuthorizationEvent(this.authentication, "object", new AuthorizationDecision(false));
+		this.publisher.destroy();
+		assertThat(this.publisher.getDroppedCount()).isEqualTo(1);
+		assertThat(this.publisher.getQueueSize()).isZero();
+		this.publisher.publishAuthorizationEvent(this.authentication, "object", new AuthorizationDecision(false));
+		assertThat(this.publisher.getQueueSize()).isZero();
+	}
+
+	@Test
+	public void startWhenTaskExecutorThenDrainsOnTaskExecutor() throws Exception {
+		TaskExecutor taskExecutor = mock(TaskExecutor.class);
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		this.publisher.setTaskExecutor(taskExecutor);
+		this.publisher.setShutdownTimeout(Duration.ZERO);
+		this.publisher.start();
+		assertThat(this.publisher.isRunning()).isTrue();
+		verify(taskExecutor).execute(any());
+	}
+
+	@Test
+	public void setGrantedSampleRateWhenOutOfRangeThenIllegalArgument() {
+		this.publisher = new AsyncAuthorizationEventPublisher(this.delivered::addAll);
+		assertThatIllegalArgumentException().isThrownBy(() -> this.publisher.setGrantedSampleRate(1.5));
+		assertThatIllegalArgumentException().isThrownBy(() -> this.publisher.setDeniedSampleRate(-0.1));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
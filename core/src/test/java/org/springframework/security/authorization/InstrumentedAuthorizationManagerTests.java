@@ -0,0 +1,119 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authorization;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.security.authentication.TestAuthentication;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link InstrumentedAuthorizationManager}
+ */
+public class InstrumentedAuthorizationManagerTests {
+
+	AuthorizationManager<Object> delegate = mock(AuthorizationManager.class);
+
+	SecurityMetricsRecorder recorder = mock(SecurityMetricsRecorder.class);
+
+	Supplier<Authentication> authentication = TestAuthentication::authenticatedUser;
+
+	@Test
+	public void constructorWhenNameEmptyThenIllegalArgument() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new InstrumentedAuthorizationManager<>(this.delegate, this.recorder, ""))
+			.withMessage("name cannot be empty");
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgument() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new InstrumentedAuthorizationManager<>(null, this.recorder))
+			.withMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void constructorWhenAnonymousDelegateThenNamedAfterClassName() {
+		AuthorizationManager<Object> delegate = new AuthorizationManager<Object>() {
+			@Override
+			public AuthorizationDecision check(Supplier<Authentication> authentication, Object object) {
+				return new AuthorizationDecision(false);
+			}
+		};
+		AuthorizationManager<Object> manager = new InstrumentedAuthorizationManager<>(delegate, this.recorder);
+		manager.check(this.authentication, "object");
+		assertThat(recordedTags()).containsEntry("name", delegate.getClass().getName());
+	}
+
+	@Test
+	public void checkWhenGrantedThenRecordsGranted() {
+		AuthorizationDecision decision = new AuthorizationDecision(true);
+		given(this.delegate.check(this.authentication, "object")).willReturn(decision);
+		AuthorizationManager<Object> manager = new InstrumentedAuthorizationManager<>(this.delegate, this.recorder,
+				"/admin/**");
+		assertThat(manager.check(this.authentication, "object")).isSameAs(decision);
+		assertThat(recordedTags()).containsEntry("outcome", "granted")
+			.containsEntry("name", "/admin/**")
+			.containsEntry("manager", this.delegate.getClass().getName());
+	}
+
+	@Test
+	public void checkWhenDeniedThenRecordsDenied() {
+		given(this.delegate.check(this.authentication, "object")).willReturn(new AuthorizationDecision(false));
+		AuthorizationManager<Object> manager = new InstrumentedAuthorizationManager<>(this.delegate, this.recorder);
+		manager.check(this.authentication, "object");
+		assertThat(recordedTags()).containsEntry("outcome", "denied")
+			.containsEntry("name", this.delegate.getClass().getSimpleName());
+	}
+
+	@Test
+	public void checkWhenNullDecisionThenRecordsAbstain() {
+		AuthorizationManager<Object> manager = new InstrumentedAuthorizationManager<>(this.delegate, this.recorder);
+		assertThat(manager.check(this.authentication, "object")).isNull();
+		assertThat(recordedTags()).containsEntry("outcome", "abstain");
+	}
+
+	@Test
+	public void checkWhenExceptionThenRecordsError() {
+		given(this.delegate.check(this.authentication, "object")).willThrow(new IllegalStateException("boom"));
+		AuthorizationManager<Object> manager = new InstrumentedAuthorizationManager<>(this.delegate, this.recorder);
+		assertThatExceptionOfType(IllegalStateException.class)
+			.isThrownBy(() -> manager.check(this.authentication, "object"));
+		assertThat(recordedTags()).containsEntry("outcome", "error");
+	}
+
+	private Map<String, String> recordedTags() {
+		ArgumentCaptor<Map<String, String>> tags = ArgumentCaptor.forClass(Map.class);
+		verify(this.recorder).record(eq(InstrumentedAuthorizationManager.METRIC_NAME), tags.capture(), anyLong());
+		return tags.getValue();
+	}
+
+}
@@ -105,6 +105,32 @@ public class PostFilterAuthorizationReactiveMethodInterceptorTests {
 			.containsOnly("john");
 	}
 
+	@Test
+	public void invokeWhenFluxAndSmallBatchSizeThenFilteredInOrder() throws Throwable {
+		Flux<String> flux = Flux.just("john", "bob", "john", "jim", "john");
+		MockMethodInvocation methodInvocation = new MockMethodInvocation(new TestClass(), TestClass.class,
+				"doSomethingFluxClassLevel", new Class[] { Flux.class }, new Object[] { flux }) {
+			@Override
+			public Object proceed() {
+				return flux;
+			}
+		};
+		PostFilterAuthorizationReactiveMethodInterceptor interceptor = new PostFilterAuthorizationReactiveMethodInterceptor();
+		interceptor.setBatchSize(2);
+		Object result = interceptor.invoke(methodInvocation);
+		assertThat(result).asInstanceOf(InstanceOfAssertFactories.type(Flux.class))
+			.extracting(Flux::collectList)
+			.extracting(Mono::block, InstanceOfAssertFactories.list(String.class))
+			.containsExactly("john", "john", "john");
+	}
+
+	@Test
+	public void setBatchSizeWhenNotPositiveThenException() {
+		PostFilterAuthorizationReactiveMethodInterceptor interceptor = new PostFilterAuthorizationReactiveMethodInterceptor();
+		assertThatIllegalArgumentException().isThrownBy(() -> interceptor.setBatchSize(0))
+			.withMessage("batchSize must be greater than 0");
+	}
+
 	@Test
 	public void checkInheritedAnnotationsWhenDuplicatedThenAnnotationConfigurationException() throws Exception {
 		MockMethodInvocation methodInvocation = new MockMethodInvocation(new TestClass(), TestClass.class,
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,16 @@
 
 package org.springframework.security.oauth2.client;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 import org.springframework.lang.Nullable;
@@ -64,6 +71,15 @@ import org.springframework.util.StringUtils;
  * {@link OAuth2AuthorizationFailureHandler} via
  * {@link #setAuthorizationFailureHandler(OAuth2AuthorizationFailureHandler)}.
  *
+ * <h2>Concurrent Authorizations</h2>
+ *
+ * <p>
+ * Authorizations for the same client registration and principal do not overlap. While one
+ * is in flight, for example while an expired access token is being renewed, other callers
+ * for the same {@link OAuth2AuthorizedClientId} wait for it to finish and then authorize
+ * against the {@link OAuth2AuthorizedClient} it saved, so that a single token request is
+ * made instead of one per caller.
+ *
  * @author Joe Grandja
  * @since 5.2
  * @see OAuth2AuthorizedClientManager
@@ -91,6 +107,10 @@ public final class AuthorizedClientServiceOAuth2AuthorizedClientManager implemen
 
 	private OAuth2AuthorizationFailureHandler authorizationFailureHandler;
 
+	private final ConcurrentMap<OAuth2AuthorizedClientId, CompletableFuture<Void>> inflightAuthorizations = new ConcurrentHashMap<>();
+
+	private Duration inflightAuthorizationTimeout = Duration.ofSeconds(10);
+
 	/**
 	 * Constructs an {@code AuthorizedClientServiceOAuth2AuthorizedClientManager} using
 	 * the provided parameters.
@@ -117,6 +137,42 @@ public final class AuthorizedClientServiceOAuth2AuthorizedClientManager implemen
 	@Override
 	public OAuth2AuthorizedClient authorize(OAuth2AuthorizeRequest authorizeRequest) {
 		Assert.notNull(authorizeRequest, "authorizeRequest cannot be null");
+		String principalName = authorizeRequest.getPrincipal().getName();
+		if (!StringUtils.hasText(principalName)) {
+			return doAuthorize(authorizeRequest);
+		}
+		OAuth2AuthorizedClientId authorizedClientId = new OAuth2AuthorizedClientId(
+				authorizeRequest.getClientRegistrationId(), principalName);
+		CompletableFuture<Void> authorization = new CompletableFuture<>();
+		CompletableFuture<Void> inflight = this.inflightAuthorizations.putIfAbsent(authorizedClientId, authorization);
+		if (inflight != null) {
+			// Let the in-flight authorization save its result first, so this one can
+			// reuse it instead of requesting another token
+			awaitInflightAuthorization(inflight);
+			return doAuthorize(authorizeRequest);
+		}
+		try {
+			return doAuthorize(authorizeRequest);
+		}
+		finally {
+			this.inflightAuthorizations.remove(authorizedClientId, authorization);
+			authorization.complete(null);
+		}
+	}
+
+	private void awaitInflightAuthorization(CompletableFuture<Void> inflight) {
+		try {
+			inflight.get(this.inflightAuthorizationTimeout.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException | TimeoutException ex) {
+			// authorize independently rather than keep the request thread waiting
+		}
+	}
+
+	private OAuth2AuthorizedClient doAuthorize(OAuth2AuthorizeRequest authorizeRequest) {
 		String clientRegistrationId = authorizeRequest.getClientRegistrationId();
 		OAuth2AuthorizedClient authorizedClient = authorizeRequest.getAuthorizedClient();
 		Authentication principal = authorizeRequest.getPrincipal();
@@ -235,6 +291,20 @@ public final class AuthorizedClientServiceOAuth2AuthorizedClientManager implemen
 		this.authorizationFailureHandler = authorizationFailureHandler;
 	}
 
+	/**
+	 * Sets how long an authorization waits for a concurrent authorization of the same
+	 * client and principal to finish before authorizing on its own. The default is 10
+	 * seconds.
+	 * @param inflightAuthorizationTimeout the maximum time to wait for a concurrent
+	 * authorization
+	 * @since 5.8
+	 */
+	public void setInflightAuthorizationTimeout(Duration inflightAuthorizationTimeout) {
+		Assert.notNull(inflightAuthorizationTimeout, "inflightAuthorizationTimeout cannot be null");
+		Assert.isTrue(!inflightAuthorizationTimeout.isNegative(), "inflightAuthorizationTimeout cannot be negative");
+		this.inflightAuthorizationTimeout = inflightAuthorizationTimeout;
+	}
+
 	/**
 	 * The default implementation of the {@link #setContextAttributesMapper(Function)
 	 * contextAttributesMapper}.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,17 +16,23 @@
 
 package org.springframework.security.oauth2.client;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
 import org.springframework.security.oauth2.client.web.DefaultReactiveOAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 
 /**
@@ -70,6 +76,16 @@ import org.springframework.web.server.ServerWebExchange;
  * {@link #setAuthorizationFailureHandler(ReactiveOAuth2AuthorizationFailureHandler)}.
  * </p>
  *
+ * <h2>Concurrent Authorizations</h2>
+ *
+ * <p>
+ * Authorizations for the same client registration and principal do not overlap. While one
+ * is in flight, for example while an expired access token is being renewed, other
+ * subscribers for the same {@link OAuth2AuthorizedClientId} wait for it to finish and
+ * then authorize against the {@link OAuth2AuthorizedClient} it saved, so that a single
+ * token request is made instead of one per subscriber.
+ * </p>
+ *
  * @author Ankur Pathak
  * @author Phil Clay
  * @since 5.2.2
@@ -99,6 +115,10 @@ public final class AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager
 
 	private ReactiveOAuth2AuthorizationFailureHandler authorizationFailureHandler;
 
+	private final ConcurrentMap<OAuth2AuthorizedClientId, Sinks.Empty<Void>> inflightAuthorizations = new ConcurrentHashMap<>();
+
+	private Duration inflightAuthorizationTimeout = Duration.ofSeconds(10);
+
 	/**
 	 * Constructs an {@code AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager}
 	 * using the provided parameters.
@@ -122,6 +142,34 @@ public final class AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager
 	@Override
 	public Mono<OAuth2AuthorizedClient> authorize(OAuth2AuthorizeRequest authorizeRequest) {
 		Assert.notNull(authorizeRequest, "authorizeRequest cannot be null");
+		String principalName = authorizeRequest.getPrincipal().getName();
+		if (!StringUtils.hasText(principalName)) {
+			return doAuthorize(authorizeRequest);
+		}
+		OAuth2AuthorizedClientId authorizedClientId = new OAuth2AuthorizedClientId(
+				authorizeRequest.getClientRegistrationId(), principalName);
+		return Mono.defer(() -> {
+			Sinks.Empty<Void> authorization = Sinks.empty();
+			Sinks.Empty<Void> inflight = this.inflightAuthorizations.putIfAbsent(authorizedClientId, authorization);
+			if (inflight != null) {
+				// Let the in-flight authorization save its result first, so this one can
+				// reuse it instead of requesting another token
+				// @formatter:off
+				return inflight.asMono()
+						.timeout(this.inflightAuthorizationTimeout)
+						// authorize independently rather than wait indefinitely
+						.onErrorResume(TimeoutException.class, (ex) -> Mono.empty())
+						.then(Mono.defer(() -> doAuthorize(authorizeRequest)));
+				// @formatter:on
+			}
+			return doAuthorize(authorizeRequest).doFinally((signalType) -> {
+				this.inflightAuthorizations.remove(authorizedClientId, authorization);
+				authorization.tryEmitEmpty();
+			});
+		});
+	}
+
+	private Mono<OAuth2AuthorizedClient> doAuthorize(OAuth2AuthorizeRequest authorizeRequest) {
 		return createAuthorizationContext(authorizeRequest)
 			.flatMap((authorizationContext) -> authorize(authorizationContext, authorizeRequest.getPrincipal()));
 	}
@@ -232,6 +280,20 @@ public final class AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager
 		this.authorizationFailureHandler = authorizationFailureHandler;
 	}
 
+	/**
+	 * Sets how long an authorization waits for a concurrent authorization of the same
+	 * client and principal to finish before authorizing on its own. The default is 10
+	 * seconds.
+	 * @param inflightAuthorizationTimeout the maximum time to wait for a concurrent
+	 * authorization
+	 * @since 5.8
+	 */
+	public void setInflightAuthorizationTimeout(Duration inflightAuthorizationTimeout) {
+		Assert.notNull(inflightAuthorizationTimeout, "inflightAuthorizationTimeout cannot be null");
+		Assert.isTrue(!inflightAuthorizationTimeout.isNegative(), "inflightAuthorizationTimeout cannot be negative");
+		this.inflightAuthorizationTimeout = inflightAuthorizationTimeout;
+	}
+
 	/**
 	 * The default implementation of the {@link #setContextAttributesMapper(Function)
 	 * contextAttributesMapper}.
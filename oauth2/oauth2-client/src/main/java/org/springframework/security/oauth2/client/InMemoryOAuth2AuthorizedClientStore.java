@@ -0,0 +1,253 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.util.Assert;
+
+/**
+ * The storage behind {@link InMemoryOAuth2AuthorizedClientService} and
+ * {@link InMemoryReactiveOAuth2AuthorizedClientService}, optionally bounded in size and
+ * in time.
+ *
+ * <p>
+ * Expired entries are removed when they are read, and swept from the whole store at most
+ * once per minute when a client is saved. Without a time to live or eviction on token
+ * expiry, entries never expire and the store is not swept. When the store is full,
+ * expired entries are swept first and, if that is not enough, the least recently saved entries are evicted
+ * until the store is back under 90% of its maximum size.
+ *
+ * <p>
+ * Each eviction is recorded in the
+ * {@code spring.security.oauth2.authorized.clients.evictions} metric, tagged with its
+ * {@code reason} ({@code expired} or {@code size}).
+ *
+ * @since 5.8
+ */
+final class InMemoryOAuth2AuthorizedClientStore {
+
+	static final String METRIC_NAME = "spring.security.oauth2.authorized.clients.evictions";
+
+	private static final SecurityMetricsRecorder NOOP_RECORDER = (name, tags, durationNanos) -> {
+	};
+
+	private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+	private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+	private final Map<OAuth2AuthorizedClientId, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final AtomicLong estimatedMemoryUsage = new AtomicLong();
+
+	private volatile Instant nextSweep = Instant.MIN;
+
+	private int maxSize = Integer.MAX_VALUE;
+
+	private Duration timeToLive;
+
+	private boolean evictOnTokenExpiry;
+
+	private Clock clock = Clock.systemUTC();
+
+	private SecurityMetricsRecorder metricsRecorder = NOOP_RECORDER;
+
+	OAuth2AuthorizedClient get(OAuth2AuthorizedClientId authorizedClientId) {
+		Entry entry = this.entries.get(authorizedClientId);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired(this.clock.instant())) {
+			evict(authorizedClientId, entry, "expired");
+			return null;
+		}
+		return entry.authorizedClient;
+	}
+
+	void put(OAuth2AuthorizedClientId authorizedClientId, OAuth2AuthorizedClient authorizedClient) {
+		Instant now = this.clock.instant();
+		boolean expires = this.timeToLive != null || this.evictOnTokenExpiry;
+		if (expires && now.isAfter(this.nextSweep)) {
+			this.nextSweep = now.plus(SWEEP_INTERVAL);
+			sweep(now);
+		}
+		if (this.entries.size() >= this.maxSize && !this.entries.containsKey(authorizedClientId)) {
+			if (expires) {
+				sweep(now);
+			}
+			if (this.entries.size() >= this.maxSize) {
+				evictOldest();
+			}
+		}
+		Entry entry = new Entry(authorizedClient, this.sequence.incrementAndGet(), deadline(authorizedClient, now),
+				estimateSize(authorizedClient));
+		this.estimatedMemoryUsage.addAndGet(entry.estimatedSize);
+		Entry previous = this.entries.put(authorizedClientId, entry);
+		if (previous != null) {
+			this.estimatedMemoryUsage.addAndGet(-previous.estimatedSize);
+		}
+	}
+
+	void remove(OAuth2AuthorizedClientId authorizedClientId) {
+		Entry previous = this.entries.remove(authorizedClientId);
+		if (previous != null) {
+			this.estimatedMemoryUsage.addAndGet(-previous.estimatedSize);
+		}
+	}
+
+	int size() {
+		return this.entries.size();
+	}
+
+	long getEstimatedMemoryUsage() {
+		return this.estimatedMemoryUsage.get();
+	}
+
+	private void sweep(Instant now) {
+		for (Map.Entry<OAuth2AuthorizedClientId, Entry> entry : this.entries.entrySet()) {
+			if (entry.getValue().isExpired(now)) {
+				evict(entry.getKey(), entry.getValue(), "expired");
+			}
+		}
+	}
+
+	private void evictOldest() {
+		List<Map.Entry<OAuth2AuthorizedClientId, Entry>> oldest = new ArrayList<>(this.entries.entrySet());
+		oldest.sort((left, right) -> Long.compare(left.getValue().sequence, right.getValue().sequence));
+		int target = (int) (this.maxSize * 0.9);
+		int toEvict = Math.max(1, oldest.size() - target);
+		for (int i = 0; i < toEvict && i < oldest.size(); i++) {
+			evict(oldest.get(i).getKey(), oldest.get(i).getValue(), "size");
+		}
+	}
+
+	private void evict(OAuth2AuthorizedClientId authorizedClientId, Entry entry, String reason) {
+		if (this.entries.remove(authorizedClientId, entry)) {
+			this.estimatedMemoryUsage.addAndGet(-entry.estimatedSize);
+			this.metricsRecorder.record(METRIC_NAME, Collections.singletonMap("reason", reason), 0);
+		}
+	}
+
+	private Instant deadline(OAuth2AuthorizedClient authorizedClient, Instant now) {
+		Instant deadline = (this.timeToLive != null) ? now.plus(this.timeToLive) : null;
+		if (this.evictOnTokenExpiry) {
+			deadline = earliest(deadline, tokenExpiry(authorizedClient));
+		}
+		return deadline;
+	}
+
+	private static Instant tokenExpiry(OAuth2AuthorizedClient authorizedClient) {
+		OAuth2RefreshToken refreshToken = authorizedClient.getRefreshToken();
+		if (refreshToken != null) {
+			return refreshToken.getExpiresAt();
+		}
+		OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+		return (accessToken != null) ? accessToken.getExpiresAt() : null;
+	}
+
+	private static Instant earliest(Instant left, Instant right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		return left.isBefore(right) ? left : right;
+	}
+
+	private static long estimateSize(OAuth2AuthorizedClient authorizedClient) {
+		long chars = length(authorizedClient.getPrincipalName());
+		OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+		if (accessToken != null) {
+			chars += length(accessToken.getTokenValue());
+			for (String scope : accessToken.getScopes()) {
+				chars += scope.length();
+			}
+		}
+		OAuth2RefreshToken refreshToken = authorizedClient.getRefreshToken();
+		if (refreshToken != null) {
+			chars += length(refreshToken.getTokenValue());
+		}
+		return ENTRY_OVERHEAD_BYTES + 2 * chars;
+	}
+
+	private static int length(String value) {
+		return (value != null) ? value.length() : 0;
+	}
+
+	void setMaxSize(int maxSize) {
+		Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+		this.maxSize = maxSize;
+	}
+
+	void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	void setEvictOnTokenExpiry(boolean evictOnTokenExpiry) {
+		this.evictOnTokenExpiry = evictOnTokenExpiry;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	void setMetricsRecorder(SecurityMetricsRecorder metricsRecorder) {
+		Assert.notNull(metricsRecorder, "metricsRecorder cannot be null");
+		this.metricsRecorder = metricsRecorder;
+	}
+
+	private static final class Entry {
+
+		private final OAuth2AuthorizedClient authorizedClient;
+
+		private final long sequence;
+
+		private final Instant deadline;
+
+		private final long estimatedSize;
+
+		private Entry(OAuth2AuthorizedClient authorizedClient, long sequence, Instant deadline, long estimatedSize) {
+			this.authorizedClient = authorizedClient;
+			this.sequence = sequence;
+			this.deadline = deadline;
+			this.estimatedSize = estimatedSize;
+		}
+
+		private boolean isExpired(Instant now) {
+			return this.deadline != null && !now.isBefore(this.deadline);
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,13 @@
 
 package org.springframework.security.oauth2.client;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Clock;
+import java.time.Duration;
 
 import reactor.core.publisher.Mono;
 
 import org.springframework.security.core.Authentication;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
 import org.springframework.util.Assert;
@@ -30,6 +31,11 @@ import org.springframework.util.Assert;
  * An {@link OAuth2AuthorizedClientService} that stores {@link OAuth2AuthorizedClient
  * Authorized Client(s)} in-memory.
  *
+ * <p>
+ * By default, authorized clients are kept until they are removed. Long-running
+ * applications may bound the store with {@link #setMaxSize(int)},
+ * {@link #setTimeToLive(Duration)} and {@link #setEvictOnTokenExpiry(boolean)}.
+ *
  * @author Rob Winch
  * @author Vedran Pavic
  * @since 5.1
@@ -40,7 +46,7 @@ import org.springframework.util.Assert;
  */
 public final class InMemoryReactiveOAuth2AuthorizedClientService implements ReactiveOAuth2AuthorizedClientService {
 
-	private final Map<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> authorizedClients = new ConcurrentHashMap<>();
+	private final InMemoryOAuth2AuthorizedClientStore authorizedClients = new InMemoryOAuth2AuthorizedClientStore();
 
 	private final ReactiveClientRegistrationRepository clientRegistrationRepository;
 
@@ -89,4 +95,79 @@ public final class InMemoryReactiveOAuth2AuthorizedClientService implements Reac
 		// @formatter:on
 	}
 
+	/**
+	 * Sets the maximum number of authorized clients to keep. When the limit is reached,
+	 * expired clients are removed first and then the least recently saved ones. The
+	 * default is no limit.
+	 * @param maxSize the maximum number of authorized clients
+	 * @since 5.8
+	 */
+	public void setMaxSize(int maxSize) {
+		this.authorizedClients.setMaxSize(maxSize);
+	}
+
+	/**
+	 * Sets how long an authorized client is kept after it was last saved. The default is
+	 * to keep it until it is removed.
+	 * @param timeToLive how long to keep an authorized client
+	 * @since 5.8
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		this.authorizedClients.setTimeToLive(timeToLive);
+	}
+
+	/**
+	 * Sets whether to remove an authorized client once it can no longer be used: when its
+	 * refresh token expires or, if it has no refresh token, when its access token
+	 * expires. The default is {@code false}.
+	 * @param evictOnTokenExpiry {@code true} to remove authorized clients whose tokens
+	 * have expired
+	 * @since 5.8
+	 */
+	public void setEvictOnTokenExpiry(boolean evictOnTokenExpiry) {
+		this.authorizedClients.setEvictOnTokenExpiry(evictOnTokenExpiry);
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire authorized clients. The default is
+	 * {@link Clock#systemUTC()}.
+	 * @param clock the {@link Clock}
+	 * @since 5.8
+	 */
+	public void setClock(Clock clock) {
+		this.authorizedClients.setClock(clock);
+	}
+
+	/**
+	 * Use this {@link SecurityMetricsRecorder} to count evicted authorized clients, in
+	 * the {@code spring.security.oauth2.authorized.clients.evictions} metric tagged with
+	 * the eviction {@code reason} ({@code expired} or {@code size})
+	 * @param metricsRecorder the {@link SecurityMetricsRecorder} to use
+	 * @since 5.8
+	 */
+	public void setMetricsRecorder(SecurityMetricsRecorder metricsRecorder) {
+		this.authorizedClients.setMetricsRecorder(metricsRecorder);
+	}
+
+	/**
+	 * Returns the number of authorized clients currently held, including expired ones
+	 * that have not been removed yet.
+	 * @return the number of authorized clients
+	 * @since 5.8
+	 */
+	public int getAuthorizedClientCount() {
+		return this.authorizedClients.size();
+	}
+
+	/**
+	 * Returns a rough estimate, in bytes, of the memory held by the stored authorized
+	 * clients, suitable for exposing as a gauge. Client registrations are shared and not
+	 * counted.
+	 * @return the estimated memory usage in bytes
+	 * @since 5.8
+	 */
+	public long getEstimatedMemoryUsage() {
+		return this.authorizedClients.getEstimatedMemoryUsage();
+	}
+
 }
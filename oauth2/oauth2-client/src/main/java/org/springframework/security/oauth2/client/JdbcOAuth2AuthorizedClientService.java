@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,16 +22,26 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.core.RowMapper;
@@ -58,6 +68,17 @@ import org.springframework.util.StringUtils;
  * "classpath:org/springframework/security/oauth2/client/oauth2-client-schema.sql" and
  * therefore MUST be defined in the database schema.
  *
+ * <p>
+ * When saving, an {@code OAuth2AuthorizedClient} is written with a single upsert
+ * statement if the database is PostgreSQL, MySQL, MariaDB or H2, and with a
+ * {@code SELECT} followed by an {@code UPDATE} or {@code INSERT} otherwise.
+ *
+ * <p>
+ * Loaded clients may optionally be cached in memory by configuring
+ * {@link #setCacheTimeToLive(Duration)}. Cached entries are evicted whenever this service
+ * saves or removes the corresponding client, however changes made through other instances
+ * are only visible once the entry expires.
+ *
  * @author Joe Grandja
  * @author Stav Shamir
  * @author Craig Andrews
@@ -96,6 +117,44 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 			+ " (" + COLUMN_NAMES + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 	// @formatter:on
 
+	// @formatter:off
+	private static final String LOAD_AUTHORIZED_CLIENTS_SQL = "SELECT " + COLUMN_NAMES
+			+ " FROM " + TABLE_NAME
+			+ " WHERE client_registration_id = ? AND principal_name IN (";
+	// @formatter:on
+
+	// @formatter:off
+	private static final String POSTGRESQL_UPSERT_AUTHORIZED_CLIENT_SQL = SAVE_AUTHORIZED_CLIENT_SQL
+			+ " ON CONFLICT (client_registration_id, principal_name) DO UPDATE"
+			+ " SET access_token_type = EXCLUDED.access_token_type, access_token_value = EXCLUDED.access_token_value,"
+			+ " access_token_issued_at = EXCLUDED.access_token_issued_at,"
+			+ " access_token_expires_at = EXCLUDED.access_token_expires_at,"
+			+ " access_token_scopes = EXCLUDED.access_token_scopes,"
+			+ " refresh_token_value = EXCLUDED.refresh_token_value,"
+			+ " refresh_token_issued_at = EXCLUDED.refresh_token_issued_at";
+	// @formatter:on
+
+	// @formatter:off
+	private static final String MYSQL_UPSERT_AUTHORIZED_CLIENT_SQL = SAVE_AUTHORIZED_CLIENT_SQL
+			+ " ON DUPLICATE KEY UPDATE"
+			+ " access_token_type = VALUES(access_token_type), access_token_value = VALUES(access_token_value),"
+			+ " access_token_issued_at = VALUES(access_token_issued_at),"
+			+ " access_token_expires_at = VALUES(access_token_expires_at),"
+			+ " access_token_scopes = VALUES(access_token_scopes),"
+			+ " refresh_token_value = VALUES(refresh_token_value),"
+			+ " refresh_token_issued_at = VALUES(refresh_token_issued_at)";
+	// @formatter:on
+
+	// @formatter:off
+	private static final String H2_UPSERT_AUTHORIZED_CLIENT_SQL = "MERGE INTO " + TABLE_NAME
+			+ " (" + COLUMN_NAMES + ") KEY (client_registration_id, principal_name)"
+			+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	// @formatter:on
+
+	private static final int MAX_IN_CLAUSE_SIZE = 100;
+
+	private static final int DEFAULT_CACHE_MAX_SIZE = 1024;
+
 	private static final String REMOVE_AUTHORIZED_CLIENT_SQL = "DELETE FROM " + TABLE_NAME + " WHERE " + PK_FILTER;
 
 	// @formatter:off
@@ -114,6 +173,20 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 
 	protected final LobHandler lobHandler;
 
+	private final Map<OAuth2AuthorizedClientId, CachedAuthorizedClient> cache = new ConcurrentHashMap<>();
+
+	private final AtomicLong cacheClears = new AtomicLong();
+
+	private Duration cacheTimeToLive = Duration.ZERO;
+
+	private int cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile String upsertAuthorizedClientSql;
+
+	private volatile boolean upsertResolved;
+
 	/**
 	 * Constructs a {@code JdbcOAuth2AuthorizedClientService} using the provided
 	 * parameters.
@@ -153,31 +226,166 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 			String principalName) {
 		Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
 		Assert.hasText(principalName, "principalName cannot be empty");
+		OAuth2AuthorizedClientId authorizedClientId = new OAuth2AuthorizedClientId(clientRegistrationId, principalName);
+		CachedAuthorizedClient cached = getCached(authorizedClientId);
+		if (cached != null && cached.authorizedClient != null) {
+			return (T) cached.authorizedClient;
+		}
+		long cacheClears = this.cacheClears.get();
 		SqlParameterValue[] parameters = new SqlParameterValue[] {
 				new SqlParameterValue(Types.VARCHAR, clientRegistrationId),
 				new SqlParameterValue(Types.VARCHAR, principalName) };
 		PreparedStatementSetter pss = new ArgumentPreparedStatementSetter(parameters);
 		List<OAuth2AuthorizedClient> result = this.jdbcOperations.query(LOAD_AUTHORIZED_CLIENT_SQL, pss,
 				this.authorizedClientRowMapper);
-		return !result.isEmpty() ? (T) result.get(0) : null;
+		if (result.isEmpty()) {
+			return null;
+		}
+		OAuth2AuthorizedClient authorizedClient = result.get(0);
+		putCached(authorizedClientId, cached, authorizedClient, cacheClears);
+		return (T) authorizedClient;
+	}
+
+	/**
+	 * Returns the {@link OAuth2AuthorizedClient}s identified by the provided
+	 * {@link OAuth2AuthorizedClientId}s, issuing one query per client registration rather
+	 * than one per client. Clients that do not exist are absent from the returned
+	 * {@code Map}.
+	 * @param authorizedClientIds the identifiers of the clients to load
+	 * @return the {@link OAuth2AuthorizedClient}s that were found, keyed by their
+	 * identifier, in the iteration order of {@code authorizedClientIds}
+	 * @since 5.8
+	 */
+	public Map<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> loadAuthorizedClients(
+			Collection<OAuth2AuthorizedClientId> authorizedClientIds) {
+		Assert.notNull(authorizedClientIds, "authorizedClientIds cannot be null");
+		Assert.noNullElements(authorizedClientIds, "authorizedClientIds cannot contain null elements");
+		Map<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> found = new HashMap<>();
+		Map<OAuth2AuthorizedClientId, CachedAuthorizedClient> missed = new HashMap<>();
+		Map<String, List<String>> principalNamesByRegistrationId = new LinkedHashMap<>();
+		long cacheClears = this.cacheClears.get();
+		for (OAuth2AuthorizedClientId authorizedClientId : authorizedClientIds) {
+			CachedAuthorizedClient cached = getCached(authorizedClientId);
+			if (cached != null && cached.authorizedClient != null) {
+				found.put(authorizedClientId, cached.authorizedClient);
+			}
+			else {
+				missed.put(authorizedClientId, cached);
+				principalNamesByRegistrationId
+					.computeIfAbsent(authorizedClientId.getClientRegistrationId(), (key) -> new ArrayList<>())
+					.add(authorizedClientId.getPrincipalName());
+			}
+		}
+		principalNamesByRegistrationId.forEach((clientRegistrationId, principalNames) -> {
+			for (int from = 0; from < principalNames.size(); from += MAX_IN_CLAUSE_SIZE) {
+				List<String> chunk = principalNames.subList(from,
+						Math.min(from + MAX_IN_CLAUSE_SIZE, principalNames.size()));
+				for (OAuth2AuthorizedClient authorizedClient : queryAuthorizedClients(clientRegistrationId, chunk)) {
+					OAuth2AuthorizedClientId authorizedClientId = new OAuth2AuthorizedClientId(clientRegistrationId,
+							authorizedClient.getPrincipalName());
+					found.put(authorizedClientId, authorizedClient);
+					putCached(authorizedClientId, missed.get(authorizedClientId), authorizedClient, cacheClears);
+				}
+			}
+		});
+		Map<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> authorizedClients = new LinkedHashMap<>();
+		for (OAuth2AuthorizedClientId authorizedClientId : authorizedClientIds) {
+			OAuth2AuthorizedClient authorizedClient = found.get(authorizedClientId);
+			if (authorizedClient != null) {
+				authorizedClients.put(authorizedClientId, authorizedClient);
+			}
+		}
+		return authorizedClients;
+	}
+
+	private List<OAuth2AuthorizedClient> queryAuthorizedClients(String clientRegistrationId,
+			List<String> principalNames) {
+		StringBuilder sql = new StringBuilder(LOAD_AUTHORIZED_CLIENTS_SQL);
+		SqlParameterValue[] parameters = new SqlParameterValue[principalNames.size() + 1];
+		parameters[0] = new SqlParameterValue(Types.VARCHAR, clientRegistrationId);
+		for (int i = 0; i < principalNames.size(); i++) {
+			sql.append((i > 0) ? ", ?" : "?");
+			parameters[i + 1] = new SqlParameterValue(Types.VARCHAR, principalNames.get(i));
+		}
+		sql.append(")");
+		PreparedStatementSetter pss = new ArgumentPreparedStatementSetter(parameters);
+		return this.jdbcOperations.query(sql.toString(), pss, this.authorizedClientRowMapper);
 	}
 
 	@Override
 	public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
 		Assert.notNull(authorizedClient, "authorizedClient cannot be null");
 		Assert.notNull(principal, "principal cannot be null");
-		boolean existsAuthorizedClient = null != this
-			.loadAuthorizedClient(authorizedClient.getClientRegistration().getRegistrationId(), principal.getName());
-		if (existsAuthorizedClient) {
-			updateAuthorizedClient(authorizedClient, principal);
-		}
-		else {
-			try {
-				insertAuthorizedClient(authorizedClient, principal);
+		String clientRegistrationId = authorizedClient.getClientRegistration().getRegistrationId();
+		OAuth2AuthorizedClientId authorizedClientId = new OAuth2AuthorizedClientId(clientRegistrationId,
+				principal.getName());
+		invalidateCached(authorizedClientId);
+		try {
+			String upsertAuthorizedClientSql = resolveUpsertAuthorizedClientSql();
+			if (upsertAuthorizedClientSql != null) {
+				writeAuthorizedClient(upsertAuthorizedClientSql, authorizedClient, principal);
+				return;
 			}
-			catch (DuplicateKeyException ex) {
+			boolean existsAuthorizedClient = null != this.loadAuthorizedClient(clientRegistrationId,
+					principal.getName());
+			if (existsAuthorizedClient) {
 				updateAuthorizedClient(authorizedClient, principal);
 			}
+			else {
+				try {
+					insertAuthorizedClient(authorizedClient, principal);
+				}
+				catch (DuplicateKeyException ex) {
+					updateAuthorizedClient(authorizedClient, principal);
+				}
+			}
+		}
+		finally {
+			invalidateCached(authorizedClientId);
+		}
+	}
+
+	private String resolveUpsertAuthorizedClientSql() {
+		if (this.upsertResolved) {
+			return this.upsertAuthorizedClientSql;
+		}
+		try {
+			String databaseProductName = this.jdbcOperations.execute(
+					(ConnectionCallback<String>) (connection) -> connection.getMetaData().getDatabaseProductName());
+			this.upsertAuthorizedClientSql = upsertAuthorizedClientSql(databaseProductName);
+			this.upsertResolved = true;
+			return this.upsertAuthorizedClientSql;
+		}
+		catch (DataAccessException ex) {
+			// the database may be unavailable only for now, so detect it again next time
+			return null;
+		}
+	}
+
+	private static String upsertAuthorizedClientSql(String databaseProductName) {
+		if (databaseProductName == null) {
+			return null;
+		}
+		switch (databaseProductName) {
+			case "PostgreSQL":
+				return POSTGRESQL_UPSERT_AUTHORIZED_CLIENT_SQL;
+			case "MySQL":
+			case "MariaDB":
+				return MYSQL_UPSERT_AUTHORIZED_CLIENT_SQL;
+			case "H2":
+				return H2_UPSERT_AUTHORIZED_CLIENT_SQL;
+			default:
+				return null;
+		}
+	}
+
+	private void writeAuthorizedClient(String sql, OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+		List<SqlParameterValue> parameters = this.authorizedClientParametersMapper
+			.apply(new OAuth2AuthorizedClientHolder(authorizedClient, principal));
+		try (LobCreator lobCreator = this.lobHandler.getLobCreator()) {
+			PreparedStatementSetter pss = new LobCreatorArgumentPreparedStatementSetter(lobCreator,
+					parameters.toArray());
+			this.jdbcOperations.update(sql, pss);
 		}
 	}
 
@@ -196,13 +404,7 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 	}
 
 	private void insertAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
-		List<SqlParameterValue> parameters = this.authorizedClientParametersMapper
-			.apply(new OAuth2AuthorizedClientHolder(authorizedClient, principal));
-		try (LobCreator lobCreator = this.lobHandler.getLobCreator()) {
-			PreparedStatementSetter pss = new LobCreatorArgumentPreparedStatementSetter(lobCreator,
-					parameters.toArray());
-			this.jdbcOperations.update(SAVE_AUTHORIZED_CLIENT_SQL, pss);
-		}
+		writeAuthorizedClient(SAVE_AUTHORIZED_CLIENT_SQL, authorizedClient, principal);
 	}
 
 	@Override
@@ -213,7 +415,70 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 				new SqlParameterValue(Types.VARCHAR, clientRegistrationId),
 				new SqlParameterValue(Types.VARCHAR, principalName) };
 		PreparedStatementSetter pss = new ArgumentPreparedStatementSetter(parameters);
-		this.jdbcOperations.update(REMOVE_AUTHORIZED_CLIENT_SQL, pss);
+		try {
+			this.jdbcOperations.update(REMOVE_AUTHORIZED_CLIENT_SQL, pss);
+		}
+		finally {
+			invalidateCached(new OAuth2AuthorizedClientId(clientRegistrationId, principalName));
+		}
+	}
+
+	/**
+	 * Returns the cache entry for this client, which is either a cached client or, while a
+	 * save or removal may be in progress, an entry without a client
+	 */
+	private CachedAuthorizedClient getCached(OAuth2AuthorizedClientId authorizedClientId) {
+		if (this.cacheTimeToLive.isZero()) {
+			return null;
+		}
+		CachedAuthorizedClient cached = this.cache.get(authorizedClientId);
+		if (cached == null) {
+			return null;
+		}
+		if (!this.clock.instant().isBefore(cached.expiresAt)) {
+			this.cache.remove(authorizedClientId, cached);
+			return null;
+		}
+		return cached;
+	}
+
+	/**
+	 * Caches a loaded client, unless the entry observed before loading it has since been
+	 * replaced by a save or removal, or the cache has been cleared, in which case the
+	 * loaded client may be stale
+	 */
+	private void putCached(OAuth2AuthorizedClientId authorizedClientId, CachedAuthorizedClient observed,
+			OAuth2AuthorizedClient authorizedClient, long cacheClears) {
+		if (this.cacheTimeToLive.isZero()) {
+			return;
+		}
+		if (this.cache.size() >= this.cacheMaxSize) {
+			this.cacheClears.incrementAndGet();
+			this.cache.clear();
+		}
+		if (this.cacheClears.get() != cacheClears) {
+			return;
+		}
+		Instant expiresAt = this.clock.instant().plus(this.cacheTimeToLive);
+		CachedAuthorizedClient loaded = new CachedAuthorizedClient(authorizedClient, expiresAt);
+		if (observed != null) {
+			this.cache.replace(authorizedClientId, observed, loaded);
+		}
+		else {
+			this.cache.putIfAbsent(authorizedClientId, loaded);
+		}
+	}
+
+	/**
+	 * Replaces the cache entry for this client with one that holds no client, so that a
+	 * load that started before the entry was replaced does not cache what it read
+	 */
+	private void invalidateCached(OAuth2AuthorizedClientId authorizedClientId) {
+		if (this.cacheTimeToLive.isZero()) {
+			return;
+		}
+		Instant expiresAt = this.clock.instant().plus(this.cacheTimeToLive);
+		this.cache.put(authorizedClientId, new CachedAuthorizedClient(null, expiresAt));
 	}
 
 	/**
@@ -241,6 +506,43 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 		this.authorizedClientParametersMapper = authorizedClientParametersMapper;
 	}
 
+	/**
+	 * Sets how long a loaded {@link OAuth2AuthorizedClient} is served from memory before
+	 * being read again from the database. The default is {@link Duration#ZERO}, which
+	 * disables caching.
+	 * @param cacheTimeToLive how long to cache a loaded {@link OAuth2AuthorizedClient}
+	 * @since 5.8
+	 */
+	public final void setCacheTimeToLive(Duration cacheTimeToLive) {
+		Assert.notNull(cacheTimeToLive, "cacheTimeToLive cannot be null");
+		Assert.isTrue(!cacheTimeToLive.isNegative(), "cacheTimeToLive cannot be negative");
+		this.cacheTimeToLive = cacheTimeToLive;
+		this.cacheClears.incrementAndGet();
+		this.cache.clear();
+	}
+
+	/**
+	 * Sets the maximum number of {@link OAuth2AuthorizedClient}s to cache. When the limit
+	 * is reached, the cache is cleared. The default is 1024.
+	 * @param cacheMaxSize the maximum number of cached {@link OAuth2AuthorizedClient}s
+	 * @since 5.8
+	 */
+	public final void setCacheMaxSize(int cacheMaxSize) {
+		Assert.isTrue(cacheMaxSize > 0, "cacheMaxSize must be greater than 0");
+		this.cacheMaxSize = cacheMaxSize;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached {@link OAuth2AuthorizedClient}s. The
+	 * default is {@link Clock#systemUTC()}.
+	 * @param clock the {@link Clock}
+	 * @since 5.8
+	 */
+	public final void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
 	/**
 	 * The default {@link RowMapper} that maps the current row in
 	 * {@code java.sql.ResultSet} to {@link OAuth2AuthorizedClient}.
@@ -385,6 +687,19 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 
 	}
 
+	private static final class CachedAuthorizedClient {
+
+		private final OAuth2AuthorizedClient authorizedClient;
+
+		private final Instant expiresAt;
+
+		private CachedAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Instant expiresAt) {
+			this.authorizedClient = authorizedClient;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
 	private static final class LobCreatorArgumentPreparedStatementSetter extends ArgumentPreparedStatementSetter {
 
 		protected final LobCreator lobCreator;
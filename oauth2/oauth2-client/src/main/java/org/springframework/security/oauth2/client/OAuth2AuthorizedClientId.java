@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -50,6 +50,14 @@ public final class OAuth2AuthorizedClientId implements Serializable {
 		this.principalName = principalName;
 	}
 
+	String getClientRegistrationId() {
+		return this.clientRegistrationId;
+	}
+
+	String getPrincipalName() {
+		return this.principalName;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj) {
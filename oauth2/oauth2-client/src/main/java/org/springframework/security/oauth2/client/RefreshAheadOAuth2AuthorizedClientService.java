@@ -0,0 +1,537 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.log.LogMessage;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.endpoint.DefaultClientCredentialsTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.DefaultRefreshTokenTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * An {@link OAuth2AuthorizedClientService} that renews access tokens in the background,
+ * before they expire, so that authorizing a request rarely has to wait for the token
+ * endpoint.
+ *
+ * <p>
+ * Every {@link OAuth2AuthorizedClient} saved through this service whose access token has
+ * an expiry, and that can be renewed without the resource owner, is tracked. That is,
+ * clients holding a refresh token and clients registered for the
+ * {@link AuthorizationGrantType#CLIENT_CREDENTIALS client_credentials} grant. A tracked
+ * client is renewed once {@link #setRefreshFraction(double) refreshFraction} of its
+ * access token's lifetime has passed, minus a random {@link #setJitter(double) jitter},
+ * so that tokens issued together are not all renewed at the same moment. The renewed
+ * client is saved in the delegate, and tracked again, unless a newer client was saved
+ * or the client was removed in the meantime.
+ *
+ * <p>
+ * A client that has not been loaded or saved for {@link #setIdleTimeout(Duration)
+ * idleTimeout} is no longer tracked, and at most {@link #setMaxTrackedClients(int)
+ * maxTrackedClients} are tracked at once.
+ *
+ * <p>
+ * Tracked clients are checked every {@link #setCheckInterval(Duration) checkInterval} on
+ * a daemon thread, and renewed on the {@link #setExecutor(Executor) executor}, at most
+ * {@link #setMaxConcurrentRefreshes(int) maxConcurrentRefreshes} at a time. A failed
+ * renewal is retried later, until the access token expires. Renewal then falls back to
+ * the {@link OAuth2AuthorizedClientProvider}s on the request path.
+ *
+ * <p>
+ * For example:
+ *
+ * <pre>
+ *	RefreshAheadOAuth2AuthorizedClientService authorizedClientService =
+ *			new RefreshAheadOAuth2AuthorizedClientService(
+ *					new InMemoryOAuth2AuthorizedClientService(clientRegistrationRepository));
+ *	AuthorizedClientServiceOAuth2AuthorizedClientManager authorizedClientManager =
+ *			new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrationRepository,
+ *					authorizedClientService);
+ * </pre>
+ *
+ * @since 5.8
+ * @see ClientCredentialsOAuth2AuthorizedClientProvider
+ * @see RefreshTokenOAuth2AuthorizedClientProvider
+ */
+public final class RefreshAheadOAuth2AuthorizedClientService implements OAuth2AuthorizedClientService, DisposableBean {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final OAuth2AuthorizedClientService delegate;
+
+	private final Map<OAuth2AuthorizedClientId, TrackedClient> trackedClients = new ConcurrentHashMap<>();
+
+	private final AtomicInteger refreshing = new AtomicInteger();
+
+	private final AtomicBoolean started = new AtomicBoolean();
+
+	private volatile ScheduledExecutorService scheduler;
+
+	private volatile OAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> clientCredentialsTokenResponseClient = new DefaultClientCredentialsTokenResponseClient();
+
+	private volatile OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> refreshTokenTokenResponseClient = new DefaultRefreshTokenTokenResponseClient();
+
+	private volatile double refreshFraction = 0.8;
+
+	private volatile double jitter = 0.1;
+
+	private volatile int maxConcurrentRefreshes = 4;
+
+	private volatile int maxTrackedClients = 10000;
+
+	private volatile Duration idleTimeout = Duration.ofHours(1);
+
+	private volatile Duration checkInterval = Duration.ofSeconds(1);
+
+	private volatile Executor executor;
+
+	private volatile Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs a {@code RefreshAheadOAuth2AuthorizedClientService} using the provided
+	 * parameters.
+	 * @param delegate the {@link OAuth2AuthorizedClientService} that stores the
+	 * {@link OAuth2AuthorizedClient}s
+	 */
+	public RefreshAheadOAuth2AuthorizedClientService(OAuth2AuthorizedClientService delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("oauth2-authorized-client-refresh-");
+		executor.setDaemon(true);
+		this.executor = executor;
+	}
+
+	@Override
+	public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId,
+			String principalName) {
+		if (StringUtils.hasText(principalName)) {
+			TrackedClient trackedClient = this.trackedClients
+				.get(new OAuth2AuthorizedClientId(clientRegistrationId, principalName));
+			if (trackedClient != null) {
+				trackedClient.lastUsed = this.clock.instant();
+			}
+		}
+		return this.delegate.loadAuthorizedClient(clientRegistrationId, principalName);
+	}
+
+	@Override
+	public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+		String clientRegistrationId = authorizedClient.getClientRegistration().getRegistrationId();
+		if (!StringUtils.hasText(principal.getName())) {
+			this.delegate.saveAuthorizedClient(authorizedClient, principal);
+			return;
+		}
+		OAuth2AuthorizedClientId authorizedClientId = new OAuth2AuthorizedClientId(clientRegistrationId,
+				principal.getName());
+		TrackedClient trackedClient = this.trackedClients.get(authorizedClientId);
+		if (trackedClient != null) {
+			// keeps a renewal of the client tracked so far from overwriting this one
+			trackedClient.supersede(() -> this.delegate.saveAuthorizedClient(authorizedClient, principal));
+		}
+		else {
+			this.delegate.saveAuthorizedClient(authorizedClient, principal);
+		}
+		TrackedClient tracked = track(authorizedClientId, authorizedClient, principal, this.clock.instant(),
+				trackedClient != null);
+		if (tracked == null) {
+			this.trackedClients.remove(authorizedClientId);
+			return;
+		}
+		this.trackedClients.put(authorizedClientId, tracked);
+		startIfNecessary();
+	}
+
+	@Override
+	public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
+		if (!StringUtils.hasText(principalName)) {
+			this.delegate.removeAuthorizedClient(clientRegistrationId, principalName);
+			return;
+		}
+		TrackedClient trackedClient = this.trackedClients
+			.remove(new OAuth2AuthorizedClientId(clientRegistrationId, principalName));
+		if (trackedClient != null) {
+			trackedClient.supersede(() -> this.delegate.removeAuthorizedClient(clientRegistrationId, principalName));
+		}
+		else {
+			this.delegate.removeAuthorizedClient(clientRegistrationId, principalName);
+		}
+	}
+
+	/**
+	 * Stop checking for access tokens to renew
+	 */
+	@Override
+	public void destroy() {
+		ScheduledExecutorService scheduler = this.scheduler;
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	private TrackedClient track(OAuth2AuthorizedClientId authorizedClientId, OAuth2AuthorizedClient authorizedClient,
+			Authentication principal, Instant lastUsed, boolean tracked) {
+		if (!isRenewable(authorizedClient)) {
+			return null;
+		}
+		if (!tracked && this.trackedClients.size() >= this.maxTrackedClients) {
+			this.logger.debug(LogMessage.format("Not renewing the access token of %s for %s ahead of time, since %d "
+					+ "clients are tracked already", authorizedClientId.getClientRegistrationId(),
+					principal.getName(), this.maxTrackedClients));
+			return null;
+		}
+		return new TrackedClient(authorizedClientId, authorizedClientId.getClientRegistrationId(), principal,
+				authorizedClient.getAccessToken().getExpiresAt(), refreshAt(authorizedClient.getAccessToken()),
+				lastUsed);
+	}
+
+	private static boolean isRenewable(OAuth2AuthorizedClient authorizedClient) {
+		if (authorizedClient.getAccessToken().getExpiresAt() == null) {
+			return false;
+		}
+		return authorizedClient.getRefreshToken() != null || AuthorizationGrantType.CLIENT_CREDENTIALS
+			.equals(authorizedClient.getClientRegistration().getAuthorizationGrantType());
+	}
+
+	private Instant refreshAt(OAuth2AccessToken accessToken) {
+		Instant now = this.clock.instant();
+		Instant issuedAt = (accessToken.getIssuedAt() != null) ? accessToken.getIssuedAt() : now;
+		long lifetime = Duration.between(issuedAt, accessToken.getExpiresAt()).toMillis();
+		if (lifetime <= 0) {
+			return now;
+		}
+		double jitter = this.jitter * ThreadLocalRandom.current().nextDouble();
+		return issuedAt.plusMillis((long) (lifetime * (this.refreshFraction - jitter)));
+	}
+
+	private void startIfNecessary() {
+		if (!this.started.compareAndSet(false, true)) {
+			return;
+		}
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "oauth2-authorized-client-refresh-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = this.checkInterval.toMillis();
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				refreshDue();
+			}
+			catch (RuntimeException ex) {
+				this.logger.debug("Failed to check for access tokens to renew", ex);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Start renewing the tracked clients that are due, as far as
+	 * {@code maxConcurrentRefreshes} allows
+	 */
+	void refreshDue() {
+		Instant now = this.clock.instant();
+		Instant idleSince = now.minus(this.idleTimeout);
+		for (TrackedClient trackedClient : this.trackedClients.values()) {
+			if (now.isBefore(trackedClient.refreshAt)) {
+				continue;
+			}
+			if (trackedClient.lastUsed.isBefore(idleSince)) {
+				this.trackedClients.remove(trackedClient.authorizedClientId, trackedClient);
+				continue;
+			}
+			if (!acquire()) {
+				continue;
+			}
+			if (!trackedClient.refreshing.compareAndSet(false, true)) {
+				this.refreshing.decrementAndGet();
+				continue;
+			}
+			try {
+				this.executor.execute(() -> refresh(trackedClient));
+			}
+			catch (RejectedExecutionException ex) {
+				trackedClient.refreshing.set(false);
+				this.refreshing.decrementAndGet();
+				return;
+			}
+		}
+	}
+
+	private boolean acquire() {
+		while (true) {
+			int refreshing = this.refreshing.get();
+			if (refreshing >= this.maxConcurrentRefreshes) {
+				return false;
+			}
+			if (this.refreshing.compareAndSet(refreshing, refreshing + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void refresh(TrackedClient trackedClient) {
+		OAuth2AuthorizedClientId authorizedClientId = trackedClient.authorizedClientId;
+		try {
+			OAuth2AuthorizedClient authorizedClient = this.delegate
+				.loadAuthorizedClient(trackedClient.clientRegistrationId, trackedClient.principal.getName());
+			if (authorizedClient == null || !isRenewable(authorizedClient)) {
+				this.trackedClients.remove(authorizedClientId, trackedClient);
+				return;
+			}
+			OAuth2AuthorizedClient renewedClient = renew(authorizedClient);
+			if (!trackedClient.saveUnlessSuperseded(
+					() -> this.delegate.saveAuthorizedClient(renewedClient, trackedClient.principal))) {
+				return;
+			}
+			TrackedClient renewed = track(authorizedClientId, renewedClient, trackedClient.principal,
+					trackedClient.lastUsed, true);
+			if (renewed != null) {
+				this.trackedClients.replace(authorizedClientId, trackedClient, renewed);
+			}
+			else {
+				this.trackedClients.remove(authorizedClientId, trackedClient);
+			}
+		}
+		catch (RuntimeException ex) {
+			this.logger.debug(LogMessage.format("Failed to renew the access token of %s for %s",
+					trackedClient.clientRegistrationId, trackedClient.principal.getName()), ex);
+			retryLater(trackedClient, ex);
+		}
+		finally {
+			trackedClient.refreshing.set(false);
+			this.refreshing.decrementAndGet();
+		}
+	}
+
+	private OAuth2AuthorizedClient renew(OAuth2AuthorizedClient authorizedClient) {
+		ClientRegistration clientRegistration = authorizedClient.getClientRegistration();
+		if (authorizedClient.getRefreshToken() != null) {
+			OAuth2AccessTokenResponse tokenResponse = this.refreshTokenTokenResponseClient
+				.getTokenResponse(new OAuth2RefreshTokenGrantRequest(clientRegistration,
+						authorizedClient.getAccessToken(), authorizedClient.getRefreshToken()));
+			return new OAuth2AuthorizedClient(clientRegistration, authorizedClient.getPrincipalName(),
+					tokenResponse.getAccessToken(), tokenResponse.getRefreshToken());
+		}
+		OAuth2AccessTokenResponse tokenResponse = this.clientCredentialsTokenResponseClient
+			.getTokenResponse(new OAuth2ClientCredentialsGrantRequest(clientRegistration));
+		return new OAuth2AuthorizedClient(clientRegistration, authorizedClient.getPrincipalName(),
+				tokenResponse.getAccessToken());
+	}
+
+	private void retryLater(TrackedClient trackedClient, RuntimeException ex) {
+		Instant now = this.clock.instant();
+		boolean invalidGrant = ex instanceof OAuth2AuthorizationException
+				&& OAuth2ErrorCodes.INVALID_GRANT.equals(((OAuth2AuthorizationException) ex).getError().getErrorCode());
+		if (invalidGrant || !now.isBefore(trackedClient.expiresAt)) {
+			this.trackedClients.remove(trackedClient.authorizedClientId, trackedClient);
+			return;
+		}
+		Duration retryIn = Duration.between(now, trackedClient.expiresAt).dividedBy(2);
+		trackedClient.refreshAt = now.plus((retryIn.compareTo(this.checkInterval) > 0) ? retryIn : this.checkInterval);
+	}
+
+	/**
+	 * Sets the client used when requesting an access token for a
+	 * {@link AuthorizationGrantType#CLIENT_CREDENTIALS client_credentials} client.
+	 * Defaults to {@link DefaultClientCredentialsTokenResponseClient}.
+	 * @param clientCredentialsTokenResponseClient the client used when requesting an
+	 * access token credential at the Token Endpoint for the {@code client_credentials}
+	 * grant
+	 */
+	public void setClientCredentialsTokenResponseClient(
+			OAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> clientCredentialsTokenResponseClient) {
+		Assert.notNull(clientCredentialsTokenResponseClient, "clientCredentialsTokenResponseClient cannot be null");
+		this.clientCredentialsTokenResponseClient = clientCredentialsTokenResponseClient;
+	}
+
+	/**
+	 * Sets the client used when renewing an access token with a refresh token. Defaults
+	 * to {@link DefaultRefreshTokenTokenResponseClient}.
+	 * @param refreshTokenTokenResponseClient the client used when requesting an access
+	 * token credential at the Token Endpoint for the {@code refresh_token} grant
+	 */
+	public void setRefreshTokenTokenResponseClient(
+			OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> refreshTokenTokenResponseClient) {
+		Assert.notNull(refreshTokenTokenResponseClient, "refreshTokenTokenResponseClient cannot be null");
+		this.refreshTokenTokenResponseClient = refreshTokenTokenResponseClient;
+	}
+
+	/**
+	 * The fraction, greater than 0 and at most 1, of an access token's lifetime after
+	 * which it is renewed. Defaults to 0.8.
+	 * @param refreshFraction the fraction of the lifetime after which to renew
+	 */
+	public void setRefreshFraction(double refreshFraction) {
+		Assert.isTrue(refreshFraction > 0.0 && refreshFraction <= 1.0,
+				"refreshFraction must be greater than 0 and at most 1");
+		Assert.isTrue(this.jitter < refreshFraction, "refreshFraction must be greater than jitter");
+		this.refreshFraction = refreshFraction;
+	}
+
+	/**
+	 * The largest fraction of an access token's lifetime by which its renewal is randomly
+	 * brought forward. Must be less than {@code refreshFraction}. Defaults to 0.1.
+	 * @param jitter the largest fraction of the lifetime to renew early by
+	 */
+	public void setJitter(double jitter) {
+		Assert.isTrue(jitter >= 0.0 && jitter < this.refreshFraction, "jitter must be between 0 and refreshFraction");
+		this.jitter = jitter;
+	}
+
+	/**
+	 * The maximum number of access tokens to renew at once. Defaults to 4.
+	 * @param maxConcurrentRefreshes the maximum number of concurrent renewals
+	 */
+	public void setMaxConcurrentRefreshes(int maxConcurrentRefreshes) {
+		Assert.isTrue(maxConcurrentRefreshes > 0, "maxConcurrentRefreshes must be greater than 0");
+		this.maxConcurrentRefreshes = maxConcurrentRefreshes;
+	}
+
+	/**
+	 * The maximum number of {@link OAuth2AuthorizedClient}s to track. Clients saved
+	 * while this many are tracked are renewed on the request path instead. Defaults to
+	 * 10000.
+	 * @param maxTrackedClients the maximum number of tracked clients
+	 */
+	public void setMaxTrackedClients(int maxTrackedClients) {
+		Assert.isTrue(maxTrackedClients > 0, "maxTrackedClients must be greater than 0");
+		this.maxTrackedClients = maxTrackedClients;
+	}
+
+	/**
+	 * Stop renewing an {@link OAuth2AuthorizedClient} once it has not been loaded or
+	 * saved for this long, so that clients nobody uses anymore do not keep requesting
+	 * tokens. Defaults to 1 hour.
+	 * @param idleTimeout the time after which an unused client is no longer renewed
+	 */
+	public void setIdleTimeout(Duration idleTimeout) {
+		Assert.notNull(idleTimeout, "idleTimeout cannot be null");
+		Assert.isTrue(!idleTimeout.isNegative() && !idleTimeout.isZero(), "idleTimeout must be positive");
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * How often to check for access tokens to renew. Takes effect when the first
+	 * {@link OAuth2AuthorizedClient} is tracked. Defaults to 1 second.
+	 * @param checkInterval the interval between checks
+	 */
+	public void setCheckInterval(Duration checkInterval) {
+		Assert.notNull(checkInterval, "checkInterval cannot be null");
+		Assert.isTrue(checkInterval.toMillis() > 0, "checkInterval must be at least 1 millisecond");
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Use this {@link Executor} to renew access tokens. Defaults to a
+	 * {@link SimpleAsyncTaskExecutor} with daemon threads.
+	 * @param executor the {@link Executor} to use
+	 */
+	public void setExecutor(Executor executor) {
+		Assert.notNull(executor, "executor cannot be null");
+		this.executor = executor;
+	}
+
+	/**
+	 * Use this {@link Clock} when deciding whether an access token is due for renewal.
+	 * Defaults to {@link Clock#systemUTC()}.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class TrackedClient {
+
+		private final OAuth2AuthorizedClientId authorizedClientId;
+
+		private final String clientRegistrationId;
+
+		private final Authentication principal;
+
+		private final Instant expiresAt;
+
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+
+		private volatile Instant refreshAt;
+
+		private volatile Instant lastUsed;
+
+		private boolean superseded;
+
+		private TrackedClient(OAuth2AuthorizedClientId authorizedClientId, String clientRegistrationId,
+				Authentication principal, Instant expiresAt, Instant refreshAt, Instant lastUsed) {
+			this.authorizedClientId = authorizedClientId;
+			this.clientRegistrationId = clientRegistrationId;
+			this.principal = principal;
+			this.expiresAt = expiresAt;
+			this.refreshAt = refreshAt;
+			this.lastUsed = lastUsed;
+		}
+
+		/**
+		 * Save or remove a client that replaces this one. Runs after a renewal of this
+		 * client that is saving already, and keeps any later one from saving.
+		 */
+		private synchronized void supersede(Runnable replace) {
+			this.superseded = true;
+			replace.run();
+		}
+
+		/**
+		 * Save a renewal of this client, unless it has been replaced already
+		 * @return whether the renewal was saved
+		 */
+		private synchronized boolean saveUnlessSuperseded(Runnable save) {
+			if (this.superseded) {
+				return false;
+			}
+			save.run();
+			return true;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2022 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.security.oauth2.client.endpoint;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
@@ -59,6 +60,11 @@ import org.springframework.util.MultiValueMap;
  * constructor.
  *
  * <p>
+ * The encoder for each client registration is created once and reused for as long as the
+ * resolved {@code JWK} does not change. Optionally, a signed client assertion may itself
+ * be reused for a short window, see {@link #setClientAssertionReuseWindow(Duration)}.
+ *
+ * <p>
  * <b>NOTE:</b> This implementation uses the Nimbus JOSE + JWT SDK.
  *
  * @param <T> the type of {@link AbstractOAuth2AuthorizationGrantRequest}
@@ -89,6 +95,12 @@ public final class NimbusJwtClientAuthenticationParametersConverter<T extends Ab
 
 	private final Map<String, JwsEncoderHolder> jwsEncoders = new ConcurrentHashMap<>();
 
+	private final Map<String, ClientAssertion> clientAssertions = new ConcurrentHashMap<>();
+
+	private Duration clientAssertionReuseWindow = Duration.ZERO;
+
+	private Clock clock = Clock.systemUTC();
+
 	private Consumer<JwtClientAuthenticationContext<T>> jwtClientAssertionCustomizer = (context) -> {
 	};
 
@@ -132,9 +144,15 @@ public final class NimbusJwtClientAuthenticationParametersConverter<T extends Ab
 			throw new OAuth2AuthorizationException(oauth2Error);
 		}
 
+		Instant now = this.clock.instant();
+		ClientAssertion clientAssertion = this.clientAssertions.get(clientRegistration.getRegistrationId());
+		if (clientAssertion != null && clientAssertion.isReusable(clientRegistration, jwk, now)) {
+			return parameters(clientAssertion.tokenValue);
+		}
+
 		JwsHeader.Builder headersBuilder = JwsHeader.with(jwsAlgorithm);
 
-		Instant issuedAt = Instant.now();
+		Instant issuedAt = now;
 		Instant expiresAt = issuedAt.plus(Duration.ofSeconds(60));
 
 		// @formatter:off
@@ -154,22 +172,40 @@ public final class NimbusJwtClientAuthenticationParametersConverter<T extends Ab
 		JwsHeader jwsHeader = headersBuilder.build();
 		JwtClaimsSet jwtClaimsSet = claimsBuilder.build();
 
-		JwsEncoderHolder jwsEncoderHolder = this.jwsEncoders.compute(clientRegistration.getRegistrationId(),
-				(clientRegistrationId, currentJwsEncoderHolder) -> {
-					if (currentJwsEncoderHolder != null && currentJwsEncoderHolder.getJwk().equals(jwk)) {
-						return currentJwsEncoderHolder;
-					}
-					JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(jwk));
-					return new JwsEncoderHolder(new NimbusJwtEncoder(jwkSource), jwk);
-				});
-
-		JwtEncoder jwsEncoder = jwsEncoderHolder.getJwsEncoder();
+		JwtEncoder jwsEncoder = getJwsEncoder(clientRegistration.getRegistrationId(), jwk);
 		Jwt jws = jwsEncoder.encode(JwtEncoderParameters.from(jwsHeader, jwtClaimsSet));
 
+		if (!this.clientAssertionReuseWindow.isZero()) {
+			Instant reusableUntil = issuedAt.plus(this.clientAssertionReuseWindow);
+			if (jws.getExpiresAt() != null && jws.getExpiresAt().isBefore(reusableUntil)) {
+				reusableUntil = jws.getExpiresAt();
+			}
+			this.clientAssertions.put(clientRegistration.getRegistrationId(),
+					new ClientAssertion(jws.getTokenValue(), clientRegistration, jwk, reusableUntil));
+		}
+
+		return parameters(jws.getTokenValue());
+	}
+
+	private JwtEncoder getJwsEncoder(String registrationId, JWK jwk) {
+		JwsEncoderHolder jwsEncoderHolder = this.jwsEncoders.get(registrationId);
+		if (jwsEncoderHolder != null && jwsEncoderHolder.matches(jwk)) {
+			return jwsEncoderHolder.getJwsEncoder();
+		}
+		jwsEncoderHolder = this.jwsEncoders.compute(registrationId, (clientRegistrationId, currentJwsEncoderHolder) -> {
+			if (currentJwsEncoderHolder != null && currentJwsEncoderHolder.matches(jwk)) {
+				return currentJwsEncoderHolder;
+			}
+			JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(jwk));
+			return new JwsEncoderHolder(new NimbusJwtEncoder(jwkSource), jwk);
+		});
+		return jwsEncoderHolder.getJwsEncoder();
+	}
+
+	private static MultiValueMap<String, String> parameters(String clientAssertion) {
 		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
 		parameters.set(OAuth2ParameterNames.CLIENT_ASSERTION_TYPE, CLIENT_ASSERTION_TYPE_VALUE);
-		parameters.set(OAuth2ParameterNames.CLIENT_ASSERTION, jws.getTokenValue());
-
+		parameters.set(OAuth2ParameterNames.CLIENT_ASSERTION, clientAssertion);
 		return parameters;
 	}
 
@@ -213,6 +249,32 @@ public final class NimbusJwtClientAuthenticationParametersConverter<T extends Ab
 		this.jwtClientAssertionCustomizer = jwtClientAssertionCustomizer;
 	}
 
+	/**
+	 * Sets how long a signed client assertion may be sent again for the same client
+	 * registration, instead of signing a new one. An assertion is never reused past its
+	 * {@code exp} claim, nor once the resolved {@code JWK}, the client id or the token
+	 * endpoint changes. While an assertion is reused, the
+	 * {@link #setJwtClientAssertionCustomizer(Consumer) customizer} is not invoked.
+	 *
+	 * <p>
+	 * The default is {@link Duration#ZERO}, which signs a new assertion for every
+	 * request. Only enable reuse if the Authorization Server does not reject a
+	 * {@code jti} it has already seen.
+	 * @param clientAssertionReuseWindow how long a client assertion may be reused
+	 * @since 5.8
+	 */
+	public void setClientAssertionReuseWindow(Duration clientAssertionReuseWindow) {
+		Assert.notNull(clientAssertionReuseWindow, "clientAssertionReuseWindow cannot be null");
+		Assert.isTrue(!clientAssertionReuseWindow.isNegative(), "clientAssertionReuseWindow cannot be negative");
+		this.clientAssertionReuseWindow = clientAssertionReuseWindow;
+		this.clientAssertions.clear();
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
 	private static final class JwsEncoderHolder {
 
 		private final JwtEncoder jwsEncoder;
@@ -228,8 +290,37 @@ public final class NimbusJwtClientAuthenticationParametersConverter<T extends Ab
 			return this.jwsEncoder;
 		}
 
-		private JWK getJwk() {
-			return this.jwk;
+		private boolean matches(JWK jwk) {
+			return this.jwk == jwk || this.jwk.equals(jwk);
+		}
+
+	}
+
+	private static final class ClientAssertion {
+
+		private final String tokenValue;
+
+		private final String clientId;
+
+		private final String tokenUri;
+
+		private final JWK jwk;
+
+		private final Instant reusableUntil;
+
+		private ClientAssertion(String tokenValue, ClientRegistration clientRegistration, JWK jwk,
+				Instant reusableUntil) {
+			this.tokenValue = tokenValue;
+			this.clientId = clientRegistration.getClientId();
+			this.tokenUri = clientRegistration.getProviderDetails().getTokenUri();
+			this.jwk = jwk;
+			this.reusableUntil = reusableUntil;
+		}
+
+		private boolean isReusable(ClientRegistration clientRegistration, JWK jwk, Instant now) {
+			return now.isBefore(this.reusableUntil) && this.clientId.equals(clientRegistration.getClientId())
+					&& this.tokenUri.equals(clientRegistration.getProviderDetails().getTokenUri())
+					&& (this.jwk == jwk || this.jwk.equals(jwk));
 		}
 
 	}
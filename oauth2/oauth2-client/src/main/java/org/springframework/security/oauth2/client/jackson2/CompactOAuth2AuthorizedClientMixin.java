@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.jackson2;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import org.springframework.security.oauth2.client.web.CompactOAuth2AuthorizedClient;
+
+/**
+ * This mixin class is used to serialize/deserialize
+ * {@link CompactOAuth2AuthorizedClient}.
+ *
+ * @since 5.8
+ * @see CompactOAuth2AuthorizedClient
+ * @see OAuth2ClientJackson2Module
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, getterVisibility = JsonAutoDetect.Visibility.NONE,
+		isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+@JsonIgnoreProperties(ignoreUnknown = true)
+abstract class CompactOAuth2AuthorizedClientMixin {
+
+	@JsonCreator
+	CompactOAuth2AuthorizedClientMixin(@JsonProperty("clientRegistrationId") String clientRegistrationId,
+			@JsonProperty("principalName") String principalName,
+			@JsonProperty("accessTokenValue") String accessTokenValue,
+			@JsonProperty("accessTokenIssuedAt") Instant accessTokenIssuedAt,
+			@JsonProperty("accessTokenExpiresAt") Instant accessTokenExpiresAt,
+			@JsonProperty("accessTokenScopes") String[] accessTokenScopes,
+			@JsonProperty("refreshTokenValue") String refreshTokenValue,
+			@JsonProperty("refreshTokenIssuedAt") Instant refreshTokenIssuedAt,
+			@JsonProperty("refreshTokenExpiresAt") Instant refreshTokenExpiresAt) {
+	}
+
+}
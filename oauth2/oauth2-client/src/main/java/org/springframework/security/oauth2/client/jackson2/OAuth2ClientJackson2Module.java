@@ -23,6 +23,7 @@ import org.springframework.security.jackson2.SecurityJackson2Modules;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.web.CompactOAuth2AuthorizedClient;
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.OAuth2Error;
@@ -45,6 +46,7 @@ import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
  * <li>{@link OAuth2AccessTokenMixin}</li>
  * <li>{@link OAuth2RefreshTokenMixin}</li>
  * <li>{@link OAuth2AuthorizedClientMixin}</li>
+ * <li>{@link CompactOAuth2AuthorizedClientMixin}</li>
  * <li>{@link OAuth2UserAuthorityMixin}</li>
  * <li>{@link DefaultOAuth2UserMixin}</li>
  * <li>{@link OidcIdTokenMixin}</li>
@@ -76,6 +78,7 @@ import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
  * @see OAuth2AccessTokenMixin
  * @see OAuth2RefreshTokenMixin
  * @see OAuth2AuthorizedClientMixin
+ * @see CompactOAuth2AuthorizedClientMixin
  * @see OAuth2UserAuthorityMixin
  * @see DefaultOAuth2UserMixin
  * @see OidcIdTokenMixin
@@ -100,6 +103,7 @@ public class OAuth2ClientJackson2Module extends SimpleModule {
 		context.setMixInAnnotations(OAuth2AccessToken.class, OAuth2AccessTokenMixin.class);
 		context.setMixInAnnotations(OAuth2RefreshToken.class, OAuth2RefreshTokenMixin.class);
 		context.setMixInAnnotations(OAuth2AuthorizedClient.class, OAuth2AuthorizedClientMixin.class);
+		context.setMixInAnnotations(CompactOAuth2AuthorizedClient.class, CompactOAuth2AuthorizedClientMixin.class);
 		context.setMixInAnnotations(OAuth2UserAuthority.class, OAuth2UserAuthorityMixin.class);
 		context.setMixInAnnotations(DefaultOAuth2User.class, DefaultOAuth2UserMixin.class);
 		context.setMixInAnnotations(OidcIdToken.class, OidcIdTokenMixin.class);
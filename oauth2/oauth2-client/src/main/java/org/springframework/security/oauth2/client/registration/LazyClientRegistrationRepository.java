@@ -0,0 +1,438 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.registration;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ClientRegistrationRepository} that loads each {@link ClientRegistration} the
+ * first time it is requested, rather than all of them up front. It suits applications
+ * with many registrations whose metadata is discovered from the provider, for example:
+ *
+ * <pre>
+ *	Map&lt;String, Supplier&lt;ClientRegistration&gt;&gt; loaders = new HashMap&lt;&gt;();
+ *	for (Tenant tenant : tenants) {
+ *		loaders.put(tenant.getId(), () -&gt; ClientRegistrations.fromIssuerLocation(tenant.getIssuer())
+ *				.registrationId(tenant.getId())
+ *				.clientId(tenant.getClientId())
+ *				.clientSecret(tenant.getClientSecret())
+ *				.build());
+ *	}
+ *	LazyClientRegistrationRepository registrations = new LazyClientRegistrationRepository(loaders);
+ *	registrations.warmUp();
+ * </pre>
+ *
+ * <p>
+ * Concurrent requests for a registration that is not loaded yet share a single load. A
+ * loaded registration is kept for {@link #setTimeToLive(Duration) timeToLive}; after
+ * that, it is still returned while a fresh one is loaded in the background. When a
+ * background load fails, the previous registration is kept and the load is retried at
+ * most every 30 seconds. Likewise, once loading a registration that was never loaded
+ * fails, requests for it fail right away for 30 seconds instead of loading it again.
+ *
+ * <p>
+ * Background loads are queued on the {@link #setExecutor(Executor) executor}, which by
+ * default runs at most 8 of them at a time, so that neither requests nor
+ * {@link #warmUp()} wait for a free thread.
+ *
+ * <p>
+ * {@link #warmUp()} loads every registration in the background, in parallel, so that
+ * startup does not wait on discovery; {@link #getWarmUpStatus()} reports its progress.
+ *
+ * @since 5.8
+ * @see LazyReactiveClientRegistrationRepository
+ * @see ClientRegistrations
+ */
+public final class LazyClientRegistrationRepository
+		implements ClientRegistrationRepository, Iterable<ClientRegistration> {
+
+	private static final Duration RETRY_INTERVAL = Duration.ofSeconds(30);
+
+	private static final int DEFAULT_CONCURRENCY_LIMIT = 8;
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final Map<String, Registration> registrations;
+
+	private volatile Duration timeToLive = Duration.ofHours(1);
+
+	private volatile Executor executor;
+
+	private volatile Clock clock = Clock.systemUTC();
+
+	/**
+	 * Constructs a {@code LazyClientRegistrationRepository} using the provided
+	 * parameters.
+	 * @param registrationLoaders the loader of each {@link ClientRegistration}, keyed by
+	 * {@link ClientRegistration#getRegistrationId() registration id}
+	 */
+	public LazyClientRegistrationRepository(Map<String, Supplier<ClientRegistration>> registrationLoaders) {
+		Assert.notEmpty(registrationLoaders, "registrationLoaders cannot be empty");
+		Map<String, Registration> registrations = new LinkedHashMap<>();
+		registrationLoaders.forEach((registrationId, loader) -> {
+			Assert.hasText(registrationId, "registrationId cannot be empty");
+			Assert.notNull(loader, "registrationLoaders cannot contain null values");
+			registrations.put(registrationId, new Registration(registrationId, loader));
+		});
+		this.registrations = Collections.unmodifiableMap(registrations);
+		this.executor = defaultExecutor();
+	}
+
+	private static Executor defaultExecutor() {
+		// each registration queues at most one load, so the queue is bounded by the
+		// number of registrations
+		AtomicInteger threads = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_CONCURRENCY_LIMIT, DEFAULT_CONCURRENCY_LIMIT, 60,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<>(), (runnable) -> {
+					Thread thread = new Thread(runnable, "client-registration-discovery-" + threads.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@Override
+	public ClientRegistration findByRegistrationId(String registrationId) {
+		Assert.hasText(registrationId, "registrationId cannot be empty");
+		Registration registration = this.registrations.get(registrationId);
+		if (registration == null) {
+			return null;
+		}
+		ClientRegistration current = registration.current();
+		if (current != null) {
+			return current;
+		}
+		registration.assertNotBackingOff();
+		return await(registration.load(false));
+	}
+
+	/**
+	 * Returns the {@link ClientRegistration} for the given id without blocking the
+	 * calling thread, loading it in the background if needed.
+	 * @param registrationId the registration id
+	 * @return the {@link ClientRegistration}, or a future completed with {@code null} if
+	 * the id is unknown
+	 */
+	CompletableFuture<ClientRegistration> findByRegistrationIdAsync(String registrationId) {
+		Assert.hasText(registrationId, "registrationId cannot be empty");
+		Registration registration = this.registrations.get(registrationId);
+		if (registration == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		ClientRegistration current = registration.current();
+		if (current != null) {
+			return CompletableFuture.completedFuture(current);
+		}
+		try {
+			registration.assertNotBackingOff();
+		}
+		catch (IllegalStateException ex) {
+			CompletableFuture<ClientRegistration> failed = new CompletableFuture<>();
+			failed.completeExceptionally(ex);
+			return failed;
+		}
+		return registration.load(true);
+	}
+
+	/**
+	 * Starts loading, in the background, every {@link ClientRegistration} that is not
+	 * loaded yet.
+	 * @return a future that completes once every load has finished, whether it succeeded
+	 * or not
+	 */
+	public CompletableFuture<Void> warmUp() {
+		List<CompletableFuture<?>> loads = new ArrayList<>();
+		for (Registration registration : this.registrations.values()) {
+			if (registration.cached == null) {
+				loads.add(registration.load(true).handle((result, ex) -> null));
+			}
+		}
+		return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]));
+	}
+
+	/**
+	 * Returns how many registrations have been loaded so far
+	 * @return the {@link WarmUpStatus}
+	 */
+	public WarmUpStatus getWarmUpStatus() {
+		int loaded = 0;
+		List<String> failed = new ArrayList<>();
+		for (Registration registration : this.registrations.values()) {
+			if (registration.cached != null) {
+				loaded++;
+			}
+			else if (registration.lastFailure != null) {
+				failed.add(registration.registrationId);
+			}
+		}
+		return new WarmUpStatus(this.registrations.size(), loaded, failed);
+	}
+
+	/**
+	 * Returns an {@code Iterator} of the {@link ClientRegistration}s loaded so far.
+	 * Registrations that have not been requested or warmed up are not loaded by
+	 * iterating.
+	 * @return an {@code Iterator<ClientRegistration>}
+	 */
+	@Override
+	public Iterator<ClientRegistration> iterator() {
+		List<ClientRegistration> loaded = new ArrayList<>();
+		for (Registration registration : this.registrations.values()) {
+			CachedRegistration cached = registration.cached;
+			if (cached != null) {
+				loaded.add(cached.clientRegistration);
+			}
+		}
+		return loaded.iterator();
+	}
+
+	/**
+	 * Sets how long a loaded {@link ClientRegistration} is used before it is loaded again
+	 * in the background. The default is 1 hour.
+	 * @param timeToLive how long to use a loaded {@link ClientRegistration}
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the {@link Executor} that background loads run on. It should queue loads
+	 * rather than block the submitting thread. The default runs at most 8 loads at a time
+	 * on daemon threads, and queues the others.
+	 * @param executor the {@link Executor} to use
+	 */
+	public void setExecutor(Executor executor) {
+		Assert.notNull(executor, "executor cannot be null");
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire loaded registrations. The default is
+	 * {@link Clock#systemUTC()}.
+	 * @param clock the {@link Clock}
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static ClientRegistration await(CompletableFuture<ClientRegistration> load) {
+		try {
+			return load.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading client registration", ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause.getMessage(), cause);
+		}
+	}
+
+	private final class Registration {
+
+		private final String registrationId;
+
+		private final Supplier<ClientRegistration> loader;
+
+		private final AtomicReference<CompletableFuture<ClientRegistration>> inflight = new AtomicReference<>();
+
+		private volatile CachedRegistration cached;
+
+		private volatile Instant lastFailure;
+
+		private volatile RuntimeException lastFailureCause;
+
+		private Registration(String registrationId, Supplier<ClientRegistration> loader) {
+			this.registrationId = registrationId;
+			this.loader = loader;
+		}
+
+		private ClientRegistration current() {
+			CachedRegistration cached = this.cached;
+			if (cached == null) {
+				return null;
+			}
+			Instant now = LazyClientRegistrationRepository.this.clock.instant();
+			boolean expired = !now.isBefore(cached.loadedAt.plus(LazyClientRegistrationRepository.this.timeToLive));
+			boolean backingOff = this.lastFailure != null && now.isBefore(this.lastFailure.plus(RETRY_INTERVAL));
+			if (expired && !backingOff) {
+				load(true);
+			}
+			return cached.clientRegistration;
+		}
+
+		private void assertNotBackingOff() {
+			Instant lastFailure = this.lastFailure;
+			if (lastFailure == null || this.cached != null) {
+				return;
+			}
+			Instant retryAt = lastFailure.plus(RETRY_INTERVAL);
+			if (LazyClientRegistrationRepository.this.clock.instant().isBefore(retryAt)) {
+				throw new IllegalStateException("Failed to load client registration '" + this.registrationId
+						+ "', not retrying until " + retryAt, this.lastFailureCause);
+			}
+		}
+
+		private CompletableFuture<ClientRegistration> load(boolean background) {
+			CompletableFuture<ClientRegistration> load = new CompletableFuture<>();
+			while (!this.inflight.compareAndSet(null, load)) {
+				CompletableFuture<ClientRegistration> existing = this.inflight.get();
+				if (existing != null) {
+					return existing;
+				}
+			}
+			if (!background) {
+				fetch(load);
+				return load;
+			}
+			try {
+				LazyClientRegistrationRepository.this.executor.execute(() -> fetch(load));
+			}
+			catch (RejectedExecutionException ex) {
+				this.inflight.set(null);
+				load.completeExceptionally(ex);
+			}
+			return load;
+		}
+
+		private void fetch(CompletableFuture<ClientRegistration> load) {
+			try {
+				ClientRegistration clientRegistration = this.loader.get();
+				Assert.state(clientRegistration != null,
+						() -> "Loader returned no client registration for '" + this.registrationId + "'");
+				Assert.state(this.registrationId.equals(clientRegistration.getRegistrationId()),
+						() -> "Loader for '" + this.registrationId + "' returned client registration '"
+								+ clientRegistration.getRegistrationId() + "'");
+				this.cached = new CachedRegistration(clientRegistration,
+						LazyClientRegistrationRepository.this.clock.instant());
+				this.lastFailure = null;
+				this.lastFailureCause = null;
+				load.complete(clientRegistration);
+			}
+			catch (RuntimeException ex) {
+				LazyClientRegistrationRepository.this.logger
+					.debug(LogMessage.format("Failed to load client registration '%s'", this.registrationId), ex);
+				this.lastFailureCause = ex;
+				this.lastFailure = LazyClientRegistrationRepository.this.clock.instant();
+				load.completeExceptionally(ex);
+			}
+			finally {
+				this.inflight.compareAndSet(load, null);
+			}
+		}
+
+	}
+
+	private static final class CachedRegistration {
+
+		private final ClientRegistration clientRegistration;
+
+		private final Instant loadedAt;
+
+		private CachedRegistration(ClientRegistration clientRegistration, Instant loadedAt) {
+			this.clientRegistration = clientRegistration;
+			this.loadedAt = loadedAt;
+		}
+
+	}
+
+	/**
+	 * The progress of loading the registrations of a
+	 * {@link LazyClientRegistrationRepository}
+	 */
+	public static final class WarmUpStatus {
+
+		private final int total;
+
+		private final int loaded;
+
+		private final List<String> failedRegistrationIds;
+
+		private WarmUpStatus(int total, int loaded, List<String> failedRegistrationIds) {
+			this.total = total;
+			this.loaded = loaded;
+			this.failedRegistrationIds = Collections.unmodifiableList(failedRegistrationIds);
+		}
+
+		/**
+		 * The number of registrations in the repository
+		 * @return the number of registrations
+		 */
+		public int getTotal() {
+			return this.total;
+		}
+
+		/**
+		 * The number of registrations that have been loaded
+		 * @return the number of loaded registrations
+		 */
+		public int getLoaded() {
+			return this.loaded;
+		}
+
+		/**
+		 * The ids of the registrations whose last load failed and that have never been
+		 * loaded
+		 * @return the ids of the failed registrations
+		 */
+		public List<String> getFailedRegistrationIds() {
+			return this.failedRegistrationIds;
+		}
+
+		/**
+		 * Whether every registration has been loaded
+		 * @return {@code true} if every registration has been loaded
+		 */
+		public boolean isComplete() {
+			return this.loaded == this.total;
+		}
+
+	}
+
+}
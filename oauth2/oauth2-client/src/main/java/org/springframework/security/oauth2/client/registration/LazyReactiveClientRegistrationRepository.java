@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.registration;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactiveClientRegistrationRepository} that loads each
+ * {@link ClientRegistration} the first time it is requested, rather than all of them up
+ * front. Loading, caching and background refreshing work as in
+ * {@link LazyClientRegistrationRepository}; loads never run on the subscribing thread.
+ *
+ * @since 5.8
+ * @see LazyClientRegistrationRepository
+ */
+public final class LazyReactiveClientRegistrationRepository
+		implements ReactiveClientRegistrationRepository, Iterable<ClientRegistration> {
+
+	private final LazyClientRegistrationRepository delegate;
+
+	/**
+	 * Constructs a {@code LazyReactiveClientRegistrationRepository} using the provided
+	 * parameters.
+	 * @param registrationLoaders the loader of each {@link ClientRegistration}, keyed by
+	 * {@link ClientRegistration#getRegistrationId() registration id}. Loaders may block.
+	 */
+	public LazyReactiveClientRegistrationRepository(Map<String, Supplier<ClientRegistration>> registrationLoaders) {
+		this.delegate = new LazyClientRegistrationRepository(registrationLoaders);
+	}
+
+	@Override
+	public Mono<ClientRegistration> findByRegistrationId(String registrationId) {
+		Assert.hasText(registrationId, "registrationId cannot be empty");
+		return Mono.fromFuture(() -> this.delegate.findByRegistrationIdAsync(registrationId));
+	}
+
+	/**
+	 * Starts loading, in the background, every {@link ClientRegistration} that is not
+	 * loaded yet.
+	 * @return a {@code Mono} that completes once every load has finished, whether it
+	 * succeeded or not
+	 */
+	public Mono<Void> warmUp() {
+		return Mono.fromFuture(this.delegate.warmUp());
+	}
+
+	/**
+	 * Returns how many registrations have been loaded so far
+	 * @return the {@link LazyClientRegistrationRepository.WarmUpStatus}
+	 */
+	public LazyClientRegistrationRepository.WarmUpStatus getWarmUpStatus() {
+		return this.delegate.getWarmUpStatus();
+	}
+
+	/**
+	 * Returns an {@code Iterator} of the {@link ClientRegistration}s loaded so far.
+	 * @return an {@code Iterator<ClientRegistration>}
+	 */
+	@Override
+	public Iterator<ClientRegistration> iterator() {
+		return this.delegate.iterator();
+	}
+
+	/**
+	 * Sets how long a loaded {@link ClientRegistration} is used before it is loaded again
+	 * in the background. The default is 1 hour.
+	 * @param timeToLive how long to use a loaded {@link ClientRegistration}
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		this.delegate.setTimeToLive(timeToLive);
+	}
+
+	/**
+	 * Sets the {@link Executor} that loads run on. It must queue loads rather than block
+	 * the submitting thread, which may be an event loop thread. The default runs at most 8
+	 * loads at a time on daemon threads, and queues the others.
+	 * @param executor the {@link Executor} to use
+	 */
+	public void setExecutor(Executor executor) {
+		this.delegate.setExecutor(executor);
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire loaded registrations. The default is
+	 * {@link Clock#systemUTC()}.
+	 * @param clock the {@link Clock}
+	 */
+	public void setClock(Clock clock) {
+		this.delegate.setClock(clock);
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.userinfo;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactiveOAuth2UserService} that caches the {@link OAuth2User} loaded by
+ * another {@link ReactiveOAuth2UserService}, so that an End-User who logs in again
+ * shortly after does not cause another request to the UserInfo Endpoint.
+ *
+ * <p>
+ * Cached users are keyed and bound the same way as in {@link CachingOAuth2UserService}.
+ * Without a {@link #setSubjectResolver(Function) subject resolver}, they are only reused
+ * for the same access token, and not across logins. To key them by the subject of the
+ * validated ID Token, use {@link CachingOAuth2UserService#idTokenSubjectResolver()}.
+ *
+ * @param <R> The type of OAuth 2.0 User Request
+ * @param <U> The type of OAuth 2.0 User
+ * @since 5.8
+ * @see CachingOAuth2UserService
+ */
+public final class CachingReactiveOAuth2UserService<R extends OAuth2UserRequest, U extends OAuth2User>
+		implements ReactiveOAuth2UserService<R, U> {
+
+	private final ReactiveOAuth2UserService<R, U> delegate;
+
+	private final OAuth2UserCache<R, U> cache = new OAuth2UserCache<>();
+
+	/**
+	 * Constructs a {@code CachingReactiveOAuth2UserService} using the provided
+	 * parameters.
+	 * @param delegate the {@link ReactiveOAuth2UserService} to load users with
+	 */
+	public CachingReactiveOAuth2UserService(ReactiveOAuth2UserService<R, U> delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Mono<U> loadUser(R userRequest) throws OAuth2AuthenticationException {
+		Assert.notNull(userRequest, "userRequest cannot be null");
+		return Mono.defer(() -> {
+			OAuth2UserCache.Key key = this.cache.key(userRequest);
+			U user = this.cache.get(key);
+			if (user != null) {
+				return Mono.just(user);
+			}
+			return this.delegate.loadUser(userRequest).doOnNext((loaded) -> this.cache.put(key, userRequest, loaded));
+		});
+	}
+
+	/**
+	 * Sets how long a loaded user is reused. The default is 5 minutes. Entries bound to
+	 * an access token never outlive it.
+	 * @param timeToLive how long to reuse a loaded user
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		this.cache.setTimeToLive(timeToLive);
+	}
+
+	/**
+	 * Sets the maximum number of cached users. When the limit is reached, the cache is
+	 * cleared. The default is 10000.
+	 * @param maxSize the maximum number of cached users
+	 */
+	public void setMaxSize(int maxSize) {
+		this.cache.setMaxSize(maxSize);
+	}
+
+	/**
+	 * Sets the {@code Function} that resolves the End-User's subject from a user request,
+	 * before the UserInfo Endpoint is called. It should only return a subject that has
+	 * already been verified, such as the one of a validated ID Token, and {@code null}
+	 * otherwise. By default no subject is resolved, and cached users are only reused for
+	 * the same access token.
+	 * @param subjectResolver the {@code Function} that resolves the subject
+	 * @see CachingOAuth2UserService#idTokenSubjectResolver()
+	 */
+	public void setSubjectResolver(Function<R, String> subjectResolver) {
+		this.cache.setSubjectResolver(subjectResolver);
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached users. The default is
+	 * {@link Clock#systemUTC()}.
+	 * @param clock the {@link Clock}
+	 */
+	public void setClock(Clock clock) {
+		this.cache.setClock(clock);
+	}
+
+}
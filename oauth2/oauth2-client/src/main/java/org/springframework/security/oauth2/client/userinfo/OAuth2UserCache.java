@@ -0,0 +1,180 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.userinfo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.util.Assert;
+
+/**
+ * The cache behind {@link CachingOAuth2UserService} and
+ * {@link CachingReactiveOAuth2UserService}.
+ *
+ * <p>
+ * An entry is keyed by the registration id, the scopes granted to the access token and
+ * either the End-User's subject, when one can be resolved before calling the UserInfo
+ * Endpoint, or a hash of the access token. In the latter case the entry also expires with
+ * the access token.
+ *
+ * @param <R> The type of OAuth 2.0 User Request
+ * @param <U> The type of OAuth 2.0 User
+ * @since 5.8
+ */
+final class OAuth2UserCache<R extends OAuth2UserRequest, U extends OAuth2User> {
+
+	private static final int DEFAULT_MAX_SIZE = 10000;
+
+	private final Map<Key, CachedUser<U>> users = new ConcurrentHashMap<>();
+
+	private Duration timeToLive = Duration.ofMinutes(5);
+
+	private int maxSize = DEFAULT_MAX_SIZE;
+
+	private Function<R, String> subjectResolver = (userRequest) -> null;
+
+	private Clock clock = Clock.systemUTC();
+
+	Key key(R userRequest) {
+		String registrationId = userRequest.getClientRegistration().getRegistrationId();
+		OAuth2AccessToken accessToken = userRequest.getAccessToken();
+		String subject = this.subjectResolver.apply(userRequest);
+		String boundTo = (subject != null) ? "sub:" + subject : "token:" + hash(accessToken.getTokenValue());
+		return new Key(registrationId, boundTo, new TreeSet<>(accessToken.getScopes()));
+	}
+
+	U get(Key key) {
+		CachedUser<U> cached = this.users.get(key);
+		if (cached == null) {
+			return null;
+		}
+		if (!this.clock.instant().isBefore(cached.expiresAt)) {
+			this.users.remove(key, cached);
+			return null;
+		}
+		return cached.user;
+	}
+
+	void put(Key key, R userRequest, U user) {
+		if (user == null) {
+			return;
+		}
+		Instant expiresAt = this.clock.instant().plus(this.timeToLive);
+		Instant accessTokenExpiresAt = userRequest.getAccessToken().getExpiresAt();
+		if (key.boundTo.startsWith("token:") && accessTokenExpiresAt != null
+				&& accessTokenExpiresAt.isBefore(expiresAt)) {
+			expiresAt = accessTokenExpiresAt;
+		}
+		if (this.users.size() >= this.maxSize) {
+			this.users.clear();
+		}
+		this.users.put(key, new CachedUser<>(user, expiresAt));
+	}
+
+	void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	void setMaxSize(int maxSize) {
+		Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+		this.maxSize = maxSize;
+	}
+
+	void setSubjectResolver(Function<R, String> subjectResolver) {
+		Assert.notNull(subjectResolver, "subjectResolver cannot be null");
+		this.subjectResolver = subjectResolver;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static String hash(String value) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			byte[] digest = md.digest(value.getBytes(StandardCharsets.US_ASCII));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	static final class Key {
+
+		private final String registrationId;
+
+		private final String boundTo;
+
+		private final Set<String> scopes;
+
+		private Key(String registrationId, String boundTo, Set<String> scopes) {
+			this.registrationId = registrationId;
+			this.boundTo = boundTo;
+			this.scopes = scopes;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			Key that = (Key) obj;
+			return this.registrationId.equals(that.registrationId) && this.boundTo.equals(that.boundTo)
+					&& this.scopes.equals(that.scopes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.registrationId, this.boundTo, this.scopes);
+		}
+
+	}
+
+	private static final class CachedUser<U> {
+
+		private final U user;
+
+		private final Instant expiresAt;
+
+		private CachedUser(U user, Instant expiresAt) {
+			this.user = user;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
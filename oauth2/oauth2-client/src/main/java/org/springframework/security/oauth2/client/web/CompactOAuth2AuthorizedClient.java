@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.web;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.jackson2.OAuth2ClientJackson2Module;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+
+/**
+ * The session form of an {@link OAuth2AuthorizedClient}, holding only what cannot be
+ * looked up again: the registration id, the principal name and the tokens. The
+ * {@link ClientRegistration} is resolved again when the client is read.
+ *
+ * <p>
+ * It can be stored with JDK serialization, or as JSON with the
+ * {@link OAuth2ClientJackson2Module}. It is only created and read by
+ * {@link HttpSessionOAuth2AuthorizedClientRepository}.
+ *
+ * @since 5.8
+ * @see HttpSessionOAuth2AuthorizedClientRepository
+ */
+public final class CompactOAuth2AuthorizedClient implements Serializable {
+
+	private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+	private final String clientRegistrationId;
+
+	private final String principalName;
+
+	private final String accessTokenValue;
+
+	private final Instant accessTokenIssuedAt;
+
+	private final Instant accessTokenExpiresAt;
+
+	private final String[] accessTokenScopes;
+
+	private final String refreshTokenValue;
+
+	private final Instant refreshTokenIssuedAt;
+
+	private final Instant refreshTokenExpiresAt;
+
+	CompactOAuth2AuthorizedClient(OAuth2AuthorizedClient authorizedClient) {
+		this.clientRegistrationId = authorizedClient.getClientRegistration().getRegistrationId();
+		this.principalName = authorizedClient.getPrincipalName();
+		OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+		this.accessTokenValue = accessToken.getTokenValue();
+		this.accessTokenIssuedAt = accessToken.getIssuedAt();
+		this.accessTokenExpiresAt = accessToken.getExpiresAt();
+		this.accessTokenScopes = accessToken.getScopes().toArray(new String[0]);
+		OAuth2RefreshToken refreshToken = authorizedClient.getRefreshToken();
+		this.refreshTokenValue = (refreshToken != null) ? refreshToken.getTokenValue() : null;
+		this.refreshTokenIssuedAt = (refreshToken != null) ? refreshToken.getIssuedAt() : null;
+		this.refreshTokenExpiresAt = (refreshToken != null) ? refreshToken.getExpiresAt() : null;
+	}
+
+	private CompactOAuth2AuthorizedClient(String clientRegistrationId, String principalName, String accessTokenValue,
+			Instant accessTokenIssuedAt, Instant accessTokenExpiresAt, String[] accessTokenScopes,
+			String refreshTokenValue, Instant refreshTokenIssuedAt, Instant refreshTokenExpiresAt) {
+		this.clientRegistrationId = clientRegistrationId;
+		this.principalName = principalName;
+		this.accessTokenValue = accessTokenValue;
+		this.accessTokenIssuedAt = accessTokenIssuedAt;
+		this.accessTokenExpiresAt = accessTokenExpiresAt;
+		this.accessTokenScopes = accessTokenScopes;
+		this.refreshTokenValue = refreshTokenValue;
+		this.refreshTokenIssuedAt = refreshTokenIssuedAt;
+		this.refreshTokenExpiresAt = refreshTokenExpiresAt;
+	}
+
+	String getClientRegistrationId() {
+		return this.clientRegistrationId;
+	}
+
+	OAuth2AuthorizedClient toAuthorizedClient(ClientRegistration clientRegistration) {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, this.accessTokenValue,
+				this.accessTokenIssuedAt, this.accessTokenExpiresAt,
+				new LinkedHashSet<>(Arrays.asList(this.accessTokenScopes)));
+		OAuth2RefreshToken refreshToken = (this.refreshTokenValue != null)
+				? new OAuth2RefreshToken(this.refreshTokenValue, this.refreshTokenIssuedAt, this.refreshTokenExpiresAt)
+				: null;
+		return new OAuth2AuthorizedClient(clientRegistration, this.principalName, accessToken, refreshToken);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,16 @@
 
 package org.springframework.security.oauth2.client.web;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 import javax.servlet.http.HttpServletRequest;
@@ -32,6 +39,7 @@ import org.springframework.security.oauth2.client.OAuth2AuthorizationFailureHand
 import org.springframework.security.oauth2.client.OAuth2AuthorizationSuccessHandler;
 import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientId;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
@@ -43,6 +51,7 @@ import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -78,6 +87,18 @@ import org.springframework.web.context.request.ServletRequestAttributes;
  * {@link OAuth2AuthorizationFailureHandler} via
  * {@link #setAuthorizationFailureHandler(OAuth2AuthorizationFailureHandler)}.
  *
+ * <h2>Concurrent Authorizations</h2>
+ *
+ * <p>
+ * Authorizations made while handling the same {@code HttpServletRequest} for the same
+ * client registration and principal do not overlap. While one is in flight, for example
+ * while an expired access token is being renewed, other callers for the same
+ * {@link OAuth2AuthorizedClientId} wait for it to finish and then authorize against the
+ * {@link OAuth2AuthorizedClient} it saved, so that a single token request is made instead
+ * of one per caller. Authorizations for different {@code HttpServletRequest}s never wait
+ * for each other, since they may not share an {@link OAuth2AuthorizedClientRepository}
+ * entry, for example when it is kept in the {@code HttpSession}.
+ *
  * @author Joe Grandja
  * @since 5.2
  * @see OAuth2AuthorizedClientManager
@@ -108,6 +129,12 @@ public final class DefaultOAuth2AuthorizedClientManager implements OAuth2Authori
 
 	private OAuth2AuthorizationFailureHandler authorizationFailureHandler;
 
+	private final String inflightAuthorizationsAttrName = DefaultOAuth2AuthorizedClientManager.class.getName()
+		.concat(".INFLIGHT_AUTHORIZATIONS.")
+		.concat(ObjectUtils.getIdentityHexString(this));
+
+	private Duration inflightAuthorizationTimeout = Duration.ofSeconds(10);
+
 	/**
 	 * Constructs a {@code DefaultOAuth2AuthorizedClientManager} using the provided
 	 * parameters.
@@ -137,6 +164,61 @@ public final class DefaultOAuth2AuthorizedClientManager implements OAuth2Authori
 	@Override
 	public OAuth2AuthorizedClient authorize(OAuth2AuthorizeRequest authorizeRequest) {
 		Assert.notNull(authorizeRequest, "authorizeRequest cannot be null");
+		String principalName = authorizeRequest.getPrincipal().getName();
+		HttpServletRequest servletRequest = getHttpServletRequestOrDefault(authorizeRequest.getAttributes());
+		if (!StringUtils.hasText(principalName) || servletRequest == null) {
+			return doAuthorize(authorizeRequest);
+		}
+		ConcurrentMap<OAuth2AuthorizedClientId, CompletableFuture<Void>> authorizations = getInflightAuthorizations(
+				servletRequest);
+		OAuth2AuthorizedClientId authorizedClientId = new OAuth2AuthorizedClientId(
+				authorizeRequest.getClientRegistrationId(), principalName);
+		CompletableFuture<Void> authorization = new CompletableFuture<>();
+		CompletableFuture<Void> inflight = authorizations.putIfAbsent(authorizedClientId, authorization);
+		if (inflight != null) {
+			// Let the in-flight authorization save its result first, so this one can
+			// reuse it instead of requesting another token
+			awaitInflightAuthorization(inflight);
+			return doAuthorize(authorizeRequest);
+		}
+		try {
+			return doAuthorize(authorizeRequest);
+		}
+		finally {
+			authorizations.remove(authorizedClientId, authorization);
+			authorization.complete(null);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<OAuth2AuthorizedClientId, CompletableFuture<Void>> getInflightAuthorizations(
+			HttpServletRequest servletRequest) {
+		Object inflightAuthorizations = servletRequest.getAttribute(this.inflightAuthorizationsAttrName);
+		if (inflightAuthorizations == null) {
+			synchronized (servletRequest) {
+				inflightAuthorizations = servletRequest.getAttribute(this.inflightAuthorizationsAttrName);
+				if (inflightAuthorizations == null) {
+					inflightAuthorizations = new ConcurrentHashMap<>();
+					servletRequest.setAttribute(this.inflightAuthorizationsAttrName, inflightAuthorizations);
+				}
+			}
+		}
+		return (ConcurrentMap<OAuth2AuthorizedClientId, CompletableFuture<Void>>) inflightAuthorizations;
+	}
+
+	private void awaitInflightAuthorization(CompletableFuture<Void> inflight) {
+		try {
+			inflight.get(this.inflightAuthorizationTimeout.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException | TimeoutException ex) {
+			// authorize independently rather than keep the request thread waiting
+		}
+	}
+
+	private OAuth2AuthorizedClient doAuthorize(OAuth2AuthorizeRequest authorizeRequest) {
 		String clientRegistrationId = authorizeRequest.getClientRegistrationId();
 		OAuth2AuthorizedClient authorizedClient = authorizeRequest.getAuthorizedClient();
 		Authentication principal = authorizeRequest.getPrincipal();
@@ -284,6 +366,20 @@ public final class DefaultOAuth2AuthorizedClientManager implements OAuth2Authori
 		this.authorizationFailureHandler = authorizationFailureHandler;
 	}
 
+	/**
+	 * Sets how long an authorization waits for a concurrent authorization of the same
+	 * client and principal, made while handling the same {@code HttpServletRequest}, to
+	 * finish before authorizing on its own. The default is 10 seconds.
+	 * @param inflightAuthorizationTimeout the maximum time to wait for a concurrent
+	 * authorization
+	 * @since 5.8
+	 */
+	public void setInflightAuthorizationTimeout(Duration inflightAuthorizationTimeout) {
+		Assert.notNull(inflightAuthorizationTimeout, "inflightAuthorizationTimeout cannot be null");
+		Assert.isTrue(!inflightAuthorizationTimeout.isNegative(), "inflightAuthorizationTimeout cannot be negative");
+		this.inflightAuthorizationTimeout = inflightAuthorizationTimeout;
+	}
+
 	/**
 	 * The default implementation of the {@link #setContextAttributesMapper(Function)
 	 * contextAttributesMapper}.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,12 +25,21 @@ import javax.servlet.http.HttpSession;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.util.Assert;
 
 /**
  * An implementation of an {@link OAuth2AuthorizedClientRepository} that stores
  * {@link OAuth2AuthorizedClient}'s in the {@code HttpSession}.
  *
+ * <p>
+ * By default, each {@link OAuth2AuthorizedClient} is stored as is, including its
+ * {@link ClientRegistration}. When constructed with a
+ * {@link ClientRegistrationRepository}, only the registration id, the principal name and
+ * the tokens are stored, and the {@link ClientRegistration} is looked up again on read.
+ * This keeps the session small, which matters when it is replicated.
+ *
  * @author Joe Grandja
  * @since 5.1
  * @see OAuth2AuthorizedClientRepository
@@ -43,13 +52,48 @@ public final class HttpSessionOAuth2AuthorizedClientRepository implements OAuth2
 
 	private final String sessionAttributeName = DEFAULT_AUTHORIZED_CLIENTS_ATTR_NAME;
 
+	private final ClientRegistrationRepository clientRegistrationRepository;
+
+	/**
+	 * Constructs a {@code HttpSessionOAuth2AuthorizedClientRepository} that stores
+	 * {@link OAuth2AuthorizedClient}'s as is.
+	 */
+	public HttpSessionOAuth2AuthorizedClientRepository() {
+		this.clientRegistrationRepository = null;
+	}
+
+	/**
+	 * Constructs a {@code HttpSessionOAuth2AuthorizedClientRepository} that stores a
+	 * compact form of each {@link OAuth2AuthorizedClient} and resolves its
+	 * {@link ClientRegistration} from the provided repository on read.
+	 * @param clientRegistrationRepository the repository of client registrations
+	 * @since 5.8
+	 */
+	public HttpSessionOAuth2AuthorizedClientRepository(ClientRegistrationRepository clientRegistrationRepository) {
+		Assert.notNull(clientRegistrationRepository, "clientRegistrationRepository cannot be null");
+		this.clientRegistrationRepository = clientRegistrationRepository;
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId,
 			Authentication principal, HttpServletRequest request) {
 		Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
 		Assert.notNull(request, "request cannot be null");
-		return (T) this.getAuthorizedClients(request).get(clientRegistrationId);
+		Object authorizedClient = this.getAuthorizedClients(request).get(clientRegistrationId);
+		if (authorizedClient instanceof CompactOAuth2AuthorizedClient) {
+			return (T) toAuthorizedClient((CompactOAuth2AuthorizedClient) authorizedClient);
+		}
+		return (T) authorizedClient;
+	}
+
+	private OAuth2AuthorizedClient toAuthorizedClient(CompactOAuth2AuthorizedClient authorizedClient) {
+		if (this.clientRegistrationRepository == null) {
+			return null;
+		}
+		ClientRegistration clientRegistration = this.clientRegistrationRepository
+			.findByRegistrationId(authorizedClient.getClientRegistrationId());
+		return (clientRegistration != null) ? authorizedClient.toAuthorizedClient(clientRegistration) : null;
 	}
 
 	@Override
@@ -58,8 +102,10 @@ public final class HttpSessionOAuth2AuthorizedClientRepository implements OAuth2
 		Assert.notNull(authorizedClient, "authorizedClient cannot be null");
 		Assert.notNull(request, "request cannot be null");
 		Assert.notNull(response, "response cannot be null");
-		Map<String, OAuth2AuthorizedClient> authorizedClients = this.getAuthorizedClients(request);
-		authorizedClients.put(authorizedClient.getClientRegistration().getRegistrationId(), authorizedClient);
+		Map<String, Object> authorizedClients = this.getAuthorizedClients(request);
+		authorizedClients.put(authorizedClient.getClientRegistration().getRegistrationId(),
+				(this.clientRegistrationRepository != null) ? new CompactOAuth2AuthorizedClient(authorizedClient)
+						: authorizedClient);
 		request.getSession().setAttribute(this.sessionAttributeName, authorizedClients);
 	}
 
@@ -68,7 +114,7 @@ public final class HttpSessionOAuth2AuthorizedClientRepository implements OAuth2
 			HttpServletRequest request, HttpServletResponse response) {
 		Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
 		Assert.notNull(request, "request cannot be null");
-		Map<String, OAuth2AuthorizedClient> authorizedClients = this.getAuthorizedClients(request);
+		Map<String, Object> authorizedClients = this.getAuthorizedClients(request);
 		if (!authorizedClients.isEmpty()) {
 			if (authorizedClients.remove(clientRegistrationId) != null) {
 				if (!authorizedClients.isEmpty()) {
@@ -82,10 +128,10 @@ public final class HttpSessionOAuth2AuthorizedClientRepository implements OAuth2
 	}
 
 	@SuppressWarnings("unchecked")
-	private Map<String, OAuth2AuthorizedClient> getAuthorizedClients(HttpServletRequest request) {
+	private Map<String, Object> getAuthorizedClients(HttpServletRequest request) {
 		HttpSession session = request.getSession(false);
-		Map<String, OAuth2AuthorizedClient> authorizedClients = (session != null)
-				? (Map<String, OAuth2AuthorizedClient>) session.getAttribute(this.sessionAttributeName) : null;
+		Map<String, Object> authorizedClients = (session != null)
+				? (Map<String, Object>) session.getAttribute(this.sessionAttributeName) : null;
 		if (authorizedClients == null) {
 			authorizedClients = new HashMap<>();
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2022 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,13 @@
 
 package org.springframework.security.oauth2.client.web.reactive.function.client;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -28,6 +31,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.context.Context;
 
@@ -44,6 +48,7 @@ import org.springframework.security.oauth2.client.ClientCredentialsOAuth2Authori
 import org.springframework.security.oauth2.client.OAuth2AuthorizationFailureHandler;
 import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientId;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
@@ -61,6 +66,7 @@ import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
 import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -120,6 +126,22 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
  * will <em>NOT</em> be configured automatically. It is recommended that you configure one
  * via {@link #setAuthorizationFailureHandler(OAuth2AuthorizationFailureHandler)}.
  *
+ * <h3>Fan-out Requests</h3>
+ *
+ * <p>
+ * Since 5.8, authorizations resolved from a client registration id can be shared by the
+ * requests made while handling the same {@link HttpServletRequest}. With
+ * {@link #setCoalesceAuthorizations(boolean)}, concurrent requests for the same client
+ * registration and principal wait on a single call to the
+ * {@link OAuth2AuthorizedClientManager} instead of each blocking a thread of their own.
+ * With {@link #setAuthorizedClientCacheTimeToLive(Duration)}, a resolved
+ * {@link OAuth2AuthorizedClient} is reused for subsequent requests without calling the
+ * {@link OAuth2AuthorizedClientManager} at all, until it expires or the Resource Server
+ * rejects it. Neither applies across {@link HttpServletRequest}s, so each one still
+ * loads the {@link OAuth2AuthorizedClient} through the
+ * {@link OAuth2AuthorizedClientManager}, and requests made without an
+ * {@link HttpServletRequest} share nothing.
+ *
  * @author Rob Winch
  * @author Joe Grandja
  * @author Roman Matiushchenko
@@ -149,6 +171,8 @@ public final class ServletOAuth2AuthorizedClientExchangeFilterFunction implement
 
 	private static final String HTTP_SERVLET_RESPONSE_ATTR_NAME = HttpServletResponse.class.getName();
 
+	private static final Duration AUTHORIZED_CLIENT_CACHE_CLOCK_SKEW = Duration.ofMinutes(1);
+
 	private static final Authentication ANONYMOUS_AUTHENTICATION = new AnonymousAuthenticationToken("anonymous",
 			"anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
 
@@ -171,6 +195,18 @@ public final class ServletOAuth2AuthorizedClientExchangeFilterFunction implement
 
 	private ClientResponseHandler clientResponseHandler;
 
+	private Scheduler authorizationScheduler = Schedulers.boundedElastic();
+
+	private boolean coalesceAuthorizations;
+
+	private Duration authorizedClientCacheTimeToLive = Duration.ZERO;
+
+	private Clock clock = Clock.systemUTC();
+
+	private final String requestAuthorizationsAttrName = RequestAuthorizations.class.getName()
+		.concat(".")
+		.concat(ObjectUtils.getIdentityHexString(this));
+
 	public ServletOAuth2AuthorizedClientExchangeFilterFunction() {
 	}
 
@@ -319,6 +355,53 @@ public final class ServletOAuth2AuthorizedClientExchangeFilterFunction implement
 		this.securityContextHolderStrategy = securityContextHolderStrategy;
 	}
 
+	/**
+	 * Sets the {@link Scheduler} that calls to the {@link OAuth2AuthorizedClientManager}
+	 * run on, since they may block. The default is {@link Schedulers#boundedElastic()}.
+	 * @param authorizationScheduler the {@link Scheduler} to use
+	 * @since 5.8
+	 */
+	public void setAuthorizationScheduler(Scheduler authorizationScheduler) {
+		Assert.notNull(authorizationScheduler, "authorizationScheduler cannot be null");
+		this.authorizationScheduler = authorizationScheduler;
+	}
+
+	/**
+	 * If true, concurrent requests made while handling the same
+	 * {@link HttpServletRequest} that authorize the same client registration for the same
+	 * principal share a single call to the {@link OAuth2AuthorizedClientManager}. This
+	 * applies only to requests that are authorized from a client registration id.
+	 * Default is false.
+	 * @param coalesceAuthorizations true to share concurrent authorizations, else false
+	 * @since 5.8
+	 */
+	public void setCoalesceAuthorizations(boolean coalesceAuthorizations) {
+		this.coalesceAuthorizations = coalesceAuthorizations;
+	}
+
+	/**
+	 * Sets how long an {@link OAuth2AuthorizedClient} resolved from a client registration
+	 * id is reused for later requests made while handling the same
+	 * {@link HttpServletRequest} on behalf of the same principal, without calling the
+	 * {@link OAuth2AuthorizedClientManager}. An entry is never reused within one minute of
+	 * its access token expiring, and is discarded when the Resource Server responds with
+	 * HTTP 401 Unauthorized or 403 Forbidden. The default is {@link Duration#ZERO}, which
+	 * disables reuse.
+	 * @param authorizedClientCacheTimeToLive how long to reuse an authorized client
+	 * @since 5.8
+	 */
+	public void setAuthorizedClientCacheTimeToLive(Duration authorizedClientCacheTimeToLive) {
+		Assert.notNull(authorizedClientCacheTimeToLive, "authorizedClientCacheTimeToLive cannot be null");
+		Assert.isTrue(!authorizedClientCacheTimeToLive.isNegative(),
+				"authorizedClientCacheTimeToLive cannot be negative");
+		this.authorizedClientCacheTimeToLive = authorizedClientCacheTimeToLive;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
 	/**
 	 * Configures the builder with {@link #defaultRequest()} and adds this as a
 	 * {@link ExchangeFilterFunction}
@@ -473,9 +556,65 @@ public final class ServletOAuth2AuthorizedClientExchangeFilterFunction implement
 
 	private Mono<ClientResponse> exchangeAndHandleResponse(ClientRequest request, ExchangeFunction next) {
 		return next.exchange(request)
+			.transform((responseMono) -> evictAuthorizedClientIfRejected(request, responseMono))
 			.transform((responseMono) -> this.clientResponseHandler.handleResponse(request, responseMono));
 	}
 
+	private Mono<ClientResponse> evictAuthorizedClientIfRejected(ClientRequest request,
+			Mono<ClientResponse> responseMono) {
+		OAuth2AuthorizedClient authorizedClient = getOAuth2AuthorizedClient(request.attributes());
+		if (this.authorizedClientCacheTimeToLive.isZero() || authorizedClient == null) {
+			return responseMono;
+		}
+		// @formatter:off
+		return mergeRequestAttributesIfNecessary(request)
+				.flatMap((req) -> responseMono
+						.doOnNext((response) -> evictRejectedAuthorizedClient(req, authorizedClient,
+								response.rawStatusCode()))
+						.doOnError(WebClientResponseException.class, (ex) -> evictRejectedAuthorizedClient(req,
+								authorizedClient, ex.getRawStatusCode()))
+				);
+		// @formatter:on
+	}
+
+	private void evictRejectedAuthorizedClient(ClientRequest request, OAuth2AuthorizedClient authorizedClient,
+			int statusCode) {
+		if (statusCode != HttpStatus.UNAUTHORIZED.value() && statusCode != HttpStatus.FORBIDDEN.value()) {
+			return;
+		}
+		RequestAuthorizations authorizations = getRequestAuthorizations(getRequest(request.attributes()), false);
+		if (authorizations == null) {
+			return;
+		}
+		OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(
+				authorizedClient.getClientRegistration().getRegistrationId(), authorizedClient.getPrincipalName());
+		CachedAuthorizedClient cached = authorizations.authorizedClients.get(id);
+		if (cached != null && cached.authorizedClient.getAccessToken()
+			.getTokenValue()
+			.equals(authorizedClient.getAccessToken().getTokenValue())) {
+			authorizations.authorizedClients.remove(id, cached);
+		}
+	}
+
+	private RequestAuthorizations getRequestAuthorizations(HttpServletRequest servletRequest, boolean create) {
+		if (servletRequest == null) {
+			return null;
+		}
+		RequestAuthorizations authorizations = (RequestAuthorizations) servletRequest
+			.getAttribute(this.requestAuthorizationsAttrName);
+		if (authorizations != null || !create) {
+			return authorizations;
+		}
+		synchronized (servletRequest) {
+			authorizations = (RequestAuthorizations) servletRequest.getAttribute(this.requestAuthorizationsAttrName);
+			if (authorizations == null) {
+				authorizations = new RequestAuthorizations();
+				servletRequest.setAttribute(this.requestAuthorizationsAttrName, authorizations);
+			}
+			return authorizations;
+		}
+	}
+
 	private Mono<ClientRequest> mergeRequestAttributesIfNecessary(ClientRequest request) {
 		if (!request.attribute(HTTP_SERVLET_REQUEST_ATTR_NAME).isPresent()
 				|| !request.attribute(HTTP_SERVLET_RESPONSE_ATTR_NAME).isPresent()
@@ -564,8 +703,64 @@ public final class ServletOAuth2AuthorizedClientExchangeFilterFunction implement
 		// NOTE: 'authorizedClientManager.authorize()' needs to be executed on a dedicated
 		// thread via subscribeOn(Schedulers.boundedElastic()) since it performs a
 		// blocking I/O operation using RestTemplate internally
-		return Mono.fromSupplier(() -> this.authorizedClientManager.authorize(authorizeRequest))
-			.subscribeOn(Schedulers.boundedElastic());
+		Mono<OAuth2AuthorizedClient> authorize = Mono
+			.fromSupplier(() -> this.authorizedClientManager.authorize(authorizeRequest))
+			.subscribeOn(this.authorizationScheduler);
+		if ((!this.coalesceAuthorizations && this.authorizedClientCacheTimeToLive.isZero())
+				|| !StringUtils.hasText(authentication.getName())) {
+			return authorize;
+		}
+		RequestAuthorizations authorizations = getRequestAuthorizations(servletRequest, true);
+		if (authorizations == null) {
+			return authorize;
+		}
+		OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(clientRegistrationId, authentication.getName());
+		OAuth2AuthorizedClient cached = getCachedAuthorizedClient(authorizations, id);
+		if (cached != null) {
+			return Mono.just(cached);
+		}
+		if (!this.authorizedClientCacheTimeToLive.isZero()) {
+			authorize = authorize
+				.doOnNext((authorizedClient) -> cacheAuthorizedClient(authorizations, id, authorizedClient));
+		}
+		if (this.coalesceAuthorizations) {
+			Mono<OAuth2AuthorizedClient> shared = authorize;
+			return authorizations.inflight.computeIfAbsent(id,
+					(key) -> shared.doFinally((signal) -> authorizations.inflight.remove(key)).cache());
+		}
+		return authorize;
+	}
+
+	private OAuth2AuthorizedClient getCachedAuthorizedClient(RequestAuthorizations authorizations,
+			OAuth2AuthorizedClientId id) {
+		if (this.authorizedClientCacheTimeToLive.isZero()) {
+			return null;
+		}
+		CachedAuthorizedClient cached = authorizations.authorizedClients.get(id);
+		if (cached == null) {
+			return null;
+		}
+		if (this.clock.instant().isBefore(cached.expiresAt)) {
+			return cached.authorizedClient;
+		}
+		authorizations.authorizedClients.remove(id, cached);
+		return null;
+	}
+
+	private void cacheAuthorizedClient(RequestAuthorizations authorizations, OAuth2AuthorizedClientId id,
+			OAuth2AuthorizedClient authorizedClient) {
+		Instant expiresAt = this.clock.instant().plus(this.authorizedClientCacheTimeToLive);
+		Instant tokenExpiresAt = authorizedClient.getAccessToken().getExpiresAt();
+		if (tokenExpiresAt != null) {
+			Instant usableUntil = tokenExpiresAt.minus(AUTHORIZED_CLIENT_CACHE_CLOCK_SKEW);
+			if (usableUntil.isBefore(expiresAt)) {
+				expiresAt = usableUntil;
+			}
+		}
+		if (!this.clock.instant().isBefore(expiresAt)) {
+			return;
+		}
+		authorizations.authorizedClients.put(id, new CachedAuthorizedClient(authorizedClient, expiresAt));
 	}
 
 	private Mono<OAuth2AuthorizedClient> reauthorizeClient(OAuth2AuthorizedClient authorizedClient,
@@ -588,7 +783,7 @@ public final class ServletOAuth2AuthorizedClientExchangeFilterFunction implement
 		// thread via subscribeOn(Schedulers.boundedElastic()) since it performs a
 		// blocking I/O operation using RestTemplate internally
 		return Mono.fromSupplier(() -> this.authorizedClientManager.authorize(reauthorizeRequest))
-			.subscribeOn(Schedulers.boundedElastic());
+			.subscribeOn(this.authorizationScheduler);
 	}
 
 	private void addToAttributes(Map<String, Object> attributes, HttpServletRequest servletRequest,
@@ -646,6 +841,36 @@ public final class ServletOAuth2AuthorizedClientExchangeFilterFunction implement
 		};
 	}
 
+	/**
+	 * The authorizations shared by the requests made while handling one
+	 * {@link HttpServletRequest}, kept as an attribute of that request.
+	 */
+	private static final class RequestAuthorizations {
+
+		private final Map<OAuth2AuthorizedClientId, Mono<OAuth2AuthorizedClient>> inflight;
+
+		private final Map<OAuth2AuthorizedClientId, CachedAuthorizedClient> authorizedClients;
+
+		private RequestAuthorizations() {
+			this.inflight = new ConcurrentHashMap<>();
+			this.authorizedClients = new ConcurrentHashMap<>();
+		}
+
+	}
+
+	private static final class CachedAuthorizedClient {
+
+		private final OAuth2AuthorizedClient authorizedClient;
+
+		private final Instant expiresAt;
+
+		private CachedAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Instant expiresAt) {
+			this.authorizedClient = authorizedClient;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
 	@FunctionalInterface
 	private interface ClientResponseHandler {
 
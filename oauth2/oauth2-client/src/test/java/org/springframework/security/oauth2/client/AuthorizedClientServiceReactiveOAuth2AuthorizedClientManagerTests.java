@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,19 @@
 
 package org.springframework.security.oauth2.client;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 import reactor.test.publisher.PublisherProbe;
 
@@ -508,4 +514,75 @@ public class AuthorizedClientServiceReactiveOAuth2AuthorizedClientManagerTests {
 		assertThat(requestScopeAttribute).contains("read", "write");
 	}
 
+	@Test
+	public void authorizeWhenConcurrentForSameClientThenAuthorizedOnce() throws Exception {
+		given(this.clientRegistrationRepository.findByRegistrationId(eq(this.clientRegistration.getRegistrationId())))
+			.willReturn(Mono.just(this.clientRegistration));
+		AtomicReference<OAuth2AuthorizedClient> savedAuthorizedClient = new AtomicReference<>();
+		given(this.authorizedClientService.saveAuthorizedClient(any(), any())).willAnswer((invocation) -> {
+			savedAuthorizedClient.set(invocation.getArgument(0));
+			return Mono.empty();
+		});
+		given(this.authorizedClientService.loadAuthorizedClient(any(), any()))
+			.willAnswer((invocation) -> Mono.justOrEmpty(savedAuthorizedClient.get()));
+		Sinks.One<OAuth2AuthorizedClient> tokenResponse = Sinks.one();
+		AtomicInteger tokenRequests = new AtomicInteger();
+		this.authorizedClientManager.setAuthorizedClientProvider((context) -> {
+			if (context.getAuthorizedClient() != null) {
+				return Mono.empty();
+			}
+			tokenRequests.incrementAndGet();
+			return tokenResponse.asMono();
+		});
+		OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
+			.withClientRegistrationId(this.clientRegistration.getRegistrationId())
+			.principal(this.principal)
+			.build();
+		CompletableFuture<OAuth2AuthorizedClient> first = this.authorizedClientManager.authorize(authorizeRequest)
+			.toFuture();
+		CompletableFuture<OAuth2AuthorizedClient> second = this.authorizedClientManager.authorize(authorizeRequest)
+			.toFuture();
+		assertThat(second).isNotDone();
+		tokenResponse.tryEmitValue(this.authorizedClient);
+		assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(this.authorizedClient);
+		assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(this.authorizedClient);
+		assertThat(tokenRequests).hasValue(1);
+	}
+
+	@Test
+	public void authorizeWhenConcurrentAuthorizationTimesOutThenAuthorizesIndependently() throws Exception {
+		given(this.clientRegistrationRepository.findByRegistrationId(eq(this.clientRegistration.getRegistrationId())))
+			.willReturn(Mono.just(this.clientRegistration));
+		given(this.authorizedClientService.saveAuthorizedClient(any(), any())).willReturn(Mono.empty());
+		given(this.authorizedClientService.loadAuthorizedClient(any(), any())).willReturn(Mono.empty());
+		Sinks.One<OAuth2AuthorizedClient> tokenResponse = Sinks.one();
+		AtomicInteger tokenRequests = new AtomicInteger();
+		this.authorizedClientManager.setAuthorizedClientProvider((context) -> {
+			if (tokenRequests.incrementAndGet() == 1) {
+				return tokenResponse.asMono();
+			}
+			return Mono.just(this.authorizedClient);
+		});
+		this.authorizedClientManager.setInflightAuthorizationTimeout(Duration.ofMillis(50));
+		OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
+			.withClientRegistrationId(this.clientRegistration.getRegistrationId())
+			.principal(this.principal)
+			.build();
+		CompletableFuture<OAuth2AuthorizedClient> first = this.authorizedClientManager.authorize(authorizeRequest)
+			.toFuture();
+		assertThat(this.authorizedClientManager.authorize(authorizeRequest).block(Duration.ofSeconds(5)))
+			.isSameAs(this.authorizedClient);
+		assertThat(first).isNotDone();
+		tokenResponse.tryEmitValue(this.authorizedClient);
+		assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(this.authorizedClient);
+		assertThat(tokenRequests).hasValue(2);
+	}
+
+	@Test
+	public void setInflightAuthorizationTimeoutWhenNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> this.authorizedClientManager.setInflightAuthorizationTimeout(null))
+			.withMessage("inflightAuthorizationTimeout cannot be null");
+	}
+
 }
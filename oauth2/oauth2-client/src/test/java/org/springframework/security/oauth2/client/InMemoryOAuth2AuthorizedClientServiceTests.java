@@ -16,17 +16,25 @@
 
 package org.springframework.security.oauth2.client;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
 import org.springframework.security.oauth2.client.registration.TestClientRegistrations;
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
@@ -180,4 +188,81 @@ public class InMemoryOAuth2AuthorizedClientServiceTests {
 		assertThat(loadedAuthorizedClient).isNull();
 	}
 
+	@Test
+	public void saveAuthorizedClientWhenMaxSizeReachedThenOldestEvicted() {
+		List<String> reasons = new ArrayList<>();
+		this.authorizedClientService.setMaxSize(2);
+		this.authorizedClientService.setMetricsRecorder((name, tags, nanos) -> reasons.add(tags.get("reason")));
+		String registrationId = this.registration1.getRegistrationId();
+		save(this.registration1, "principal-a", accessToken(Instant.now()), null);
+		save(this.registration1, "principal-b", accessToken(Instant.now()), null);
+		save(this.registration1, "principal-c", accessToken(Instant.now()), null);
+		assertThat(this.authorizedClientService.getAuthorizedClientCount()).isEqualTo(2);
+		assertThatObject(this.authorizedClientService.loadAuthorizedClient(registrationId, "principal-a")).isNull();
+		assertThatObject(this.authorizedClientService.loadAuthorizedClient(registrationId, "principal-c")).isNotNull();
+		assertThat(reasons).containsExactly("size");
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenTimeToLiveElapsedThenNull() {
+		Instant now = Instant.now();
+		this.authorizedClientService.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.authorizedClientService.setTimeToLive(Duration.ofMinutes(5));
+		String registrationId = this.registration1.getRegistrationId();
+		save(this.registration1, this.principalName1, accessToken(now), null);
+		this.authorizedClientService.setClock(Clock.fixed(now.plus(Duration.ofMinutes(4)), ZoneOffset.UTC));
+		assertThatObject(this.authorizedClientService.loadAuthorizedClient(registrationId, this.principalName1))
+			.isNotNull();
+		this.authorizedClientService.setClock(Clock.fixed(now.plus(Duration.ofMinutes(5)), ZoneOffset.UTC));
+		assertThatObject(this.authorizedClientService.loadAuthorizedClient(registrationId, this.principalName1))
+			.isNull();
+		assertThat(this.authorizedClientService.getAuthorizedClientCount()).isZero();
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenEvictOnTokenExpiryThenExpiredWithoutRefreshTokenNull() {
+		Instant now = Instant.now();
+		this.authorizedClientService.setClock(Clock.fixed(now.plus(Duration.ofHours(2)), ZoneOffset.UTC));
+		this.authorizedClientService.setEvictOnTokenExpiry(true);
+		String registrationId = this.registration1.getRegistrationId();
+		save(this.registration1, this.principalName1, accessToken(now), null);
+		save(this.registration1, this.principalName2, accessToken(now), new OAuth2RefreshToken("refresh", now));
+		assertThatObject(this.authorizedClientService.loadAuthorizedClient(registrationId, this.principalName1))
+			.isNull();
+		assertThatObject(this.authorizedClientService.loadAuthorizedClient(registrationId, this.principalName2))
+			.isNotNull();
+	}
+
+	@Test
+	public void getEstimatedMemoryUsageWhenSavedAndRemovedThenTracked() {
+		assertThat(this.authorizedClientService.getEstimatedMemoryUsage()).isZero();
+		save(this.registration1, this.principalName1, accessToken(Instant.now()), null);
+		long usage = this.authorizedClientService.getEstimatedMemoryUsage();
+		assertThat(usage).isPositive();
+		save(this.registration1, this.principalName1, accessToken(Instant.now()), null);
+		assertThat(this.authorizedClientService.getEstimatedMemoryUsage()).isEqualTo(usage);
+		this.authorizedClientService.removeAuthorizedClient(this.registration1.getRegistrationId(),
+				this.principalName1);
+		assertThat(this.authorizedClientService.getEstimatedMemoryUsage()).isZero();
+	}
+
+	@Test
+	public void setTimeToLiveWhenZeroThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.authorizedClientService.setTimeToLive(Duration.ZERO))
+			.withMessage("timeToLive must be positive");
+	}
+
+	private void save(ClientRegistration registration, String principalName, OAuth2AccessToken accessToken,
+			OAuth2RefreshToken refreshToken) {
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(registration, principalName, accessToken,
+				refreshToken);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient,
+				new TestingAuthenticationToken(principalName, "password"));
+	}
+
+	private static OAuth2AccessToken accessToken(Instant issuedAt) {
+		return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token", issuedAt,
+				issuedAt.plus(Duration.ofHours(1)));
+	}
+
 }
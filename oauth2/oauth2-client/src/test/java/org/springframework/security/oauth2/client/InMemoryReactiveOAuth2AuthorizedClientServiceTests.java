@@ -17,7 +17,9 @@
 package org.springframework.security.oauth2.client;
 
 import java.time.Duration;
+import java.time.Clock;
 import java.time.Instant;
+import java.time.ZoneOffset;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -246,4 +248,22 @@ public class InMemoryReactiveOAuth2AuthorizedClientServiceTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void loadAuthorizedClientWhenTimeToLiveElapsedThenEmpty() {
+		given(this.clientRegistrationRepository.findByRegistrationId(this.clientRegistrationId))
+			.willReturn(Mono.just(this.clientRegistration));
+		Instant now = Instant.now();
+		this.authorizedClientService.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.authorizedClientService.setTimeToLive(Duration.ofMinutes(5));
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.clientRegistration,
+				this.principalName, this.accessToken);
+		// @formatter:off
+		StepVerifier.create(this.authorizedClientService.saveAuthorizedClient(authorizedClient, this.principal))
+				.verifyComplete();
+		this.authorizedClientService.setClock(Clock.fixed(now.plus(Duration.ofMinutes(5)), ZoneOffset.UTC));
+		StepVerifier.create(this.authorizedClientService.loadAuthorizedClient(this.clientRegistrationId, this.principalName))
+				.verifyComplete();
+		// @formatter:on
+	}
+
 }
@@ -21,18 +21,26 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementSetter;
@@ -59,9 +67,13 @@ import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException
 import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -339,6 +351,178 @@ public class JdbcOAuth2AuthorizedClientServiceTests {
 		assertThat(authorizedClient).isNull();
 	}
 
+	@Test
+	public void loadAuthorizedClientsWhenSomeExistThenReturnExistingInRequestedOrder() {
+		Authentication first = createPrincipal();
+		Authentication missing = createPrincipal();
+		Authentication second = createPrincipal();
+		this.authorizedClientService.saveAuthorizedClient(createAuthorizedClient(first, this.clientRegistration),
+				first);
+		this.authorizedClientService.saveAuthorizedClient(createAuthorizedClient(second, this.clientRegistration),
+				second);
+		String registrationId = this.clientRegistration.getRegistrationId();
+		OAuth2AuthorizedClientId secondId = new OAuth2AuthorizedClientId(registrationId, second.getName());
+		OAuth2AuthorizedClientId missingId = new OAuth2AuthorizedClientId(registrationId, missing.getName());
+		OAuth2AuthorizedClientId firstId = new OAuth2AuthorizedClientId(registrationId, first.getName());
+		Map<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> authorizedClients = this.authorizedClientService
+			.loadAuthorizedClients(Arrays.asList(secondId, missingId, firstId));
+		assertThat(authorizedClients.keySet()).containsExactly(secondId, firstId);
+		assertThat(authorizedClients.get(firstId).getPrincipalName()).isEqualTo(first.getName());
+		assertThat(authorizedClients.get(secondId).getPrincipalName()).isEqualTo(second.getName());
+	}
+
+	@Test
+	public void loadAuthorizedClientsWhenNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.authorizedClientService.loadAuthorizedClients(null))
+			.withMessage("authorizedClientIds cannot be null");
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenCacheEnabledThenQueriedOnce() {
+		JdbcOperations jdbcOperations = spy(this.jdbcOperations);
+		JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+				jdbcOperations, this.clientRegistrationRepository);
+		authorizedClientService.setCacheTimeToLive(Duration.ofMinutes(1));
+		Authentication principal = createPrincipal();
+		authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+				principal);
+		String registrationId = this.clientRegistration.getRegistrationId();
+		OAuth2AuthorizedClient authorizedClient = authorizedClientService.loadAuthorizedClient(registrationId,
+				principal.getName());
+		OAuth2AuthorizedClient cachedClient = authorizedClientService.loadAuthorizedClient(registrationId,
+				principal.getName());
+		assertThat(cachedClient).isSameAs(authorizedClient);
+		assertThat(authorizedClientService
+			.loadAuthorizedClients(
+					Collections.singleton(new OAuth2AuthorizedClientId(registrationId, principal.getName())))
+			.values()).containsExactly(authorizedClient);
+		verify(jdbcOperations, times(2)).query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenCachedAndSavedThenReturnSaved() {
+		this.authorizedClientService.setCacheTimeToLive(Duration.ofMinutes(1));
+		Authentication principal = createPrincipal();
+		String registrationId = this.clientRegistration.getRegistrationId();
+		this.authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+				principal);
+		this.authorizedClientService.loadAuthorizedClient(registrationId, principal.getName());
+		OAuth2AuthorizedClient updatedClient = new OAuth2AuthorizedClient(this.clientRegistration, principal.getName(),
+				TestOAuth2AccessTokens.scopes("updated"));
+		this.authorizedClientService.saveAuthorizedClient(updatedClient, principal);
+		OAuth2AuthorizedClient authorizedClient = this.authorizedClientService.loadAuthorizedClient(registrationId,
+				principal.getName());
+		assertThat(authorizedClient.getAccessToken().getScopes()).containsExactly("updated");
+		this.authorizedClientService.removeAuthorizedClient(registrationId, principal.getName());
+		authorizedClient = this.authorizedClientService.loadAuthorizedClient(registrationId, principal.getName());
+		assertThat(authorizedClient).isNull();
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenCacheExpiredThenQueriedAgain() {
+		JdbcOperations jdbcOperations = spy(this.jdbcOperations);
+		JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+				jdbcOperations, this.clientRegistrationRepository);
+		Instant now = Instant.now();
+		authorizedClientService.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		authorizedClientService.setCacheTimeToLive(Duration.ofMinutes(1));
+		Authentication principal = createPrincipal();
+		authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+				principal);
+		String registrationId = this.clientRegistration.getRegistrationId();
+		authorizedClientService.loadAuthorizedClient(registrationId, principal.getName());
+		authorizedClientService.setClock(Clock.fixed(now.plus(Duration.ofMinutes(1)), ZoneOffset.UTC));
+		authorizedClientService.loadAuthorizedClient(registrationId, principal.getName());
+		verify(jdbcOperations, times(3)).query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenSavedWhileLoadingThenLoadedClientNotCached() {
+		JdbcOperations jdbcOperations = spy(this.jdbcOperations);
+		JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+				jdbcOperations, this.clientRegistrationRepository);
+		authorizedClientService.setCacheTimeToLive(Duration.ofMinutes(1));
+		Authentication principal = createPrincipal();
+		String registrationId = this.clientRegistration.getRegistrationId();
+		authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+				principal);
+		OAuth2AuthorizedClient updatedClient = new OAuth2AuthorizedClient(this.clientRegistration, principal.getName(),
+				TestOAuth2AccessTokens.scopes("updated"));
+		AtomicBoolean saved = new AtomicBoolean();
+		willAnswer((invocation) -> {
+			Object result = invocation.callRealMethod();
+			if (saved.compareAndSet(false, true)) {
+				authorizedClientService.saveAuthorizedClient(updatedClient, principal);
+			}
+			return result;
+		}).given(jdbcOperations).query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+		OAuth2AuthorizedClient authorizedClient = authorizedClientService.loadAuthorizedClient(registrationId,
+				principal.getName());
+		assertThat(authorizedClient.getAccessToken().getScopes()).containsExactlyInAnyOrder("read", "write");
+		authorizedClient = authorizedClientService.loadAuthorizedClient(registrationId, principal.getName());
+		assertThat(authorizedClient.getAccessToken().getScopes()).containsExactly("updated");
+	}
+
+	@Test
+	public void setCacheTimeToLiveWhenNegativeThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> this.authorizedClientService.setCacheTimeToLive(Duration.ofSeconds(-1)))
+			.withMessage("cacheTimeToLive cannot be negative");
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenUpsertSupportedThenInsertsAndUpdates() {
+		EmbeddedDatabase h2 = createDb(EmbeddedDatabaseType.H2, OAUTH2_CLIENT_SCHEMA_SQL_RESOURCE);
+		try {
+			JdbcOperations jdbcOperations = spy(new JdbcTemplate(h2));
+			JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+					jdbcOperations, this.clientRegistrationRepository);
+			Authentication principal = createPrincipal();
+			String registrationId = this.clientRegistration.getRegistrationId();
+			authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+					principal);
+			OAuth2AuthorizedClient updatedClient = new OAuth2AuthorizedClient(this.clientRegistration,
+					principal.getName(), TestOAuth2AccessTokens.scopes("updated"));
+			authorizedClientService.saveAuthorizedClient(updatedClient, principal);
+			verify(jdbcOperations, times(0)).query(anyString(), any(PreparedStatementSetter.class),
+					any(RowMapper.class));
+			OAuth2AuthorizedClient authorizedClient = authorizedClientService.loadAuthorizedClient(registrationId,
+					principal.getName());
+			assertThat(authorizedClient.getAccessToken().getScopes()).containsExactly("updated");
+			assertThat(authorizedClient.getRefreshToken()).isNull();
+		}
+		finally {
+			h2.shutdown();
+		}
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenDatabaseDetectionFailsThenDetectedOnNextSave() {
+		EmbeddedDatabase h2 = createDb(EmbeddedDatabaseType.H2, OAUTH2_CLIENT_SCHEMA_SQL_RESOURCE);
+		try {
+			JdbcOperations jdbcOperations = spy(new JdbcTemplate(h2));
+			willThrow(new DataAccessResourceFailureException("unavailable")).willCallRealMethod()
+				.given(jdbcOperations)
+				.execute(any(ConnectionCallback.class));
+			JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+					jdbcOperations, this.clientRegistrationRepository);
+			Authentication principal = createPrincipal();
+			authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+					principal);
+			verify(jdbcOperations, times(1)).query(anyString(), any(PreparedStatementSetter.class),
+					any(RowMapper.class));
+			OAuth2AuthorizedClient updatedClient = new OAuth2AuthorizedClient(this.clientRegistration,
+					principal.getName(), TestOAuth2AccessTokens.scopes("updated"));
+			authorizedClientService.saveAuthorizedClient(updatedClient, principal);
+			verify(jdbcOperations, times(1)).query(anyString(), any(PreparedStatementSetter.class),
+					any(RowMapper.class));
+			verify(jdbcOperations, times(2)).execute(any(ConnectionCallback.class));
+		}
+		finally {
+			h2.shutdown();
+		}
+	}
+
 	@Test
 	public void tableDefinitionWhenCustomThenAbleToOverride() {
 		CustomTableDefinitionJdbcOAuth2AuthorizedClientService customAuthorizedClientService = new CustomTableDefinitionJdbcOAuth2AuthorizedClientService(
@@ -361,10 +545,14 @@ public class JdbcOAuth2AuthorizedClientServiceTests {
 	}
 
 	private static EmbeddedDatabase createDb(String schema) {
+		return createDb(EmbeddedDatabaseType.HSQL, schema);
+	}
+
+	private static EmbeddedDatabase createDb(EmbeddedDatabaseType type, String schema) {
 		// @formatter:off
 		return new EmbeddedDatabaseBuilder()
 				.generateUniqueName(true)
-				.setType(EmbeddedDatabaseType.HSQL)
+				.setType(type)
 				.setScriptEncoding("UTF-8")
 				.addScript(schema)
 				.build();
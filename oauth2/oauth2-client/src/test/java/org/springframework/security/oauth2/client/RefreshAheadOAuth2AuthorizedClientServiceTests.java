@@ -0,0 +1,316 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.TestClientRegistrations;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link RefreshAheadOAuth2AuthorizedClientService}
+ */
+public class RefreshAheadOAuth2AuthorizedClientServiceTests {
+
+	private final Instant now = Instant.now();
+
+	private final Authentication principal = new TestingAuthenticationToken("principal", "password");
+
+	private MockWebServer server;
+
+	private ClientRegistration clientRegistration;
+
+	private OAuth2AuthorizedClientService delegate;
+
+	private RefreshAheadOAuth2AuthorizedClientService authorizedClientService;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+		this.clientRegistration = TestClientRegistrations.clientCredentials()
+			.tokenUri(this.server.url("/oauth2/token").toString())
+			.build();
+		this.delegate = new InMemoryOAuth2AuthorizedClientService(
+				new InMemoryClientRegistrationRepository(this.clientRegistration));
+		this.authorizedClientService = new RefreshAheadOAuth2AuthorizedClientService(this.delegate);
+		this.authorizedClientService.setCheckInterval(Duration.ofHours(1));
+		this.authorizedClientService.setExecutor(Runnable::run);
+		this.authorizedClientService.setJitter(0.0);
+		this.authorizedClientService.setClock(clockAt(this.now));
+	}
+
+	@AfterEach
+	public void cleanup() throws Exception {
+		this.authorizedClientService.destroy();
+		this.server.shutdown();
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new RefreshAheadOAuth2AuthorizedClientService(null))
+			.withMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void setJitterWhenNotLessThanRefreshFractionThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.authorizedClientService.setJitter(0.8))
+			.withMessage("jitter must be between 0 and refreshFraction");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.authorizedClientService.setRefreshFraction(0.0));
+	}
+
+	@Test
+	public void refreshDueWhenBeforeRefreshFractionThenNotRenewed() {
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", null), this.principal);
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(47)));
+		this.authorizedClientService.refreshDue();
+		assertThat(this.server.getRequestCount()).isZero();
+	}
+
+	@Test
+	public void refreshDueWhenPastRefreshFractionThenRenewedFromTokenEndpoint() throws Exception {
+		this.server.enqueue(tokenResponse("token-2"));
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", null), this.principal);
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(49)));
+		this.authorizedClientService.refreshDue();
+		RecordedRequest request = this.server.takeRequest();
+		assertThat(request.getBody().readUtf8()).contains("grant_type=client_credentials");
+		OAuth2AuthorizedClient authorizedClient = this.authorizedClientService
+			.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), this.principal.getName());
+		assertThat(authorizedClient.getAccessToken().getTokenValue()).isEqualTo("token-2");
+		// the renewed token is tracked from its own lifetime
+		this.authorizedClientService.refreshDue();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void refreshDueWhenRefreshTokenThenRenewedWithRefreshToken() {
+		OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> tokenResponseClient = mock(
+				OAuth2AccessTokenResponseClient.class);
+		given(tokenResponseClient.getTokenResponse(any())).willReturn(OAuth2AccessTokenResponse.withToken("token-2")
+			.tokenType(OAuth2AccessToken.TokenType.BEARER)
+			.expiresIn(3600)
+			.refreshToken("refresh-2")
+			.build());
+		this.authorizedClientService.setRefreshTokenTokenResponseClient(tokenResponseClient);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", "refresh-1"), this.principal);
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(49)));
+		this.authorizedClientService.refreshDue();
+		OAuth2AuthorizedClient authorizedClient = this.authorizedClientService
+			.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), this.principal.getName());
+		assertThat(authorizedClient.getAccessToken().getTokenValue()).isEqualTo("token-2");
+		assertThat(authorizedClient.getRefreshToken().getTokenValue()).isEqualTo("refresh-2");
+		assertThat(this.server.getRequestCount()).isZero();
+	}
+
+	@Test
+	public void refreshDueWhenRenewalFailsThenRetriedUntilExpiry() {
+		OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> tokenResponseClient = mock(
+				OAuth2AccessTokenResponseClient.class);
+		given(tokenResponseClient.getTokenResponse(any()))
+			.willThrow(new OAuth2AuthorizationException(new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR)));
+		this.authorizedClientService.setRefreshTokenTokenResponseClient(tokenResponseClient);
+		this.authorizedClientService.setCheckInterval(Duration.ofSeconds(1));
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", "refresh-1"), this.principal);
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(50)));
+		this.authorizedClientService.refreshDue();
+		// retried halfway to expiry
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(54)));
+		this.authorizedClientService.refreshDue();
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(55)));
+		this.authorizedClientService.refreshDue();
+		verify(tokenResponseClient, times(2)).getTokenResponse(any());
+		OAuth2AuthorizedClient authorizedClient = this.authorizedClientService
+			.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), this.principal.getName());
+		assertThat(authorizedClient.getAccessToken().getTokenValue()).isEqualTo("token-1");
+	}
+
+	@Test
+	public void refreshDueWhenRemovedThenNotRenewed() {
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", null), this.principal);
+		this.authorizedClientService.removeAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				this.principal.getName());
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(59)));
+		this.authorizedClientService.refreshDue();
+		assertThat(this.server.getRequestCount()).isZero();
+	}
+
+	@Test
+	public void refreshDueWhenMoreDueThanMaxConcurrentRefreshesThenBounded() {
+		List<Runnable> renewals = new ArrayList<>();
+		this.authorizedClientService.setExecutor(renewals::add);
+		this.authorizedClientService.setMaxConcurrentRefreshes(2);
+		for (int i = 0; i < 3; i++) {
+			this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-" + i, null),
+					new TestingAuthenticationToken("principal-" + i, "password"));
+		}
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(49)));
+		this.authorizedClientService.refreshDue();
+		assertThat(renewals).hasSize(2);
+		this.authorizedClientService.refreshDue();
+		assertThat(renewals).hasSize(2);
+	}
+
+	@Test
+	public void refreshDueWhenSavedDuringRenewalThenNewerClientKept() {
+		List<Runnable> renewals = new ArrayList<>();
+		this.authorizedClientService.setExecutor(renewals::add);
+		this.server.enqueue(tokenResponse("token-2"));
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", null), this.principal);
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(49)));
+		this.authorizedClientService.refreshDue();
+		assertThat(renewals).hasSize(1);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-3", null), this.principal);
+		renewals.get(0).run();
+		OAuth2AuthorizedClient authorizedClient = this.authorizedClientService
+			.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), this.principal.getName());
+		assertThat(authorizedClient.getAccessToken().getTokenValue()).isEqualTo("token-3");
+	}
+
+	@Test
+	public void refreshDueWhenIdleThenNotRenewed() {
+		this.authorizedClientService.setIdleTimeout(Duration.ofSeconds(30));
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", null), this.principal);
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(49)));
+		this.authorizedClientService.refreshDue();
+		assertThat(this.server.getRequestCount()).isZero();
+	}
+
+	@Test
+	public void refreshDueWhenLoadedWithinIdleTimeoutThenRenewed() {
+		this.server.enqueue(tokenResponse("token-2"));
+		this.authorizedClientService.setIdleTimeout(Duration.ofSeconds(30));
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", null), this.principal);
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(40)));
+		this.authorizedClientService.loadAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				this.principal.getName());
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(49)));
+		this.authorizedClientService.refreshDue();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenMaxTrackedClientsThenNotTracked() {
+		List<Runnable> renewals = new ArrayList<>();
+		this.authorizedClientService.setExecutor(renewals::add);
+		this.authorizedClientService.setMaxTrackedClients(1);
+		for (int i = 0; i < 2; i++) {
+			this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-" + i, null),
+					new TestingAuthenticationToken("principal-" + i, "password"));
+		}
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(49)));
+		this.authorizedClientService.refreshDue();
+		assertThat(renewals).hasSize(1);
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenDelegateSavesThroughServiceThenBothTracked() {
+		Authentication mirror = new TestingAuthenticationToken("mirror", "password");
+		OAuth2AuthorizedClientService store = this.delegate;
+		OAuth2AuthorizedClientService delegate = new OAuth2AuthorizedClientService() {
+
+			@Override
+			public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId,
+					String principalName) {
+				return store.loadAuthorizedClient(clientRegistrationId, principalName);
+			}
+
+			@Override
+			public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+				store.saveAuthorizedClient(authorizedClient, principal);
+				if (!principal.getName().equals(mirror.getName())) {
+					RefreshAheadOAuth2AuthorizedClientServiceTests.this.authorizedClientService
+						.saveAuthorizedClient(authorizedClient, mirror);
+				}
+			}
+
+			@Override
+			public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
+				store.removeAuthorizedClient(clientRegistrationId, principalName);
+			}
+
+		};
+		List<Runnable> renewals = new ArrayList<>();
+		this.authorizedClientService = new RefreshAheadOAuth2AuthorizedClientService(delegate);
+		this.authorizedClientService.setCheckInterval(Duration.ofHours(1));
+		this.authorizedClientService.setExecutor(renewals::add);
+		this.authorizedClientService.setJitter(0.0);
+		this.authorizedClientService.setClock(clockAt(this.now));
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient("token-1", null), this.principal);
+		assertThat((OAuth2AuthorizedClient) this.authorizedClientService
+			.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), mirror.getName())).isNotNull();
+		this.authorizedClientService.setClock(clockAt(this.now.plusSeconds(49)));
+		this.authorizedClientService.refreshDue();
+		assertThat(renewals).hasSize(2);
+	}
+
+	private OAuth2AuthorizedClient authorizedClient(String accessToken, String refreshToken) {
+		OAuth2AccessToken token = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, accessToken, this.now,
+				this.now.plusSeconds(60));
+		OAuth2RefreshToken refresh = (refreshToken != null) ? new OAuth2RefreshToken(refreshToken, this.now) : null;
+		return new OAuth2AuthorizedClient(this.clientRegistration, "principal", token, refresh);
+	}
+
+	private static MockResponse tokenResponse(String accessToken) {
+		// @formatter:off
+		String body = "{\n"
+				+ "	\"access_token\": \"" + accessToken + "\",\n"
+				+ "	\"token_type\": \"bearer\",\n"
+				+ "	\"expires_in\": \"3600\"\n"
+				+ "}\n";
+		// @formatter:on
+		return new MockResponse().setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).setBody(body);
+	}
+
+	private static Clock clockAt(Instant instant) {
+		return Clock.fixed(instant, ZoneOffset.UTC);
+	}
+
+}
@@ -20,6 +20,10 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Collections;
 import java.util.UUID;
 import java.util.function.Function;
@@ -280,4 +284,65 @@ public class NimbusJwtClientAuthenticationParametersConverterTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void setClientAssertionReuseWindowWhenNegativeThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> this.converter.setClientAssertionReuseWindow(Duration.ofSeconds(-1)))
+			.withMessage("clientAssertionReuseWindow cannot be negative");
+	}
+
+	@Test
+	public void convertWhenClientAssertionReuseWindowNotSetThenNewAssertion() {
+		given(this.jwkResolver.apply(any())).willReturn(TestJwks.DEFAULT_SECRET_JWK);
+		OAuth2ClientCredentialsGrantRequest clientCredentialsGrantRequest = clientSecretJwtGrantRequest();
+		String first = this.converter.convert(clientCredentialsGrantRequest)
+			.getFirst(OAuth2ParameterNames.CLIENT_ASSERTION);
+		String second = this.converter.convert(clientCredentialsGrantRequest)
+			.getFirst(OAuth2ParameterNames.CLIENT_ASSERTION);
+		assertThat(second).isNotEqualTo(first);
+	}
+
+	@Test
+	public void convertWhenWithinClientAssertionReuseWindowThenSameAssertion() {
+		given(this.jwkResolver.apply(any())).willReturn(TestJwks.DEFAULT_SECRET_JWK);
+		Instant now = Instant.now();
+		this.converter.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.converter.setClientAssertionReuseWindow(Duration.ofSeconds(30));
+		OAuth2ClientCredentialsGrantRequest clientCredentialsGrantRequest = clientSecretJwtGrantRequest();
+		String first = this.converter.convert(clientCredentialsGrantRequest)
+			.getFirst(OAuth2ParameterNames.CLIENT_ASSERTION);
+		this.converter.setClock(Clock.fixed(now.plusSeconds(29), ZoneOffset.UTC));
+		String reused = this.converter.convert(clientCredentialsGrantRequest)
+			.getFirst(OAuth2ParameterNames.CLIENT_ASSERTION);
+		assertThat(reused).isEqualTo(first);
+		this.converter.setClock(Clock.fixed(now.plusSeconds(30), ZoneOffset.UTC));
+		String renewed = this.converter.convert(clientCredentialsGrantRequest)
+			.getFirst(OAuth2ParameterNames.CLIENT_ASSERTION);
+		assertThat(renewed).isNotEqualTo(first);
+	}
+
+	@Test
+	public void convertWhenClientAssertionReuseWindowExceedsExpiryThenBoundedByExpiry() {
+		given(this.jwkResolver.apply(any())).willReturn(TestJwks.DEFAULT_SECRET_JWK);
+		Instant now = Instant.now();
+		this.converter.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.converter.setClientAssertionReuseWindow(Duration.ofMinutes(5));
+		OAuth2ClientCredentialsGrantRequest clientCredentialsGrantRequest = clientSecretJwtGrantRequest();
+		String first = this.converter.convert(clientCredentialsGrantRequest)
+			.getFirst(OAuth2ParameterNames.CLIENT_ASSERTION);
+		this.converter.setClock(Clock.fixed(now.plusSeconds(60), ZoneOffset.UTC));
+		String renewed = this.converter.convert(clientCredentialsGrantRequest)
+			.getFirst(OAuth2ParameterNames.CLIENT_ASSERTION);
+		assertThat(renewed).isNotEqualTo(first);
+	}
+
+	private static OAuth2ClientCredentialsGrantRequest clientSecretJwtGrantRequest() {
+		// @formatter:off
+		ClientRegistration clientRegistration = TestClientRegistrations.clientCredentials()
+				.clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_JWT)
+				.build();
+		// @formatter:on
+		return new OAuth2ClientCredentialsGrantRequest(clientRegistration);
+	}
+
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.jackson2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.TestClientRegistrations;
+import org.springframework.security.oauth2.client.web.CompactOAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.web.HttpSessionOAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.TestOAuth2AccessTokens;
+import org.springframework.security.oauth2.core.TestOAuth2RefreshTokens;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link CompactOAuth2AuthorizedClientMixin}.
+ */
+public class CompactOAuth2AuthorizedClientMixinTests {
+
+	private static final String AUTHORIZED_CLIENTS_ATTR_NAME = HttpSessionOAuth2AuthorizedClientRepository.class
+		.getName() + ".AUTHORIZED_CLIENTS";
+
+	private ObjectMapper mapper;
+
+	private ClientRegistration clientRegistration;
+
+	private HttpSessionOAuth2AuthorizedClientRepository authorizedClientRepository;
+
+	@BeforeEach
+	public void setup() {
+		ClassLoader loader = getClass().getClassLoader();
+		this.mapper = new ObjectMapper();
+		this.mapper.registerModules(SecurityJackson2Modules.getModules(loader));
+		this.clientRegistration = TestClientRegistrations.clientRegistration().build();
+		this.authorizedClientRepository = new HttpSessionOAuth2AuthorizedClientRepository(
+				new InMemoryClientRegistrationRepository(this.clientRegistration));
+	}
+
+	@Test
+	public void deserializeWhenMixinRegisteredThenRoundTrips() throws Exception {
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.clientRegistration,
+				"principal-name", TestOAuth2AccessTokens.scopes("read", "write"),
+				TestOAuth2RefreshTokens.refreshToken());
+		OAuth2AuthorizedClient loaded = roundTrip(authorizedClient);
+		assertThat(loaded.getClientRegistration()).isSameAs(this.clientRegistration);
+		assertThat(loaded.getPrincipalName()).isEqualTo("principal-name");
+		assertThat(loaded.getAccessToken().getTokenValue())
+			.isEqualTo(authorizedClient.getAccessToken().getTokenValue());
+		assertThat(loaded.getAccessToken().getIssuedAt()).isEqualTo(authorizedClient.getAccessToken().getIssuedAt());
+		assertThat(loaded.getAccessToken().getExpiresAt())
+			.isEqualTo(authorizedClient.getAccessToken().getExpiresAt());
+		assertThat(loaded.getAccessToken().getScopes()).containsExactlyInAnyOrder("read", "write");
+		assertThat(loaded.getRefreshToken().getTokenValue())
+			.isEqualTo(authorizedClient.getRefreshToken().getTokenValue());
+		assertThat(loaded.getRefreshToken().getIssuedAt()).isEqualTo(authorizedClient.getRefreshToken().getIssuedAt());
+	}
+
+	@Test
+	public void deserializeWhenNoRefreshTokenThenRoundTrips() throws Exception {
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.clientRegistration,
+				"principal-name", TestOAuth2AccessTokens.noScopes());
+		OAuth2AuthorizedClient loaded = roundTrip(authorizedClient);
+		assertThat(loaded.getAccessToken().getTokenValue())
+			.isEqualTo(authorizedClient.getAccessToken().getTokenValue());
+		assertThat(loaded.getAccessToken().getScopes()).isEmpty();
+		assertThat(loaded.getRefreshToken()).isNull();
+	}
+
+	private OAuth2AuthorizedClient roundTrip(OAuth2AuthorizedClient authorizedClient) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		this.authorizedClientRepository.saveAuthorizedClient(authorizedClient, null, request,
+				new MockHttpServletResponse());
+		Object authorizedClients = request.getSession().getAttribute(AUTHORIZED_CLIENTS_ATTR_NAME);
+		String json = this.mapper.writeValueAsString(authorizedClients);
+		assertThat(json).contains(CompactOAuth2AuthorizedClient.class.getName());
+		MockHttpServletRequest restored = new MockHttpServletRequest();
+		restored.getSession().setAttribute(AUTHORIZED_CLIENTS_ATTR_NAME, this.mapper.readValue(json, Object.class));
+		return this.authorizedClientRepository.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), null,
+				restored);
+	}
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.registration;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link LazyClientRegistrationRepository}.
+ */
+public class LazyClientRegistrationRepositoryTests {
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final Instant now = Instant.now();
+
+	private ClientRegistration registration = TestClientRegistrations.clientRegistration().build();
+
+	private LazyClientRegistrationRepository repository;
+
+	@BeforeEach
+	public void setUp() {
+		this.repository = new LazyClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> {
+					this.loads.incrementAndGet();
+					return this.registration;
+				}));
+		this.repository.setExecutor(Runnable::run);
+		this.repository.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenEmptyThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new LazyClientRegistrationRepository(Collections.emptyMap()))
+			.withMessage("registrationLoaders cannot be empty");
+	}
+
+	@Test
+	public void findByRegistrationIdWhenNotFoundThenNull() {
+		assertThat(this.repository.findByRegistrationId("unknown")).isNull();
+		assertThat(this.loads).hasValue(0);
+	}
+
+	@Test
+	public void findByRegistrationIdWhenFoundThenLoadedOnce() {
+		assertThat(this.repository.findByRegistrationId(this.registration.getRegistrationId()))
+			.isSameAs(this.registration);
+		assertThat(this.repository.findByRegistrationId(this.registration.getRegistrationId()))
+			.isSameAs(this.registration);
+		assertThat(this.loads).hasValue(1);
+		assertThat(this.repository).containsExactly(this.registration);
+	}
+
+	@Test
+	public void findByRegistrationIdWhenExpiredThenStaleReturnedAndReloaded() {
+		this.repository.findByRegistrationId(this.registration.getRegistrationId());
+		ClientRegistration stale = this.registration;
+		this.registration = ClientRegistration.withClientRegistration(stale).clientSecret("rotated").build();
+		this.repository.setClock(Clock.fixed(this.now.plus(Duration.ofHours(1)), ZoneOffset.UTC));
+		assertThat(this.repository.findByRegistrationId(stale.getRegistrationId())).isSameAs(stale);
+		assertThat(this.repository.findByRegistrationId(stale.getRegistrationId())).isSameAs(this.registration);
+		assertThat(this.loads).hasValue(2);
+	}
+
+	@Test
+	public void findByRegistrationIdWhenLoadFailsThenThrowsAndRetries() {
+		AtomicInteger attempts = new AtomicInteger();
+		LazyClientRegistrationRepository repository = new LazyClientRegistrationRepository(
+				Collections.singletonMap("failing", () -> {
+					if (attempts.incrementAndGet() == 1) {
+						throw new IllegalArgumentException("Unable to resolve Configuration");
+					}
+					return ClientRegistration.withClientRegistration(this.registration)
+						.registrationId("failing")
+						.build();
+				}));
+		repository.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		assertThatIllegalArgumentException().isThrownBy(() -> repository.findByRegistrationId("failing"))
+			.withMessage("Unable to resolve Configuration");
+		assertThat(repository.getWarmUpStatus().getFailedRegistrationIds()).containsExactly("failing");
+		repository.setClock(Clock.fixed(this.now.plus(Duration.ofSeconds(30)), ZoneOffset.UTC));
+		assertThat(repository.findByRegistrationId("failing").getRegistrationId()).isEqualTo("failing");
+		assertThat(repository.getWarmUpStatus().getFailedRegistrationIds()).isEmpty();
+		assertThat(attempts).hasValue(2);
+	}
+
+	@Test
+	public void findByRegistrationIdWhenLoadFailedRecentlyThenThrowsWithoutLoading() {
+		IllegalArgumentException failure = new IllegalArgumentException("Unable to resolve Configuration");
+		AtomicInteger attempts = new AtomicInteger();
+		LazyClientRegistrationRepository repository = new LazyClientRegistrationRepository(
+				Collections.singletonMap("failing", () -> {
+					attempts.incrementAndGet();
+					throw failure;
+				}));
+		repository.setExecutor(Runnable::run);
+		repository.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		assertThatIllegalArgumentException().isThrownBy(() -> repository.findByRegistrationId("failing"));
+		repository.setClock(Clock.fixed(this.now.plus(Duration.ofSeconds(29)), ZoneOffset.UTC));
+		assertThatIllegalStateException().isThrownBy(() -> repository.findByRegistrationId("failing"))
+			.withCause(failure);
+		CompletableFuture<ClientRegistration> async = repository.findByRegistrationIdAsync("failing");
+		assertThat(async).isCompletedExceptionally();
+		assertThatExceptionOfType(ExecutionException.class).isThrownBy(async::get)
+			.withCauseInstanceOf(IllegalStateException.class);
+		assertThat(attempts).hasValue(1);
+	}
+
+	@Test
+	public void findByRegistrationIdWhenLoaderReturnsOtherIdThenThrowIllegalStateException() {
+		LazyClientRegistrationRepository repository = new LazyClientRegistrationRepository(
+				Collections.singletonMap("other", () -> this.registration));
+		assertThatIllegalStateException().isThrownBy(() -> repository.findByRegistrationId("other"));
+	}
+
+	@Test
+	public void findByRegistrationIdWhenConcurrentThenLoadedOnce() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		LazyClientRegistrationRepository repository = new LazyClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> {
+					this.loads.incrementAndGet();
+					loading.countDown();
+					await(release);
+					return this.registration;
+				}));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<ClientRegistration> first = executor
+				.submit(() -> repository.findByRegistrationId(this.registration.getRegistrationId()));
+			assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<ClientRegistration> second = executor
+				.submit(() -> repository.findByRegistrationId(this.registration.getRegistrationId()));
+			release.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(this.registration);
+			assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(this.registration);
+			assertThat(this.loads).hasValue(1);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void warmUpWhenCompleteThenAllLoaded() throws Exception {
+		Map<String, Supplier<ClientRegistration>> loaders = new HashMap<>();
+		for (int i = 0; i < 20; i++) {
+			String registrationId = "tenant-" + i;
+			loaders.put(registrationId,
+					() -> ClientRegistration.withClientRegistration(this.registration)
+						.registrationId(registrationId)
+						.build());
+		}
+		loaders.put("broken", () -> {
+			throw new IllegalArgumentException("Unable to resolve Configuration");
+		});
+		LazyClientRegistrationRepository repository = new LazyClientRegistrationRepository(loaders);
+		assertThat(repository.getWarmUpStatus().getLoaded()).isZero();
+		repository.warmUp().get(5, TimeUnit.SECONDS);
+		LazyClientRegistrationRepository.WarmUpStatus status = repository.getWarmUpStatus();
+		assertThat(status.getTotal()).isEqualTo(21);
+		assertThat(status.getLoaded()).isEqualTo(20);
+		assertThat(status.getFailedRegistrationIds()).containsExactly("broken");
+		assertThat(status.isComplete()).isFalse();
+	}
+
+	@Test
+	public void warmUpWhenMoreRegistrationsThanDefaultConcurrencyThenQueued() throws Exception {
+		CountDownLatch started = new CountDownLatch(8);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		Map<String, Supplier<ClientRegistration>> loaders = new HashMap<>();
+		for (int i = 0; i < 20; i++) {
+			String registrationId = "tenant-" + i;
+			loaders.put(registrationId, () -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				started.countDown();
+				await(release);
+				running.decrementAndGet();
+				return ClientRegistration.withClientRegistration(this.registration)
+					.registrationId(registrationId)
+					.build();
+			});
+		}
+		LazyClientRegistrationRepository repository = new LazyClientRegistrationRepository(loaders);
+		CompletableFuture<Void> warmUp = repository.warmUp();
+		try {
+			CompletableFuture<ClientRegistration> queued = repository.findByRegistrationIdAsync("tenant-0");
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(warmUp).isNotDone();
+			assertThat(queued).isNotDone();
+			assertThat(running).hasValue(8);
+		}
+		finally {
+			release.countDown();
+		}
+		warmUp.get(5, TimeUnit.SECONDS);
+		assertThat(repository.getWarmUpStatus().getLoaded()).isEqualTo(20);
+		assertThat(maxRunning).hasValue(8);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.registration;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link LazyReactiveClientRegistrationRepository}.
+ */
+public class LazyReactiveClientRegistrationRepositoryTests {
+
+	private final ClientRegistration registration = TestClientRegistrations.clientRegistration().build();
+
+	@Test
+	public void findByRegistrationIdWhenFoundThenLoadedOnExecutor() {
+		AtomicReference<Thread> loadingThread = new AtomicReference<>();
+		LazyReactiveClientRegistrationRepository repository = new LazyReactiveClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> {
+					loadingThread.set(Thread.currentThread());
+					return this.registration;
+				}));
+		StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+			.expectNext(this.registration)
+			.verifyComplete();
+		assertThat(loadingThread.get()).isNotSameAs(Thread.currentThread());
+		assertThat(repository.getWarmUpStatus().isComplete()).isTrue();
+	}
+
+	@Test
+	public void findByRegistrationIdWhenNotFoundThenEmpty() {
+		LazyReactiveClientRegistrationRepository repository = new LazyReactiveClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> this.registration));
+		StepVerifier.create(repository.findByRegistrationId("unknown")).verifyComplete();
+	}
+
+}
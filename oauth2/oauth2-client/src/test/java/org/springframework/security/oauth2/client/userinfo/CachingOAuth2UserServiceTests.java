@@ -0,0 +1,144 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.userinfo;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.TestClientRegistrations;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.TestOidcIdTokens;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingOAuth2UserService}.
+ */
+public class CachingOAuth2UserServiceTests {
+
+	private final ClientRegistration clientRegistration = TestClientRegistrations.clientRegistration().build();
+
+	private final Instant now = Instant.now();
+
+	private OAuth2UserService<OAuth2UserRequest, OAuth2User> delegate;
+
+	private CachingOAuth2UserService<OAuth2UserRequest, OAuth2User> userService;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		this.delegate = mock(OAuth2UserService.class);
+		given(this.delegate.loadUser(any())).willAnswer((invocation) -> mock(OAuth2User.class));
+		this.userService = new CachingOAuth2UserService<>(this.delegate);
+		this.userService.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenDelegateIsNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingOAuth2UserService<>(null))
+			.withMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void loadUserWhenSameAccessTokenThenCached() {
+		OAuth2UserRequest userRequest = userRequest("token", "read");
+		OAuth2User user = this.userService.loadUser(userRequest);
+		assertThat(this.userService.loadUser(userRequest("token", "read"))).isSameAs(user);
+		verify(this.delegate, times(1)).loadUser(any());
+	}
+
+	@Test
+	public void loadUserWhenNoSubjectResolverAndDifferentAccessTokenThenLoaded() {
+		this.userService.loadUser(userRequest("token-1", "read"));
+		this.userService.loadUser(userRequest("token-2", "read"));
+		verify(this.delegate, times(2)).loadUser(any());
+	}
+
+	@Test
+	public void loadUserWhenSameSubjectThenCachedAcrossAccessTokens() {
+		this.userService.setSubjectResolver((userRequest) -> "subject");
+		OAuth2User user = this.userService.loadUser(userRequest("token-1", "read"));
+		assertThat(this.userService.loadUser(userRequest("token-2", "read"))).isSameAs(user);
+		this.userService.loadUser(userRequest("token-3", "read", "write"));
+		verify(this.delegate, times(2)).loadUser(any());
+	}
+
+	@Test
+	public void loadUserWhenIdTokenSubjectResolverThenCachedAcrossLogins() {
+		this.userService.setSubjectResolver(CachingOAuth2UserService.idTokenSubjectResolver());
+		OAuth2User user = this.userService.loadUser(oidcUserRequest("token-1", "subject"));
+		assertThat(this.userService.loadUser(oidcUserRequest("token-2", "subject"))).isSameAs(user);
+		this.userService.loadUser(oidcUserRequest("token-3", "other"));
+		this.userService.loadUser(userRequest("token-4"));
+		verify(this.delegate, times(3)).loadUser(any());
+	}
+
+	@Test
+	public void loadUserWhenTimeToLiveElapsedThenLoaded() {
+		this.userService.setSubjectResolver((userRequest) -> "subject");
+		this.userService.setTimeToLive(Duration.ofMinutes(1));
+		this.userService.loadUser(userRequest("token", "read"));
+		this.userService.setClock(Clock.fixed(this.now.plus(Duration.ofMinutes(1)), ZoneOffset.UTC));
+		this.userService.loadUser(userRequest("token", "read"));
+		verify(this.delegate, times(2)).loadUser(any());
+	}
+
+	@Test
+	public void loadUserWhenAccessTokenExpiredThenLoaded() {
+		this.userService.loadUser(userRequest("token", "read"));
+		this.userService.setClock(Clock.fixed(this.now.plus(Duration.ofSeconds(30)), ZoneOffset.UTC));
+		this.userService.loadUser(userRequest("token", "read"));
+		verify(this.delegate, times(2)).loadUser(any());
+	}
+
+	@Test
+	public void setTimeToLiveWhenZeroThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.userService.setTimeToLive(Duration.ZERO))
+			.withMessage("timeToLive must be positive");
+	}
+
+	private OAuth2UserRequest userRequest(String tokenValue, String... scopes) {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue, this.now,
+				this.now.plus(Duration.ofSeconds(30)), new HashSet<>(Arrays.asList(scopes)));
+		return new OAuth2UserRequest(this.clientRegistration, accessToken, Collections.emptyMap());
+	}
+
+	private OAuth2UserRequest oidcUserRequest(String tokenValue, String subject) {
+		OAuth2UserRequest userRequest = userRequest(tokenValue, "openid");
+		OidcIdToken idToken = TestOidcIdTokens.idToken().subject(subject).build();
+		return new OidcUserRequest(this.clientRegistration, userRequest.getAccessToken(), idToken);
+	}
+
+}
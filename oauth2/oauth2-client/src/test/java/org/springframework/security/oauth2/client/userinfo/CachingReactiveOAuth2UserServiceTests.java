@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.userinfo;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.TestClientRegistrations;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingReactiveOAuth2UserService}.
+ */
+public class CachingReactiveOAuth2UserServiceTests {
+
+	private final ClientRegistration clientRegistration = TestClientRegistrations.clientRegistration().build();
+
+	private ReactiveOAuth2UserService<OAuth2UserRequest, OAuth2User> delegate;
+
+	private CachingReactiveOAuth2UserService<OAuth2UserRequest, OAuth2User> userService;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		this.delegate = mock(ReactiveOAuth2UserService.class);
+		given(this.delegate.loadUser(any())).willAnswer((invocation) -> Mono.just(mock(OAuth2User.class)));
+		this.userService = new CachingReactiveOAuth2UserService<>(this.delegate);
+	}
+
+	@Test
+	public void loadUserWhenSameSubjectThenCachedAcrossAccessTokens() {
+		this.userService.setSubjectResolver((userRequest) -> "subject");
+		OAuth2User user = this.userService.loadUser(userRequest("token-1")).block();
+		assertThat(this.userService.loadUser(userRequest("token-2")).block()).isSameAs(user);
+		verify(this.delegate, times(1)).loadUser(any());
+	}
+
+	@Test
+	public void loadUserWhenDelegateEmptyThenNotCached() {
+		given(this.delegate.loadUser(any())).willReturn(Mono.empty());
+		assertThat(this.userService.loadUser(userRequest("token")).block()).isNull();
+		assertThat(this.userService.loadUser(userRequest("token")).block()).isNull();
+		verify(this.delegate, times(2)).loadUser(any());
+	}
+
+	private OAuth2UserRequest userRequest(String tokenValue) {
+		Instant now = Instant.now();
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue, now,
+				now.plus(Duration.ofMinutes(5)));
+		return new OAuth2UserRequest(this.clientRegistration, accessToken);
+	}
+
+}
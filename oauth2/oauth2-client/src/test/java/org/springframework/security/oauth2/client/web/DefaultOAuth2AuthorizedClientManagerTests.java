@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,17 @@
 
 package org.springframework.security.oauth2.client.web;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import javax.servlet.http.HttpServletRequest;
@@ -55,6 +64,7 @@ import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -479,4 +489,167 @@ public class DefaultOAuth2AuthorizedClientManagerTests {
 		verifyNoInteractions(this.authorizedClientRepository);
 	}
 
+	@Test
+	public void authorizeWhenConcurrentForSameClientThenAuthorizedOnce() throws Exception {
+		given(this.clientRegistrationRepository.findByRegistrationId(eq(this.clientRegistration.getRegistrationId())))
+			.willReturn(this.clientRegistration);
+		AtomicReference<OAuth2AuthorizedClient> savedAuthorizedClient = new AtomicReference<>();
+		willAnswer((invocation) -> {
+			savedAuthorizedClient.set(invocation.getArgument(0));
+			return null;
+		}).given(this.authorizedClientRepository).saveAuthorizedClient(any(), any(), any(), any());
+		given(this.authorizedClientRepository.loadAuthorizedClient(any(), any(), any()))
+			.willAnswer((invocation) -> savedAuthorizedClient.get());
+		CountDownLatch authorizing = new CountDownLatch(1);
+		CountDownLatch tokenResponse = new CountDownLatch(1);
+		AtomicInteger tokenRequests = new AtomicInteger();
+		this.authorizedClientManager.setAuthorizedClientProvider((context) -> {
+			if (context.getAuthorizedClient() != null) {
+				return null;
+			}
+			tokenRequests.incrementAndGet();
+			authorizing.countDown();
+			await(tokenResponse);
+			return this.authorizedClient;
+		});
+		OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
+			.withClientRegistrationId(this.clientRegistration.getRegistrationId())
+			.principal(this.principal)
+			.attributes((attrs) -> {
+				attrs.put(HttpServletRequest.class.getName(), this.request);
+				attrs.put(HttpServletResponse.class.getName(), this.response);
+			})
+			.build();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<OAuth2AuthorizedClient> first = executor
+				.submit(() -> this.authorizedClientManager.authorize(authorizeRequest));
+			assertThat(authorizing.await(5, TimeUnit.SECONDS)).isTrue();
+			FutureTask<OAuth2AuthorizedClient> second = new FutureTask<>(
+					() -> this.authorizedClientManager.authorize(authorizeRequest));
+			Thread waiter = new Thread(second);
+			waiter.start();
+			awaitWaiting(waiter);
+			assertThat(second.isDone()).isFalse();
+			assertThat(tokenRequests).hasValue(1);
+			tokenResponse.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(this.authorizedClient);
+			assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(this.authorizedClient);
+			assertThat(tokenRequests).hasValue(1);
+		}
+		finally {
+			tokenResponse.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void authorizeWhenConcurrentForSamePrincipalInOtherRequestThenDoesNotWait() throws Exception {
+		given(this.clientRegistrationRepository.findByRegistrationId(eq(this.clientRegistration.getRegistrationId())))
+			.willReturn(this.clientRegistration);
+		CountDownLatch authorizing = new CountDownLatch(1);
+		CountDownLatch tokenResponse = new CountDownLatch(1);
+		AtomicInteger tokenRequests = new AtomicInteger();
+		this.authorizedClientManager.setAuthorizedClientProvider((context) -> {
+			if (tokenRequests.incrementAndGet() == 1) {
+				authorizing.countDown();
+				await(tokenResponse);
+			}
+			return this.authorizedClient;
+		});
+		Authentication anonymous = new TestingAuthenticationToken("anonymousUser", null);
+		OAuth2AuthorizeRequest firstRequest = authorizeRequest(anonymous, this.request, this.response);
+		OAuth2AuthorizeRequest secondRequest = authorizeRequest(anonymous, new MockHttpServletRequest(),
+				new MockHttpServletResponse());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<OAuth2AuthorizedClient> first = executor
+				.submit(() -> this.authorizedClientManager.authorize(firstRequest));
+			assertThat(authorizing.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(this.authorizedClientManager.authorize(secondRequest)).isSameAs(this.authorizedClient);
+			assertThat(first.isDone()).isFalse();
+			tokenResponse.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(this.authorizedClient);
+			assertThat(tokenRequests).hasValue(2);
+		}
+		finally {
+			tokenResponse.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void authorizeWhenConcurrentAuthorizationTimesOutThenAuthorizesIndependently() throws Exception {
+		given(this.clientRegistrationRepository.findByRegistrationId(eq(this.clientRegistration.getRegistrationId())))
+			.willReturn(this.clientRegistration);
+		CountDownLatch authorizing = new CountDownLatch(1);
+		CountDownLatch tokenResponse = new CountDownLatch(1);
+		AtomicInteger tokenRequests = new AtomicInteger();
+		this.authorizedClientManager.setAuthorizedClientProvider((context) -> {
+			if (tokenRequests.incrementAndGet() == 1) {
+				authorizing.countDown();
+				await(tokenResponse);
+			}
+			return this.authorizedClient;
+		});
+		this.authorizedClientManager.setInflightAuthorizationTimeout(Duration.ofMillis(50));
+		OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
+			.withClientRegistrationId(this.clientRegistration.getRegistrationId())
+			.principal(this.principal)
+			.attributes((attrs) -> {
+				attrs.put(HttpServletRequest.class.getName(), this.request);
+				attrs.put(HttpServletResponse.class.getName(), this.response);
+			})
+			.build();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<OAuth2AuthorizedClient> first = executor
+				.submit(() -> this.authorizedClientManager.authorize(authorizeRequest));
+			assertThat(authorizing.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(this.authorizedClientManager.authorize(authorizeRequest)).isSameAs(this.authorizedClient);
+			assertThat(first.isDone()).isFalse();
+			tokenResponse.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(this.authorizedClient);
+			assertThat(tokenRequests).hasValue(2);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void setInflightAuthorizationTimeoutWhenNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> this.authorizedClientManager.setInflightAuthorizationTimeout(null))
+			.withMessage("inflightAuthorizationTimeout cannot be null");
+	}
+
+	private OAuth2AuthorizeRequest authorizeRequest(Authentication principal, HttpServletRequest servletRequest,
+			HttpServletResponse servletResponse) {
+		return OAuth2AuthorizeRequest.withClientRegistrationId(this.clientRegistration.getRegistrationId())
+			.principal(principal)
+			.attributes((attrs) -> {
+				attrs.put(HttpServletRequest.class.getName(), servletRequest);
+				attrs.put(HttpServletResponse.class.getName(), servletResponse);
+			})
+			.build();
+	}
+
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 }
@@ -17,6 +17,7 @@
 package org.springframework.security.oauth2.client.web;
 
 import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.http.HttpSession;
 
@@ -27,8 +28,13 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
 import org.springframework.security.oauth2.client.registration.TestClientRegistrations;
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.TestOAuth2AccessTokens;
+import org.springframework.security.oauth2.core.TestOAuth2RefreshTokens;
+import org.springframework.util.SerializationUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
@@ -41,6 +47,9 @@ import static org.mockito.Mockito.mock;
  */
 public class HttpSessionOAuth2AuthorizedClientRepositoryTests {
 
+	private static final String AUTHORIZED_CLIENTS_ATTR_NAME = HttpSessionOAuth2AuthorizedClientRepository.class
+		.getName() + ".AUTHORIZED_CLIENTS";
+
 	private String principalName1 = "principalName-1";
 
 	private ClientRegistration registration1 = TestClientRegistrations.clientRegistration().build();
@@ -227,4 +236,56 @@ public class HttpSessionOAuth2AuthorizedClientRepositoryTests {
 		assertThat(loadedAuthorizedClient2).isSameAs(authorizedClient2);
 	}
 
+	@Test
+	public void constructorWhenClientRegistrationRepositoryIsNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new HttpSessionOAuth2AuthorizedClientRepository(null))
+			.withMessage("clientRegistrationRepository cannot be null");
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenCompactThenRehydrated() {
+		HttpSessionOAuth2AuthorizedClientRepository authorizedClientRepository = new HttpSessionOAuth2AuthorizedClientRepository(
+				new InMemoryClientRegistrationRepository(this.registration1));
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.registration1, this.principalName1,
+				TestOAuth2AccessTokens.scopes("read", "write"), TestOAuth2RefreshTokens.refreshToken());
+		authorizedClientRepository.saveAuthorizedClient(authorizedClient, null, this.request, this.response);
+		OAuth2AuthorizedClient loadedAuthorizedClient = authorizedClientRepository
+			.loadAuthorizedClient(this.registrationId1, null, this.request);
+		assertThat(loadedAuthorizedClient.getClientRegistration()).isSameAs(this.registration1);
+		assertThat(loadedAuthorizedClient.getPrincipalName()).isEqualTo(this.principalName1);
+		assertThat(loadedAuthorizedClient.getAccessToken()).isEqualTo(authorizedClient.getAccessToken());
+		assertThat(loadedAuthorizedClient.getRefreshToken().getTokenValue())
+			.isEqualTo(authorizedClient.getRefreshToken().getTokenValue());
+		Set<String> scopes = loadedAuthorizedClient.getAccessToken().getScopes();
+		assertThat(scopes).containsExactlyInAnyOrder("read", "write");
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenCompactThenSessionSmaller() {
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.registration1, this.principalName1,
+				TestOAuth2AccessTokens.scopes("read", "write"), TestOAuth2RefreshTokens.refreshToken());
+		this.authorizedClientRepository.saveAuthorizedClient(authorizedClient, null, this.request, this.response);
+		byte[] full = SerializationUtils
+			.serialize(this.request.getSession().getAttribute(AUTHORIZED_CLIENTS_ATTR_NAME));
+		MockHttpServletRequest compactRequest = new MockHttpServletRequest();
+		new HttpSessionOAuth2AuthorizedClientRepository(new InMemoryClientRegistrationRepository(this.registration1))
+			.saveAuthorizedClient(authorizedClient, null, compactRequest, this.response);
+		byte[] compact = SerializationUtils
+			.serialize(compactRequest.getSession().getAttribute(AUTHORIZED_CLIENTS_ATTR_NAME));
+		assertThat(compact.length).isLessThan(full.length / 2);
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenCompactAndRegistrationRemovedThenNull() {
+		ClientRegistrationRepository clientRegistrationRepository = mock(ClientRegistrationRepository.class);
+		HttpSessionOAuth2AuthorizedClientRepository authorizedClientRepository = new HttpSessionOAuth2AuthorizedClientRepository(
+				clientRegistrationRepository);
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.registration1, this.principalName1,
+				TestOAuth2AccessTokens.noScopes());
+		authorizedClientRepository.saveAuthorizedClient(authorizedClient, null, this.request, this.response);
+		OAuth2AuthorizedClient loadedAuthorizedClient = authorizedClientRepository
+			.loadAuthorizedClient(this.registrationId1, null, this.request);
+		assertThat(loadedAuthorizedClient).isNull();
+	}
+
 }
@@ -26,6 +26,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import javax.servlet.http.HttpServletRequest;
@@ -71,7 +73,9 @@ import org.springframework.security.oauth2.client.ClientAuthorizationException;
 import org.springframework.security.oauth2.client.JwtBearerOAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizationContext;
 import org.springframework.security.oauth2.client.OAuth2AuthorizationFailureHandler;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
 import org.springframework.security.oauth2.client.RefreshTokenOAuth2AuthorizedClientProvider;
@@ -122,6 +126,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -864,6 +869,106 @@ public class ServletOAuth2AuthorizedClientExchangeFilterFunctionTests {
 		verifyNoInteractions(this.authorizationFailureHandler);
 	}
 
+	@Test
+	public void setAuthorizedClientCacheTimeToLiveWhenNegativeThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> this.function.setAuthorizedClientCacheTimeToLive(Duration.ofSeconds(-1)))
+			.withMessage("authorizedClientCacheTimeToLive cannot be negative");
+	}
+
+	@Test
+	public void setClockWhenNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.function.setClock(null))
+			.withMessage("clock cannot be null");
+	}
+
+	@Test
+	public void filterWhenCoalesceAuthorizationsAndConcurrentRequestsThenAuthorizeOnce() throws Exception {
+		OAuth2AuthorizedClientManager authorizedClientManager = mock(OAuth2AuthorizedClientManager.class);
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.registration, "test",
+				this.accessToken);
+		CountDownLatch authorizing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(authorizedClientManager.authorize(any())).willAnswer((invocation) -> {
+			authorizing.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return authorizedClient;
+		});
+		this.function = new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
+		this.function.setCoalesceAuthorizations(true);
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+		Mono<ClientResponse> first = this.function.filter(clientRegistrationIdRequest(servletRequest), this.exchange)
+			.cache();
+		first.subscribe();
+		assertThat(authorizing.await(5, TimeUnit.SECONDS)).isTrue();
+		Mono<ClientResponse> second = this.function.filter(clientRegistrationIdRequest(servletRequest), this.exchange)
+			.cache();
+		second.subscribe();
+		release.countDown();
+		first.block(Duration.ofSeconds(5));
+		second.block(Duration.ofSeconds(5));
+		verify(authorizedClientManager).authorize(any(OAuth2AuthorizeRequest.class));
+		assertThat(this.exchange.getRequests()).hasSize(2)
+			.allSatisfy((request) -> assertThat(request.headers().getFirst(HttpHeaders.AUTHORIZATION))
+				.isEqualTo("Bearer token-0"));
+	}
+
+	@Test
+	public void filterWhenAuthorizedClientCacheTimeToLiveThenReuseAuthorizedClient() {
+		OAuth2AuthorizedClientManager authorizedClientManager = mock(OAuth2AuthorizedClientManager.class);
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.registration, "test",
+				this.accessToken);
+		given(authorizedClientManager.authorize(any())).willReturn(authorizedClient);
+		this.function = new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
+		this.function.setAuthorizedClientCacheTimeToLive(Duration.ofMinutes(5));
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+		this.function.filter(clientRegistrationIdRequest(servletRequest), this.exchange).block();
+		this.function.filter(clientRegistrationIdRequest(servletRequest), this.exchange).block();
+		verify(authorizedClientManager).authorize(any(OAuth2AuthorizeRequest.class));
+		assertThat(this.exchange.getRequests()).hasSize(2);
+		assertThat(this.exchange.getRequest().headers().getFirst(HttpHeaders.AUTHORIZATION))
+			.isEqualTo("Bearer token-0");
+	}
+
+	@Test
+	public void filterWhenAuthorizedClientCachedForOtherServletRequestThenAuthorizeAgain() {
+		OAuth2AuthorizedClientManager authorizedClientManager = mock(OAuth2AuthorizedClientManager.class);
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.registration, "test",
+				this.accessToken);
+		given(authorizedClientManager.authorize(any())).willReturn(authorizedClient);
+		this.function = new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
+		this.function.setAuthorizedClientCacheTimeToLive(Duration.ofMinutes(5));
+		this.function.filter(clientRegistrationIdRequest(new MockHttpServletRequest()), this.exchange).block();
+		this.function.filter(clientRegistrationIdRequest(new MockHttpServletRequest()), this.exchange).block();
+		verify(authorizedClientManager, times(2)).authorize(any(OAuth2AuthorizeRequest.class));
+	}
+
+	@Test
+	public void filterWhenAuthorizedClientCachedAndUnauthorizedThenAuthorizeAgain() {
+		OAuth2AuthorizedClientManager authorizedClientManager = mock(OAuth2AuthorizedClientManager.class);
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(this.registration, "test",
+				this.accessToken);
+		given(authorizedClientManager.authorize(any())).willReturn(authorizedClient);
+		given(this.exchange.getResponse().rawStatusCode()).willReturn(HttpStatus.UNAUTHORIZED.value());
+		this.function = new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
+		this.function.setAuthorizedClientCacheTimeToLive(Duration.ofMinutes(5));
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+		this.function.filter(clientRegistrationIdRequest(servletRequest), this.exchange).block();
+		this.function.filter(clientRegistrationIdRequest(servletRequest), this.exchange).block();
+		verify(authorizedClientManager, times(2)).authorize(any(OAuth2AuthorizeRequest.class));
+	}
+
+	private ClientRequest clientRegistrationIdRequest(MockHttpServletRequest servletRequest) {
+		return ClientRequest.create(HttpMethod.GET, URI.create("https://example.com"))
+			.attributes(ServletOAuth2AuthorizedClientExchangeFilterFunction
+				.clientRegistrationId(this.registration.getRegistrationId()))
+			.attributes(ServletOAuth2AuthorizedClientExchangeFilterFunction.authentication(this.authentication))
+			.attributes(ServletOAuth2AuthorizedClientExchangeFilterFunction.httpServletRequest(servletRequest))
+			.attributes(ServletOAuth2AuthorizedClientExchangeFilterFunction
+				.httpServletResponse(new MockHttpServletResponse()))
+			.build();
+	}
+
 	private Context context(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
 			Authentication authentication) {
 		Map<Object, Object> contextAttributes = new HashMap<>();
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.core.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ClientHttpRequestFactory} for the calls that OAuth 2.0 components make to an
+ * authorization server, such as token, introspection and UserInfo requests, meant to be
+ * shared by the {@code RestTemplate}s of those components.
+ *
+ * <p>
+ * On top of the factory it decorates, it limits how many requests may be in flight to the
+ * same endpoint ({@code scheme://host:port}) at once, so that a slow authorization server
+ * cannot tie up every request thread, and records each request in the
+ * {@code spring.security.oauth2.http.client.requests} metric, tagged with its
+ * {@code endpoint}, {@code method}, {@code status} and {@code outcome} ({@code success}
+ * or {@code failure}).
+ *
+ * <p>
+ * By default, requests are made with {@link SimpleClientHttpRequestFactory}, whose
+ * connections the JDK keeps alive and reuses. To tune the connection pool or to use
+ * HTTP/2, decorate a factory backed by a client that supports it instead, for example
+ * {@code OkHttp3ClientHttpRequestFactory}:
+ *
+ * <pre>
+ *	OAuth2ClientHttpRequestFactory requestFactory = new OAuth2ClientHttpRequestFactory(
+ *			new OkHttp3ClientHttpRequestFactory(okHttpClient));
+ *	requestFactory.setMaxConcurrentRequestsPerEndpoint(20);
+ *	RestTemplate restTemplate = new RestTemplate(Arrays.asList(new FormHttpMessageConverter(),
+ *			new OAuth2AccessTokenResponseHttpMessageConverter()));
+ *	restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+ *	restTemplate.setRequestFactory(requestFactory);
+ *	tokenResponseClient.setRestOperations(restTemplate);
+ * </pre>
+ *
+ * @since 5.8
+ */
+public final class OAuth2ClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+	static final String METRIC_NAME = "spring.security.oauth2.http.client.requests";
+
+	private static final SecurityMetricsRecorder NOOP_RECORDER = (name, tags, durationNanos) -> {
+	};
+
+	private final ClientHttpRequestFactory delegate;
+
+	private final Map<String, Semaphore> endpointPermits = new ConcurrentHashMap<>();
+
+	private int maxConcurrentRequestsPerEndpoint = 0;
+
+	private Duration acquireTimeout = Duration.ofSeconds(5);
+
+	private SecurityMetricsRecorder metricsRecorder = NOOP_RECORDER;
+
+	/**
+	 * Construct an {@link OAuth2ClientHttpRequestFactory} that connects with a
+	 * {@link SimpleClientHttpRequestFactory}
+	 * @param connectTimeout how long to wait for a connection to be established
+	 * @param readTimeout how long to wait for data once connected
+	 */
+	public OAuth2ClientHttpRequestFactory(Duration connectTimeout, Duration readTimeout) {
+		this(simpleRequestFactory(connectTimeout, readTimeout));
+	}
+
+	/**
+	 * Construct an {@link OAuth2ClientHttpRequestFactory}
+	 * @param delegate the {@link ClientHttpRequestFactory} that makes the requests
+	 */
+	public OAuth2ClientHttpRequestFactory(ClientHttpRequestFactory delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	private static ClientHttpRequestFactory simpleRequestFactory(Duration connectTimeout, Duration readTimeout) {
+		Assert.notNull(connectTimeout, "connectTimeout cannot be null");
+		Assert.notNull(readTimeout, "readTimeout cannot be null");
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout((int) connectTimeout.toMillis());
+		requestFactory.setReadTimeout((int) readTimeout.toMillis());
+		return requestFactory;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		return new LimitedClientHttpRequest(this.delegate.createRequest(uri, httpMethod), endpoint(uri));
+	}
+
+	private static String endpoint(URI uri) {
+		int port = uri.getPort();
+		if (port == -1) {
+			port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+		}
+		return uri.getScheme() + "://" + uri.getHost() + ":" + port;
+	}
+
+	private Semaphore permits(String endpoint) {
+		int maxConcurrentRequests = this.maxConcurrentRequestsPerEndpoint;
+		if (maxConcurrentRequests <= 0) {
+			return null;
+		}
+		return this.endpointPermits.computeIfAbsent(endpoint, (key) -> new Semaphore(maxConcurrentRequests));
+	}
+
+	private void record(String endpoint, String method, String status, String outcome, long start) {
+		if (this.metricsRecorder == NOOP_RECORDER) {
+			return;
+		}
+		Map<String, String> tags = new HashMap<>(8);
+		tags.put("endpoint", endpoint);
+		tags.put("method", method);
+		tags.put("status", status);
+		tags.put(SecurityMetricsRecorder.OUTCOME_TAG, outcome);
+		this.metricsRecorder.record(METRIC_NAME, tags, System.nanoTime() - start);
+	}
+
+	/**
+	 * The maximum number of requests that may be in flight to the same endpoint at once,
+	 * or 0 for no limit. A request stays in flight until its response is closed. Defaults
+	 * to 0. Takes effect for endpoints that have not been called yet.
+	 * @param maxConcurrentRequestsPerEndpoint the maximum number of concurrent requests
+	 * per endpoint
+	 */
+	public void setMaxConcurrentRequestsPerEndpoint(int maxConcurrentRequestsPerEndpoint) {
+		Assert.isTrue(maxConcurrentRequestsPerEndpoint >= 0, "maxConcurrentRequestsPerEndpoint cannot be negative");
+		this.maxConcurrentRequestsPerEndpoint = maxConcurrentRequestsPerEndpoint;
+	}
+
+	/**
+	 * How long a request waits for one of the endpoint's
+	 * {@link #setMaxConcurrentRequestsPerEndpoint(int) slots} before failing with an
+	 * {@link IOException}. Defaults to 5 seconds.
+	 * @param acquireTimeout how long to wait for a slot
+	 */
+	public void setAcquireTimeout(Duration acquireTimeout) {
+		Assert.notNull(acquireTimeout, "acquireTimeout cannot be null");
+		Assert.isTrue(!acquireTimeout.isNegative(), "acquireTimeout cannot be negative");
+		this.acquireTimeout = acquireTimeout;
+	}
+
+	/**
+	 * Use this {@link SecurityMetricsRecorder} to record each request
+	 * @param metricsRecorder the {@link SecurityMetricsRecorder} to use
+	 */
+	public void setMetricsRecorder(SecurityMetricsRecorder metricsRecorder) {
+		Assert.notNull(metricsRecorder, "metricsRecorder cannot be null");
+		this.metricsRecorder = metricsRecorder;
+	}
+
+	private final class LimitedClientHttpRequest implements ClientHttpRequest {
+
+		private final ClientHttpRequest delegate;
+
+		private final String endpoint;
+
+		private LimitedClientHttpRequest(ClientHttpRequest delegate, String endpoint) {
+			this.delegate = delegate;
+			this.endpoint = endpoint;
+		}
+
+		@Override
+		public ClientHttpResponse execute() throws IOException {
+			Semaphore permits = permits(this.endpoint);
+			acquire(permits);
+			long start = System.nanoTime();
+			ClientHttpResponse response;
+			try {
+				response = this.delegate.execute();
+			}
+			catch (IOException | RuntimeException ex) {
+				record(this.endpoint, getMethodValue(), "none", "failure", start);
+				release(permits);
+				throw ex;
+			}
+			record(this.endpoint, getMethodValue(), status(response), "success", start);
+			return new ReleasingClientHttpResponse(response, permits);
+		}
+
+		private String status(ClientHttpResponse response) {
+			try {
+				return String.valueOf(response.getRawStatusCode());
+			}
+			catch (IOException ex) {
+				return "none";
+			}
+		}
+
+		private void acquire(Semaphore permits) throws IOException {
+			if (permits == null) {
+				return;
+			}
+			try {
+				if (!permits.tryAcquire(OAuth2ClientHttpRequestFactory.this.acquireTimeout.toMillis(),
+						TimeUnit.MILLISECONDS)) {
+					throw new IOException("Timed out waiting for a free slot to " + this.endpoint);
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for a free slot to " + this.endpoint, ex);
+			}
+		}
+
+		@Override
+		public OutputStream getBody() throws IOException {
+			return this.delegate.getBody();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.delegate.getHeaders();
+		}
+
+		@Override
+		public String getMethodValue() {
+			return this.delegate.getMethodValue();
+		}
+
+		@Override
+		public URI getURI() {
+			return this.delegate.getURI();
+		}
+
+	}
+
+	private static void release(Semaphore permits) {
+		if (permits != null) {
+			permits.release();
+		}
+	}
+
+	private static final class ReleasingClientHttpResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse delegate;
+
+		private final Semaphore permits;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private ReleasingClientHttpResponse(ClientHttpResponse delegate, Semaphore permits) {
+			this.delegate = delegate;
+			this.permits = permits;
+		}
+
+		@Override
+		public HttpStatus getStatusCode() throws IOException {
+			return this.delegate.getStatusCode();
+		}
+
+		@Override
+		public int getRawStatusCode() throws IOException {
+			return this.delegate.getRawStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return this.delegate.getStatusText();
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			return this.delegate.getBody();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.delegate.getHeaders();
+		}
+
+		@Override
+		public void close() {
+			try {
+				this.delegate.close();
+			}
+			finally {
+				if (this.released.compareAndSet(false, true)) {
+					release(this.permits);
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.core.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link OAuth2ClientHttpRequestFactory}
+ */
+public class OAuth2ClientHttpRequestFactoryTests {
+
+	private static final URI TOKEN_URI = URI.create("https://idp.example.com/oauth2/token");
+
+	private ClientHttpRequestFactory delegate;
+
+	private OAuth2ClientHttpRequestFactory requestFactory;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		this.delegate = mock(ClientHttpRequestFactory.class);
+		given(this.delegate.createRequest(any(), any())).willAnswer((invocation) -> {
+			MockClientHttpRequest request = new MockClientHttpRequest(invocation.getArgument(1),
+					invocation.getArgument(0));
+			request.setResponse(new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+			return request;
+		});
+		this.requestFactory = new OAuth2ClientHttpRequestFactory(this.delegate);
+		this.requestFactory.setAcquireTimeout(Duration.ZERO);
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new OAuth2ClientHttpRequestFactory((ClientHttpRequestFactory) null))
+			.withMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void executeWhenMetricsRecorderThenRecorded() throws Exception {
+		SecurityMetricsRecorder metricsRecorder = mock(SecurityMetricsRecorder.class);
+		this.requestFactory.setMetricsRecorder(metricsRecorder);
+		try (ClientHttpResponse response = this.requestFactory.createRequest(TOKEN_URI, HttpMethod.POST).execute()) {
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		}
+		ArgumentCaptor<Map<String, String>> tags = ArgumentCaptor.forClass(Map.class);
+		verify(metricsRecorder).record(eq(OAuth2ClientHttpRequestFactory.METRIC_NAME), tags.capture(), anyLong());
+		assertThat(tags.getValue()).containsEntry("endpoint", "https://idp.example.com:443")
+			.containsEntry("method", "POST")
+			.containsEntry("status", "200")
+			.containsEntry("outcome", "success");
+	}
+
+	@Test
+	public void executeWhenEndpointAtMaxConcurrentRequestsThenIOException() throws Exception {
+		this.requestFactory.setMaxConcurrentRequestsPerEndpoint(1);
+		ClientHttpResponse inflight = this.requestFactory.createRequest(TOKEN_URI, HttpMethod.POST).execute();
+		ClientHttpRequest request = this.requestFactory.createRequest(TOKEN_URI, HttpMethod.POST);
+		assertThatExceptionOfType(IOException.class).isThrownBy(request::execute)
+			.withMessageContaining("https://idp.example.com:443");
+		this.requestFactory.createRequest(URI.create("https://other.example.com/userinfo"), HttpMethod.GET)
+			.execute()
+			.close();
+		inflight.close();
+		inflight.close();
+		this.requestFactory.createRequest(TOKEN_URI, HttpMethod.POST).execute().close();
+		this.requestFactory.createRequest(TOKEN_URI, HttpMethod.POST).execute().close();
+	}
+
+	@Test
+	public void executeWhenDelegateFailsThenSlotReleasedAndFailureRecorded() throws Exception {
+		SecurityMetricsRecorder metricsRecorder = mock(SecurityMetricsRecorder.class);
+		this.requestFactory.setMetricsRecorder(metricsRecorder);
+		this.requestFactory.setMaxConcurrentRequestsPerEndpoint(1);
+		ClientHttpRequest failing = mock(ClientHttpRequest.class);
+		given(failing.getMethodValue()).willReturn("POST");
+		given(failing.execute()).willThrow(new IOException("connection refused"));
+		given(this.delegate.createRequest(TOKEN_URI, HttpMethod.POST)).willReturn(failing);
+		ClientHttpRequest request = this.requestFactory.createRequest(TOKEN_URI, HttpMethod.POST);
+		assertThatExceptionOfType(IOException.class).isThrownBy(request::execute).withMessage("connection refused");
+		assertThatExceptionOfType(IOException.class).isThrownBy(request::execute).withMessage("connection refused");
+		ArgumentCaptor<Map<String, String>> tags = ArgumentCaptor.forClass(Map.class);
+		verify(metricsRecorder, times(2)).record(any(), tags.capture(), anyLong());
+		assertThat(tags.getValue()).containsEntry("outcome", "failure");
+	}
+
+	@Test
+	public void setMaxConcurrentRequestsPerEndpointWhenNegativeThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> this.requestFactory.setMaxConcurrentRequestsPerEndpoint(-1))
+			.withMessage("maxConcurrentRequestsPerEndpoint cannot be negative");
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.SecretKey;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyConverter;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+
+/**
+ * A {@link JWSVerificationKeySelector} that remembers the {@link Key}s it converted for
+ * each {@code kid} and algorithm, so that a JWK is converted only once for as long as the
+ * {@link JWKSource} keeps returning it.
+ *
+ * <p>
+ * The {@link JWKSource} is still consulted for every token. When it returns different
+ * {@link JWK} instances, for example because the JWK Set was refreshed, the keys are
+ * converted again. Since the same {@link Key} instances are returned otherwise,
+ * {@link CachingJWSVerifierFactory} can reuse the verifiers it created for them.
+ *
+ * @param <C> the {@link SecurityContext} type
+ * @since 5.8
+ */
+final class CachingJWSVerificationKeySelector<C extends SecurityContext> extends JWSVerificationKeySelector<C> {
+
+	private static final int MAX_SIZE = 256;
+
+	private final Map<CacheKey, CachedKeys> keys = new ConcurrentHashMap<>();
+
+	CachingJWSVerificationKeySelector(JWSAlgorithm jwsAlgorithm, JWKSource<C> jwkSource) {
+		super(jwsAlgorithm, jwkSource);
+	}
+
+	CachingJWSVerificationKeySelector(Set<JWSAlgorithm> jwsAlgorithms, JWKSource<C> jwkSource) {
+		super(jwsAlgorithms, jwkSource);
+	}
+
+	@Override
+	public List<Key> selectJWSKeys(JWSHeader header, C context) throws KeySourceException {
+		if (!isAllowed(header.getAlgorithm())) {
+			return Collections.emptyList();
+		}
+		JWKMatcher jwkMatcher = createJWKMatcher(header);
+		if (jwkMatcher == null) {
+			return Collections.emptyList();
+		}
+		List<JWK> jwks = getJWKSource().get(new JWKSelector(jwkMatcher), context);
+		CacheKey cacheKey = new CacheKey(header.getKeyID(), header.getAlgorithm());
+		CachedKeys cached = this.keys.get(cacheKey);
+		if (cached != null && cached.isFor(jwks)) {
+			return cached.keys;
+		}
+		List<Key> keys = toVerificationKeys(jwks);
+		if (this.keys.size() >= MAX_SIZE) {
+			this.keys.clear();
+		}
+		this.keys.put(cacheKey, new CachedKeys(jwks, keys));
+		return keys;
+	}
+
+	private static List<Key> toVerificationKeys(List<JWK> jwks) {
+		List<Key> keys = new ArrayList<>();
+		for (Key key : KeyConverter.toJavaKeys(jwks)) {
+			if (key instanceof PublicKey || key instanceof SecretKey) {
+				keys.add(key);
+			}
+		}
+		return Collections.unmodifiableList(keys);
+	}
+
+	private static final class CacheKey {
+
+		private final String keyId;
+
+		private final JWSAlgorithm algorithm;
+
+		private CacheKey(String keyId, JWSAlgorithm algorithm) {
+			this.keyId = keyId;
+			this.algorithm = algorithm;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey that = (CacheKey) obj;
+			return Objects.equals(this.keyId, that.keyId) && this.algorithm.equals(that.algorithm);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.keyId, this.algorithm);
+		}
+
+	}
+
+	private static final class CachedKeys {
+
+		private final List<JWK> jwks;
+
+		private final List<Key> keys;
+
+		private CachedKeys(List<JWK> jwks, List<Key> keys) {
+			this.jwks = jwks;
+			this.keys = keys;
+		}
+
+		private boolean isFor(List<JWK> jwks) {
+			if (this.jwks.size() != jwks.size()) {
+				return false;
+			}
+			for (int i = 0; i < jwks.size(); i++) {
+				if (this.jwks.get(i) != jwks.get(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.util.Assert;
+
+/**
+ * A bounded cache of values derived from tokens, such as verified JWTs or introspection
+ * results. Entries are keyed by a {@link #digest(String) SHA-256 digest} of the token, so
+ * the token itself is not retained, and each entry expires at its own instant.
+ *
+ * <p>
+ * Reads are lock-free. Once the cache reaches its maximum size, the next put sweeps it:
+ * expired entries are removed, followed by arbitrary entries until the cache is down to
+ * three quarters of its maximum size. Only one thread sweeps at a time, and the cost of a
+ * sweep is spread over the puts that fill the cache again, so the size is bounded
+ * approximately.
+ *
+ * <p>
+ * A package-private copy of this class is kept in each module that caches tokens, so
+ * that it is not part of the public API.
+ *
+ * @param <V> the type of the cached values
+ * @since 5.8
+ */
+final class ExpiringTokenCache<V> {
+
+	private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean sweeping = new AtomicBoolean();
+
+	private volatile int maxSize;
+
+	private volatile Clock clock = Clock.systemUTC();
+
+	/**
+	 * Construct an {@link ExpiringTokenCache}
+	 * @param maxSize the number of entries at which the cache is swept
+	 */
+	ExpiringTokenCache(int maxSize) {
+		setMaxSize(maxSize);
+	}
+
+	/**
+	 * Compute the key of this token
+	 * @param token the token
+	 * @return the Base64-encoded SHA-256 digest of the token
+	 */
+	static String digest(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(hash);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Look up the value cached under this digest
+	 * @param digest the {@link #digest(String) digest} of the token
+	 * @return the cached value, or {@code null} if it is absent or expired
+	 */
+	V get(String digest) {
+		Entry<V> entry = this.entries.get(digest);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.expiresAt.isAfter(this.clock.instant())) {
+			this.entries.remove(digest, entry);
+			return null;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * Cache this value until the given instant. Values that have already expired are not
+	 * cached.
+	 * @param digest the {@link #digest(String) digest} of the token
+	 * @param value the value to cache
+	 * @param expiresAt when the value expires
+	 */
+	void put(String digest, V value, Instant expiresAt) {
+		Assert.notNull(value, "value cannot be null");
+		Assert.notNull(expiresAt, "expiresAt cannot be null");
+		if (!expiresAt.isAfter(this.clock.instant())) {
+			return;
+		}
+		if (this.entries.size() >= this.maxSize) {
+			sweep();
+		}
+		this.entries.put(digest, new Entry<>(value, expiresAt));
+	}
+
+	/**
+	 * The number of cached entries, including any that have expired but not been removed
+	 * yet
+	 * @return the number of entries
+	 */
+	int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * The current instant, according to this cache's {@link Clock}
+	 * @return the current instant
+	 */
+	Instant now() {
+		return this.clock.instant();
+	}
+
+	/**
+	 * Sweep the cache once it holds this many entries
+	 * @param maxSize the maximum number of entries, must be positive
+	 */
+	void setMaxSize(int maxSize) {
+		Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Use this {@link Clock} to expire entries. Defaults to {@link Clock#systemUTC()}.
+	 * @param clock the {@link Clock} to use
+	 */
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private void sweep() {
+		if (!this.sweeping.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			Instant now = this.clock.instant();
+			this.entries.values().removeIf((entry) -> !entry.expiresAt.isAfter(now));
+			int target = (int) (this.maxSize * 3L / 4);
+			Iterator<String> keys = this.entries.keySet().iterator();
+			while (this.entries.size() > target && keys.hasNext()) {
+				keys.next();
+				keys.remove();
+			}
+		}
+		finally {
+			this.sweeping.set(false);
+		}
+	}
+
+	private static final class Entry<V> {
+
+		private final V value;
+
+		private final Instant expiresAt;
+
+		private Entry(V value, Instant expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
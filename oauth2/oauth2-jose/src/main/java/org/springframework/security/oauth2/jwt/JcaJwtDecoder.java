@@ -0,0 +1,589 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * A {@link JwtDecoder} that verifies JWS-signed JWTs with a single, locally configured
+ * key using the JCA directly, instead of going through Nimbus.
+ *
+ * <p>
+ * Each segment of the token is Base64URL-decoded into a buffer that is then read by a
+ * streaming JSON parser, and signatures are verified with pooled {@link Signature} and
+ * {@link Mac} instances that are initialized with the key only once. The resulting
+ * {@link Jwt} is the same as the one {@link NimbusJwtDecoder} produces for the same key
+ * and algorithm.
+ *
+ * <p>
+ * Supported algorithms are RS256, RS384, RS512, ES256, ES384, ES512, HS256, HS384 and
+ * HS512. Use {@link NimbusJwtDecoder} for JWK Set endpoints, for encrypted JWTs, and for
+ * any other algorithm.
+ *
+ * @since 5.8
+ * @see NimbusJwtDecoder
+ */
+public final class JcaJwtDecoder implements JwtDecoder {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private static final String DECODING_ERROR_MESSAGE_TEMPLATE = "An error occurred while attempting to decode the Jwt: %s";
+
+	private static final String ALGORITHM_REJECTED = "Signed JWT rejected: Another algorithm expected, or no matching key(s) found";
+
+	private static final String SIGNATURE_REJECTED = "Signed JWT rejected: Invalid signature";
+
+	private final String algorithm;
+
+	private final JwsVerifier verifier;
+
+	private Converter<Map<String, Object>, Map<String, Object>> claimSetConverter = MappedJwtClaimSetConverter
+		.withDefaults(Collections.emptyMap());
+
+	private OAuth2TokenValidator<Jwt> jwtValidator = JwtValidators.createDefault();
+
+	private JcaJwtDecoder(String algorithm, JwsVerifier verifier) {
+		this.algorithm = algorithm;
+		this.verifier = verifier;
+	}
+
+	/**
+	 * Use this {@link Jwt} Validator
+	 * @param jwtValidator - the Jwt Validator to use
+	 */
+	public void setJwtValidator(OAuth2TokenValidator<Jwt> jwtValidator) {
+		Assert.notNull(jwtValidator, "jwtValidator cannot be null");
+		this.jwtValidator = jwtValidator;
+	}
+
+	/**
+	 * Use the following {@link Converter} for manipulating the JWT's claim set
+	 * @param claimSetConverter the {@link Converter} to use
+	 */
+	public void setClaimSetConverter(Converter<Map<String, Object>, Map<String, Object>> claimSetConverter) {
+		Assert.notNull(claimSetConverter, "claimSetConverter cannot be null");
+		this.claimSetConverter = claimSetConverter;
+	}
+
+	/**
+	 * Decode and validate the JWT from its compact claims representation format
+	 * @param token the JWT value
+	 * @return a validated {@link Jwt}
+	 * @throws JwtException
+	 */
+	@Override
+	public Jwt decode(String token) throws JwtException {
+		Assert.notNull(token, "token cannot be null");
+		int headerEnd = token.indexOf('.');
+		int payloadEnd = (headerEnd != -1) ? token.indexOf('.', headerEnd + 1) : -1;
+		if (payloadEnd == -1) {
+			throw malformed("Invalid serialized unsecured/JWS/JWE object: Missing part delimiters", null);
+		}
+		if (token.indexOf('.', payloadEnd + 1) != -1) {
+			throw malformed("Encrypted JWTs are not supported", null);
+		}
+		byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+		Map<String, Object> headers = parseHeaders(bytes, headerEnd);
+		Object algorithm = headers.get("alg");
+		if ("none".equals(algorithm)) {
+			this.logger.trace("Failed to decode unsigned token");
+			throw new BadJwtException("Unsupported algorithm of none");
+		}
+		Object type = headers.get("typ");
+		if (type != null && !"JWT".equalsIgnoreCase(String.valueOf(type))) {
+			throw malformed("JOSE header \"typ\" (type) " + type + " not allowed", null);
+		}
+		if (!this.algorithm.equals(algorithm)) {
+			throw malformed(ALGORITHM_REJECTED, null);
+		}
+		if (headers.containsKey("crit") || !verify(bytes, payloadEnd)) {
+			throw malformed(SIGNATURE_REJECTED, null);
+		}
+		Map<String, Object> claims = parseClaims(bytes, headerEnd, payloadEnd);
+		return validateJwt(createJwt(token, headers, claims));
+	}
+
+	private Map<String, Object> parseHeaders(byte[] token, int headerEnd) {
+		try {
+			Map<String, Object> headers = JwtJsonParser.parseObject(decode(token, 0, headerEnd));
+			if (!(headers.get("alg") instanceof String)) {
+				throw new ParseException("Missing \"alg\" in header JSON object", 0);
+			}
+			return headers;
+		}
+		catch (ParseException | IllegalArgumentException ex) {
+			this.logger.trace("Failed to parse token", ex);
+			throw malformed("Invalid JWS header: " + ex.getMessage(), ex);
+		}
+	}
+
+	private boolean verify(byte[] token, int payloadEnd) {
+		try {
+			ByteBuffer signature = decode(token, payloadEnd + 1, token.length);
+			byte[] signatureBytes = new byte[signature.remaining()];
+			signature.get(signatureBytes);
+			return this.verifier.verify(token, payloadEnd, signatureBytes);
+		}
+		catch (IllegalArgumentException ex) {
+			this.logger.trace("Failed to decode signature", ex);
+			return false;
+		}
+	}
+
+	private Map<String, Object> parseClaims(byte[] token, int headerEnd, int payloadEnd) {
+		try {
+			return toClaims(JwtJsonParser.parseObject(decode(token, headerEnd + 1, payloadEnd)));
+		}
+		catch (ParseException | IllegalArgumentException ex) {
+			this.logger.trace("Failed to process JWT", ex);
+			throw malformed("Malformed payload", ex);
+		}
+	}
+
+	private Jwt createJwt(String token, Map<String, Object> headers, Map<String, Object> claims) {
+		try {
+			if (this.claimSetConverter instanceof MappedJwtClaimSetConverter) {
+				return new Jwt(token, headers,
+						((MappedJwtClaimSetConverter) this.claimSetConverter).convertWithoutCopying(claims));
+			}
+			Map<String, Object> converted = this.claimSetConverter.convert(claims);
+			// @formatter:off
+			return Jwt.withTokenValue(token)
+					.headers((h) -> h.putAll(headers))
+					.claims((c) -> c.putAll(converted))
+					.build();
+			// @formatter:on
+		}
+		catch (Exception ex) {
+			this.logger.trace("Failed to process JWT", ex);
+			throw malformed(ex.getMessage(), ex);
+		}
+	}
+
+	private Jwt validateJwt(Jwt jwt) {
+		OAuth2TokenValidatorResult result = this.jwtValidator.validate(jwt);
+		if (result.hasErrors()) {
+			Collection<OAuth2Error> errors = result.getErrors();
+			String validationErrorString = getJwtValidationExceptionMessage(errors);
+			throw new JwtValidationException(validationErrorString, errors);
+		}
+		return jwt;
+	}
+
+	private String getJwtValidationExceptionMessage(Collection<OAuth2Error> errors) {
+		for (OAuth2Error oAuth2Error : errors) {
+			if (StringUtils.hasLength(oAuth2Error.getDescription())) {
+				return String.format(DECODING_ERROR_MESSAGE_TEMPLATE, oAuth2Error.getDescription());
+			}
+		}
+		return "Unable to validate Jwt";
+	}
+
+	private static BadJwtException malformed(String message, Exception cause) {
+		return new BadJwtException(String.format(DECODING_ERROR_MESSAGE_TEMPLATE, message), cause);
+	}
+
+	private static ByteBuffer decode(byte[] token, int start, int end) {
+		return Base64.getUrlDecoder().decode(ByteBuffer.wrap(token, start, end - start));
+	}
+
+	/**
+	 * Type the registered claims the way {@code JWTClaimsSet} does, so that claim set
+	 * converters see the same values they would see with {@link NimbusJwtDecoder}
+	 */
+	private static Map<String, Object> toClaims(Map<String, Object> json) throws ParseException {
+		for (String name : new String[] { JwtClaimNames.ISS, JwtClaimNames.SUB, JwtClaimNames.JTI }) {
+			Object value = json.get(name);
+			if (value != null && !(value instanceof String)) {
+				throw new ParseException("Unexpected type of JSON object member with key " + name, 0);
+			}
+		}
+		Object audience = json.get(JwtClaimNames.AUD);
+		if (audience instanceof String) {
+			List<Object> audiences = new ArrayList<>(1);
+			audiences.add(audience);
+			json.put(JwtClaimNames.AUD, audiences);
+		}
+		else if (audience != null && !isStringList(audience)) {
+			throw new ParseException("JSON object member with key \"aud\" is not an array of strings", 0);
+		}
+		for (String name : new String[] { JwtClaimNames.EXP, JwtClaimNames.NBF, JwtClaimNames.IAT }) {
+			if (!json.containsKey(name)) {
+				continue;
+			}
+			Object value = json.get(name);
+			if (!(value instanceof Number)) {
+				throw new ParseException("Unexpected type of JSON object member with key " + name, 0);
+			}
+			json.put(name, new Date(((Number) value).longValue() * 1000L));
+		}
+		return json;
+	}
+
+	private static boolean isStringList(Object value) {
+		if (!(value instanceof List)) {
+			return false;
+		}
+		for (Object element : (List<?>) value) {
+			if (element != null && !(element instanceof String)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Use the given public key to validate JWTs
+	 * @param key the public key to use
+	 * @return a {@link PublicKeyJwtDecoderBuilder} for further configurations
+	 */
+	public static PublicKeyJwtDecoderBuilder withPublicKey(RSAPublicKey key) {
+		return new PublicKeyJwtDecoderBuilder(key, SignatureAlgorithm.RS256);
+	}
+
+	/**
+	 * Use the given public key to validate JWTs
+	 * @param key the public key to use
+	 * @return a {@link PublicKeyJwtDecoderBuilder} for further configurations
+	 */
+	public static PublicKeyJwtDecoderBuilder withPublicKey(ECPublicKey key) {
+		Assert.notNull(key, "key cannot be null");
+		return new PublicKeyJwtDecoderBuilder(key, EcdsaVerifier.defaultAlgorithm(key));
+	}
+
+	/**
+	 * Use the given {@code SecretKey} to validate the MAC on a JSON Web Signature (JWS).
+	 * @param secretKey the {@code SecretKey} used to validate the MAC
+	 * @return a {@link SecretKeyJwtDecoderBuilder} for further configurations
+	 */
+	public static SecretKeyJwtDecoderBuilder withSecretKey(SecretKey secretKey) {
+		return new SecretKeyJwtDecoderBuilder(secretKey);
+	}
+
+	/**
+	 * A builder for creating {@link JcaJwtDecoder} instances based on a public key.
+	 */
+	public static final class PublicKeyJwtDecoderBuilder {
+
+		private final PublicKey key;
+
+		private SignatureAlgorithm signatureAlgorithm;
+
+		private PublicKeyJwtDecoderBuilder(PublicKey key, SignatureAlgorithm signatureAlgorithm) {
+			Assert.notNull(key, "key cannot be null");
+			this.key = key;
+			this.signatureAlgorithm = signatureAlgorithm;
+		}
+
+		/**
+		 * Use the given signing
+		 * <a href="https://tools.ietf.org/html/rfc7515#section-4.1.1" target=
+		 * "_blank">algorithm</a>.
+		 *
+		 * The value should be one of RS256, RS384 or RS512 for an RSA key, and one of
+		 * ES256, ES384 or ES512 for an EC key.
+		 * @param signatureAlgorithm the algorithm to use
+		 * @return a {@link PublicKeyJwtDecoderBuilder} for further configurations
+		 */
+		public PublicKeyJwtDecoderBuilder signatureAlgorithm(SignatureAlgorithm signatureAlgorithm) {
+			Assert.notNull(signatureAlgorithm, "signatureAlgorithm cannot be null");
+			this.signatureAlgorithm = signatureAlgorithm;
+			return this;
+		}
+
+		/**
+		 * Build the configured {@link JcaJwtDecoder}.
+		 * @return the configured {@link JcaJwtDecoder}
+		 */
+		public JcaJwtDecoder build() {
+			String name = this.signatureAlgorithm.getName();
+			if (this.key instanceof RSAPublicKey) {
+				Assert.state(name.startsWith("RS"),
+						() -> "The provided key is of type RSA; however the signature algorithm is of some other type: "
+								+ name + ". Please indicate one of RS256, RS384, or RS512.");
+				return new JcaJwtDecoder(name, new JcaSignatureVerifier(jcaName(name, "RSA"), this.key));
+			}
+			Assert.state(name.startsWith("ES"),
+					() -> "The provided key is of type EC; however the signature algorithm is of some other type: "
+							+ name + ". Please indicate one of ES256, ES384, or ES512.");
+			ECPublicKey key = (ECPublicKey) this.key;
+			Assert.state(EcdsaVerifier.defaultAlgorithm(key) == this.signatureAlgorithm,
+					() -> "The provided key's curve does not match the signature algorithm " + name);
+			return new JcaJwtDecoder(name, new EcdsaVerifier(jcaName(name, "ECDSA"), key));
+		}
+
+		private static String jcaName(String algorithm, String family) {
+			return "SHA" + algorithm.substring(2) + "with" + family;
+		}
+
+	}
+
+	/**
+	 * A builder for creating {@link JcaJwtDecoder} instances based on a
+	 * {@code SecretKey}.
+	 */
+	public static final class SecretKeyJwtDecoderBuilder {
+
+		private final SecretKey secretKey;
+
+		private MacAlgorithm macAlgorithm = MacAlgorithm.HS256;
+
+		private SecretKeyJwtDecoderBuilder(SecretKey secretKey) {
+			Assert.notNull(secretKey, "secretKey cannot be null");
+			this.secretKey = secretKey;
+		}
+
+		/**
+		 * Use the given
+		 * <a href="https://tools.ietf.org/html/rfc7515#section-4.1.1" target=
+		 * "_blank">algorithm</a> when generating the MAC.
+		 *
+		 * The value should be one of
+		 * <a href="https://tools.ietf.org/html/rfc7518#section-3.2" target=
+		 * "_blank">HS256, HS384 or HS512</a>.
+		 * @param macAlgorithm the MAC algorithm to use
+		 * @return a {@link SecretKeyJwtDecoderBuilder} for further configurations
+		 */
+		public SecretKeyJwtDecoderBuilder macAlgorithm(MacAlgorithm macAlgorithm) {
+			Assert.notNull(macAlgorithm, "macAlgorithm cannot be null");
+			this.macAlgorithm = macAlgorithm;
+			return this;
+		}
+
+		/**
+		 * Build the configured {@link JcaJwtDecoder}.
+		 * @return the configured {@link JcaJwtDecoder}
+		 */
+		public JcaJwtDecoder build() {
+			byte[] secret = this.secretKey.getEncoded();
+			Assert.state(secret != null && secret.length >= 32, "The secret length must be at least 256 bits");
+			String name = this.macAlgorithm.getName();
+			return new JcaJwtDecoder(name, new MacVerifier("HmacSHA" + name.substring(2), this.secretKey));
+		}
+
+	}
+
+	private interface JwsVerifier {
+
+		boolean verify(byte[] token, int signingInputLength, byte[] signature);
+
+	}
+
+	/**
+	 * Verifies signatures with a pool of {@link Signature} instances that were
+	 * initialized with the key when first created
+	 */
+	private static class JcaSignatureVerifier implements JwsVerifier {
+
+		private final Queue<Signature> signatures = new ConcurrentLinkedQueue<>();
+
+		private final String algorithm;
+
+		private final PublicKey key;
+
+		JcaSignatureVerifier(String algorithm, PublicKey key) {
+			this.algorithm = algorithm;
+			this.key = key;
+			this.signatures.offer(createSignature());
+		}
+
+		@Override
+		public boolean verify(byte[] token, int signingInputLength, byte[] signature) {
+			Signature verifier = this.signatures.poll();
+			if (verifier == null) {
+				verifier = createSignature();
+			}
+			try {
+				verifier.update(token, 0, signingInputLength);
+				return verifier.verify(signature);
+			}
+			catch (SignatureException ex) {
+				return false;
+			}
+			finally {
+				this.signatures.offer(verifier);
+			}
+		}
+
+		private Signature createSignature() {
+			try {
+				Signature signature = Signature.getInstance(this.algorithm);
+				signature.initVerify(this.key);
+				return signature;
+			}
+			catch (NoSuchAlgorithmException | InvalidKeyException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+	}
+
+	/**
+	 * Verifies JWS ECDSA signatures, which are the concatenated R and S values, by
+	 * transcoding them into the DER form the JCA expects
+	 */
+	private static final class EcdsaVerifier extends JcaSignatureVerifier {
+
+		private final BigInteger order;
+
+		private final int componentLength;
+
+		EcdsaVerifier(String algorithm, ECPublicKey key) {
+			super(algorithm, key);
+			this.order = key.getParams().getOrder();
+			this.componentLength = (this.order.bitLength() + 7) / 8;
+		}
+
+		static SignatureAlgorithm defaultAlgorithm(ECPublicKey key) {
+			int fieldSize = key.getParams().getCurve().getField().getFieldSize();
+			if (fieldSize == 256) {
+				return SignatureAlgorithm.ES256;
+			}
+			if (fieldSize == 384) {
+				return SignatureAlgorithm.ES384;
+			}
+			if (fieldSize == 521) {
+				return SignatureAlgorithm.ES512;
+			}
+			throw new IllegalArgumentException("Unsupported curve with field size " + fieldSize);
+		}
+
+		@Override
+		public boolean verify(byte[] token, int signingInputLength, byte[] signature) {
+			if (signature.length != 2 * this.componentLength) {
+				return false;
+			}
+			BigInteger r = new BigInteger(1, copy(signature, 0));
+			BigInteger s = new BigInteger(1, copy(signature, this.componentLength));
+			if (!inRange(r) || !inRange(s)) {
+				return false;
+			}
+			return super.verify(token, signingInputLength, der(r, s));
+		}
+
+		private byte[] copy(byte[] signature, int offset) {
+			byte[] component = new byte[this.componentLength];
+			System.arraycopy(signature, offset, component, 0, this.componentLength);
+			return component;
+		}
+
+		private boolean inRange(BigInteger value) {
+			return value.signum() > 0 && value.compareTo(this.order) < 0;
+		}
+
+		private static byte[] der(BigInteger r, BigInteger s) {
+			byte[] rBytes = r.toByteArray();
+			byte[] sBytes = s.toByteArray();
+			int length = 2 + rBytes.length + 2 + sBytes.length;
+			ByteBuffer der = ByteBuffer.allocate(length + 3);
+			der.put((byte) 0x30);
+			if (length >= 128) {
+				der.put((byte) 0x81);
+			}
+			der.put((byte) length);
+			der.put((byte) 0x02).put((byte) rBytes.length).put(rBytes);
+			der.put((byte) 0x02).put((byte) sBytes.length).put(sBytes);
+			byte[] encoded = new byte[der.position()];
+			System.arraycopy(der.array(), 0, encoded, 0, encoded.length);
+			return encoded;
+		}
+
+	}
+
+	/**
+	 * Verifies JWS MACs with a pool of {@link Mac} instances that were initialized with
+	 * the key when first created
+	 */
+	private static final class MacVerifier implements JwsVerifier {
+
+		private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+
+		private final String algorithm;
+
+		private final SecretKey key;
+
+		MacVerifier(String algorithm, SecretKey key) {
+			this.algorithm = algorithm;
+			this.key = key;
+			this.macs.offer(createMac());
+		}
+
+		@Override
+		public boolean verify(byte[] token, int signingInputLength, byte[] signature) {
+			Mac mac = this.macs.poll();
+			if (mac == null) {
+				mac = createMac();
+			}
+			try {
+				mac.update(token, 0, signingInputLength);
+				return MessageDigest.isEqual(mac.doFinal(), signature);
+			}
+			finally {
+				this.macs.offer(mac);
+			}
+		}
+
+		private Mac createMac() {
+			try {
+				Mac mac = Mac.getInstance(this.algorithm);
+				mac.init(this.key);
+				return mac;
+			}
+			catch (GeneralSecurityException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+	}
+
+}
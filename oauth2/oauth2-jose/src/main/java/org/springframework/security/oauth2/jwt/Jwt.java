@@ -71,6 +71,28 @@ public class Jwt extends AbstractOAuth2Token implements JwtClaimAccessor {
 		this.claims = Collections.unmodifiableMap(new LinkedHashMap<>(claims));
 	}
 
+	/**
+	 * Constructs a {@code Jwt} around read-only claims, such as a converted view over the
+	 * decoded claims, without copying them.
+	 * @param tokenValue the token value
+	 * @param headers the JOSE header(s)
+	 * @param claims the read-only JWT Claims Set
+	 */
+	Jwt(String tokenValue, Map<String, Object> headers, Map<String, Object> claims) {
+		super(tokenValue, toInstant(claims.get(JwtClaimNames.IAT)), toInstant(claims.get(JwtClaimNames.EXP)));
+		Assert.notEmpty(headers, "headers cannot be empty");
+		Assert.notEmpty(claims, "claims cannot be empty");
+		this.headers = Collections.unmodifiableMap(headers);
+		this.claims = claims;
+	}
+
+	private static Instant toInstant(Object timestamp) {
+		if (timestamp != null) {
+			Assert.isInstanceOf(Instant.class, timestamp, "timestamps must be of type Instant");
+		}
+		return (Instant) timestamp;
+	}
+
 	/**
 	 * Returns the JOSE header(s).
 	 * @return a {@code Map} of the JOSE header(s)
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.util.Assert;
+
+/**
+ * A bounded cache of already verified {@link Jwt}s, keyed by a SHA-256 digest of the
+ * compact token.
+ *
+ * <p>
+ * An entry is kept until the earlier of the token's {@code exp} claim and the maximum
+ * time to live. Callers are still expected to run their time-sensitive validation on each
+ * hit.
+ *
+ * @since 5.8
+ * @see ExpiringTokenCache
+ */
+final class JwtCache {
+
+	private final ExpiringTokenCache<Jwt> jwts;
+
+	private final Duration maxTtl;
+
+	JwtCache(int maxSize, Duration maxTtl) {
+		this(maxSize, maxTtl, Clock.systemUTC());
+	}
+
+	JwtCache(int maxSize, Duration maxTtl, Clock clock) {
+		Assert.notNull(maxTtl, "maxTtl cannot be null");
+		Assert.isTrue(!maxTtl.isNegative() && !maxTtl.isZero(), "maxTtl must be positive");
+		this.jwts = new ExpiringTokenCache<>(maxSize);
+		this.jwts.setClock(clock);
+		this.maxTtl = maxTtl;
+	}
+
+	/**
+	 * Look up the verified {@link Jwt} for this token
+	 * @param token the compact token
+	 * @return the cached {@link Jwt}, or {@code null} if it is absent or expired
+	 */
+	Jwt get(String token) {
+		Jwt jwt = this.jwts.get(ExpiringTokenCache.digest(token));
+		return (jwt != null && jwt.getTokenValue().equals(token)) ? jwt : null;
+	}
+
+	/**
+	 * Remember this verified {@link Jwt}
+	 * @param jwt the {@link Jwt} whose signature and claims have been verified
+	 */
+	void put(Jwt jwt) {
+		Instant expiresAt = this.jwts.now().plus(this.maxTtl);
+		if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isBefore(expiresAt)) {
+			expiresAt = jwt.getExpiresAt();
+		}
+		this.jwts.put(ExpiringTokenCache.digest(jwt.getTokenValue()), jwt, expiresAt);
+	}
+
+	int size() {
+		return this.jwts.size();
+	}
+
+}
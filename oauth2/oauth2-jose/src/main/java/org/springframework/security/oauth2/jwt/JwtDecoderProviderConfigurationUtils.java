@@ -90,7 +90,7 @@ final class JwtDecoderProviderConfigurationUtils {
 		if (selector instanceof JWSVerificationKeySelector) {
 			JWKSource<C> jwkSource = ((JWSVerificationKeySelector<C>) selector).getJWKSource();
 			Set<JWSAlgorithm> algorithms = getJWSAlgorithms(jwkSource);
-			selector = new JWSVerificationKeySelector<>(algorithms, jwkSource);
+			selector = new CachingJWSVerificationKeySelector<>(algorithms, jwkSource);
 			jwtProcessor.setJWSKeySelector(selector);
 		}
 	}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small streaming JSON parser for JOSE headers and JWT claim sets. It reads UTF-8 bytes
+ * straight from a decoded buffer, without first materializing the JSON text.
+ *
+ * <p>
+ * Values are typed the way Nimbus types them, so that {@link JcaJwtDecoder} and
+ * {@link NimbusJwtDecoder} produce equal {@link Jwt}s: objects become {@link Map}s,
+ * arrays become {@link List}s, integers that fit a {@code long} become {@link Long}s and
+ * every other number becomes a {@link Double}. Duplicate member names are rejected.
+ *
+ * @since 5.8
+ */
+final class JwtJsonParser {
+
+	private static final int MAX_DEPTH = 64;
+
+	private final ByteBuffer buffer;
+
+	private final byte[] bytes;
+
+	private final int limit;
+
+	private int position;
+
+	private int depth;
+
+	private JwtJsonParser(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.bytes = buffer.array();
+		this.position = buffer.arrayOffset() + buffer.position();
+		this.limit = buffer.arrayOffset() + buffer.limit();
+	}
+
+	/**
+	 * Parse a JSON object
+	 * @param buffer a heap buffer holding the UTF-8 encoded object
+	 * @return the parsed object
+	 * @throws ParseException if the buffer does not hold exactly one JSON object
+	 */
+	static Map<String, Object> parseObject(ByteBuffer buffer) throws ParseException {
+		JwtJsonParser parser = new JwtJsonParser(buffer);
+		parser.skipWhitespace();
+		if (parser.peek() != '{') {
+			throw parser.error("Expected a JSON object");
+		}
+		Map<String, Object> object = parser.readObject();
+		parser.skipWhitespace();
+		if (parser.position != parser.limit) {
+			throw parser.error("Unexpected content after the JSON object");
+		}
+		return object;
+	}
+
+	private Object readValue() throws ParseException {
+		skipWhitespace();
+		int b = peek();
+		switch (b) {
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case '"':
+				return readString();
+			case 't':
+				expectLiteral("true");
+				return Boolean.TRUE;
+			case 'f':
+				expectLiteral("false");
+				return Boolean.FALSE;
+			case 'n':
+				expectLiteral("null");
+				return null;
+			default:
+				if (b == '-' || (b >= '0' && b <= '9')) {
+					return readNumber();
+				}
+				throw error("Unexpected character");
+		}
+	}
+
+	private Map<String, Object> readObject() throws ParseException {
+		enter();
+		this.position++;
+		Map<String, Object> object = new LinkedHashMap<>();
+		skipWhitespace();
+		if (peek() == '}') {
+			this.position++;
+			this.depth--;
+			return object;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') {
+				throw error("Expected a member name");
+			}
+			String name = readString();
+			skipWhitespace();
+			expect(':');
+			Object value = readValue();
+			if (object.containsKey(name)) {
+				throw error("Duplicate member " + name);
+			}
+			object.put(name, value);
+			skipWhitespace();
+			int b = next();
+			if (b == '}') {
+				this.depth--;
+				return object;
+			}
+			if (b != ',') {
+				throw error("Expected ',' or '}'");
+			}
+		}
+	}
+
+	private List<Object> readArray() throws ParseException {
+		enter();
+		this.position++;
+		List<Object> array = new ArrayList<>();
+		skipWhitespace();
+		if (peek() == ']') {
+			this.position++;
+			this.depth--;
+			return array;
+		}
+		while (true) {
+			array.add(readValue());
+			skipWhitespace();
+			int b = next();
+			if (b == ']') {
+				this.depth--;
+				return array;
+			}
+			if (b != ',') {
+				throw error("Expected ',' or ']'");
+			}
+		}
+	}
+
+	private String readString() throws ParseException {
+		this.position++;
+		int start = this.position;
+		while (this.position < this.limit) {
+			byte b = this.bytes[this.position];
+			if (b == '"') {
+				String value = new String(this.bytes, start, this.position - start, StandardCharsets.UTF_8);
+				this.position++;
+				return value;
+			}
+			if (b == '\\') {
+				return readEscapedString(start);
+			}
+			if ((b & 0xFF) < 0x20) {
+				throw error("Unescaped control character in string");
+			}
+			this.position++;
+		}
+		throw error("Unterminated string");
+	}
+
+	private String readEscapedString(int start) throws ParseException {
+		StringBuilder value = new StringBuilder();
+		value.append(new String(this.bytes, start, this.position - start, StandardCharsets.UTF_8));
+		int segment = this.position;
+		while (this.position < this.limit) {
+			byte b = this.bytes[this.position];
+			if (b == '"') {
+				value.append(new String(this.bytes, segment, this.position - segment, StandardCharsets.UTF_8));
+				this.position++;
+				return value.toString();
+			}
+			if ((b & 0xFF) < 0x20) {
+				throw error("Unescaped control character in string");
+			}
+			if (b != '\\') {
+				this.position++;
+				continue;
+			}
+			value.append(new String(this.bytes, segment, this.position - segment, StandardCharsets.UTF_8));
+			this.position++;
+			value.append(readEscape());
+			segment = this.position;
+		}
+		throw error("Unterminated string");
+	}
+
+	private char readEscape() throws ParseException {
+		int b = next();
+		switch (b) {
+			case '"':
+				return '"';
+			case '\\':
+				return '\\';
+			case '/':
+				return '/';
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				int c = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(next(), 16);
+					if (digit < 0) {
+						throw error("Invalid unicode escape");
+					}
+					c = (c << 4) | digit;
+				}
+				return (char) c;
+			default:
+				throw error("Invalid escape");
+		}
+	}
+
+	private Object readNumber() throws ParseException {
+		int start = this.position;
+		boolean integral = true;
+		if (peek() == '-') {
+			this.position++;
+		}
+		int digits = readDigits();
+		if (digits == 0) {
+			throw error("Invalid number");
+		}
+		if (digits > 1 && this.bytes[this.position - digits] == '0') {
+			throw error("Leading zeros are not allowed");
+		}
+		if (peek() == '.') {
+			integral = false;
+			this.position++;
+			if (readDigits() == 0) {
+				throw error("Invalid number");
+			}
+		}
+		if (peek() == 'e' || peek() == 'E') {
+			integral = false;
+			this.position++;
+			if (peek() == '+' || peek() == '-') {
+				this.position++;
+			}
+			if (readDigits() == 0) {
+				throw error("Invalid number");
+			}
+		}
+		String number = new String(this.bytes, start, this.position - start, StandardCharsets.US_ASCII);
+		if (integral) {
+			try {
+				return Long.parseLong(number);
+			}
+			catch (NumberFormatException ex) {
+				// too large for a long
+			}
+		}
+		return Double.parseDouble(number);
+	}
+
+	private int readDigits() {
+		int start = this.position;
+		while (this.position < this.limit && this.bytes[this.position] >= '0' && this.bytes[this.position] <= '9') {
+			this.position++;
+		}
+		return this.position - start;
+	}
+
+	private void expectLiteral(String literal) throws ParseException {
+		for (int i = 0; i < literal.length(); i++) {
+			if (next() != literal.charAt(i)) {
+				throw error("Unexpected literal");
+			}
+		}
+	}
+
+	private void expect(char c) throws ParseException {
+		if (next() != c) {
+			throw error("Expected '" + c + "'");
+		}
+	}
+
+	private void enter() throws ParseException {
+		if (++this.depth > MAX_DEPTH) {
+			throw error("Too deeply nested");
+		}
+	}
+
+	private void skipWhitespace() {
+		while (this.position < this.limit) {
+			byte b = this.bytes[this.position];
+			if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+				return;
+			}
+			this.position++;
+		}
+	}
+
+	private int peek() {
+		return (this.position < this.limit) ? this.bytes[this.position] : -1;
+	}
+
+	private int next() throws ParseException {
+		if (this.position >= this.limit) {
+			throw error("Unexpected end of JSON");
+		}
+		return this.bytes[this.position++];
+	}
+
+	private ParseException error(String message) {
+		int offset = this.position - this.buffer.arrayOffset() - this.buffer.position();
+		return new ParseException("Invalid JSON: " + message, offset);
+	}
+
+}
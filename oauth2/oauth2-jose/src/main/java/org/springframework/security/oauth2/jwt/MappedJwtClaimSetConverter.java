@@ -16,12 +16,17 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.io.Serializable;
 import java.net.URI;
 import java.net.URL;
 import java.time.Instant;
+import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.TypeDescriptor;
@@ -166,4 +171,94 @@ public final class MappedJwtClaimSetConverter implements Converter<Map<String, O
 		return mappedClaims;
 	}
 
+	/**
+	 * Return a read-only view of the given claims with the same content as
+	 * {@link #convert(Map)}. Claims that have a converter are converted right away, so
+	 * that a claim which cannot be converted is reported while decoding. The other claims
+	 * are read through from the given map instead of being copied.
+	 * @param claims the claims to view
+	 * @return the converted, read-only view of the claims
+	 */
+	Map<String, Object> convertWithoutCopying(Map<String, Object> claims) {
+		Assert.notNull(claims, "claims cannot be null");
+		return new MappedClaimsView(claims, this.claimTypeConverters);
+	}
+
+	/**
+	 * A read-only view over a claim set and the converted values of its claims. Listing
+	 * the view's entries builds a map of them once.
+	 */
+	private static final class MappedClaimsView extends AbstractMap<String, Object> implements Serializable {
+
+		private final Map<String, Object> claims;
+
+		private final Map<String, Converter<Object, ?>> claimTypeConverters;
+
+		private final Map<String, Object> converted = new HashMap<>();
+
+		private volatile Map<String, Object> materialized;
+
+		private MappedClaimsView(Map<String, Object> claims, Map<String, Converter<Object, ?>> claimTypeConverters) {
+			this.claims = claims;
+			this.claimTypeConverters = claimTypeConverters;
+			for (Map.Entry<String, Converter<Object, ?>> entry : claimTypeConverters.entrySet()) {
+				if (entry.getValue() != null) {
+					Object mappedClaim = entry.getValue().convert(claims.get(entry.getKey()));
+					if (mappedClaim != null) {
+						this.converted.put(entry.getKey(), mappedClaim);
+					}
+				}
+			}
+			if (!containsKey(JwtClaimNames.IAT) && get(JwtClaimNames.EXP) != null) {
+				this.converted.put(JwtClaimNames.IAT, ((Instant) get(JwtClaimNames.EXP)).minusSeconds(1));
+			}
+		}
+
+		@Override
+		public Object get(Object key) {
+			return isConverted(key) ? this.converted.get(key) : this.claims.get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return isConverted(key) ? this.converted.containsKey(key) : this.claims.containsKey(key);
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return materialize().isEmpty();
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return materialize().entrySet();
+		}
+
+		private boolean isConverted(Object key) {
+			return this.claimTypeConverters.get(key) != null || this.converted.containsKey(key);
+		}
+
+		private Map<String, Object> materialize() {
+			Map<String, Object> materialized = this.materialized;
+			if (materialized != null) {
+				return materialized;
+			}
+			Map<String, Object> mappedClaims = new LinkedHashMap<>();
+			for (Map.Entry<String, Object> claim : this.claims.entrySet()) {
+				if (!isConverted(claim.getKey())) {
+					mappedClaims.put(claim.getKey(), claim.getValue());
+				}
+			}
+			mappedClaims.putAll(this.converted);
+			materialized = Collections.unmodifiableMap(mappedClaims);
+			this.materialized = materialized;
+			return materialized;
+		}
+
+		private Object writeReplace() {
+			return materialize();
+		}
+
+	}
+
 }
@@ -21,6 +21,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -40,7 +41,6 @@ import com.nimbusds.jose.jwk.source.JWKSetCache;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.jwk.source.RemoteJWKSet;
 import com.nimbusds.jose.proc.JWSKeySelector;
-import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jose.proc.SingleKeyJWSKeySelector;
 import com.nimbusds.jose.util.Resource;
@@ -62,6 +62,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
@@ -94,6 +95,12 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 	private OAuth2TokenValidator<Jwt> jwtValidator = JwtValidators.createDefault();
 
+	private int jwtCacheMaxSize = 0;
+
+	private Duration jwtCacheMaxTtl = Duration.ofMinutes(5);
+
+	private JwtCache jwtCache;
+
 	/**
 	 * Configures a {@link NimbusJwtDecoder} with the given parameters
 	 * @param jwtProcessor - the {@link JWTProcessor} to use
@@ -121,6 +128,34 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 		this.claimSetConverter = claimSetConverter;
 	}
 
+	/**
+	 * Remember up to this many verified {@link Jwt}s, so that a token presented again is
+	 * not parsed and its signature not verified again. The configured
+	 * {@link #setJwtValidator(OAuth2TokenValidator) validator} still runs on every call.
+	 * Defaults to 0, meaning that nothing is cached.
+	 * @param jwtCacheMaxSize the maximum number of verified {@link Jwt}s to keep
+	 * @since 5.8
+	 */
+	public void setJwtCacheMaxSize(int jwtCacheMaxSize) {
+		Assert.isTrue(jwtCacheMaxSize >= 0, "jwtCacheMaxSize cannot be negative");
+		this.jwtCacheMaxSize = jwtCacheMaxSize;
+		this.jwtCache = (jwtCacheMaxSize > 0) ? new JwtCache(jwtCacheMaxSize, this.jwtCacheMaxTtl) : null;
+	}
+
+	/**
+	 * The longest time to keep a verified {@link Jwt}, regardless of its {@code exp}
+	 * claim. Defaults to 5 minutes.
+	 * @param jwtCacheMaxTtl the maximum time to keep a verified {@link Jwt}
+	 * @since 5.8
+	 * @see #setJwtCacheMaxSize(int)
+	 */
+	public void setJwtCacheMaxTtl(Duration jwtCacheMaxTtl) {
+		Assert.notNull(jwtCacheMaxTtl, "jwtCacheMaxTtl cannot be null");
+		Assert.isTrue(!jwtCacheMaxTtl.isNegative() && !jwtCacheMaxTtl.isZero(), "jwtCacheMaxTtl must be positive");
+		this.jwtCacheMaxTtl = jwtCacheMaxTtl;
+		this.jwtCache = (this.jwtCacheMaxSize > 0) ? new JwtCache(this.jwtCacheMaxSize, jwtCacheMaxTtl) : null;
+	}
+
 	/**
 	 * Decode and validate the JWT from its compact claims representation format
 	 * @param token the JWT value
@@ -129,13 +164,22 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 	 */
 	@Override
 	public Jwt decode(String token) throws JwtException {
+		JwtCache jwtCache = this.jwtCache;
+		Jwt cached = (jwtCache != null) ? jwtCache.get(token) : null;
+		if (cached != null) {
+			return validateJwt(cached);
+		}
 		JWT jwt = parse(token);
 		if (jwt instanceof PlainJWT) {
 			this.logger.trace("Failed to decode unsigned token");
 			throw new BadJwtException("Unsupported algorithm of " + jwt.getHeader().getAlgorithm());
 		}
 		Jwt createdJwt = createJwt(token, jwt);
-		return validateJwt(createdJwt);
+		Jwt validatedJwt = validateJwt(createdJwt);
+		if (jwtCache != null) {
+			jwtCache.put(validatedJwt);
+		}
+		return validatedJwt;
 	}
 
 	private JWT parse(String token) {
@@ -152,6 +196,11 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 		try {
 			// Verify the signature
 			JWTClaimsSet jwtClaimsSet = this.jwtProcessor.process(parsedJwt, null);
+			if (this.claimSetConverter instanceof MappedJwtClaimSetConverter) {
+				Map<String, Object> claims = ((MappedJwtClaimSetConverter) this.claimSetConverter)
+					.convertWithoutCopying(jwtClaimsSet.getClaims());
+				return new Jwt(token, parsedJwt.getHeader().toJSONObject(), claims);
+			}
 			Map<String, Object> headers = new LinkedHashMap<>(parsedJwt.getHeader().toJSONObject());
 			Map<String, Object> claims = this.claimSetConverter.convert(jwtClaimsSet.getClaims());
 			// @formatter:off
@@ -243,6 +292,14 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 		private Cache cache;
 
+		private Duration jwkSetLifespan;
+
+		private Duration jwkSetRefreshAhead;
+
+		private Duration jwkSetMaxStaleness;
+
+		private SecurityMetricsRecorder metricsRecorder;
+
 		private Consumer<ConfigurableJWTProcessor<SecurityContext>> jwtProcessorCustomizer;
 
 		private JwkSetUriJwtDecoderBuilder(String jwkSetUri) {
@@ -294,6 +351,59 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			return this;
 		}
 
+		/**
+		 * Refresh the <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a>
+		 * in the background once it is older than {@code lifespan} minus
+		 * {@code refreshAhead}, while continuing to verify tokens with the keys already
+		 * fetched. Concurrent refreshes share a single request, a failed refresh keeps
+		 * the current keys for up to {@link #jwkSetMaxStaleness(Duration)}, and a token
+		 * with an unknown {@code kid} triggers at most one refresh every 30 seconds.
+		 *
+		 * <p>
+		 * When set, any {@link #cache(Cache) cache} is not used.
+		 * @param lifespan how long a fetched JWK Set is considered current
+		 * @param refreshAhead how long before the end of its lifespan to refresh the JWK
+		 * Set
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriJwtDecoderBuilder jwkSetRefreshAhead(Duration lifespan, Duration refreshAhead) {
+			Assert.notNull(lifespan, "lifespan cannot be null");
+			Assert.notNull(refreshAhead, "refreshAhead cannot be null");
+			this.jwkSetLifespan = lifespan;
+			this.jwkSetRefreshAhead = refreshAhead;
+			return this;
+		}
+
+		/**
+		 * Keep verifying tokens with a JWK Set that could not be refreshed for at most
+		 * this long past its lifespan. After that, tokens are rejected until the JWK Set
+		 * is refreshed, so that a rotated or revoked key is not trusted indefinitely.
+		 * Defaults to the lifespan given to
+		 * {@link #jwkSetRefreshAhead(Duration, Duration)}.
+		 * @param maxStaleness how long past its lifespan a JWK Set may be used
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriJwtDecoderBuilder jwkSetMaxStaleness(Duration maxStaleness) {
+			Assert.notNull(maxStaleness, "maxStaleness cannot be null");
+			this.jwkSetMaxStaleness = maxStaleness;
+			return this;
+		}
+
+		/**
+		 * Use the given {@link SecurityMetricsRecorder} to record each JWK Set refresh
+		 * made because of {@link #jwkSetRefreshAhead(Duration, Duration)}
+		 * @param metricsRecorder the {@link SecurityMetricsRecorder} to use
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriJwtDecoderBuilder metricsRecorder(SecurityMetricsRecorder metricsRecorder) {
+			Assert.notNull(metricsRecorder, "metricsRecorder cannot be null");
+			this.metricsRecorder = metricsRecorder;
+			return this;
+		}
+
 		/**
 		 * Use the given {@link Cache} to store
 		 * <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a>.
@@ -324,17 +434,28 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 		JWSKeySelector<SecurityContext> jwsKeySelector(JWKSource<SecurityContext> jwkSource) {
 			if (this.signatureAlgorithms.isEmpty()) {
-				return new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource);
+				return new CachingJWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource);
 			}
 			Set<JWSAlgorithm> jwsAlgorithms = new HashSet<>();
 			for (SignatureAlgorithm signatureAlgorithm : this.signatureAlgorithms) {
 				JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(signatureAlgorithm.getName());
 				jwsAlgorithms.add(jwsAlgorithm);
 			}
-			return new JWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
+			return new CachingJWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
 		}
 
 		JWKSource<SecurityContext> jwkSource(ResourceRetriever jwkSetRetriever) {
+			if (this.jwkSetLifespan != null) {
+				RefreshAheadJWKSource jwkSource = new RefreshAheadJWKSource(toURL(this.jwkSetUri), jwkSetRetriever,
+						this.jwkSetLifespan, this.jwkSetRefreshAhead);
+				if (this.jwkSetMaxStaleness != null) {
+					jwkSource.setMaxStaleness(this.jwkSetMaxStaleness);
+				}
+				if (this.metricsRecorder != null) {
+					jwkSource.setMetricsRecorder(this.metricsRecorder);
+				}
+				return jwkSource;
+			}
 			if (this.cache == null) {
 				return new RemoteJWKSet<>(toURL(this.jwkSetUri), jwkSetRetriever);
 			}
@@ -346,6 +467,7 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			ResourceRetriever jwkSetRetriever = new RestOperationsResourceRetriever(this.restOperations);
 			JWKSource<SecurityContext> jwkSource = jwkSource(jwkSetRetriever);
 			ConfigurableJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+			jwtProcessor.setJWSVerifierFactory(new CachingJWSVerifierFactory());
 			jwtProcessor.setJWSKeySelector(jwsKeySelector(jwkSource));
 			// Spring Security validates the claim set independent from Nimbus
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
@@ -510,6 +632,7 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 							+ this.jwsAlgorithm + ". Please indicate one of RS256, RS384, or RS512.");
 			JWSKeySelector<SecurityContext> jwsKeySelector = new SingleKeyJWSKeySelector<>(this.jwsAlgorithm, this.key);
 			DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+			jwtProcessor.setJWSVerifierFactory(new CachingJWSVerifierFactory());
 			jwtProcessor.setJWSKeySelector(jwsKeySelector);
 			// Spring Security validates the claim set independent from Nimbus
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
@@ -591,6 +714,7 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			JWSKeySelector<SecurityContext> jwsKeySelector = new SingleKeyJWSKeySelector<>(this.jwsAlgorithm,
 					this.secretKey);
 			DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+			jwtProcessor.setJWSVerifierFactory(new CachingJWSVerifierFactory());
 			jwtProcessor.setJWSKeySelector(jwsKeySelector);
 			// Spring Security validates the claim set independent from Nimbus
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,12 +18,15 @@ package org.springframework.security.oauth2.jwt;
 
 import java.net.URI;
 import java.net.URL;
+import java.text.ParseException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -60,6 +63,12 @@ import org.springframework.util.StringUtils;
  * <p>
  * <b>NOTE:</b> This implementation uses the Nimbus JOSE + JWT SDK.
  *
+ * <p>
+ * {@link JWSSigner}s are cached by key id and algorithm, and the serialized form of
+ * recurring JOSE headers is cached as well, so that minting many tokens with the same key
+ * only pays for the claims and the signature. Use {@link #encodeAll(List)} to also select
+ * the signing key once for every distinct header in a batch.
+ *
  * @author Joe Grandja
  * @since 5.6
  * @see JwtEncoder
@@ -82,7 +91,11 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 
 	private static final JWSSignerFactory JWS_SIGNER_FACTORY = new DefaultJWSSignerFactory();
 
-	private final Map<JWK, JWSSigner> jwsSigners = new ConcurrentHashMap<>();
+	private static final int MAX_CACHE_SIZE = 64;
+
+	private final Map<SignerKey, CachedSigner> jwsSigners = new ConcurrentHashMap<>();
+
+	private final Map<Map<String, Object>, JWSHeader> jwsHeaders = new ConcurrentHashMap<>();
 
 	private final JWKSource<SecurityContext> jwkSource;
 
@@ -99,13 +112,39 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 	public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
 		Assert.notNull(parameters, "parameters cannot be null");
 
+		JwsHeader headers = getJwsHeader(parameters);
+		return encode(headers, parameters.getClaims(), selectJwk(headers));
+	}
+
+	/**
+	 * Encode, and sign, several JWTs at once. The signing key is selected from the
+	 * {@code JWKSource} once for each distinct {@link JwsHeader} instance in the batch,
+	 * rather than once for each JWT.
+	 * @param parameters the parameters for each JWT
+	 * @return the encoded JWTs, in the same order as {@code parameters}
+	 * @throws JwtEncodingException if an error occurs while attempting to encode any of
+	 * the JWTs
+	 * @since 5.8
+	 */
+	public List<Jwt> encodeAll(List<JwtEncoderParameters> parameters) throws JwtEncodingException {
+		Assert.notNull(parameters, "parameters cannot be null");
+		Assert.noNullElements(parameters, "parameters cannot contain null elements");
+		Map<JwsHeader, JWK> jwks = new IdentityHashMap<>();
+		List<Jwt> jwts = new ArrayList<>(parameters.size());
+		for (JwtEncoderParameters jwtParameters : parameters) {
+			JwsHeader headers = getJwsHeader(jwtParameters);
+			JWK jwk = jwks.computeIfAbsent(headers, this::selectJwk);
+			jwts.add(encode(headers, jwtParameters.getClaims(), jwk));
+		}
+		return jwts;
+	}
+
+	private static JwsHeader getJwsHeader(JwtEncoderParameters parameters) {
 		JwsHeader headers = parameters.getJwsHeader();
-		if (headers == null) {
-			headers = DEFAULT_JWS_HEADER;
-		}
-		JwtClaimsSet claims = parameters.getClaims();
+		return (headers != null) ? headers : DEFAULT_JWS_HEADER;
+	}
 
-		JWK jwk = selectJwk(headers);
+	private Jwt encode(JwsHeader headers, JwtClaimsSet claims, JWK jwk) {
 		headers = addKeyIdentifierHeadersIfNecessary(headers, jwk);
 
 		String jws = serialize(headers, claims, jwk);
@@ -138,10 +177,10 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 	}
 
 	private String serialize(JwsHeader headers, JwtClaimsSet claims, JWK jwk) {
-		JWSHeader jwsHeader = convert(headers);
+		JWSHeader jwsHeader = getCachedHeader(headers);
 		JWTClaimsSet jwtClaimsSet = convert(claims);
 
-		JWSSigner jwsSigner = this.jwsSigners.computeIfAbsent(jwk, NimbusJwtEncoder::createSigner);
+		JWSSigner jwsSigner = getSigner(jwk, jwsHeader.getAlgorithm());
 
 		SignedJWT signedJwt = new SignedJWT(jwsHeader, jwtClaimsSet);
 		try {
@@ -154,6 +193,47 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 		return signedJwt.serialize();
 	}
 
+	private JWSHeader getCachedHeader(JwsHeader headers) {
+		if (headers.getJwkSetUrl() != null || headers.getX509Url() != null) {
+			// URL equality may resolve host names, so these headers are not cached
+			return convert(headers);
+		}
+		JWSHeader jwsHeader = this.jwsHeaders.get(headers.getHeaders());
+		if (jwsHeader != null) {
+			return jwsHeader;
+		}
+		jwsHeader = serialized(convert(headers));
+		if (this.jwsHeaders.size() >= MAX_CACHE_SIZE) {
+			this.jwsHeaders.clear();
+		}
+		this.jwsHeaders.put(headers.getHeaders(), jwsHeader);
+		return jwsHeader;
+	}
+
+	private static JWSHeader serialized(JWSHeader jwsHeader) {
+		// A parsed header keeps its Base64URL form, so it is not re-serialized per JWT
+		try {
+			return JWSHeader.parse(jwsHeader.toBase64URL());
+		}
+		catch (ParseException ex) {
+			return jwsHeader;
+		}
+	}
+
+	private JWSSigner getSigner(JWK jwk, JWSAlgorithm algorithm) {
+		SignerKey key = new SignerKey(jwk.getKeyID(), algorithm);
+		CachedSigner cached = this.jwsSigners.get(key);
+		if (cached != null && (cached.jwk == jwk || cached.jwk.equals(jwk))) {
+			return cached.signer;
+		}
+		JWSSigner signer = createSigner(jwk);
+		if (this.jwsSigners.size() >= MAX_CACHE_SIZE) {
+			this.jwsSigners.clear();
+		}
+		this.jwsSigners.put(key, new CachedSigner(jwk, signer));
+		return signer;
+	}
+
 	private static JWKMatcher createJwkMatcher(JwsHeader headers) {
 		JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(headers.getAlgorithm().getName());
 
@@ -326,15 +406,12 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 			builder.jwtID(jwtId);
 		}
 
-		Map<String, Object> customClaims = new HashMap<>();
+		Set<String> registeredNames = JWTClaimsSet.getRegisteredNames();
 		claims.getClaims().forEach((name, value) -> {
-			if (!JWTClaimsSet.getRegisteredNames().contains(name)) {
-				customClaims.put(name, value);
+			if (!registeredNames.contains(name)) {
+				builder.claim(name, value);
 			}
 		});
-		if (!customClaims.isEmpty()) {
-			customClaims.forEach(builder::claim);
-		}
 
 		return builder.build();
 	}
@@ -349,4 +426,47 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 		}
 	}
 
+	private static final class SignerKey {
+
+		private final String keyId;
+
+		private final JWSAlgorithm algorithm;
+
+		private SignerKey(String keyId, JWSAlgorithm algorithm) {
+			this.keyId = keyId;
+			this.algorithm = algorithm;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof SignerKey)) {
+				return false;
+			}
+			SignerKey that = (SignerKey) obj;
+			return Objects.equals(this.keyId, that.keyId) && this.algorithm.equals(that.algorithm);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.keyId, this.algorithm);
+		}
+
+	}
+
+	private static final class CachedSigner {
+
+		private final JWK jwk;
+
+		private final JWSSigner signer;
+
+		private CachedSigner(JWK jwk, JWSSigner signer) {
+			this.jwk = jwk;
+			this.signer = signer;
+		}
+
+	}
+
 }
@@ -59,6 +59,7 @@ import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
 
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
@@ -96,6 +97,12 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 	private OAuth2TokenValidator<Jwt> jwtValidator = JwtValidators.createDefault();
 
+	private int jwtCacheMaxSize = 0;
+
+	private Duration jwtCacheMaxTtl = Duration.ofMinutes(5);
+
+	private JwtCache jwtCache;
+
 	private Converter<Map<String, Object>, Map<String, Object>> claimSetConverter = MappedJwtClaimSetConverter
 		.withDefaults(Collections.emptyMap());
 
@@ -144,13 +151,47 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 		this.claimSetConverter = claimSetConverter;
 	}
 
+	/**
+	 * Remember up to this many verified {@link Jwt}s, so that a token presented again is
+	 * not parsed and its signature not verified again. The configured
+	 * {@link #setJwtValidator(OAuth2TokenValidator) validator} still runs on every call.
+	 * Defaults to 0, meaning that nothing is cached.
+	 * @param jwtCacheMaxSize the maximum number of verified {@link Jwt}s to keep
+	 * @since 5.8
+	 */
+	public void setJwtCacheMaxSize(int jwtCacheMaxSize) {
+		Assert.isTrue(jwtCacheMaxSize >= 0, "jwtCacheMaxSize cannot be negative");
+		this.jwtCacheMaxSize = jwtCacheMaxSize;
+		this.jwtCache = (jwtCacheMaxSize > 0) ? new JwtCache(jwtCacheMaxSize, this.jwtCacheMaxTtl) : null;
+	}
+
+	/**
+	 * The longest time to keep a verified {@link Jwt}, regardless of its {@code exp}
+	 * claim. Defaults to 5 minutes.
+	 * @param jwtCacheMaxTtl the maximum time to keep a verified {@link Jwt}
+	 * @since 5.8
+	 * @see #setJwtCacheMaxSize(int)
+	 */
+	public void setJwtCacheMaxTtl(Duration jwtCacheMaxTtl) {
+		Assert.notNull(jwtCacheMaxTtl, "jwtCacheMaxTtl cannot be null");
+		Assert.isTrue(!jwtCacheMaxTtl.isNegative() && !jwtCacheMaxTtl.isZero(), "jwtCacheMaxTtl must be positive");
+		this.jwtCacheMaxTtl = jwtCacheMaxTtl;
+		this.jwtCache = (this.jwtCacheMaxSize > 0) ? new JwtCache(this.jwtCacheMaxSize, jwtCacheMaxTtl) : null;
+	}
+
 	@Override
 	public Mono<Jwt> decode(String token) throws JwtException {
+		JwtCache jwtCache = this.jwtCache;
+		Jwt cached = (jwtCache != null) ? jwtCache.get(token) : null;
+		if (cached != null) {
+			return Mono.fromCallable(() -> validateJwt(cached));
+		}
 		JWT jwt = parse(token);
 		if (jwt instanceof PlainJWT) {
 			throw new BadJwtException("Unsupported algorithm of " + jwt.getHeader().getAlgorithm());
 		}
-		return this.decode(jwt);
+		Mono<Jwt> decoded = this.decode(jwt);
+		return (jwtCache != null) ? decoded.doOnNext(jwtCache::put) : decoded;
 	}
 
 	private JWT parse(String token) {
@@ -182,6 +223,11 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 	private Jwt createJwt(JWT parsedJwt, JWTClaimsSet jwtClaimsSet) {
 		try {
+			if (this.claimSetConverter instanceof MappedJwtClaimSetConverter) {
+				Map<String, Object> claims = ((MappedJwtClaimSetConverter) this.claimSetConverter)
+					.convertWithoutCopying(jwtClaimsSet.getClaims());
+				return new Jwt(parsedJwt.getParsedString(), parsedJwt.getHeader().toJSONObject(), claims);
+			}
 			Map<String, Object> headers = new LinkedHashMap<>(parsedJwt.getHeader().toJSONObject());
 			Map<String, Object> claims = this.claimSetConverter.convert(jwtClaimsSet.getClaims());
 			return Jwt.withTokenValue(parsedJwt.getParsedString())
@@ -288,6 +334,14 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 		private WebClient webClient = WebClient.create();
 
+		private Duration jwkSetLifespan;
+
+		private Duration jwkSetRefreshAhead;
+
+		private Duration jwkSetMaxStaleness;
+
+		private SecurityMetricsRecorder metricsRecorder;
+
 		private BiFunction<ReactiveRemoteJWKSource, ConfigurableJWTProcessor<JWKSecurityContext>, Mono<ConfigurableJWTProcessor<JWKSecurityContext>>> jwtProcessorCustomizer;
 
 		private JwkSetUriReactiveJwtDecoderBuilder(String jwkSetUri) {
@@ -338,6 +392,55 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 			return this;
 		}
 
+		/**
+		 * Refresh the <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a>
+		 * in the background once it is older than {@code lifespan} minus
+		 * {@code refreshAhead}, while continuing to verify tokens with the keys already
+		 * fetched. A failed refresh keeps the current keys up to
+		 * {@link #jwkSetMaxStaleness(Duration)}, and a token with an unknown
+		 * {@code kid} triggers at most one refresh every 30 seconds.
+		 * @param lifespan how long a fetched JWK Set is considered current
+		 * @param refreshAhead how long before the end of its lifespan to refresh the JWK
+		 * Set
+		 * @return a {@link JwkSetUriReactiveJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriReactiveJwtDecoderBuilder jwkSetRefreshAhead(Duration lifespan, Duration refreshAhead) {
+			Assert.notNull(lifespan, "lifespan cannot be null");
+			Assert.notNull(refreshAhead, "refreshAhead cannot be null");
+			this.jwkSetLifespan = lifespan;
+			this.jwkSetRefreshAhead = refreshAhead;
+			return this;
+		}
+
+		/**
+		 * Keep verifying tokens with a JWK Set that could not be refreshed for at most
+		 * this long past its lifespan. After that, tokens are rejected until the JWK Set
+		 * is refreshed, so that a rotated or revoked key is not trusted indefinitely.
+		 * Defaults to the lifespan given to
+		 * {@link #jwkSetRefreshAhead(Duration, Duration)}.
+		 * @param maxStaleness how long past its lifespan a JWK Set may be used
+		 * @return a {@link JwkSetUriReactiveJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriReactiveJwtDecoderBuilder jwkSetMaxStaleness(Duration maxStaleness) {
+			Assert.notNull(maxStaleness, "maxStaleness cannot be null");
+			this.jwkSetMaxStaleness = maxStaleness;
+			return this;
+		}
+
+		/**
+		 * Use the given {@link SecurityMetricsRecorder} to record each JWK Set retrieval
+		 * @param metricsRecorder the {@link SecurityMetricsRecorder} to use
+		 * @return a {@link JwkSetUriReactiveJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriReactiveJwtDecoderBuilder metricsRecorder(SecurityMetricsRecorder metricsRecorder) {
+			Assert.notNull(metricsRecorder, "metricsRecorder cannot be null");
+			this.metricsRecorder = metricsRecorder;
+			return this;
+		}
+
 		/**
 		 * Use the given {@link Consumer} to customize the {@link JWTProcessor
 		 * ConfigurableJWTProcessor} before passing it to the build
@@ -373,25 +476,36 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 		JWSKeySelector<JWKSecurityContext> jwsKeySelector(JWKSource<JWKSecurityContext> jwkSource) {
 			if (this.signatureAlgorithms.isEmpty()) {
-				return new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource);
+				return new CachingJWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource);
 			}
 			Set<JWSAlgorithm> jwsAlgorithms = new HashSet<>();
 			for (SignatureAlgorithm signatureAlgorithm : this.signatureAlgorithms) {
 				JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(signatureAlgorithm.getName());
 				jwsAlgorithms.add(jwsAlgorithm);
 			}
-			return new JWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
+			return new CachingJWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
 		}
 
 		Converter<JWT, Mono<JWTClaimsSet>> processor() {
 			JWKSecurityContextJWKSet jwkSource = new JWKSecurityContextJWKSet();
 			DefaultJWTProcessor<JWKSecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+			jwtProcessor.setJWSVerifierFactory(new CachingJWSVerifierFactory());
 			JWSKeySelector<JWKSecurityContext> jwsKeySelector = jwsKeySelector(jwkSource);
 			jwtProcessor.setJWSKeySelector(jwsKeySelector);
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
 			});
 			ReactiveRemoteJWKSource source = new ReactiveRemoteJWKSource(this.jwkSetUri);
 			source.setWebClient(this.webClient);
+			if (this.jwkSetLifespan != null) {
+				source.setRefreshAhead(this.jwkSetLifespan, this.jwkSetRefreshAhead);
+				source.setMinRefreshInterval(Duration.ofSeconds(30));
+				if (this.jwkSetMaxStaleness != null) {
+					source.setMaxStaleness(this.jwkSetMaxStaleness);
+				}
+			}
+			if (this.metricsRecorder != null) {
+				source.setMetricsRecorder(this.metricsRecorder);
+			}
 			Mono<Tuple2<ConfigurableJWTProcessor<JWKSecurityContext>, Function<JWSAlgorithm, Boolean>>> jwtProcessorMono = this.jwtProcessorCustomizer
 				.apply(source, jwtProcessor)
 				.map((processor) -> Tuples.of(processor, getExpectedJwsAlgorithms(processor.getJWSKeySelector())))
@@ -491,6 +605,7 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 							+ this.jwsAlgorithm + ". Please indicate one of RS256, RS384, or RS512.");
 			JWSKeySelector<SecurityContext> jwsKeySelector = new SingleKeyJWSKeySelector<>(this.jwsAlgorithm, this.key);
 			DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+			jwtProcessor.setJWSVerifierFactory(new CachingJWSVerifierFactory());
 			jwtProcessor.setJWSKeySelector(jwsKeySelector);
 			// Spring Security validates the claim set independent from Nimbus
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
@@ -566,6 +681,7 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 			JWSKeySelector<SecurityContext> jwsKeySelector = new SingleKeyJWSKeySelector<>(this.jwsAlgorithm,
 					this.secretKey);
 			DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+			jwtProcessor.setJWSVerifierFactory(new CachingJWSVerifierFactory());
 			jwtProcessor.setJWSKeySelector(jwsKeySelector);
 			// Spring Security validates the claim set independent from Nimbus
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
@@ -634,9 +750,10 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 		Converter<JWT, Mono<JWTClaimsSet>> processor() {
 			JWKSecurityContextJWKSet jwkSource = new JWKSecurityContextJWKSet();
-			JWSKeySelector<JWKSecurityContext> jwsKeySelector = new JWSVerificationKeySelector<>(this.jwsAlgorithm,
-					jwkSource);
+			JWSKeySelector<JWKSecurityContext> jwsKeySelector = new CachingJWSVerificationKeySelector<>(
+					this.jwsAlgorithm, jwkSource);
 			DefaultJWTProcessor<JWKSecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+			jwtProcessor.setJWSVerifierFactory(new CachingJWSVerifierFactory());
 			jwtProcessor.setJWSKeySelector(jwsKeySelector);
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
 			});
@@ -17,8 +17,13 @@
 package org.springframework.security.oauth2.jwt;
 
 import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -29,10 +34,23 @@ import com.nimbusds.jose.jwk.JWKSelector;
 import com.nimbusds.jose.jwk.JWKSet;
 import reactor.core.publisher.Mono;
 
+import org.springframework.security.metrics.SecurityMetricsRecorder;
 import org.springframework.util.Assert;
 import org.springframework.web.reactive.function.client.WebClient;
 
 /**
+ * A {@link ReactiveJWKSource} that retrieves a remote JWK Set, sharing a single request
+ * between concurrent retrievals.
+ *
+ * <p>
+ * When a lifespan is {@link #setRefreshAhead(Duration, Duration) configured}, a lookup
+ * made within {@code refreshAhead} of the end of the JWK Set's lifespan starts a refresh
+ * in the background and returns the current keys. Once the JWK Set is
+ * {@link #setMaxStaleness(Duration) maxStaleness} past its lifespan, lookups wait for a
+ * refresh instead, and fail if it fails. Neither an unknown {@code kid} nor a failed
+ * refresh causes another refresh within {@link #setMinRefreshInterval(Duration)
+ * minRefreshInterval}.
+ *
  * @author Rob Winch
  * @since 5.1
  */
@@ -48,6 +66,27 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 	 */
 	private final AtomicReference<String> cachedJwkSetUrl = new AtomicReference<>();
 
+	private final AtomicReference<Mono<JWKSet>> inflight = new AtomicReference<>();
+
+	private final AtomicReference<Instant> lastKeyMissRefresh = new AtomicReference<>(Instant.EPOCH);
+
+	private volatile Instant fetchedAt;
+
+	private volatile Instant lastFailure = Instant.EPOCH;
+
+	private Duration lifespan;
+
+	private Duration refreshAhead = Duration.ZERO;
+
+	private Duration maxStaleness;
+
+	private Duration minRefreshInterval = Duration.ZERO;
+
+	private SecurityMetricsRecorder metricsRecorder = (name, tags, durationNanos) -> {
+	};
+
+	private Clock clock = Clock.systemUTC();
+
 	private WebClient webClient = WebClient.create();
 
 	private final Mono<String> jwkSetUrlProvider;
@@ -66,15 +105,67 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 	@Override
 	public Mono<List<JWK>> get(JWKSelector jwkSelector) {
 		// @formatter:off
-		return this.cachedJWKSet.get()
-				.switchIfEmpty(Mono.defer(this::getJWKSet))
+		return currentJWKSet()
 				.flatMap((jwkSet) -> get(jwkSelector, jwkSet))
-				.switchIfEmpty(Mono.defer(() -> getJWKSet()
-						.map(jwkSelector::select))
-				);
+				.switchIfEmpty(Mono.defer(() -> refreshForKeyMiss(jwkSelector)));
 		// @formatter:on
 	}
 
+	private Mono<JWKSet> currentJWKSet() {
+		return Mono.defer(() -> {
+			if (isExpired()) {
+				if (this.clock.instant().isBefore(this.lastFailure.plus(this.minRefreshInterval))) {
+					return Mono.error(new RemoteKeySourceException(
+							"JWK set is too stale to use and could not be refreshed", null));
+				}
+				return getJWKSet("expired");
+			}
+			// @formatter:off
+			return this.cachedJWKSet.get()
+					.doOnNext((jwkSet) -> refreshAheadIfDue())
+					.switchIfEmpty(Mono.defer(() -> getJWKSet("initial")));
+			// @formatter:on
+		});
+	}
+
+	private boolean isExpired() {
+		Instant fetchedAt = this.fetchedAt;
+		if (this.lifespan == null || fetchedAt == null) {
+			return false;
+		}
+		Instant expiresAt = fetchedAt.plus(this.lifespan).plus(this.maxStaleness);
+		return !this.clock.instant().isBefore(expiresAt);
+	}
+
+	private void refreshAheadIfDue() {
+		Instant fetchedAt = this.fetchedAt;
+		if (this.lifespan == null || fetchedAt == null) {
+			return;
+		}
+		Instant now = this.clock.instant();
+		Instant refreshAt = fetchedAt.plus(this.lifespan).minus(this.refreshAhead);
+		if (now.isBefore(refreshAt) || now.isBefore(this.lastFailure.plus(this.minRefreshInterval))) {
+			return;
+		}
+		// a failed refresh is recorded and leaves the current JWK Set in place
+		getJWKSet("refresh_ahead").subscribe((jwkSet) -> {
+		}, (ex) -> {
+		});
+	}
+
+	private Mono<List<JWK>> refreshForKeyMiss(JWKSelector jwkSelector) {
+		if (this.minRefreshInterval.isZero()) {
+			return getJWKSet("unknown_kid").map(jwkSelector::select);
+		}
+		Instant now = this.clock.instant();
+		Instant last = this.lastKeyMissRefresh.get();
+		if (now.isBefore(last.plus(this.minRefreshInterval)) || !this.lastKeyMissRefresh.compareAndSet(last, now)) {
+			Mono<JWKSet> inflight = this.inflight.get();
+			return (inflight != null) ? inflight.map(jwkSelector::select) : Mono.just(Collections.emptyList());
+		}
+		return getJWKSet("unknown_kid").map(jwkSelector::select);
+	}
+
 	private Mono<List<JWK>> get(JWKSelector jwkSelector, JWKSet jwkSet) {
 		return Mono.defer(() -> {
 			// Run the selector on the JWK set
@@ -100,24 +191,58 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 	}
 
 	/**
-	 * Updates the cached JWK set from the configured URL.
+	 * Updates the cached JWK set from the configured URL, joining any retrieval already
+	 * in progress.
+	 * @param trigger the reason for the retrieval
 	 * @return The updated JWK set.
 	 * @throws RemoteKeySourceException If JWK retrieval failed.
 	 */
-	private Mono<JWKSet> getJWKSet() {
-		// @formatter:off
-		return this.jwkSetUrlProvider
-				.flatMap((jwkSetURL) -> this.webClient.get()
-					.uri(jwkSetURL)
-					.retrieve()
-					.bodyToMono(String.class)
-				)
-				.map(this::parse)
-				.doOnNext((jwkSet) -> this.cachedJWKSet
-					.set(Mono.just(jwkSet))
-				)
+	private Mono<JWKSet> getJWKSet(String trigger) {
+		return Mono.defer(() -> {
+			Mono<JWKSet> refresh = fetchJWKSet(trigger).doOnSuccess((jwkSet) -> this.inflight.set(null))
+				.doOnError((ex) -> this.inflight.set(null))
 				.cache();
-		// @formatter:on
+			while (true) {
+				Mono<JWKSet> existing = this.inflight.get();
+				if (existing != null) {
+					return existing;
+				}
+				if (this.inflight.compareAndSet(null, refresh)) {
+					return refresh;
+				}
+			}
+		});
+	}
+
+	private Mono<JWKSet> fetchJWKSet(String trigger) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			// @formatter:off
+			return this.jwkSetUrlProvider
+					.flatMap((jwkSetURL) -> this.webClient.get()
+						.uri(jwkSetURL)
+						.retrieve()
+						.bodyToMono(String.class)
+					)
+					.map(this::parse)
+					.doOnNext((jwkSet) -> {
+						this.cachedJWKSet.set(Mono.just(jwkSet));
+						this.fetchedAt = this.clock.instant();
+						record(trigger, "success", start);
+					})
+					.doOnError((ex) -> {
+						this.lastFailure = this.clock.instant();
+						record(trigger, "failure", start);
+					});
+			// @formatter:on
+		});
+	}
+
+	private void record(String trigger, String outcome, long start) {
+		Map<String, String> tags = new HashMap<>(4);
+		tags.put("trigger", trigger);
+		tags.put(SecurityMetricsRecorder.OUTCOME_TAG, outcome);
+		this.metricsRecorder.record(RefreshAheadJWKSource.METRIC_NAME, tags, System.nanoTime() - start);
 	}
 
 	private JWKSet parse(String body) {
@@ -151,4 +276,38 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 		this.webClient = webClient;
 	}
 
+	void setRefreshAhead(Duration lifespan, Duration refreshAhead) {
+		Assert.notNull(lifespan, "lifespan cannot be null");
+		Assert.notNull(refreshAhead, "refreshAhead cannot be null");
+		Assert.isTrue(!lifespan.isNegative() && !lifespan.isZero(), "lifespan must be positive");
+		Assert.isTrue(!refreshAhead.isNegative() && refreshAhead.compareTo(lifespan) < 0,
+				"refreshAhead must be between 0 and lifespan");
+		this.lifespan = lifespan;
+		this.refreshAhead = refreshAhead;
+		if (this.maxStaleness == null) {
+			this.maxStaleness = lifespan;
+		}
+	}
+
+	void setMaxStaleness(Duration maxStaleness) {
+		Assert.notNull(maxStaleness, "maxStaleness cannot be null");
+		Assert.isTrue(!maxStaleness.isNegative(), "maxStaleness cannot be negative");
+		this.maxStaleness = maxStaleness;
+	}
+
+	void setMinRefreshInterval(Duration minRefreshInterval) {
+		Assert.notNull(minRefreshInterval, "minRefreshInterval cannot be null");
+		this.minRefreshInterval = minRefreshInterval;
+	}
+
+	void setMetricsRecorder(SecurityMetricsRecorder metricsRecorder) {
+		Assert.notNull(metricsRecorder, "metricsRecorder cannot be null");
+		this.metricsRecorder = metricsRecorder;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
 }
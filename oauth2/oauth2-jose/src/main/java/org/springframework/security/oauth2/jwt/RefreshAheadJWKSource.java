@@ -0,0 +1,298 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link JWKSource} that refreshes a remote JWK Set ahead of its expiry, and keeps
+ * serving the keys it has while doing so.
+ *
+ * <p>
+ * Only the very first lookup waits for the JWK Set endpoint. After that, a lookup made
+ * within {@code refreshAhead} of the end of the set's lifespan, or after it, starts a
+ * refresh on the {@link Executor} and returns the current keys. A failed refresh keeps
+ * the current keys in place, but only until the set is {@code maxStaleness} past its
+ * lifespan. From then on, lookups wait for a refresh and fail with a
+ * {@link KeySourceException} if it fails, so that a rotated or revoked key is not trusted
+ * indefinitely while the JWK Set endpoint is unreachable. Concurrent refreshes are
+ * coalesced into a single request, and neither a token whose {@code kid} is unknown nor
+ * a failed refresh triggers more than one refresh per {@code minRefreshInterval}.
+ *
+ * <p>
+ * Each refresh is recorded in the {@code spring.security.oauth2.jwks.refreshes} metric,
+ * tagged with its {@code trigger} ({@code initial}, {@code refresh_ahead},
+ * {@code expired} or {@code unknown_kid}) and its {@code outcome} ({@code success} or
+ * {@code failure}).
+ *
+ * @since 5.8
+ */
+final class RefreshAheadJWKSource implements JWKSource<SecurityContext> {
+
+	static final String METRIC_NAME = "spring.security.oauth2.jwks.refreshes";
+
+	private static final SecurityMetricsRecorder NOOP_RECORDER = (name, tags, durationNanos) -> {
+	};
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final URL jwkSetUrl;
+
+	private final ResourceRetriever jwkSetRetriever;
+
+	private final Duration lifespan;
+
+	private final Duration refreshAhead;
+
+	private final AtomicReference<CompletableFuture<JWKSet>> inflight = new AtomicReference<>();
+
+	private final AtomicReference<Instant> lastKeyMissRefresh = new AtomicReference<>(Instant.EPOCH);
+
+	private volatile CachedJWKSet cached;
+
+	private volatile Instant lastFailure = Instant.EPOCH;
+
+	private Duration maxStaleness;
+
+	private Duration minRefreshInterval = Duration.ofSeconds(30);
+
+	private Executor executor;
+
+	private SecurityMetricsRecorder metricsRecorder = NOOP_RECORDER;
+
+	private Clock clock = Clock.systemUTC();
+
+	RefreshAheadJWKSource(URL jwkSetUrl, ResourceRetriever jwkSetRetriever, Duration lifespan, Duration refreshAhead) {
+		Assert.notNull(jwkSetUrl, "jwkSetUrl cannot be null");
+		Assert.notNull(jwkSetRetriever, "jwkSetRetriever cannot be null");
+		Assert.notNull(lifespan, "lifespan cannot be null");
+		Assert.notNull(refreshAhead, "refreshAhead cannot be null");
+		Assert.isTrue(!lifespan.isNegative() && !lifespan.isZero(), "lifespan must be positive");
+		Assert.isTrue(!refreshAhead.isNegative() && refreshAhead.compareTo(lifespan) < 0,
+				"refreshAhead must be between 0 and lifespan");
+		this.jwkSetUrl = jwkSetUrl;
+		this.jwkSetRetriever = jwkSetRetriever;
+		this.lifespan = lifespan;
+		this.refreshAhead = refreshAhead;
+		this.maxStaleness = lifespan;
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("jwk-set-refresh-");
+		executor.setDaemon(true);
+		this.executor = executor;
+	}
+
+	@Override
+	public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+		JWKSet jwkSet = current();
+		List<JWK> matches = jwkSelector.select(jwkSet);
+		if (!matches.isEmpty()) {
+			return matches;
+		}
+		String soughtKeyId = getFirstSpecifiedKeyId(jwkSelector.getMatcher());
+		if (soughtKeyId == null || jwkSet.getKeyByKeyId(soughtKeyId) != null) {
+			return Collections.emptyList();
+		}
+		CompletableFuture<JWKSet> refresh = keyMissRefresh();
+		if (refresh == null) {
+			this.logger.trace(LogMessage.format("Not refreshing JWK Set for unknown kid %s, too soon", soughtKeyId));
+			return Collections.emptyList();
+		}
+		return jwkSelector.select(await(refresh, jwkSet));
+	}
+
+	private JWKSet current() throws KeySourceException {
+		CachedJWKSet cached = this.cached;
+		if (cached == null) {
+			return await(refresh("initial", false), null);
+		}
+		Instant now = this.clock.instant();
+		Instant expiresAt = cached.fetchedAt.plus(this.lifespan).plus(this.maxStaleness);
+		if (!now.isBefore(expiresAt)) {
+			if (now.isBefore(this.lastFailure.plus(this.minRefreshInterval))) {
+				throw new RemoteKeySourceException(
+						"JWK set from " + this.jwkSetUrl + " is too stale to use and could not be refreshed", null);
+			}
+			return await(refresh("expired", false), null);
+		}
+		Instant refreshAt = cached.fetchedAt.plus(this.lifespan).minus(this.refreshAhead);
+		if (!now.isBefore(refreshAt) && !now.isBefore(this.lastFailure.plus(this.minRefreshInterval))) {
+			refresh("refresh_ahead", true);
+		}
+		return cached.jwkSet;
+	}
+
+	private CompletableFuture<JWKSet> keyMissRefresh() {
+		Instant now = this.clock.instant();
+		Instant last = this.lastKeyMissRefresh.get();
+		if (now.isBefore(last.plus(this.minRefreshInterval)) || !this.lastKeyMissRefresh.compareAndSet(last, now)) {
+			return this.inflight.get();
+		}
+		return refresh("unknown_kid", false);
+	}
+
+	private CompletableFuture<JWKSet> refresh(String trigger, boolean background) {
+		CompletableFuture<JWKSet> refresh = new CompletableFuture<>();
+		while (!this.inflight.compareAndSet(null, refresh)) {
+			CompletableFuture<JWKSet> existing = this.inflight.get();
+			if (existing != null) {
+				return existing;
+			}
+		}
+		if (!background) {
+			fetch(refresh, trigger);
+			return refresh;
+		}
+		try {
+			this.executor.execute(() -> fetch(refresh, trigger));
+		}
+		catch (RejectedExecutionException ex) {
+			this.inflight.set(null);
+			refresh.completeExceptionally(ex);
+		}
+		return refresh;
+	}
+
+	private void fetch(CompletableFuture<JWKSet> refresh, String trigger) {
+		long start = System.nanoTime();
+		try {
+			Resource resource = this.jwkSetRetriever.retrieveResource(this.jwkSetUrl);
+			JWKSet jwkSet = JWKSet.parse(resource.getContent());
+			this.cached = new CachedJWKSet(jwkSet, this.clock.instant());
+			record(trigger, "success", start);
+			refresh.complete(jwkSet);
+		}
+		catch (Exception ex) {
+			this.logger.debug(LogMessage.format("Failed to refresh JWK Set from %s", this.jwkSetUrl), ex);
+			this.lastFailure = this.clock.instant();
+			record(trigger, "failure", start);
+			refresh.completeExceptionally(ex);
+		}
+		finally {
+			this.inflight.compareAndSet(refresh, null);
+		}
+	}
+
+	private JWKSet await(CompletableFuture<JWKSet> refresh, JWKSet stale) throws KeySourceException {
+		try {
+			return refresh.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			if (stale != null) {
+				return stale;
+			}
+			throw new RemoteKeySourceException("Interrupted while retrieving remote JWK set", ex);
+		}
+		catch (ExecutionException ex) {
+			if (stale != null) {
+				return stale;
+			}
+			Throwable cause = ex.getCause();
+			throw new RemoteKeySourceException("Couldn't retrieve remote JWK set: " + cause.getMessage(), cause);
+		}
+	}
+
+	private void record(String trigger, String outcome, long start) {
+		Map<String, String> tags = new HashMap<>(4);
+		tags.put("trigger", trigger);
+		tags.put(SecurityMetricsRecorder.OUTCOME_TAG, outcome);
+		this.metricsRecorder.record(METRIC_NAME, tags, System.nanoTime() - start);
+	}
+
+	private static String getFirstSpecifiedKeyId(JWKMatcher jwkMatcher) {
+		Set<String> keyIds = jwkMatcher.getKeyIDs();
+		if (keyIds == null) {
+			return null;
+		}
+		for (String keyId : keyIds) {
+			if (keyId != null) {
+				return keyId;
+			}
+		}
+		return null;
+	}
+
+	void setMaxStaleness(Duration maxStaleness) {
+		Assert.notNull(maxStaleness, "maxStaleness cannot be null");
+		Assert.isTrue(!maxStaleness.isNegative(), "maxStaleness cannot be negative");
+		this.maxStaleness = maxStaleness;
+	}
+
+	void setMinRefreshInterval(Duration minRefreshInterval) {
+		Assert.notNull(minRefreshInterval, "minRefreshInterval cannot be null");
+		this.minRefreshInterval = minRefreshInterval;
+	}
+
+	void setExecutor(Executor executor) {
+		Assert.notNull(executor, "executor cannot be null");
+		this.executor = executor;
+	}
+
+	void setMetricsRecorder(SecurityMetricsRecorder metricsRecorder) {
+		Assert.notNull(metricsRecorder, "metricsRecorder cannot be null");
+		this.metricsRecorder = metricsRecorder;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class CachedJWKSet {
+
+		private final JWKSet jwkSet;
+
+		private final Instant fetchedAt;
+
+		private CachedJWKSet(JWKSet jwkSet, Instant fetchedAt) {
+			this.jwkSet = jwkSet;
+			this.fetchedAt = fetchedAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.Key;
+import java.util.Collections;
+import java.util.List;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.oauth2.jose.TestKeys;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link CachingJWSVerificationKeySelector}
+ */
+public class CachingJWSVerificationKeySelectorTests {
+
+	private final JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("one").build();
+
+	private final JWKSource<SecurityContext> jwkSource = mock(JWKSource.class);
+
+	private final CachingJWSVerificationKeySelector<SecurityContext> selector = new CachingJWSVerificationKeySelector<>(
+			JWSAlgorithm.RS256, this.jwkSource);
+
+	@Test
+	public void selectJWSKeysWhenSameJwksThenSameKeys() throws Exception {
+		JWKSet jwkSet = jwkSet();
+		given(this.jwkSource.get(any(), any())).willAnswer((invocation) -> jwkSet.getKeys());
+		List<Key> first = this.selector.selectJWSKeys(this.header, null);
+		List<Key> second = this.selector.selectJWSKeys(this.header, null);
+		assertThat(first).hasSize(1);
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	public void selectJWSKeysWhenJwkSetChangesThenConvertsAgain() throws Exception {
+		JWKSet first = jwkSet();
+		JWKSet second = jwkSet();
+		given(this.jwkSource.get(any(), any())).willReturn(first.getKeys(), second.getKeys());
+		List<Key> before = this.selector.selectJWSKeys(this.header, null);
+		List<Key> after = this.selector.selectJWSKeys(this.header, null);
+		assertThat(after).isNotSameAs(before);
+		assertThat(after.get(0)).isNotSameAs(before.get(0));
+	}
+
+	@Test
+	public void selectJWSKeysWhenAlgorithmNotAllowedThenEmpty() throws Exception {
+		JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.ES256).keyID("one").build();
+		assertThat(this.selector.selectJWSKeys(header, null)).isEmpty();
+	}
+
+	private static JWKSet jwkSet() {
+		return new JWKSet(
+				Collections.singletonList(new RSAKey.Builder(TestKeys.DEFAULT_PUBLIC_KEY).keyID("one").build()));
+	}
+
+}
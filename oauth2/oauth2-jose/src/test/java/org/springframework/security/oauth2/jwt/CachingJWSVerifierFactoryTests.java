@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.oauth2.jose.TestKeys;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link CachingJWSVerifierFactory}
+ */
+public class CachingJWSVerifierFactoryTests {
+
+	private final CachingJWSVerifierFactory factory = new CachingJWSVerifierFactory();
+
+	private final JWSHeader header = new JWSHeader(JWSAlgorithm.RS256);
+
+	@Test
+	public void createJWSVerifierWhenSameKeyThenSameVerifier() throws Exception {
+		JWSVerifier first = this.factory.createJWSVerifier(this.header, TestKeys.DEFAULT_PUBLIC_KEY);
+		JWSVerifier second = this.factory.createJWSVerifier(this.header, TestKeys.DEFAULT_PUBLIC_KEY);
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	public void createJWSVerifierWhenDifferentKeyThenDifferentVerifier() throws Exception {
+		RSAPublicKey other = (RSAPublicKey) TestKeys.kf
+			.generatePublic(new X509EncodedKeySpec(TestKeys.DEFAULT_PUBLIC_KEY.getEncoded()));
+		JWSVerifier first = this.factory.createJWSVerifier(this.header, TestKeys.DEFAULT_PUBLIC_KEY);
+		JWSVerifier second = this.factory.createJWSVerifier(this.header, other);
+		assertThat(second).isNotSameAs(first);
+	}
+
+	@Test
+	public void createJWSVerifierWhenDifferentAlgorithmThenDifferentVerifier() throws Exception {
+		JWSVerifier first = this.factory.createJWSVerifier(this.header, TestKeys.DEFAULT_PUBLIC_KEY);
+		JWSVerifier second = this.factory.createJWSVerifier(new JWSHeader(JWSAlgorithm.RS512),
+				TestKeys.DEFAULT_PUBLIC_KEY);
+		assertThat(second).isNotSameAs(first);
+	}
+
+}
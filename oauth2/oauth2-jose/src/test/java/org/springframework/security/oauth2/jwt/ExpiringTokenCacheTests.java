@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link ExpiringTokenCache}
+ */
+public class ExpiringTokenCacheTests {
+
+	private static final Instant NOW = Instant.parse("2022-01-01T00:00:00Z");
+
+	@Test
+	public void constructorWhenMaxSizeZeroThenIllegalArgument() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new ExpiringTokenCache<>(0));
+	}
+
+	@Test
+	public void digestWhenSameTokenThenSameDigest() {
+		assertThat(ExpiringTokenCache.digest("token")).isEqualTo(ExpiringTokenCache.digest("token"))
+			.isNotEqualTo(ExpiringTokenCache.digest("other"))
+			.doesNotContain("token");
+	}
+
+	@Test
+	public void getWhenPutThenReturnsValueUntilExpired() {
+		ExpiringTokenCache<String> cache = cache(10, NOW);
+		cache.put("key", "value", NOW.plusSeconds(60));
+		assertThat(cache.get("key")).isEqualTo("value");
+		cache.setClock(Clock.fixed(NOW.plusSeconds(60), ZoneOffset.UTC));
+		assertThat(cache.get("key")).isNull();
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void putWhenAlreadyExpiredThenNotCached() {
+		ExpiringTokenCache<String> cache = cache(10, NOW);
+		cache.put("key", "value", NOW);
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void putWhenFullThenSweepsToThreeQuarters() {
+		ExpiringTokenCache<String> cache = cache(100, NOW);
+		for (int i = 0; i < 100; i++) {
+			cache.put("key" + i, "value", NOW.plusSeconds(60));
+		}
+		assertThat(cache.size()).isEqualTo(100);
+		cache.put("last", "value", NOW.plusSeconds(60));
+		assertThat(cache.size()).isEqualTo(76);
+		assertThat(cache.get("last")).isEqualTo("value");
+		for (int i = 0; i < 24; i++) {
+			cache.put("more" + i, "value", NOW.plusSeconds(60));
+		}
+		assertThat(cache.size()).isEqualTo(100);
+	}
+
+	@Test
+	public void putWhenFullThenExpiredEntriesSweptFirst() {
+		ExpiringTokenCache<String> cache = cache(4, NOW);
+		cache.put("short", "value", NOW.plusSeconds(1));
+		cache.put("one", "value", NOW.plusSeconds(60));
+		cache.put("two", "value", NOW.plusSeconds(60));
+		cache.put("three", "value", NOW.plusSeconds(60));
+		cache.setClock(Clock.fixed(NOW.plusSeconds(1), ZoneOffset.UTC));
+		cache.put("four", "value", NOW.plusSeconds(60));
+		assertThat(cache.size()).isEqualTo(4);
+		assertThat(cache.get("short")).isNull();
+		assertThat(cache.get("four")).isEqualTo("value");
+	}
+
+	private static ExpiringTokenCache<String> cache(int maxSize, Instant now) {
+		ExpiringTokenCache<String> cache = new ExpiringTokenCache<>(maxSize);
+		cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		return cache;
+	}
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.proc.SingleKeyJWSKeySelector;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.TestKeys;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link JcaJwtDecoder}
+ */
+public class JcaJwtDecoderTests {
+
+	private static final String DECODING_ERROR = "An error occurred while attempting to decode the Jwt: ";
+
+	@Test
+	public void decodeWhenRs256ThenSameAsNimbus() throws Exception {
+		String token = sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY), JWSAlgorithm.RS256, claims());
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		JwtDecoder nimbus = NimbusJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		assertSameJwt(jca.decode(token), nimbus.decode(token));
+	}
+
+	@Test
+	public void decodeWhenRs512ThenSameAsNimbus() throws Exception {
+		String token = sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY), JWSAlgorithm.RS512, claims());
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY)
+			.signatureAlgorithm(SignatureAlgorithm.RS512)
+			.build();
+		JwtDecoder nimbus = NimbusJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY)
+			.signatureAlgorithm(SignatureAlgorithm.RS512)
+			.build();
+		assertSameJwt(jca.decode(token), nimbus.decode(token));
+	}
+
+	@Test
+	public void decodeWhenEs256ThenSameAsNimbus() throws Exception {
+		ECPublicKey publicKey = (ECPublicKey) TestKeys.DEFAULT_EC_KEY_PAIR.getPublic();
+		ECPrivateKey privateKey = (ECPrivateKey) TestKeys.DEFAULT_EC_KEY_PAIR.getPrivate();
+		String token = sign(new ECDSASigner(privateKey), JWSAlgorithm.ES256, claims());
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(publicKey).build();
+		DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+		processor.setJWSKeySelector(new SingleKeyJWSKeySelector<>(JWSAlgorithm.ES256, publicKey));
+		processor.setJWTClaimsSetVerifier((claims, context) -> {
+		});
+		JwtDecoder nimbus = new NimbusJwtDecoder(processor);
+		assertSameJwt(jca.decode(token), nimbus.decode(token));
+	}
+
+	@Test
+	public void decodeWhenHs256ThenSameAsNimbus() throws Exception {
+		String token = sign(new MACSigner(TestKeys.DEFAULT_SECRET_KEY), JWSAlgorithm.HS256, claims());
+		JwtDecoder jca = JcaJwtDecoder.withSecretKey(TestKeys.DEFAULT_SECRET_KEY).build();
+		JwtDecoder nimbus = NimbusJwtDecoder.withSecretKey(TestKeys.DEFAULT_SECRET_KEY).build();
+		assertSameJwt(jca.decode(token), nimbus.decode(token));
+	}
+
+	@Test
+	public void decodeWhenTypeIsJwtThenSameAsNimbus() throws Exception {
+		JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256).type(JOSEObjectType.JWT).keyID("one").build();
+		SignedJWT jwt = new SignedJWT(header, JWTClaimsSet.parse(claims()));
+		jwt.sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY));
+		String token = jwt.serialize();
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		JwtDecoder nimbus = NimbusJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		assertSameJwt(jca.decode(token), nimbus.decode(token));
+	}
+
+	@Test
+	public void decodeWhenSignatureInvalidThenBadJwtException() throws Exception {
+		String token = sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY), JWSAlgorithm.RS256, claims());
+		String tampered = token.substring(0, token.lastIndexOf('.') + 1) + "AAAA";
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jca.decode(tampered))
+			.withMessage(DECODING_ERROR + "Signed JWT rejected: Invalid signature");
+	}
+
+	@Test
+	public void decodeWhenEcSignatureOutOfRangeThenBadJwtException() throws Exception {
+		ECPrivateKey privateKey = (ECPrivateKey) TestKeys.DEFAULT_EC_KEY_PAIR.getPrivate();
+		String token = sign(new ECDSASigner(privateKey), JWSAlgorithm.ES256, claims());
+		String zeros = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[64]);
+		String tampered = token.substring(0, token.lastIndexOf('.') + 1) + zeros;
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey((ECPublicKey) TestKeys.DEFAULT_EC_KEY_PAIR.getPublic()).build();
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jca.decode(tampered))
+			.withMessage(DECODING_ERROR + "Signed JWT rejected: Invalid signature");
+	}
+
+	@Test
+	public void decodeWhenAlgorithmMismatchThenBadJwtException() throws Exception {
+		String token = sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY), JWSAlgorithm.RS512, claims());
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jca.decode(token))
+			.withMessage(
+					DECODING_ERROR + "Signed JWT rejected: Another algorithm expected, or no matching key(s) found");
+	}
+
+	@Test
+	public void decodeWhenUnsignedThenBadJwtException() {
+		String token = "eyJhbGciOiJub25lIiwidHlwIjoiSldUIn0.eyJleHAiOi0yMDMzMjI0OTcsImp0aSI6IjEyMyIsInR5cCI6IkpXVCJ9.";
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jca.decode(token))
+			.withMessage("Unsupported algorithm of none");
+	}
+
+	@Test
+	public void decodeWhenMalformedPayloadThenBadJwtException() throws Exception {
+		String token = sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY), JWSAlgorithm.RS256, "{\"nbf\":{}}");
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jca.decode(token))
+			.withMessage(DECODING_ERROR + "Malformed payload");
+	}
+
+	@Test
+	public void decodeWhenMissingDelimitersThenBadJwtException() {
+		JwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jca.decode("malformed"))
+			.withMessageStartingWith(DECODING_ERROR);
+	}
+
+	@Test
+	public void decodeWhenValidatorFailsThenJwtValidationException() throws Exception {
+		String token = sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY), JWSAlgorithm.RS256, claims());
+		OAuth2TokenValidator<Jwt> validator = mock(OAuth2TokenValidator.class);
+		given(validator.validate(any()))
+			.willReturn(OAuth2TokenValidatorResult.failure(new OAuth2Error("invalid_token", "mock-description", null)));
+		JcaJwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		jca.setJwtValidator(validator);
+		assertThatExceptionOfType(JwtValidationException.class).isThrownBy(() -> jca.decode(token))
+			.withMessageContaining("mock-description");
+	}
+
+	@Test
+	public void decodeWhenMappedClaimConverterFailsThenBadJwtException() throws Exception {
+		String token = sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY), JWSAlgorithm.RS256, claims());
+		Converter<Object, ?> failing = (claim) -> {
+			throw new IllegalArgumentException("bad subject");
+		};
+		JcaJwtDecoder jca = JcaJwtDecoder.withPublicKey(TestKeys.DEFAULT_PUBLIC_KEY).build();
+		jca.setClaimSetConverter(
+				MappedJwtClaimSetConverter.withDefaults(Collections.singletonMap(JwtClaimNames.SUB, failing)));
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jca.decode(token))
+			.withMessage(DECODING_ERROR + "bad subject");
+	}
+
+	@Test
+	public void buildWhenEcKeyAndRsaAlgorithmThenIllegalStateException() {
+		ECPublicKey publicKey = (ECPublicKey) TestKeys.DEFAULT_EC_KEY_PAIR.getPublic();
+		assertThatIllegalStateException().isThrownBy(
+				() -> JcaJwtDecoder.withPublicKey(publicKey).signatureAlgorithm(SignatureAlgorithm.RS256).build());
+	}
+
+	@Test
+	public void buildWhenSecretTooShortThenIllegalStateException() {
+		SecretKeySpec secretKey = new SecretKeySpec(new byte[16], "HmacSHA256");
+		assertThatIllegalStateException()
+			.isThrownBy(() -> JcaJwtDecoder.withSecretKey(secretKey).macAlgorithm(MacAlgorithm.HS256).build())
+			.withMessage("The secret length must be at least 256 bits");
+	}
+
+	private static void assertSameJwt(Jwt jca, Jwt nimbus) {
+		assertThat(jca.getTokenValue()).isEqualTo(nimbus.getTokenValue());
+		assertThat(jca.getHeaders()).isEqualTo(nimbus.getHeaders());
+		assertThat(jca.getClaims()).isEqualTo(nimbus.getClaims());
+		assertThat(jca.getIssuedAt()).isEqualTo(nimbus.getIssuedAt());
+		assertThat(jca.getExpiresAt()).isEqualTo(nimbus.getExpiresAt());
+	}
+
+	private static String claims() {
+		Map<String, Object> claims = new LinkedHashMap<>();
+		claims.put(JwtClaimNames.ISS, "https://issuer.example.com");
+		claims.put(JwtClaimNames.SUB, "subject");
+		claims.put(JwtClaimNames.AUD, "audience");
+		claims.put(JwtClaimNames.EXP, Instant.now().plusSeconds(3600).getEpochSecond());
+		claims.put(JwtClaimNames.NBF, Instant.now().minusSeconds(60).getEpochSecond());
+		claims.put("scope", "message:read message:write");
+		claims.put("roles", Arrays.asList("admin", "user"));
+		claims.put("ratio", 1.5);
+		claims.put("count", 42);
+		claims.put("active", true);
+		claims.put("missing", null);
+		claims.put("address", Collections.singletonMap("street_address", "123 Maïn \"Street\"\n😀"));
+		String json = JSONObjectUtils.toJSONString(claims);
+		return json.substring(0, json.length() - 1) + ",\"escaped\":\"caf\\u00e9 \\ud83d\\ude00\\/\","
+				+ "\"large\":123456789012345678901,\"exponent\":1e3,\"nested\":[[{\"a\":[]}],{}]}";
+	}
+
+	private static String sign(JWSSigner signer, JWSAlgorithm algorithm, String claims) throws Exception {
+		JWSObject jws = new JWSObject(new JWSHeader(algorithm), new Payload(claims));
+		jws.sign(signer);
+		return jws.serialize();
+	}
+
+}
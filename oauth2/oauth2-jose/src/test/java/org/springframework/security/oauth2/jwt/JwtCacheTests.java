@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link JwtCache}
+ */
+public class JwtCacheTests {
+
+	private static final Instant NOW = Instant.parse("2022-01-01T00:00:00Z");
+
+	@Test
+	public void constructorWhenMaxSizeZeroThenIllegalArgument() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new JwtCache(0, Duration.ofMinutes(1)));
+	}
+
+	@Test
+	public void getWhenPutThenReturnsJwt() {
+		JwtCache cache = cache(10, Duration.ofMinutes(5), NOW);
+		Jwt jwt = jwt("token", NOW.plusSeconds(3600));
+		cache.put(jwt);
+		assertThat(cache.get("token")).isSameAs(jwt);
+		assertThat(cache.get("other")).isNull();
+	}
+
+	@Test
+	public void getWhenPastMaxTtlThenNull() {
+		MutableClock clock = new MutableClock(NOW);
+		JwtCache cache = new JwtCache(10, Duration.ofMinutes(5), clock);
+		cache.put(jwt("token", NOW.plusSeconds(3600)));
+		clock.instant = NOW.plusSeconds(299);
+		assertThat(cache.get("token")).isNotNull();
+		clock.instant = NOW.plusSeconds(300);
+		assertThat(cache.get("token")).isNull();
+	}
+
+	@Test
+	public void getWhenPastExpThenNull() {
+		MutableClock clock = new MutableClock(NOW);
+		JwtCache cache = new JwtCache(10, Duration.ofMinutes(5), clock);
+		cache.put(jwt("token", NOW.plusSeconds(60)));
+		assertThat(cache.get("token")).isNotNull();
+		clock.instant = NOW.plusSeconds(60);
+		assertThat(cache.get("token")).isNull();
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void putWhenAlreadyExpiredThenNotCached() {
+		JwtCache cache = cache(10, Duration.ofMinutes(5), NOW);
+		cache.put(jwt("token", NOW.minusSeconds(1)));
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void putWhenFullThenSizeBounded() {
+		JwtCache cache = cache(2, Duration.ofMinutes(5), NOW);
+		cache.put(jwt("one", null));
+		cache.put(jwt("two", null));
+		cache.put(jwt("three", null));
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get("three")).isNotNull();
+	}
+
+	private static JwtCache cache(int maxSize, Duration maxTtl, Instant now) {
+		return new JwtCache(maxSize, maxTtl, new MutableClock(now));
+	}
+
+	private static Jwt jwt(String token, Instant expiresAt) {
+		Jwt.Builder builder = Jwt.withTokenValue(token).header("alg", "none").claim("sub", "user");
+		if (expiresAt != null) {
+			builder.expiresAt(expiresAt);
+		}
+		return builder.build();
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant instant;
+
+		private MutableClock(Instant instant) {
+			this.instant = instant;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return this.instant;
+		}
+
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import com.nimbusds.jose.util.JSONObjectUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link JwtJsonParser}
+ */
+public class JwtJsonParserTests {
+
+	@Test
+	public void parseObjectWhenValuesThenTypedLikeNimbus() throws Exception {
+		String json = "{ \"s\": \"v\", \"l\": 1, \"d\": 1.0, \"e\": -2E2, \"big\": 123456789012345678901, "
+				+ "\"t\": true, \"f\": false, \"n\": null, \"a\": [1, \"x\", [], {}], \"o\": {\"k\": [null]} }";
+		Map<String, Object> parsed = parse(json);
+		assertThat(parsed).isEqualTo(JSONObjectUtils.parse(json));
+		assertThat(parsed.get("l")).isInstanceOf(Long.class);
+		assertThat(parsed.get("d")).isInstanceOf(Double.class);
+		assertThat(parsed.get("big")).isInstanceOf(Double.class);
+		assertThat(parsed.get("a")).isEqualTo(Arrays.asList(1L, "x", Collections.emptyList(), Collections.emptyMap()));
+	}
+
+	@Test
+	public void parseObjectWhenEscapesThenDecoded() throws Exception {
+		String json = "{\"s\":\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u00e9\\ud83d\\ude00 é\"}";
+		assertThat(parse(json)).containsEntry("s", "a\"b\\c/d\b\f\n\r\té\ud83d\ude00 é");
+	}
+
+	@Test
+	public void parseObjectWhenSliceOfBufferThenParsesOnlySlice() throws Exception {
+		byte[] bytes = "xx{\"a\":1}yy".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, 7).slice();
+		assertThat(JwtJsonParser.parseObject(buffer)).containsEntry("a", 1L);
+	}
+
+	@Test
+	public void parseObjectWhenInvalidThenParseException() {
+		assertInvalid("");
+		assertInvalid("[]");
+		assertInvalid("{\"a\":1} x");
+		assertInvalid("{\"a\":1,\"a\":2}");
+		assertInvalid("{\"a\":01}");
+		assertInvalid("{\"a\":1.}");
+		assertInvalid("{\"a\":tru}");
+		assertInvalid("{\"a\":\"unterminated}");
+		assertInvalid("{\"a\":\"\\x\"}");
+		assertInvalid("{\"a\":[1,]}");
+		assertInvalid("{a:1}");
+	}
+
+	@Test
+	public void parseObjectWhenTooDeeplyNestedThenParseException() {
+		StringBuilder json = new StringBuilder("{\"a\":");
+		for (int i = 0; i < 100; i++) {
+			json.append('[');
+		}
+		assertInvalid(json.toString());
+	}
+
+	private static Map<String, Object> parse(String json) throws ParseException {
+		return JwtJsonParser.parseObject(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static void assertInvalid(String json) {
+		assertThatExceptionOfType(ParseException.class).isThrownBy(() -> parse(json));
+	}
+
+}
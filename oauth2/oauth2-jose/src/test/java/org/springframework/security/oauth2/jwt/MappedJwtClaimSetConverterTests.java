@@ -16,6 +16,10 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.net.URI;
 import java.net.URL;
 import java.time.Instant;
@@ -31,6 +35,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.core.convert.converter.Converter;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.mockito.ArgumentMatchers.any;
@@ -217,4 +222,80 @@ public class MappedJwtClaimSetConverterTests {
 		assertThatIllegalArgumentException().isThrownBy(() -> MappedJwtClaimSetConverter.withDefaults(null));
 	}
 
+	@Test
+	public void convertWithoutCopyingWhenClaimsThenSameContentAsConvert() {
+		Converter<Object, String> added = (claim) -> "added";
+		MappedJwtClaimSetConverter converter = MappedJwtClaimSetConverter
+			.withDefaults(Collections.singletonMap("custom", added));
+		Map<String, Object> claims = new HashMap<>();
+		claims.put(JwtClaimNames.AUD, "audience");
+		claims.put(JwtClaimNames.EXP, 2000000000L);
+		claims.put(JwtClaimNames.ISS, "https://issuer");
+		claims.put("scope", "message:read");
+		Map<String, Object> view = converter.convertWithoutCopying(claims);
+		assertThat(view).isEqualTo(converter.convert(claims));
+		assertThat(view.get(JwtClaimNames.IAT)).isEqualTo(Instant.ofEpochSecond(2000000000L).minusSeconds(1));
+		assertThat(view).containsEntry("custom", "added");
+		assertThat(view).doesNotContainKey(JwtClaimNames.NBF);
+	}
+
+	@Test
+	public void convertWithoutCopyingWhenCustomConverterFailsThenFailsImmediately() {
+		Converter<Object, String> custom = (claim) -> {
+			throw new IllegalStateException("cannot convert");
+		};
+		MappedJwtClaimSetConverter converter = MappedJwtClaimSetConverter
+			.withDefaults(Collections.singletonMap("custom", custom));
+		Map<String, Object> claims = new HashMap<>();
+		claims.put(JwtClaimNames.SUB, "subject");
+		claims.put("custom", "value");
+		assertThatIllegalStateException().isThrownBy(() -> converter.convertWithoutCopying(claims))
+			.withMessage("cannot convert");
+	}
+
+	@Test
+	public void convertWithoutCopyingWhenConverterReturnsNullThenClaimRemoved() {
+		Converter<Object, String> custom = (claim) -> null;
+		MappedJwtClaimSetConverter converter = MappedJwtClaimSetConverter
+			.withDefaults(Collections.singletonMap("custom", custom));
+		Map<String, Object> claims = new HashMap<>();
+		claims.put(JwtClaimNames.SUB, "subject");
+		claims.put("custom", "value");
+		Map<String, Object> view = converter.convertWithoutCopying(claims);
+		assertThat(view).isEqualTo(converter.convert(claims));
+		assertThat(view).doesNotContainKey("custom");
+	}
+
+	@Test
+	public void convertWithoutCopyingWhenRegisteredClaimMalformedThenFailsImmediately() {
+		MappedJwtClaimSetConverter converter = MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+		Map<String, Object> claims = Collections.singletonMap(JwtClaimNames.EXP, "not-a-timestamp");
+		assertThatIllegalStateException().isThrownBy(() -> converter.convertWithoutCopying(claims));
+	}
+
+	@Test
+	public void convertWithoutCopyingWhenModifiedThenUnsupportedOperationException() {
+		MappedJwtClaimSetConverter converter = MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+		Map<String, Object> view = converter.convertWithoutCopying(Collections.singletonMap(JwtClaimNames.SUB, "subject"));
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> view.put("claim", "value"));
+	}
+
+	@Test
+	public void convertWithoutCopyingWhenSerializedThenPlainMap() throws Exception {
+		MappedJwtClaimSetConverter converter = MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+		Map<String, Object> claims = new HashMap<>();
+		claims.put(JwtClaimNames.SUB, "subject");
+		claims.put(JwtClaimNames.EXP, 2000000000L);
+		Jwt jwt = new Jwt("token", Collections.singletonMap("alg", "RS256"), converter.convertWithoutCopying(claims));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(jwt);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			Jwt deserialized = (Jwt) in.readObject();
+			assertThat(deserialized.getClaims()).isEqualTo(jwt.getClaims());
+			assertThat(deserialized.getExpiresAt()).isEqualTo(Instant.ofEpochSecond(2000000000L));
+		}
+	}
+
 }
@@ -48,6 +48,7 @@ import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
 import com.nimbusds.jose.proc.JWSKeySelector;
 import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import com.nimbusds.jwt.proc.BadJWTException;
@@ -83,6 +84,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -241,6 +243,51 @@ public class NimbusJwtDecoderTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void setJwtCacheMaxSizeWhenNegativeThenThrowIllegalArgumentException() {
+		// @formatter:off
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> this.jwtDecoder.setJwtCacheMaxSize(-1));
+		// @formatter:on
+	}
+
+	@Test
+	public void decodeWhenJwtCacheEnabledThenVerifiesTokenOnce() throws Exception {
+		JWTProcessor<SecurityContext> processor = spy(new MockJwtProcessor());
+		NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+		decoder.setJwtCacheMaxSize(10);
+		Jwt first = decoder.decode(SIGNED_JWT);
+		Jwt second = decoder.decode(SIGNED_JWT);
+		assertThat(second).isSameAs(first);
+		verify(processor, times(1)).process(any(JWT.class), any());
+	}
+
+	@Test
+	public void decodeWhenJwtCacheDisabledThenVerifiesTokenEachTime() throws Exception {
+		JWTProcessor<SecurityContext> processor = spy(new MockJwtProcessor());
+		NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+		decoder.decode(SIGNED_JWT);
+		decoder.decode(SIGNED_JWT);
+		verify(processor, times(2)).process(any(JWT.class), any());
+	}
+
+	@Test
+	public void decodeWhenCachedJwtFailsValidationThenThrowsJwtValidationException() {
+		OAuth2Error failure = new OAuth2Error("mock-error", "mock-description", "mock-uri");
+		OAuth2TokenValidator<Jwt> jwtValidator = mock(OAuth2TokenValidator.class);
+		given(jwtValidator.validate(any(Jwt.class))).willReturn(OAuth2TokenValidatorResult.success(),
+				OAuth2TokenValidatorResult.failure(failure));
+		this.jwtDecoder.setJwtValidator(jwtValidator);
+		this.jwtDecoder.setJwtCacheMaxSize(10);
+		this.jwtDecoder.decode(SIGNED_JWT);
+		// @formatter:off
+		assertThatExceptionOfType(JwtValidationException.class)
+				.isThrownBy(() -> this.jwtDecoder.decode(SIGNED_JWT))
+				.withMessageContaining("mock-description");
+		// @formatter:on
+		verify(jwtValidator, times(2)).validate(any(Jwt.class));
+	}
+
 	@Test
 	public void decodeWhenUsingSignedJwtThenReturnsClaimsGivenByClaimSetConverter() {
 		Converter<Map<String, Object>, Map<String, Object>> claimSetConverter = mock(Converter.class);
@@ -263,6 +310,20 @@ public class NimbusJwtDecoderTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void decodeWhenMappedClaimConverterFailsThenBadJwtException() {
+		Converter<Object, ?> failing = (claim) -> {
+			throw new IllegalArgumentException("bad subject");
+		};
+		this.jwtDecoder.setClaimSetConverter(
+				MappedJwtClaimSetConverter.withDefaults(Collections.singletonMap(JwtClaimNames.SUB, failing)));
+		// @formatter:off
+		assertThatExceptionOfType(BadJwtException.class)
+				.isThrownBy(() -> this.jwtDecoder.decode(SIGNED_JWT))
+				.withMessageContaining("bad subject");
+		// @formatter:on
+	}
+
 	@Test
 	public void decodeWhenSignedThenOk() {
 		NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(withSigning(JWK_SET));
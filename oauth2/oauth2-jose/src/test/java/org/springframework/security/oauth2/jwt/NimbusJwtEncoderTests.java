@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,12 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -51,6 +55,8 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link NimbusJwtEncoder}.
@@ -291,6 +297,80 @@ public class NimbusJwtEncoderTests {
 		assertThat(jwk1.getKeyID()).isNotEqualTo(jwk2.getKeyID());
 	}
 
+	@Test
+	public void encodeWhenKeyReplacedWithSameKidThenNewKeyUsed() throws Exception {
+		RSAKey rsaJwk1 = TestJwks.jwk(TestKeys.DEFAULT_PUBLIC_KEY, TestKeys.DEFAULT_PRIVATE_KEY)
+			.keyID("rsa-jwk")
+			.build();
+		this.jwkList.add(rsaJwk1);
+		JwsHeader jwsHeader = JwsHeader.with(SignatureAlgorithm.RS256).build();
+		JwtClaimsSet jwtClaimsSet = TestJwtClaimsSets.jwtClaimsSet().build();
+		this.jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, jwtClaimsSet));
+
+		KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+		keyPairGenerator.initialize(2048);
+		KeyPair keyPair = keyPairGenerator.generateKeyPair();
+		RSAKey rsaJwk2 = TestJwks.jwk((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate())
+			.keyID("rsa-jwk")
+			.build();
+		this.jwkList.set(0, rsaJwk2);
+		Jwt encodedJws = this.jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, jwtClaimsSet));
+
+		NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withPublicKey(rsaJwk2.toRSAPublicKey()).build();
+		jwtDecoder.decode(encodedJws.getTokenValue());
+	}
+
+	@Test
+	public void encodeWhenParametersListNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.jwtEncoder.encodeAll(null))
+			.withMessage("parameters cannot be null");
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> this.jwtEncoder.encodeAll(Collections.singletonList(null)))
+			.withMessage("parameters cannot contain null elements");
+	}
+
+	@Test
+	public void encodeWhenBatchThenSelectsKeyOncePerHeader() throws Exception {
+		RSAKey rsaJwk = TestJwks.jwk(TestKeys.DEFAULT_PUBLIC_KEY, TestKeys.DEFAULT_PRIVATE_KEY)
+			.keyID("rsa-jwk")
+			.build();
+		this.jwkList.add(rsaJwk);
+		JWKSource<SecurityContext> jwkSource = spy(new JWKSource<SecurityContext>() {
+			@Override
+			public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+				return jwkSelector.select(new JWKSet(NimbusJwtEncoderTests.this.jwkList));
+			}
+		});
+		NimbusJwtEncoder jwtEncoder = new NimbusJwtEncoder(jwkSource);
+		JwsHeader jwsHeader = JwsHeader.with(SignatureAlgorithm.RS256).build();
+		List<JwtEncoderParameters> parameters = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			JwtClaimsSet jwtClaimsSet = TestJwtClaimsSets.jwtClaimsSet().id("id-" + i).build();
+			parameters.add(JwtEncoderParameters.from(jwsHeader, jwtClaimsSet));
+		}
+		parameters.add(JwtEncoderParameters.from(TestJwtClaimsSets.jwtClaimsSet().id("id-3").build()));
+
+		List<Jwt> encodedJwts = jwtEncoder.encodeAll(parameters);
+
+		verify(jwkSource, times(2)).get(any(), any());
+		NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withPublicKey(rsaJwk.toRSAPublicKey()).build();
+		assertThat(encodedJwts).hasSize(4);
+		for (int i = 0; i < encodedJwts.size(); i++) {
+			Jwt encodedJwt = encodedJwts.get(i);
+			assertThat(encodedJwt.getId()).isEqualTo("id-" + i);
+			assertThat(encodedJwt.getHeaders().get(JoseHeaderNames.KID)).isEqualTo("rsa-jwk");
+			assertThat(jwtDecoder.decode(encodedJwt.getTokenValue()).getId()).isEqualTo("id-" + i);
+		}
+	}
+
+	@Test
+	public void encodeWhenBatchAndKeySelectionFailsThenThrowJwtEncodingException() {
+		JwtClaimsSet jwtClaimsSet = TestJwtClaimsSets.jwtClaimsSet().build();
+		List<JwtEncoderParameters> parameters = Collections.singletonList(JwtEncoderParameters.from(jwtClaimsSet));
+		assertThatExceptionOfType(JwtEncodingException.class).isThrownBy(() -> this.jwtEncoder.encodeAll(parameters))
+			.withMessageContaining("Failed to select a JWK signing key");
+	}
+
 	private static final class JwkListResultCaptor implements Answer<List<JWK>> {
 
 		private List<JWK> result;
@@ -46,6 +46,7 @@ import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
 import com.nimbusds.jose.proc.JWKSecurityContext;
 import com.nimbusds.jose.proc.JWSKeySelector;
 import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
@@ -75,6 +76,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -152,6 +154,35 @@ public class NimbusReactiveJwtDecoderTests {
 		assertThat(jwt.getClaims().get("scope")).isEqualTo("message:read");
 	}
 
+	@Test
+	public void decodeWhenJwtCacheEnabledThenVerifiesTokenOnce() {
+		Converter<JWT, Mono<JWTClaimsSet>> jwtProcessor = mock(Converter.class);
+		given(jwtProcessor.convert(any(JWT.class)))
+			.willReturn(Mono.just(new JWTClaimsSet.Builder().claim("scope", "message:read").build()));
+		NimbusReactiveJwtDecoder decoder = new NimbusReactiveJwtDecoder(jwtProcessor);
+		decoder.setJwtCacheMaxSize(10);
+		Jwt first = decoder.decode(this.messageReadToken).block();
+		Jwt second = decoder.decode(this.messageReadToken).block();
+		assertThat(second).isSameAs(first);
+		verify(jwtProcessor, times(1)).convert(any(JWT.class));
+	}
+
+	@Test
+	public void decodeWhenCachedJwtFailsValidationThenFails() {
+		OAuth2TokenValidator<Jwt> jwtValidator = mock(OAuth2TokenValidator.class);
+		OAuth2Error error = new OAuth2Error("mock-error", "mock-description", "mock-uri");
+		given(jwtValidator.validate(any(Jwt.class))).willReturn(OAuth2TokenValidatorResult.success(),
+				OAuth2TokenValidatorResult.failure(error));
+		this.decoder.setJwtValidator(jwtValidator);
+		this.decoder.setJwtCacheMaxSize(10);
+		this.decoder.decode(this.messageReadToken).block();
+		// @formatter:off
+		assertThatExceptionOfType(JwtValidationException.class)
+				.isThrownBy(() -> this.decoder.decode(this.messageReadToken).block())
+				.withMessageContaining("mock-description");
+		// @formatter:on
+	}
+
 	@Test
 	public void decodeWhenRSAPublicKeyThenSuccess() throws Exception {
 		byte[] bytes = Base64.getDecoder()
@@ -285,6 +316,20 @@ public class NimbusReactiveJwtDecoderTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void decodeWhenMappedClaimConverterFailsThenBadJwtException() {
+		Converter<Object, ?> failing = (claim) -> {
+			throw new IllegalArgumentException("bad scope");
+		};
+		this.decoder.setClaimSetConverter(
+				MappedJwtClaimSetConverter.withDefaults(Collections.singletonMap("scope", failing)));
+		// @formatter:off
+		assertThatExceptionOfType(BadJwtException.class)
+				.isThrownBy(() -> this.decoder.decode(this.messageReadToken).block())
+				.withMessageContaining("bad scope");
+		// @formatter:on
+	}
+
 	@Test
 	public void setJwtValidatorWhenGivenNullThrowsIllegalArgumentException() {
 		// @formatter:off
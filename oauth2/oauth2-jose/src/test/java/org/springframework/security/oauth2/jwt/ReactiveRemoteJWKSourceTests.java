@@ -16,10 +16,16 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+import com.nimbusds.jose.RemoteKeySourceException;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKMatcher;
 import com.nimbusds.jose.jwk.JWKSelector;
@@ -34,14 +40,21 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 
+import org.springframework.security.metrics.SecurityMetricsRecorder;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author Rob Winch
@@ -50,6 +63,8 @@ import static org.mockito.BDDMockito.willThrow;
 @ExtendWith(MockitoExtension.class)
 public class ReactiveRemoteJWKSourceTests {
 
+	private static final Instant NOW = Instant.parse("2022-01-01T00:00:00Z");
+
 	@Mock
 	private JWKMatcher matcher;
 
@@ -180,4 +195,64 @@ public class ReactiveRemoteJWKSourceTests {
 		assertThat(actual).isNotEmpty();
 	}
 
+	@Test
+	public void getWhenConcurrentRequestsThenSingleRetrieval() {
+		this.server = new MockWebServer();
+		this.source = new ReactiveRemoteJWKSource(this.server.url("/").toString());
+		this.server.enqueue(new MockResponse().setBody(this.keys).setBodyDelay(200, TimeUnit.MILLISECONDS));
+		given(this.matcher.matches(any())).willReturn(true);
+		Mono.zip(this.source.get(this.selector), this.source.get(this.selector)).block();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getWhenRefreshAheadDueThenReturnsCurrentKeysAndRefreshes() throws Exception {
+		SecurityMetricsRecorder recorder = mock(SecurityMetricsRecorder.class);
+		this.source.setRefreshAhead(Duration.ofMinutes(5), Duration.ofMinutes(1));
+		this.source.setMetricsRecorder(recorder);
+		this.source.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		this.server.enqueue(new MockResponse().setBody(this.keys2));
+		given(this.matcher.matches(any())).willReturn(true);
+		assertThat(this.source.get(this.selector).block()).hasSize(2);
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(4)), ZoneOffset.UTC));
+		assertThat(this.source.get(this.selector).block()).hasSize(2);
+		verify(recorder, timeout(5000)).record(eq(RefreshAheadJWKSource.METRIC_NAME),
+				argThat((tags) -> "refresh_ahead".equals(tags.get("trigger"))), anyLong());
+		assertThat(this.source.get(this.selector).block()).hasSize(1);
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenPastMaxStalenessAndRefreshFailsThenError() {
+		this.source.setRefreshAhead(Duration.ofMinutes(5), Duration.ofMinutes(1));
+		this.source.setMaxStaleness(Duration.ZERO);
+		this.source.setMinRefreshInterval(Duration.ofSeconds(30));
+		this.source.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+		given(this.matcher.matches(any())).willReturn(true);
+		assertThat(this.source.get(this.selector).block()).isNotEmpty();
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(5)), ZoneOffset.UTC));
+		assertThatExceptionOfType(WebClientResponseException.class)
+			.isThrownBy(() -> this.source.get(this.selector).block());
+		assertThatExceptionOfType(RuntimeException.class).isThrownBy(() -> this.source.get(this.selector).block())
+			.withRootCauseInstanceOf(RemoteKeySourceException.class);
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenUnknownKeyIdWithinMinRefreshIntervalThenNotRefreshed() {
+		this.source.setMinRefreshInterval(Duration.ofSeconds(30));
+		this.source.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		this.server.enqueue(new MockResponse().setBody(this.keys));
+		this.server.enqueue(new MockResponse().setBody(this.keys));
+		given(this.matcher.matches(any())).willReturn(false);
+		given(this.matcher.getKeyIDs()).willReturn(Collections.singleton("unknown"));
+		assertThat(this.source.get(this.selector).block()).isEmpty();
+		assertThat(this.source.get(this.selector).block()).isEmpty();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+		this.source.setClock(Clock.fixed(NOW.plusSeconds(31), ZoneOffset.UTC));
+		assertThat(this.source.get(this.selector).block()).isEmpty();
+		assertThat(this.server.getRequestCount()).isEqualTo(3);
+	}
+
 }
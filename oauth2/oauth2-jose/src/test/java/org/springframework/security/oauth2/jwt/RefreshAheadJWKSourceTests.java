@@ -0,0 +1,242 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.metrics.SecurityMetricsRecorder;
+import org.springframework.security.oauth2.jose.TestKeys;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link RefreshAheadJWKSource}
+ */
+public class RefreshAheadJWKSourceTests {
+
+	private static final Instant NOW = Instant.parse("2022-01-01T00:00:00Z");
+
+	private final JWKSelector one = new JWKSelector(new JWKMatcher.Builder().keyID("one").build());
+
+	private final JWKSelector two = new JWKSelector(new JWKMatcher.Builder().keyID("two").build());
+
+	private URL url;
+
+	private ResourceRetriever retriever;
+
+	private SecurityMetricsRecorder recorder;
+
+	private RefreshAheadJWKSource source;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		this.url = new URL("https://issuer/.well-known/jwks.json");
+		this.retriever = mock(ResourceRetriever.class);
+		this.recorder = mock(SecurityMetricsRecorder.class);
+		this.source = new RefreshAheadJWKSource(this.url, this.retriever, Duration.ofMinutes(5), Duration.ofMinutes(1));
+		this.source.setExecutor(Runnable::run);
+		this.source.setMetricsRecorder(this.recorder);
+		this.source.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenRefreshAheadNotLessThanLifespanThenIllegalArgument() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new RefreshAheadJWKSource(this.url, this.retriever,
+				Duration.ofMinutes(1), Duration.ofMinutes(1)));
+	}
+
+	@Test
+	public void getWhenFirstLookupThenRetrievesJwkSet() throws Exception {
+		given(this.retriever.retrieveResource(this.url)).willReturn(jwkSet("one"));
+		List<JWK> keys = this.source.get(this.one, null);
+		assertThat(keys).extracting(JWK::getKeyID).containsExactly("one");
+		this.source.get(this.one, null);
+		verify(this.retriever, times(1)).retrieveResource(this.url);
+		verify(this.recorder).record(eq(RefreshAheadJWKSource.METRIC_NAME),
+				argThat((tags) -> "initial".equals(tags.get("trigger")) && "success".equals(tags.get("outcome"))),
+				anyLong());
+	}
+
+	@Test
+	public void getWhenFirstLookupFailsThenRemoteKeySourceException() throws Exception {
+		given(this.retriever.retrieveResource(this.url)).willThrow(new IOException("unavailable"));
+		assertThatExceptionOfType(RemoteKeySourceException.class).isThrownBy(() -> this.source.get(this.one, null))
+			.withMessageContaining("unavailable");
+	}
+
+	@Test
+	public void getWhenRefreshAheadDueThenRefreshesAndServesCurrentKeys() throws Exception {
+		List<JWK> served = new ArrayList<>();
+		given(this.retriever.retrieveResource(this.url)).willReturn(jwkSet("one"), jwkSet("two"));
+		this.source.get(this.one, null);
+		this.source.setExecutor((task) -> {
+			served.addAll(getUnchecked(this.one));
+			task.run();
+		});
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(4)), ZoneOffset.UTC));
+		assertThat(this.source.get(this.one, null)).extracting(JWK::getKeyID).containsExactly("one");
+		assertThat(served).extracting(JWK::getKeyID).containsExactly("one");
+		assertThat(this.source.get(this.two, null)).extracting(JWK::getKeyID).containsExactly("two");
+		verify(this.retriever, times(2)).retrieveResource(this.url);
+	}
+
+	@Test
+	public void getWhenRefreshAheadFailsThenKeepsCurrentKeys() throws Exception {
+		given(this.retriever.retrieveResource(this.url)).willReturn(jwkSet("one"))
+			.willThrow(new IOException("unavailable"));
+		this.source.get(this.one, null);
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(8)), ZoneOffset.UTC));
+		assertThat(this.source.get(this.one, null)).extracting(JWK::getKeyID).containsExactly("one");
+		assertThat(this.source.get(this.one, null)).extracting(JWK::getKeyID).containsExactly("one");
+		verify(this.retriever, times(2)).retrieveResource(this.url);
+		verify(this.recorder).record(eq(RefreshAheadJWKSource.METRIC_NAME),
+				argThat((tags) -> "refresh_ahead".equals(tags.get("trigger")) && "failure".equals(tags.get("outcome"))),
+				anyLong());
+	}
+
+	@Test
+	public void getWhenPastMaxStalenessAndRefreshFailsThenKeySourceException() throws Exception {
+		given(this.retriever.retrieveResource(this.url)).willReturn(jwkSet("one"))
+			.willThrow(new IOException("unavailable"));
+		this.source.setMaxStaleness(Duration.ofMinutes(2));
+		this.source.get(this.one, null);
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(6)), ZoneOffset.UTC));
+		assertThat(this.source.get(this.one, null)).extracting(JWK::getKeyID).containsExactly("one");
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(7)), ZoneOffset.UTC));
+		assertThatExceptionOfType(RemoteKeySourceException.class).isThrownBy(() -> this.source.get(this.one, null))
+			.withMessageContaining("unavailable");
+		verify(this.retriever, times(3)).retrieveResource(this.url);
+		assertThatExceptionOfType(RemoteKeySourceException.class).isThrownBy(() -> this.source.get(this.one, null))
+			.withMessageContaining("too stale");
+		verify(this.retriever, times(3)).retrieveResource(this.url);
+		verify(this.recorder).record(eq(RefreshAheadJWKSource.METRIC_NAME),
+				argThat((tags) -> "expired".equals(tags.get("trigger")) && "failure".equals(tags.get("outcome"))),
+				anyLong());
+	}
+
+	@Test
+	public void getWhenPastMaxStalenessAndRefreshSucceedsThenServesNewKeys() throws Exception {
+		given(this.retriever.retrieveResource(this.url)).willReturn(jwkSet("one"), jwkSet("two"));
+		this.source.setMaxStaleness(Duration.ZERO);
+		this.source.get(this.one, null);
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(5)), ZoneOffset.UTC));
+		assertThat(this.source.get(this.two, null)).extracting(JWK::getKeyID).containsExactly("two");
+	}
+
+	@Test
+	public void getWhenUnknownKeyIdThenRefreshesAtMostOncePerInterval() throws Exception {
+		given(this.retriever.retrieveResource(this.url)).willReturn(jwkSet("one"), jwkSet("one"), jwkSet("two"));
+		this.source.get(this.one, null);
+		assertThat(this.source.get(this.two, null)).isEmpty();
+		assertThat(this.source.get(this.two, null)).isEmpty();
+		verify(this.retriever, times(2)).retrieveResource(this.url);
+		this.source.setClock(Clock.fixed(NOW.plusSeconds(31), ZoneOffset.UTC));
+		assertThat(this.source.get(this.two, null)).extracting(JWK::getKeyID).containsExactly("two");
+		verify(this.retriever, times(3)).retrieveResource(this.url);
+	}
+
+	@Test
+	public void getWhenConcurrentFirstLookupsThenSingleRetrieval() throws Exception {
+		CountDownLatch retrieving = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(this.retriever.retrieveResource(any())).willAnswer((invocation) -> {
+			retrieving.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return jwkSet("one");
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			List<Future<List<JWK>>> lookups = new ArrayList<>();
+			lookups.add(executor.submit(() -> this.source.get(this.one, null)));
+			assertThat(retrieving.await(5, TimeUnit.SECONDS)).isTrue();
+			for (int i = 0; i < 3; i++) {
+				FutureTask<List<JWK>> lookup = new FutureTask<>(() -> this.source.get(this.one, null));
+				Thread waiter = new Thread(lookup);
+				waiter.start();
+				awaitWaiting(waiter);
+				lookups.add(lookup);
+			}
+			verify(this.retriever, times(1)).retrieveResource(this.url);
+			release.countDown();
+			for (Future<List<JWK>> lookup : lookups) {
+				assertThat(lookup.get(5, TimeUnit.SECONDS)).hasSize(1);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		verify(this.retriever, times(1)).retrieveResource(this.url);
+	}
+
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	private List<JWK> getUnchecked(JWKSelector selector) {
+		try {
+			return this.source.get(selector, null);
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static Resource jwkSet(String keyId) {
+		RSAKey key = new RSAKey.Builder(TestKeys.DEFAULT_PUBLIC_KEY).keyID(keyId).build();
+		return new Resource(new JWKSet(Collections.singletonList(key)).toString(), "application/json");
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.authentication;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Interns the {@link GrantedAuthority} created for each scope, and remembers the
+ * immutable authority collection derived from each space-delimited scope string, so that
+ * tokens carrying the same scopes share a single collection.
+ *
+ * <p>
+ * Both maps are bounded by {@code maxSize} and are cleared when they overflow.
+ *
+ * @since 5.8
+ */
+final class GrantedAuthorityCache {
+
+	private final String authorityPrefix;
+
+	private final int maxSize;
+
+	private final Map<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+
+	private final Map<String, Collection<GrantedAuthority>> scopes = new ConcurrentHashMap<>();
+
+	GrantedAuthorityCache(String authorityPrefix, int maxSize) {
+		this.authorityPrefix = authorityPrefix;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Get the authorities for the given space-delimited scope string
+	 * @param scope the scope claim value
+	 * @return an immutable collection of authorities
+	 */
+	Collection<GrantedAuthority> fromScopeString(String scope) {
+		Collection<GrantedAuthority> cached = this.scopes.get(scope);
+		if (cached != null) {
+			return cached;
+		}
+		List<GrantedAuthority> authorities = new ArrayList<>();
+		for (String authority : scope.split(" ")) {
+			authorities.add(authority(authority));
+		}
+		Collection<GrantedAuthority> collection = Collections.unmodifiableList(authorities);
+		if (this.scopes.size() >= this.maxSize) {
+			this.scopes.clear();
+		}
+		this.scopes.put(scope, collection);
+		return collection;
+	}
+
+	/**
+	 * Get the authorities for the given scopes
+	 * @param scopes the scopes
+	 * @return an immutable collection of authorities
+	 */
+	Collection<GrantedAuthority> fromScopes(Collection<String> scopes) {
+		List<GrantedAuthority> authorities = new ArrayList<>(scopes.size());
+		for (String authority : scopes) {
+			authorities.add(authority(authority));
+		}
+		return Collections.unmodifiableList(authorities);
+	}
+
+	/**
+	 * Get the interned authority for the given scope
+	 * @param scope the scope
+	 * @return the {@link GrantedAuthority}
+	 */
+	GrantedAuthority authority(String scope) {
+		GrantedAuthority authority = this.authorities.get(scope);
+		if (authority != null) {
+			return authority;
+		}
+		authority = new SimpleGrantedAuthority(this.authorityPrefix + scope);
+		if (this.authorities.size() >= this.maxSize) {
+			this.authorities.clear();
+		}
+		this.authorities.put(scope, authority);
+		return authority;
+	}
+
+}
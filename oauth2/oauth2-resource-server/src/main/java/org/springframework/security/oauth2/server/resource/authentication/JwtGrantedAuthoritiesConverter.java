@@ -51,6 +51,10 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 
 	private String authoritiesClaimName;
 
+	private int authoritiesCacheMaxSize;
+
+	private GrantedAuthorityCache authorityCache;
+
 	/**
 	 * Extract {@link GrantedAuthority}s from the given {@link Jwt}.
 	 * @param jwt The {@link Jwt} token
@@ -58,6 +62,10 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 	 */
 	@Override
 	public Collection<GrantedAuthority> convert(Jwt jwt) {
+		GrantedAuthorityCache authorityCache = this.authorityCache;
+		if (authorityCache != null) {
+			return getCachedAuthorities(jwt, authorityCache);
+		}
 		Collection<GrantedAuthority> grantedAuthorities = new ArrayList<>();
 		for (String authority : getAuthorities(jwt)) {
 			grantedAuthorities.add(new SimpleGrantedAuthority(this.authorityPrefix + authority));
@@ -75,6 +83,7 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 	public void setAuthorityPrefix(String authorityPrefix) {
 		Assert.notNull(authorityPrefix, "authorityPrefix cannot be null");
 		this.authorityPrefix = authorityPrefix;
+		this.authorityCache = createAuthorityCache();
 	}
 
 	/**
@@ -89,6 +98,31 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 		this.authoritiesClaimName = authoritiesClaimName;
 	}
 
+	/**
+	 * Sets the maximum number of distinct scope strings, and of distinct scopes, for
+	 * which authorities are remembered. When greater than 0, each scope maps to a single
+	 * shared {@link GrantedAuthority}, and tokens whose scope claim holds the same string
+	 * share one immutable authority collection instead of each getting a new one.
+	 *
+	 * <p>
+	 * Note that the collections returned by {@link #convert(Jwt)} are then unmodifiable.
+	 * Defaults to 0, which disables caching.
+	 * @param authoritiesCacheMaxSize the maximum number of cached entries
+	 * @since 5.8
+	 */
+	public void setAuthoritiesCacheMaxSize(int authoritiesCacheMaxSize) {
+		Assert.isTrue(authoritiesCacheMaxSize >= 0, "authoritiesCacheMaxSize cannot be negative");
+		this.authoritiesCacheMaxSize = authoritiesCacheMaxSize;
+		this.authorityCache = createAuthorityCache();
+	}
+
+	private GrantedAuthorityCache createAuthorityCache() {
+		if (this.authoritiesCacheMaxSize == 0) {
+			return null;
+		}
+		return new GrantedAuthorityCache(this.authorityPrefix, this.authoritiesCacheMaxSize);
+	}
+
 	private String getAuthoritiesClaimName(Jwt jwt) {
 		if (this.authoritiesClaimName != null) {
 			return this.authoritiesClaimName;
@@ -101,6 +135,25 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 		return null;
 	}
 
+	private Collection<GrantedAuthority> getCachedAuthorities(Jwt jwt, GrantedAuthorityCache authorityCache) {
+		String claimName = getAuthoritiesClaimName(jwt);
+		if (claimName == null) {
+			this.logger.trace("Returning no authorities since could not find any claims that might contain scopes");
+			return Collections.emptyList();
+		}
+		Object authorities = jwt.getClaim(claimName);
+		if (authorities instanceof String) {
+			if (StringUtils.hasText((String) authorities)) {
+				return authorityCache.fromScopeString((String) authorities);
+			}
+			return Collections.emptyList();
+		}
+		if (authorities instanceof Collection) {
+			return authorityCache.fromScopes(castAuthoritiesToCollection(authorities));
+		}
+		return Collections.emptyList();
+	}
+
 	private Collection<String> getAuthorities(Jwt jwt) {
 		String claimName = getAuthoritiesClaimName(jwt);
 		if (claimName == null) {
@@ -16,11 +16,27 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import javax.servlet.http.HttpServletRequest;
@@ -168,34 +184,291 @@ public final class JwtIssuerAuthenticationManagerResolver implements Authenticat
 
 	}
 
-	static class TrustedIssuerJwtAuthenticationManagerResolver implements AuthenticationManagerResolver<String> {
+	/**
+	 * An {@link AuthenticationManagerResolver} that creates and remembers a JWT-based
+	 * {@link AuthenticationManager} for each trusted issuer, discovering the issuer's
+	 * configuration the first time the issuer is seen.
+	 *
+	 * <p>
+	 * Concurrent requests for an issuer that is not yet known share a single discovery.
+	 * Looking up a known issuer does not lock. About {@link #setMaxIssuers(int)
+	 * maxIssuers} managers are kept: discovering one more evicts the least recently used
+	 * one, though concurrent discoveries may briefly exceed the limit. Known issuers can
+	 * be discovered ahead of the first request with {@link #warmUp(Collection)}, and,
+	 * when a {@link #setRefreshInterval(Duration) refreshInterval} is set, each issuer is
+	 * rediscovered in the background once its manager is older than the interval, while
+	 * requests keep using the current one. By default, warm-up and rediscovery run at
+	 * most 8 discoveries at a time and queue the others.
+	 *
+	 * <p>
+	 * To use it, pass it to
+	 * {@link JwtIssuerAuthenticationManagerResolver#JwtIssuerAuthenticationManagerResolver(AuthenticationManagerResolver)}.
+	 *
+	 * @since 5.8
+	 */
+	public static final class TrustedIssuerJwtAuthenticationManagerResolver
+			implements AuthenticationManagerResolver<String> {
+
+		private static final int DEFAULT_MAX_ISSUERS = 1000;
+
+		private static final int DEFAULT_CONCURRENCY_LIMIT = 8;
 
 		private final Log logger = LogFactory.getLog(getClass());
 
-		private final Map<String, AuthenticationManager> authenticationManagers = new ConcurrentHashMap<>();
+		private final Map<String, CachedAuthenticationManager> authenticationManagers = new ConcurrentHashMap<>();
+
+		private final AtomicLong accessClock = new AtomicLong();
 
 		private final Predicate<String> trustedIssuer;
 
-		TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer) {
+		private Function<String, AuthenticationManager> authenticationManagerFactory = (issuer) -> {
+			JwtDecoder jwtDecoder = JwtDecoders.fromIssuerLocation(issuer);
+			return new JwtAuthenticationProvider(jwtDecoder)::authenticate;
+		};
+
+		private volatile int maxIssuers = DEFAULT_MAX_ISSUERS;
+
+		private Duration refreshInterval;
+
+		private Executor executor;
+
+		private Clock clock = Clock.systemUTC();
+
+		/**
+		 * Construct a {@link TrustedIssuerJwtAuthenticationManagerResolver}
+		 * @param trustedIssuers the trusted issuers
+		 */
+		public TrustedIssuerJwtAuthenticationManagerResolver(Collection<String> trustedIssuers) {
+			this(toPredicate(trustedIssuers));
+		}
+
+		/**
+		 * Construct a {@link TrustedIssuerJwtAuthenticationManagerResolver}
+		 * @param trustedIssuer a predicate telling whether an issuer is trusted
+		 */
+		public TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer) {
+			Assert.notNull(trustedIssuer, "trustedIssuer cannot be null");
 			this.trustedIssuer = trustedIssuer;
+			this.executor = defaultExecutor();
+		}
+
+		private static Executor defaultExecutor() {
+			// each issuer queues at most one discovery per warm-up or refresh
+			AtomicInteger threads = new AtomicInteger();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_CONCURRENCY_LIMIT, DEFAULT_CONCURRENCY_LIMIT,
+					60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), (runnable) -> {
+						Thread thread = new Thread(runnable, "jwt-issuer-discovery-" + threads.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
+
+		private static Predicate<String> toPredicate(Collection<String> trustedIssuers) {
+			Assert.notEmpty(trustedIssuers, "trustedIssuers cannot be empty");
+			return Collections.unmodifiableCollection(new ArrayList<>(trustedIssuers))::contains;
 		}
 
 		@Override
 		public AuthenticationManager resolve(String issuer) {
-			if (this.trustedIssuer.test(issuer)) {
-				AuthenticationManager authenticationManager = this.authenticationManagers.computeIfAbsent(issuer,
-						(k) -> {
-							this.logger.debug("Constructing AuthenticationManager");
-							JwtDecoder jwtDecoder = JwtDecoders.fromIssuerLocation(issuer);
-							return new JwtAuthenticationProvider(jwtDecoder)::authenticate;
-						});
-				this.logger.debug(LogMessage.format("Resolved AuthenticationManager for issuer '%s'", issuer));
-				return authenticationManager;
-			}
-			else {
+			if (!this.trustedIssuer.test(issuer)) {
 				this.logger.debug("Did not resolve AuthenticationManager since issuer is not trusted");
+				return null;
+			}
+			CachedAuthenticationManager entry = this.authenticationManagers.get(issuer);
+			if (entry == null) {
+				CachedAuthenticationManager created = new CachedAuthenticationManager(new CompletableFuture<>(),
+						nextRefresh());
+				entry = this.authenticationManagers.putIfAbsent(issuer, created);
+				if (entry == null) {
+					entry = created;
+					accessed(entry);
+					evictIfFull();
+					create(issuer, entry);
+				}
+			}
+			accessed(entry);
+			AuthenticationManager authenticationManager = join(entry.authenticationManager);
+			refreshIfStale(issuer, entry);
+			this.logger.debug(LogMessage.format("Resolved AuthenticationManager for issuer '%s'", issuer));
+			return authenticationManager;
+		}
+
+		/**
+		 * Discover each of the given issuers in parallel, so that the first request from
+		 * each of them does not wait on discovery. Issuers that are not trusted are
+		 * skipped and failures are logged.
+		 * @param issuers the issuers to discover
+		 * @return a future that completes once every issuer has been attempted
+		 */
+		public CompletableFuture<Void> warmUp(Collection<String> issuers) {
+			Assert.notNull(issuers, "issuers cannot be null");
+			List<CompletableFuture<Void>> discoveries = new ArrayList<>();
+			for (String issuer : issuers) {
+				if (!this.trustedIssuer.test(issuer)) {
+					continue;
+				}
+				try {
+					discoveries.add(CompletableFuture.runAsync(() -> warmUp(issuer), this.executor));
+				}
+				catch (RejectedExecutionException ex) {
+					this.logger.debug(
+							LogMessage.format("Failed to warm up AuthenticationManager for issuer '%s'", issuer), ex);
+				}
+			}
+			return CompletableFuture.allOf(discoveries.toArray(new CompletableFuture[0]));
+		}
+
+		private void warmUp(String issuer) {
+			try {
+				resolve(issuer);
+			}
+			catch (RuntimeException ex) {
+				this.logger.debug(LogMessage.format("Failed to warm up AuthenticationManager for issuer '%s'", issuer),
+						ex);
+			}
+		}
+
+		private void create(String issuer, CachedAuthenticationManager entry) {
+			try {
+				this.logger.debug("Constructing AuthenticationManager");
+				entry.authenticationManager.complete(this.authenticationManagerFactory.apply(issuer));
+			}
+			catch (RuntimeException ex) {
+				this.authenticationManagers.remove(issuer, entry);
+				entry.authenticationManager.completeExceptionally(ex);
+			}
+		}
+
+		private void accessed(CachedAuthenticationManager entry) {
+			// the clock only moves when the issuer differs from the last one accessed, so
+			// that a run of requests for the same issuer does not write to it
+			long clock = this.accessClock.get();
+			if (entry.lastAccessed != clock) {
+				entry.lastAccessed = this.accessClock.incrementAndGet();
+			}
+		}
+
+		private void evictIfFull() {
+			if (this.authenticationManagers.size() <= this.maxIssuers) {
+				return;
+			}
+			Map.Entry<String, CachedAuthenticationManager> eldest = null;
+			for (Map.Entry<String, CachedAuthenticationManager> candidate : this.authenticationManagers.entrySet()) {
+				if (eldest == null || candidate.getValue().lastAccessed < eldest.getValue().lastAccessed) {
+					eldest = candidate;
+				}
+			}
+			if (eldest != null) {
+				this.authenticationManagers.remove(eldest.getKey(), eldest.getValue());
+			}
+		}
+
+		private void refreshIfStale(String issuer, CachedAuthenticationManager entry) {
+			if (this.refreshInterval == null || this.clock.instant().isBefore(entry.refreshAt)
+					|| !entry.refreshing.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				this.executor.execute(() -> refresh(issuer, entry));
+			}
+			catch (RejectedExecutionException ex) {
+				this.logger.debug(LogMessage.format("Failed to refresh AuthenticationManager for issuer '%s'", issuer),
+						ex);
+				entry.refreshing.set(false);
+			}
+		}
+
+		private void refresh(String issuer, CachedAuthenticationManager entry) {
+			try {
+				AuthenticationManager authenticationManager = this.authenticationManagerFactory.apply(issuer);
+				CachedAuthenticationManager refreshed = new CachedAuthenticationManager(
+						CompletableFuture.completedFuture(authenticationManager), nextRefresh());
+				refreshed.lastAccessed = entry.lastAccessed;
+				this.authenticationManagers.replace(issuer, entry, refreshed);
+			}
+			catch (RuntimeException ex) {
+				this.logger.debug(LogMessage.format("Failed to refresh AuthenticationManager for issuer '%s'", issuer),
+						ex);
+				entry.refreshAt = nextRefresh();
+				entry.refreshing.set(false);
+			}
+		}
+
+		private Instant nextRefresh() {
+			return (this.refreshInterval != null) ? this.clock.instant().plus(this.refreshInterval) : Instant.MAX;
+		}
+
+		private static AuthenticationManager join(CompletableFuture<AuthenticationManager> authenticationManager) {
+			try {
+				return authenticationManager.join();
 			}
-			return null;
+			catch (CompletionException ex) {
+				if (ex.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) ex.getCause();
+				}
+				throw ex;
+			}
+		}
+
+		/**
+		 * Keep at most this many {@link AuthenticationManager}s, evicting the least
+		 * recently used one. Defaults to 1000.
+		 * @param maxIssuers the maximum number of issuers to remember
+		 */
+		public void setMaxIssuers(int maxIssuers) {
+			Assert.isTrue(maxIssuers > 0, "maxIssuers must be greater than 0");
+			this.maxIssuers = maxIssuers;
+		}
+
+		/**
+		 * Rediscover an issuer in the background once its {@link AuthenticationManager}
+		 * is older than this. By default, issuers are never rediscovered.
+		 * @param refreshInterval the time after which to rediscover an issuer
+		 */
+		public void setRefreshInterval(Duration refreshInterval) {
+			Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+			Assert.isTrue(!refreshInterval.isNegative() && !refreshInterval.isZero(),
+					"refreshInterval must be positive");
+			this.refreshInterval = refreshInterval;
+		}
+
+		/**
+		 * Use this {@link Executor} for warm-up and background rediscovery. It should
+		 * queue discoveries rather than block the submitting thread. The default runs at
+		 * most 8 discoveries at a time on daemon threads, and queues the others.
+		 * @param executor the {@link Executor} to use
+		 */
+		public void setExecutor(Executor executor) {
+			Assert.notNull(executor, "executor cannot be null");
+			this.executor = executor;
+		}
+
+		void setAuthenticationManagerFactory(Function<String, AuthenticationManager> authenticationManagerFactory) {
+			this.authenticationManagerFactory = authenticationManagerFactory;
+		}
+
+		void setClock(Clock clock) {
+			this.clock = clock;
+		}
+
+		private static final class CachedAuthenticationManager {
+
+			private final CompletableFuture<AuthenticationManager> authenticationManager;
+
+			private final AtomicBoolean refreshing = new AtomicBoolean();
+
+			private volatile Instant refreshAt;
+
+			private volatile long lastAccessed;
+
+			private CachedAuthenticationManager(CompletableFuture<AuthenticationManager> authenticationManager,
+					Instant refreshAt) {
+				this.authenticationManager = authenticationManager;
+				this.refreshAt = refreshAt;
+			}
+
 		}
 
 	}
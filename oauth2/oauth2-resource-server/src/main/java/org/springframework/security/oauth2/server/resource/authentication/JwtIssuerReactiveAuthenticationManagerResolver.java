@@ -16,19 +16,29 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import com.nimbusds.jwt.JWTParser;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.log.LogMessage;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
@@ -166,31 +176,232 @@ public final class JwtIssuerReactiveAuthenticationManagerResolver
 
 	}
 
-	static class TrustedIssuerJwtAuthenticationManagerResolver
+	/**
+	 * A {@link ReactiveAuthenticationManagerResolver} that creates and remembers a
+	 * JWT-based {@link ReactiveAuthenticationManager} for each trusted issuer,
+	 * discovering the issuer's configuration the first time the issuer is seen.
+	 *
+	 * <p>
+	 * Concurrent requests for an issuer that is not yet known share a single discovery.
+	 * Looking up a known issuer does not lock. About {@link #setMaxIssuers(int)
+	 * maxIssuers} managers are kept: discovering one more evicts the least recently used
+	 * one, though concurrent discoveries may briefly exceed the limit. Known issuers can
+	 * be discovered ahead of the first request with {@link #warmUp(Collection)}, and,
+	 * when a {@link #setRefreshInterval(Duration) refreshInterval} is set, each issuer is
+	 * rediscovered in the background once its manager is older than the interval, while
+	 * requests keep using the current one. Warm-up and rediscovery each run at most 8
+	 * discoveries at a time.
+	 *
+	 * <p>
+	 * To use it, pass it to
+	 * {@link JwtIssuerReactiveAuthenticationManagerResolver#JwtIssuerReactiveAuthenticationManagerResolver(ReactiveAuthenticationManagerResolver)}.
+	 *
+	 * @since 5.8
+	 */
+	public static final class TrustedIssuerJwtAuthenticationManagerResolver
 			implements ReactiveAuthenticationManagerResolver<String> {
 
-		private final Map<String, Mono<ReactiveAuthenticationManager>> authenticationManagers = new ConcurrentHashMap<>();
+		private static final int DEFAULT_MAX_ISSUERS = 1000;
+
+		private static final int CONCURRENCY_LIMIT = 8;
+
+		private final Log logger = LogFactory.getLog(getClass());
+
+		private final Map<String, CachedAuthenticationManager> authenticationManagers = new ConcurrentHashMap<>();
+
+		private final AtomicLong accessClock = new AtomicLong();
+
+		private final AtomicInteger refreshing = new AtomicInteger();
 
 		private final Predicate<String> trustedIssuer;
 
-		TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer) {
+		// @formatter:off
+		private Function<String, Mono<ReactiveAuthenticationManager>> authenticationManagerFactory = (issuer) -> Mono
+				.<ReactiveAuthenticationManager>fromCallable(() -> new JwtReactiveAuthenticationManager(ReactiveJwtDecoders.fromIssuerLocation(issuer)))
+				.subscribeOn(Schedulers.boundedElastic());
+		// @formatter:on
+
+		private volatile int maxIssuers = DEFAULT_MAX_ISSUERS;
+
+		private Duration refreshInterval;
+
+		private Clock clock = Clock.systemUTC();
+
+		/**
+		 * Construct a {@link TrustedIssuerJwtAuthenticationManagerResolver}
+		 * @param trustedIssuers the trusted issuers
+		 */
+		public TrustedIssuerJwtAuthenticationManagerResolver(Collection<String> trustedIssuers) {
+			this(toPredicate(trustedIssuers));
+		}
+
+		/**
+		 * Construct a {@link TrustedIssuerJwtAuthenticationManagerResolver}
+		 * @param trustedIssuer a predicate telling whether an issuer is trusted
+		 */
+		public TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer) {
+			Assert.notNull(trustedIssuer, "trustedIssuer cannot be null");
 			this.trustedIssuer = trustedIssuer;
 		}
 
+		private static Predicate<String> toPredicate(Collection<String> trustedIssuers) {
+			Assert.notEmpty(trustedIssuers, "trustedIssuers cannot be empty");
+			return new ArrayList<>(trustedIssuers)::contains;
+		}
+
 		@Override
 		public Mono<ReactiveAuthenticationManager> resolve(String issuer) {
 			if (!this.trustedIssuer.test(issuer)) {
 				return Mono.empty();
 			}
+			return Mono.defer(() -> {
+				CachedAuthenticationManager entry = this.authenticationManagers.get(issuer);
+				if (entry == null) {
+					CachedAuthenticationManager created = new CachedAuthenticationManager(create(issuer), nextRefresh());
+					entry = this.authenticationManagers.putIfAbsent(issuer, created);
+					if (entry == null) {
+						entry = created;
+						accessed(entry);
+						evictIfFull();
+					}
+				}
+				accessed(entry);
+				CachedAuthenticationManager resolved = entry;
+				return resolved.authenticationManager.doOnNext((manager) -> refreshIfStale(issuer, resolved));
+			});
+		}
+
+		/**
+		 * Discover each of the given issuers in parallel, so that the first request from
+		 * each of them does not wait on discovery. Issuers that are not trusted are
+		 * skipped and failures are logged.
+		 * @param issuers the issuers to discover
+		 * @return a {@link Mono} that completes once every issuer has been attempted
+		 */
+		public Mono<Void> warmUp(Collection<String> issuers) {
+			Assert.notNull(issuers, "issuers cannot be null");
 			// @formatter:off
-			return this.authenticationManagers.computeIfAbsent(issuer,
-					(k) -> Mono.<ReactiveAuthenticationManager>fromCallable(() -> new JwtReactiveAuthenticationManager(ReactiveJwtDecoders.fromIssuerLocation(k)))
-							.subscribeOn(Schedulers.boundedElastic())
-							.cache((manager) -> Duration.ofMillis(Long.MAX_VALUE), (ex) -> Duration.ZERO, () -> Duration.ZERO)
-			);
+			return Flux.fromIterable(issuers)
+					.flatMap((issuer) -> resolve(issuer)
+							.onErrorResume((ex) -> {
+								this.logger.debug(LogMessage.format("Failed to warm up ReactiveAuthenticationManager for issuer '%s'", issuer), ex);
+								return Mono.empty();
+							}),
+							CONCURRENCY_LIMIT
+					)
+					.then();
 			// @formatter:on
 		}
 
+		private Mono<ReactiveAuthenticationManager> create(String issuer) {
+			return this.authenticationManagerFactory.apply(issuer)
+				.cache((manager) -> Duration.ofMillis(Long.MAX_VALUE), (ex) -> Duration.ZERO, () -> Duration.ZERO);
+		}
+
+		private void accessed(CachedAuthenticationManager entry) {
+			// the clock only moves when the issuer differs from the last one accessed, so
+			// that a run of requests for the same issuer does not write to it
+			long clock = this.accessClock.get();
+			if (entry.lastAccessed != clock) {
+				entry.lastAccessed = this.accessClock.incrementAndGet();
+			}
+		}
+
+		private void evictIfFull() {
+			if (this.authenticationManagers.size() <= this.maxIssuers) {
+				return;
+			}
+			Map.Entry<String, CachedAuthenticationManager> eldest = null;
+			for (Map.Entry<String, CachedAuthenticationManager> candidate : this.authenticationManagers.entrySet()) {
+				if (eldest == null || candidate.getValue().lastAccessed < eldest.getValue().lastAccessed) {
+					eldest = candidate;
+				}
+			}
+			if (eldest != null) {
+				this.authenticationManagers.remove(eldest.getKey(), eldest.getValue());
+			}
+		}
+
+		private void refreshIfStale(String issuer, CachedAuthenticationManager entry) {
+			if (this.refreshInterval == null || this.clock.instant().isBefore(entry.refreshAt)
+					|| !entry.refreshing.compareAndSet(false, true)) {
+				return;
+			}
+			if (this.refreshing.incrementAndGet() > CONCURRENCY_LIMIT) {
+				// retried on a later request, once fewer issuers are being refreshed
+				this.refreshing.decrementAndGet();
+				entry.refreshing.set(false);
+				return;
+			}
+			// @formatter:off
+			this.authenticationManagerFactory.apply(issuer)
+					.doFinally((signal) -> this.refreshing.decrementAndGet())
+					.subscribe((manager) -> {
+						CachedAuthenticationManager refreshed = new CachedAuthenticationManager(Mono.just(manager), nextRefresh());
+						refreshed.lastAccessed = entry.lastAccessed;
+						this.authenticationManagers.replace(issuer, entry, refreshed);
+					}, (ex) -> {
+						this.logger.debug(LogMessage.format("Failed to refresh ReactiveAuthenticationManager for issuer '%s'", issuer), ex);
+						entry.refreshAt = nextRefresh();
+						entry.refreshing.set(false);
+					});
+			// @formatter:on
+		}
+
+		private Instant nextRefresh() {
+			return (this.refreshInterval != null) ? this.clock.instant().plus(this.refreshInterval) : Instant.MAX;
+		}
+
+		/**
+		 * Keep at most this many {@link ReactiveAuthenticationManager}s, evicting the
+		 * least recently used one. Defaults to 1000.
+		 * @param maxIssuers the maximum number of issuers to remember
+		 */
+		public void setMaxIssuers(int maxIssuers) {
+			Assert.isTrue(maxIssuers > 0, "maxIssuers must be greater than 0");
+			this.maxIssuers = maxIssuers;
+		}
+
+		/**
+		 * Rediscover an issuer in the background once its
+		 * {@link ReactiveAuthenticationManager} is older than this. By default, issuers
+		 * are never rediscovered.
+		 * @param refreshInterval the time after which to rediscover an issuer
+		 */
+		public void setRefreshInterval(Duration refreshInterval) {
+			Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+			Assert.isTrue(!refreshInterval.isNegative() && !refreshInterval.isZero(),
+					"refreshInterval must be positive");
+			this.refreshInterval = refreshInterval;
+		}
+
+		void setAuthenticationManagerFactory(
+				Function<String, Mono<ReactiveAuthenticationManager>> authenticationManagerFactory) {
+			this.authenticationManagerFactory = authenticationManagerFactory;
+		}
+
+		void setClock(Clock clock) {
+			this.clock = clock;
+		}
+
+		private static final class CachedAuthenticationManager {
+
+			private final Mono<ReactiveAuthenticationManager> authenticationManager;
+
+			private final AtomicBoolean refreshing = new AtomicBoolean();
+
+			private volatile Instant refreshAt;
+
+			private volatile long lastAccessed;
+
+			private CachedAuthenticationManager(Mono<ReactiveAuthenticationManager> authenticationManager,
+					Instant refreshAt) {
+				this.authenticationManager = authenticationManager;
+				this.refreshAt = refreshAt;
+			}
+
+		}
+
 	}
 
 }
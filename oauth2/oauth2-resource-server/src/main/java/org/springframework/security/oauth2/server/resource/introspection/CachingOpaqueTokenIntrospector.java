@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link OpaqueTokenIntrospector} that remembers the results of the
+ * {@link OpaqueTokenIntrospector} it decorates, so that a token is not sent to the
+ * introspection endpoint on every request.
+ *
+ * <p>
+ * An active token is cached until the earlier of its {@code exp} attribute and
+ * {@link #setMaxTtl(Duration) maxTtl}. A token rejected with a
+ * {@link BadOpaqueTokenException} is cached for {@link #setNegativeTtl(Duration)
+ * negativeTtl}, which defaults to not caching rejections at all. Other failures, like the
+ * endpoint being unavailable, are never cached.
+ *
+ * <p>
+ * Concurrent introspections of the same token are collapsed into a single call to the
+ * delegate, whose outcome is shared by all callers.
+ *
+ * <p>
+ * Note that a token revoked at the authorization server is still accepted until its cache
+ * entry expires, so choose {@code maxTtl} accordingly.
+ *
+ * @since 5.8
+ * @see CachingReactiveOpaqueTokenIntrospector
+ */
+public final class CachingOpaqueTokenIntrospector implements OpaqueTokenIntrospector {
+
+	private final OpaqueTokenIntrospector delegate;
+
+	private final IntrospectionCache cache = new IntrospectionCache();
+
+	private final Map<String, CompletableFuture<OAuth2AuthenticatedPrincipal>> inflight = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct a {@link CachingOpaqueTokenIntrospector}
+	 * @param delegate the {@link OpaqueTokenIntrospector} to cache the results of
+	 */
+	public CachingOpaqueTokenIntrospector(OpaqueTokenIntrospector delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public OAuth2AuthenticatedPrincipal introspect(String token) {
+		String digest = IntrospectionCache.digest(token);
+		IntrospectionCache.Entry entry = this.cache.get(digest);
+		if (entry != null) {
+			return entry.principal();
+		}
+		CompletableFuture<OAuth2AuthenticatedPrincipal> introspection = new CompletableFuture<>();
+		CompletableFuture<OAuth2AuthenticatedPrincipal> existing = this.inflight.putIfAbsent(digest, introspection);
+		if (existing != null) {
+			return join(existing);
+		}
+		try {
+			OAuth2AuthenticatedPrincipal principal = this.delegate.introspect(token);
+			this.cache.put(digest, principal);
+			introspection.complete(principal);
+			return principal;
+		}
+		catch (BadOpaqueTokenException ex) {
+			this.cache.putInvalid(digest, ex);
+			introspection.completeExceptionally(ex);
+			throw ex;
+		}
+		catch (RuntimeException | Error ex) {
+			introspection.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.inflight.remove(digest, introspection);
+		}
+	}
+
+	private OAuth2AuthenticatedPrincipal join(CompletableFuture<OAuth2AuthenticatedPrincipal> introspection) {
+		try {
+			return introspection.join();
+		}
+		catch (CompletionException ex) {
+			// rethrow what the delegate threw, as if this caller had introspected the token
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			if (ex.getCause() instanceof Error) {
+				throw (Error) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Use this maximum number of cached tokens. Defaults to 10000.
+	 * @param maxSize the maximum number of cached tokens
+	 */
+	public void setMaxSize(int maxSize) {
+		this.cache.setMaxSize(maxSize);
+	}
+
+	/**
+	 * Cache an active token for at most this long, even if its {@code exp} is later.
+	 * Defaults to 5 minutes.
+	 * @param maxTtl the maximum time to cache an active token
+	 */
+	public void setMaxTtl(Duration maxTtl) {
+		this.cache.setMaxTtl(maxTtl);
+	}
+
+	/**
+	 * Cache a token rejected with a {@link BadOpaqueTokenException} for this long.
+	 * Defaults to {@link Duration#ZERO}, meaning rejections are not cached.
+	 * @param negativeTtl the time to cache a rejected token
+	 */
+	public void setNegativeTtl(Duration negativeTtl) {
+		this.cache.setNegativeTtl(negativeTtl);
+	}
+
+	/**
+	 * Use this {@link Clock} when computing cache expiry
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		this.cache.setClock(clock);
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+import org.springframework.util.Assert;
+
+/**
+ * A bounded cache of introspection results, keyed by a SHA-256 digest of the token so
+ * that the token itself is not retained.
+ *
+ * <p>
+ * An active token is kept until the earlier of its {@code exp} attribute and the maximum
+ * time to live. A token the authorization server reported as invalid is kept for the
+ * negative time to live, if any.
+ *
+ * @since 5.8
+ * @see CachingOpaqueTokenIntrospector
+ * @see CachingReactiveOpaqueTokenIntrospector
+ * @see ExpiringTokenCache
+ */
+final class IntrospectionCache {
+
+	private final ExpiringTokenCache<Entry> entries = new ExpiringTokenCache<>(10000);
+
+	private Duration maxTtl = Duration.ofMinutes(5);
+
+	private Duration negativeTtl = Duration.ZERO;
+
+	/**
+	 * Compute the key under which this token's result is cached
+	 * @param token the token
+	 * @return the digest of the token
+	 */
+	static String digest(String token) {
+		return ExpiringTokenCache.digest(token);
+	}
+
+	/**
+	 * Look up the cached result for this token
+	 * @param digest the {@link #digest(String) digest} of the token
+	 * @return the cached result, or {@code null} if it is absent or expired
+	 */
+	Entry get(String digest) {
+		return this.entries.get(digest);
+	}
+
+	/**
+	 * Remember this token's principal
+	 * @param digest the {@link #digest(String) digest} of the token
+	 * @param principal the principal returned by the authorization server
+	 */
+	void put(String digest, OAuth2AuthenticatedPrincipal principal) {
+		Instant expiresAt = this.entries.now().plus(this.maxTtl);
+		Instant exp = expiresAt(principal);
+		if (exp != null && exp.isBefore(expiresAt)) {
+			expiresAt = exp;
+		}
+		this.entries.put(digest, new Entry(principal, null), expiresAt);
+	}
+
+	/**
+	 * Remember that this token is invalid
+	 * @param digest the {@link #digest(String) digest} of the token
+	 * @param ex the exception describing why the token is invalid
+	 */
+	void putInvalid(String digest, BadOpaqueTokenException ex) {
+		if (this.negativeTtl.isZero()) {
+			return;
+		}
+		Instant expiresAt = this.entries.now().plus(this.negativeTtl);
+		this.entries.put(digest, new Entry(null, ex.getMessage()), expiresAt);
+	}
+
+	int size() {
+		return this.entries.size();
+	}
+
+	void setMaxSize(int maxSize) {
+		this.entries.setMaxSize(maxSize);
+	}
+
+	void setMaxTtl(Duration maxTtl) {
+		Assert.notNull(maxTtl, "maxTtl cannot be null");
+		Assert.isTrue(!maxTtl.isNegative() && !maxTtl.isZero(), "maxTtl must be positive");
+		this.maxTtl = maxTtl;
+	}
+
+	void setNegativeTtl(Duration negativeTtl) {
+		Assert.notNull(negativeTtl, "negativeTtl cannot be null");
+		Assert.isTrue(!negativeTtl.isNegative(), "negativeTtl cannot be negative");
+		this.negativeTtl = negativeTtl;
+	}
+
+	void setClock(Clock clock) {
+		this.entries.setClock(clock);
+	}
+
+	private static Instant expiresAt(OAuth2AuthenticatedPrincipal principal) {
+		Object exp = principal.getAttribute(OAuth2TokenIntrospectionClaimNames.EXP);
+		if (exp instanceof Instant) {
+			return (Instant) exp;
+		}
+		if (exp instanceof Number) {
+			return Instant.ofEpochSecond(((Number) exp).longValue());
+		}
+		return null;
+	}
+
+	static final class Entry {
+
+		private final OAuth2AuthenticatedPrincipal principal;
+
+		private final String invalidReason;
+
+		private Entry(OAuth2AuthenticatedPrincipal principal, String invalidReason) {
+			this.principal = principal;
+			this.invalidReason = invalidReason;
+		}
+
+		/**
+		 * The cached principal
+		 * @return the principal
+		 * @throws BadOpaqueTokenException if the token was cached as invalid
+		 */
+		OAuth2AuthenticatedPrincipal principal() {
+			if (this.principal == null) {
+				throw new BadOpaqueTokenException(this.invalidReason);
+			}
+			return this.principal;
+		}
+
+	}
+
+}
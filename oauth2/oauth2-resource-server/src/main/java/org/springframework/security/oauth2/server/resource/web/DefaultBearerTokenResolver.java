@@ -16,9 +16,6 @@
 
 package org.springframework.security.oauth2.server.resource.web;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.http.HttpHeaders;
@@ -38,8 +35,7 @@ import org.springframework.util.StringUtils;
  */
 public final class DefaultBearerTokenResolver implements BearerTokenResolver {
 
-	private static final Pattern authorizationPattern = Pattern.compile("^Bearer (?<token>[a-zA-Z0-9-._~+/]+=*)$",
-			Pattern.CASE_INSENSITIVE);
+	private static final String BEARER_PREFIX = "bearer ";
 
 	private boolean allowFormEncodedBodyParameter = false;
 
@@ -106,12 +102,50 @@ public final class DefaultBearerTokenResolver implements BearerTokenResolver {
 		if (!StringUtils.startsWithIgnoreCase(authorization, "bearer")) {
 			return null;
 		}
-		Matcher matcher = authorizationPattern.matcher(authorization);
-		if (!matcher.matches()) {
+		String token = parseBearerToken(authorization);
+		if (token == null) {
 			BearerTokenError error = BearerTokenErrors.invalidToken("Bearer token is malformed");
 			throw new OAuth2AuthenticationException(error);
 		}
-		return matcher.group("token");
+		return token;
+	}
+
+	/**
+	 * Slice the token out of an {@code Authorization} header of the form
+	 * {@code Bearer <b64token>}, where the scheme is matched case-insensitively and the
+	 * token follows the <a href="https://tools.ietf.org/html/rfc6750#section-2.1" target=
+	 * "_blank">b64token</a> syntax
+	 * @param authorization the header value
+	 * @return the token, or {@code null} if the header does not have that form
+	 */
+	private static String parseBearerToken(String authorization) {
+		int length = authorization.length();
+		if (length <= BEARER_PREFIX.length()) {
+			return null;
+		}
+		for (int i = 0; i < BEARER_PREFIX.length(); i++) {
+			char c = authorization.charAt(i);
+			char expected = BEARER_PREFIX.charAt(i);
+			if (c != expected && !(expected != ' ' && (c | 0x20) == expected)) {
+				return null;
+			}
+		}
+		int i = BEARER_PREFIX.length();
+		while (i < length && isTokenChar(authorization.charAt(i))) {
+			i++;
+		}
+		if (i == BEARER_PREFIX.length()) {
+			return null;
+		}
+		while (i < length && authorization.charAt(i) == '=') {
+			i++;
+		}
+		return (i == length) ? authorization.substring(BEARER_PREFIX.length()) : null;
+	}
+
+	private static boolean isTokenChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.'
+				|| c == '_' || c == '~' || c == '+' || c == '/';
 	}
 
 	private static String resolveFromRequestParameters(HttpServletRequest request) {
@@ -17,8 +17,6 @@
 package org.springframework.security.oauth2.server.resource.web.server.authentication;
 
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import reactor.core.publisher.Mono;
 
@@ -47,8 +45,7 @@ import org.springframework.web.server.ServerWebExchange;
  */
 public class ServerBearerTokenAuthenticationConverter implements ServerAuthenticationConverter {
 
-	private static final Pattern authorizationPattern = Pattern.compile("^Bearer (?<token>[a-zA-Z0-9-._~+/]+=*)$",
-			Pattern.CASE_INSENSITIVE);
+	private static final String BEARER_PREFIX = "bearer ";
 
 	private boolean allowUriQueryParameter = false;
 
@@ -127,12 +124,50 @@ public class ServerBearerTokenAuthenticationConverter implements ServerAuthentic
 		if (!StringUtils.startsWithIgnoreCase(authorization, "bearer")) {
 			return null;
 		}
-		Matcher matcher = authorizationPattern.matcher(authorization);
-		if (!matcher.matches()) {
+		String token = parseBearerToken(authorization);
+		if (token == null) {
 			BearerTokenError error = invalidTokenError();
 			throw new OAuth2AuthenticationException(error);
 		}
-		return matcher.group("token");
+		return token;
+	}
+
+	/**
+	 * Slice the token out of an {@code Authorization} header of the form
+	 * {@code Bearer <b64token>}, where the scheme is matched case-insensitively and the
+	 * token follows the <a href="https://tools.ietf.org/html/rfc6750#section-2.1" target=
+	 * "_blank">b64token</a> syntax
+	 * @param authorization the header value
+	 * @return the token, or {@code null} if the header does not have that form
+	 */
+	private static String parseBearerToken(String authorization) {
+		int length = authorization.length();
+		if (length <= BEARER_PREFIX.length()) {
+			return null;
+		}
+		for (int i = 0; i < BEARER_PREFIX.length(); i++) {
+			char c = authorization.charAt(i);
+			char expected = BEARER_PREFIX.charAt(i);
+			if (c != expected && !(expected != ' ' && (c | 0x20) == expected)) {
+				return null;
+			}
+		}
+		int i = BEARER_PREFIX.length();
+		while (i < length && isTokenChar(authorization.charAt(i))) {
+			i++;
+		}
+		if (i == BEARER_PREFIX.length()) {
+			return null;
+		}
+		while (i < length && authorization.charAt(i) == '=') {
+			i++;
+		}
+		return (i == length) ? authorization.substring(BEARER_PREFIX.length()) : null;
+	}
+
+	private static boolean isTokenChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.'
+				|| c == '_' || c == '~' || c == '+' || c == '/';
 	}
 
 	private static BearerTokenError invalidTokenError() {
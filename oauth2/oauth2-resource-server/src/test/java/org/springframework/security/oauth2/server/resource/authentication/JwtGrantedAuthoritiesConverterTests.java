@@ -28,6 +28,7 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.TestJwts;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 /**
@@ -256,4 +257,65 @@ public class JwtGrantedAuthoritiesConverterTests {
 		assertThat(authorities).isEmpty();
 	}
 
+	@Test
+	public void setAuthoritiesCacheMaxSizeWhenNegativeThenException() {
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> jwtGrantedAuthoritiesConverter.setAuthoritiesCacheMaxSize(-1));
+	}
+
+	@Test
+	public void convertWhenAuthoritiesCachedAndSameScopeThenSharesAuthorities() {
+		// @formatter:off
+		Jwt first = TestJwts.jwt()
+				.claim("scope", "message:read message:write")
+				.build();
+		Jwt second = TestJwts.jwt()
+				.claim("scope", "message:read message:write")
+				.build();
+		Jwt other = TestJwts.jwt()
+				.claim("scp", Arrays.asList("message:read"))
+				.build();
+		// @formatter:on
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesCacheMaxSize(16);
+		Collection<GrantedAuthority> authorities = jwtGrantedAuthoritiesConverter.convert(first);
+		assertThat(authorities).containsExactly(new SimpleGrantedAuthority("SCOPE_message:read"),
+				new SimpleGrantedAuthority("SCOPE_message:write"));
+		assertThat(jwtGrantedAuthoritiesConverter.convert(second)).isSameAs(authorities);
+		Collection<GrantedAuthority> otherAuthorities = jwtGrantedAuthoritiesConverter.convert(other);
+		assertThat(otherAuthorities).containsExactly(new SimpleGrantedAuthority("SCOPE_message:read"));
+		assertThat(otherAuthorities.iterator().next()).isSameAs(authorities.iterator().next());
+		assertThatExceptionOfType(UnsupportedOperationException.class)
+			.isThrownBy(() -> authorities.add(new SimpleGrantedAuthority("SCOPE_message:delete")));
+	}
+
+	@Test
+	public void convertWhenAuthoritiesCachedAndPrefixChangedThenUsesNewPrefix() {
+		// @formatter:off
+		Jwt jwt = TestJwts.jwt()
+				.claim("scope", "message:read")
+				.build();
+		// @formatter:on
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesCacheMaxSize(16);
+		assertThat(jwtGrantedAuthoritiesConverter.convert(jwt))
+			.containsExactly(new SimpleGrantedAuthority("SCOPE_message:read"));
+		jwtGrantedAuthoritiesConverter.setAuthorityPrefix("ROLE_");
+		assertThat(jwtGrantedAuthoritiesConverter.convert(jwt))
+			.containsExactly(new SimpleGrantedAuthority("ROLE_message:read"));
+	}
+
+	@Test
+	public void convertWhenAuthoritiesCachedAndEmptyScopeThenNoAuthorities() {
+		// @formatter:off
+		Jwt jwt = TestJwts.jwt()
+				.claim("scope", "")
+				.build();
+		// @formatter:on
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesCacheMaxSize(16);
+		assertThat(jwtGrantedAuthoritiesConverter.convert(jwt)).isEmpty();
+	}
+
 }
@@ -16,10 +16,24 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
@@ -244,6 +258,157 @@ public class JwtIssuerAuthenticationManagerResolverTests {
 			.isThrownBy(() -> new JwtIssuerAuthenticationManagerResolver((AuthenticationManagerResolver) null));
 	}
 
+	@Test
+	public void resolveWhenConcurrentFirstRequestsThenDiscoversOnce() throws Exception {
+		AtomicInteger discoveries = new AtomicInteger();
+		CountDownLatch discovering = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Collections.singletonList("trusted"));
+		resolver.setAuthenticationManagerFactory((issuer) -> {
+			discoveries.incrementAndGet();
+			discovering.countDown();
+			await(release);
+			return authenticationManager;
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<AuthenticationManager> first = executor.submit(() -> resolver.resolve("trusted"));
+			assertThat(discovering.await(5, TimeUnit.SECONDS)).isTrue();
+			FutureTask<AuthenticationManager> second = new FutureTask<>(() -> resolver.resolve("trusted"));
+			Thread waiter = new Thread(second);
+			waiter.start();
+			awaitWaiting(waiter);
+			assertThat(second.isDone()).isFalse();
+			assertThat(discoveries).hasValue(1);
+			release.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(authenticationManager);
+			assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(authenticationManager);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(discoveries).hasValue(1);
+	}
+
+	@Test
+	public void resolveWhenDiscoveryFailsThenRetriedOnNextRequest() {
+		AtomicInteger discoveries = new AtomicInteger();
+		AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Collections.singletonList("trusted"));
+		resolver.setAuthenticationManagerFactory((issuer) -> {
+			if (discoveries.incrementAndGet() == 1) {
+				throw new IllegalArgumentException("unavailable");
+			}
+			return authenticationManager;
+		});
+		assertThatIllegalArgumentException().isThrownBy(() -> resolver.resolve("trusted")).withMessage("unavailable");
+		assertThat(resolver.resolve("trusted")).isSameAs(authenticationManager);
+	}
+
+	@Test
+	public void resolveWhenMaxIssuersExceededThenLeastRecentlyUsedEvicted() {
+		Map<String, AtomicInteger> discoveries = new HashMap<>();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				(issuer) -> true);
+		resolver.setMaxIssuers(2);
+		resolver.setAuthenticationManagerFactory((issuer) -> {
+			discoveries.computeIfAbsent(issuer, (k) -> new AtomicInteger()).incrementAndGet();
+			return mock(AuthenticationManager.class);
+		});
+		resolver.resolve("one");
+		resolver.resolve("two");
+		resolver.resolve("one");
+		resolver.resolve("three");
+		resolver.resolve("one");
+		resolver.resolve("two");
+		assertThat(discoveries.get("one")).hasValue(1);
+		assertThat(discoveries.get("two")).hasValue(2);
+		assertThat(discoveries.get("three")).hasValue(1);
+	}
+
+	@Test
+	public void warmUpWhenIssuersThenTrustedIssuersDiscovered() {
+		Map<String, AuthenticationManager> authenticationManagers = new ConcurrentHashMap<>();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Arrays.asList("one", "two"));
+		resolver.setAuthenticationManagerFactory((issuer) -> {
+			if (issuer.equals("two")) {
+				throw new IllegalArgumentException("unavailable");
+			}
+			return authenticationManagers.computeIfAbsent(issuer, (k) -> mock(AuthenticationManager.class));
+		});
+		resolver.warmUp(Arrays.asList("one", "two", "untrusted")).join();
+		assertThat(authenticationManagers).containsOnlyKeys("one");
+		assertThat(resolver.resolve("one")).isSameAs(authenticationManagers.get("one"));
+	}
+
+	@Test
+	public void resolveWhenRefreshIntervalElapsedThenRediscoveredInBackground() {
+		Instant now = Instant.now();
+		AuthenticationManager first = mock(AuthenticationManager.class);
+		AuthenticationManager second = mock(AuthenticationManager.class);
+		AtomicInteger discoveries = new AtomicInteger();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Collections.singletonList("trusted"));
+		resolver.setExecutor(Runnable::run);
+		resolver.setRefreshInterval(Duration.ofMinutes(10));
+		resolver.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		resolver.setAuthenticationManagerFactory((issuer) -> (discoveries.incrementAndGet() == 1) ? first : second);
+		assertThat(resolver.resolve("trusted")).isSameAs(first);
+		assertThat(resolver.resolve("trusted")).isSameAs(first);
+		resolver.setClock(Clock.fixed(now.plus(Duration.ofMinutes(11)), ZoneOffset.UTC));
+		assertThat(resolver.resolve("trusted")).isSameAs(first);
+		assertThat(resolver.resolve("trusted")).isSameAs(second);
+		assertThat(discoveries).hasValue(2);
+	}
+
+	@Test
+	public void resolveWhenRefreshRejectedThenKeepsCurrentAndRetries() {
+		Instant now = Instant.now();
+		AuthenticationManager first = mock(AuthenticationManager.class);
+		AuthenticationManager second = mock(AuthenticationManager.class);
+		AtomicInteger discoveries = new AtomicInteger();
+		AtomicInteger submissions = new AtomicInteger();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Collections.singletonList("trusted"));
+		resolver.setExecutor((task) -> {
+			if (submissions.incrementAndGet() == 1) {
+				throw new RejectedExecutionException("saturated");
+			}
+			task.run();
+		});
+		resolver.setRefreshInterval(Duration.ofMinutes(10));
+		resolver.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		resolver.setAuthenticationManagerFactory((issuer) -> (discoveries.incrementAndGet() == 1) ? first : second);
+		assertThat(resolver.resolve("trusted")).isSameAs(first);
+		resolver.setClock(Clock.fixed(now.plus(Duration.ofMinutes(11)), ZoneOffset.UTC));
+		assertThat(resolver.resolve("trusted")).isSameAs(first);
+		assertThat(discoveries).hasValue(1);
+		assertThat(resolver.resolve("trusted")).isSameAs(first);
+		assertThat(resolver.resolve("trusted")).isSameAs(second);
+		assertThat(discoveries).hasValue(2);
+	}
+
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	private Authentication withBearerToken(String token) {
 		return new BearerTokenAuthenticationToken(token);
 	}
@@ -16,10 +16,18 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
@@ -33,6 +41,7 @@ import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.ReactiveAuthenticationManagerResolver;
@@ -248,6 +257,77 @@ public class JwtIssuerReactiveAuthenticationManagerResolverTests {
 				() -> new JwtIssuerReactiveAuthenticationManagerResolver((ReactiveAuthenticationManagerResolver) null));
 	}
 
+	@Test
+	public void resolveWhenConcurrentFirstRequestsThenDiscoversOnce() {
+		AtomicInteger discoveries = new AtomicInteger();
+		Sinks.One<ReactiveAuthenticationManager> discovery = Sinks.one();
+		ReactiveAuthenticationManager authenticationManager = mock(ReactiveAuthenticationManager.class);
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Collections.singletonList("trusted"));
+		resolver.setAuthenticationManagerFactory(
+				(issuer) -> discovery.asMono().doOnSubscribe((s) -> discoveries.incrementAndGet()));
+		CompletableFuture<ReactiveAuthenticationManager> first = resolver.resolve("trusted").toFuture();
+		CompletableFuture<ReactiveAuthenticationManager> second = resolver.resolve("trusted").toFuture();
+		discovery.tryEmitValue(authenticationManager);
+		assertThat(first.join()).isSameAs(authenticationManager);
+		assertThat(second.join()).isSameAs(authenticationManager);
+		assertThat(discoveries).hasValue(1);
+	}
+
+	@Test
+	public void resolveWhenMaxIssuersExceededThenLeastRecentlyUsedEvicted() {
+		Map<String, AtomicInteger> discoveries = new HashMap<>();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				(issuer) -> true);
+		resolver.setMaxIssuers(2);
+		resolver.setAuthenticationManagerFactory((issuer) -> Mono.fromCallable(() -> {
+			discoveries.computeIfAbsent(issuer, (k) -> new AtomicInteger()).incrementAndGet();
+			return mock(ReactiveAuthenticationManager.class);
+		}));
+		for (String issuer : Arrays.asList("one", "two", "one", "three", "one", "two")) {
+			resolver.resolve(issuer).block();
+		}
+		assertThat(discoveries.get("one")).hasValue(1);
+		assertThat(discoveries.get("two")).hasValue(2);
+		assertThat(discoveries.get("three")).hasValue(1);
+	}
+
+	@Test
+	public void warmUpWhenIssuersThenTrustedIssuersDiscovered() {
+		Map<String, ReactiveAuthenticationManager> authenticationManagers = new ConcurrentHashMap<>();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Arrays.asList("one", "two"));
+		resolver.setAuthenticationManagerFactory((issuer) -> {
+			if (issuer.equals("two")) {
+				return Mono.error(new IllegalArgumentException("unavailable"));
+			}
+			return Mono.fromCallable(() -> authenticationManagers.computeIfAbsent(issuer,
+					(k) -> mock(ReactiveAuthenticationManager.class)));
+		});
+		resolver.warmUp(Arrays.asList("one", "two", "untrusted")).block();
+		assertThat(authenticationManagers).containsOnlyKeys("one");
+		assertThat(resolver.resolve("one").block()).isSameAs(authenticationManagers.get("one"));
+	}
+
+	@Test
+	public void resolveWhenRefreshIntervalElapsedThenRediscoveredInBackground() {
+		Instant now = Instant.now();
+		ReactiveAuthenticationManager first = mock(ReactiveAuthenticationManager.class);
+		ReactiveAuthenticationManager second = mock(ReactiveAuthenticationManager.class);
+		AtomicInteger discoveries = new AtomicInteger();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Collections.singletonList("trusted"));
+		resolver.setRefreshInterval(Duration.ofMinutes(10));
+		resolver.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		resolver.setAuthenticationManagerFactory(
+				(issuer) -> Mono.fromCallable(() -> (discoveries.incrementAndGet() == 1) ? first : second));
+		assertThat(resolver.resolve("trusted").block()).isSameAs(first);
+		resolver.setClock(Clock.fixed(now.plus(Duration.ofMinutes(11)), ZoneOffset.UTC));
+		assertThat(resolver.resolve("trusted").block()).isSameAs(first);
+		assertThat(resolver.resolve("trusted").block()).isSameAs(second);
+		assertThat(discoveries).hasValue(2);
+	}
+
 	private String jwt(String claim, String value) {
 		PlainJWT jwt = new PlainJWT(new JWTClaimsSet.Builder().claim(claim, value).build());
 		return jwt.serialize();
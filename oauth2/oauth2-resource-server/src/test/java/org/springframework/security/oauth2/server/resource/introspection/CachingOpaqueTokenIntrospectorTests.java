@@ -0,0 +1,235 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingOpaqueTokenIntrospector}
+ */
+public class CachingOpaqueTokenIntrospectorTests {
+
+	private final OpaqueTokenIntrospector delegate = mock(OpaqueTokenIntrospector.class);
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingOpaqueTokenIntrospector(null))
+			.withMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void setMaxTtlWhenZeroThenIllegalArgumentException() {
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		assertThatIllegalArgumentException().isThrownBy(() -> introspector.setMaxTtl(Duration.ZERO));
+	}
+
+	@Test
+	public void introspectWhenCachedThenDelegateCalledOnce() {
+		OAuth2AuthenticatedPrincipal principal = principal(Instant.now().plusSeconds(3600));
+		given(this.delegate.introspect("token")).willReturn(principal);
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		assertThat(introspector.introspect("token")).isSameAs(principal);
+		assertThat(introspector.introspect("token")).isSameAs(principal);
+		verify(this.delegate, times(1)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenExpiredThenIntrospectsAgain() {
+		Instant now = Instant.now();
+		given(this.delegate.introspect("token")).willReturn(principal(now.plusSeconds(60)));
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		introspector.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		introspector.introspect("token");
+		introspector.setClock(Clock.fixed(now.plusSeconds(61), ZoneOffset.UTC));
+		introspector.introspect("token");
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenMaxTtlElapsedThenIntrospectsAgain() {
+		Instant now = Instant.now();
+		given(this.delegate.introspect("token")).willReturn(principal(now.plusSeconds(3600)));
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		introspector.setMaxTtl(Duration.ofSeconds(10));
+		introspector.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		introspector.introspect("token");
+		introspector.setClock(Clock.fixed(now.plusSeconds(11), ZoneOffset.UTC));
+		introspector.introspect("token");
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenInvalidAndNegativeTtlThenRejectionCached() {
+		given(this.delegate.introspect("token")).willThrow(new BadOpaqueTokenException("inactive"));
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		introspector.setNegativeTtl(Duration.ofSeconds(30));
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("token"));
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("token"))
+			.withMessage("inactive");
+		verify(this.delegate, times(1)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenInvalidAndNoNegativeTtlThenIntrospectsAgain() {
+		given(this.delegate.introspect("token")).willThrow(new BadOpaqueTokenException("inactive"));
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("token"));
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("token"));
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenEndpointFailsThenNotCached() {
+		given(this.delegate.introspect("token")).willThrow(new OAuth2IntrospectionException("unavailable"));
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		introspector.setNegativeTtl(Duration.ofSeconds(30));
+		assertThatExceptionOfType(OAuth2IntrospectionException.class)
+			.isThrownBy(() -> introspector.introspect("token"));
+		assertThatExceptionOfType(OAuth2IntrospectionException.class)
+			.isThrownBy(() -> introspector.introspect("token"));
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenConcurrentThenDelegateCalledOnce() throws Exception {
+		OAuth2AuthenticatedPrincipal principal = principal(Instant.now().plusSeconds(3600));
+		CountDownLatch introspecting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		willAnswer((invocation) -> {
+			introspecting.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return principal;
+		}).given(this.delegate).introspect("token");
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<OAuth2AuthenticatedPrincipal> first = executor.submit(() -> introspector.introspect("token"));
+			assertThat(introspecting.await(5, TimeUnit.SECONDS)).isTrue();
+			FutureTask<OAuth2AuthenticatedPrincipal> second = new FutureTask<>(() -> introspector.introspect("token"));
+			Thread waiter = new Thread(second);
+			waiter.start();
+			awaitWaiting(waiter);
+			assertThat(second.isDone()).isFalse();
+			verify(this.delegate, times(1)).introspect("token");
+			release.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(principal);
+			assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(principal);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		verify(this.delegate, times(1)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenConcurrentAndDelegateFailsThenSameExceptionRethrown() throws Exception {
+		OAuth2IntrospectionException failure = new OAuth2IntrospectionException("unavailable");
+		CountDownLatch introspecting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		willAnswer((invocation) -> {
+			introspecting.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			throw failure;
+		}).given(this.delegate).introspect("token");
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<OAuth2AuthenticatedPrincipal> first = executor.submit(() -> introspector.introspect("token"));
+			assertThat(introspecting.await(5, TimeUnit.SECONDS)).isTrue();
+			FutureTask<OAuth2AuthenticatedPrincipal> second = new FutureTask<>(() -> introspector.introspect("token"));
+			Thread waiter = new Thread(second);
+			waiter.start();
+			awaitWaiting(waiter);
+			assertThat(second.isDone()).isFalse();
+			verify(this.delegate, times(1)).introspect("token");
+			release.countDown();
+			assertThatExceptionOfType(ExecutionException.class).isThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+				.withCause(failure);
+			assertThatExceptionOfType(ExecutionException.class).isThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+				.withCause(failure);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		verify(this.delegate, times(1)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenStubEndpointThenCalledOnce() throws Exception {
+		try (MockWebServer server = new MockWebServer()) {
+			// @formatter:off
+			String response = "{\n"
+					+ "      \"active\": true,\n"
+					+ "      \"sub\": \"Z5O3upPC88QrAjx00dis\",\n"
+					+ "      \"exp\": " + Instant.now().plusSeconds(3600).getEpochSecond() + "\n"
+					+ "     }";
+			// @formatter:on
+			server.enqueue(new MockResponse().setBody(response)
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE));
+			String introspectUri = server.url("/introspect").toString();
+			CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(
+					new SpringOpaqueTokenIntrospector(introspectUri, "client", "secret"));
+			OAuth2AuthenticatedPrincipal principal = introspector.introspect("token");
+			assertThat(introspector.introspect("token")).isSameAs(principal);
+			assertThat(principal.getName()).isEqualTo("Z5O3upPC88QrAjx00dis");
+			assertThat(server.getRequestCount()).isEqualTo(1);
+		}
+	}
+
+	static OAuth2AuthenticatedPrincipal principal(Instant expiresAt) {
+		return new OAuth2IntrospectionAuthenticatedPrincipal(
+				Collections.singletonMap(OAuth2TokenIntrospectionClaimNames.EXP, expiresAt), Collections.emptyList());
+	}
+
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(1);
+		}
+	}
+
+}
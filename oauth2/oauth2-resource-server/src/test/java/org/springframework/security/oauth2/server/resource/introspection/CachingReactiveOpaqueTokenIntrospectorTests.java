@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingReactiveOpaqueTokenIntrospector}
+ */
+public class CachingReactiveOpaqueTokenIntrospectorTests {
+
+	private final ReactiveOpaqueTokenIntrospector delegate = mock(ReactiveOpaqueTokenIntrospector.class);
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingReactiveOpaqueTokenIntrospector(null))
+			.withMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void introspectWhenCachedThenDelegateSubscribedOnce() {
+		OAuth2AuthenticatedPrincipal principal = CachingOpaqueTokenIntrospectorTests
+			.principal(Instant.now().plusSeconds(3600));
+		AtomicInteger subscriptions = new AtomicInteger();
+		given(this.delegate.introspect("token"))
+			.willReturn(Mono.just(principal).doOnSubscribe((s) -> subscriptions.incrementAndGet()));
+		CachingReactiveOpaqueTokenIntrospector introspector = new CachingReactiveOpaqueTokenIntrospector(this.delegate);
+		StepVerifier.create(introspector.introspect("token")).expectNext(principal).verifyComplete();
+		StepVerifier.create(introspector.introspect("token")).expectNext(principal).verifyComplete();
+		assertThat(subscriptions).hasValue(1);
+	}
+
+	@Test
+	public void introspectWhenConcurrentThenDelegateSubscribedOnce() {
+		OAuth2AuthenticatedPrincipal principal = CachingOpaqueTokenIntrospectorTests
+			.principal(Instant.now().plusSeconds(3600));
+		Sinks.One<OAuth2AuthenticatedPrincipal> response = Sinks.one();
+		AtomicInteger subscriptions = new AtomicInteger();
+		given(this.delegate.introspect("token"))
+			.willReturn(response.asMono().doOnSubscribe((s) -> subscriptions.incrementAndGet()));
+		CachingReactiveOpaqueTokenIntrospector introspector = new CachingReactiveOpaqueTokenIntrospector(this.delegate);
+		CompletableFuture<OAuth2AuthenticatedPrincipal> first = introspector.introspect("token").toFuture();
+		CompletableFuture<OAuth2AuthenticatedPrincipal> second = introspector.introspect("token").toFuture();
+		assertThat(subscriptions).hasValue(1);
+		response.tryEmitValue(principal);
+		assertThat(first.join()).isSameAs(principal);
+		assertThat(second.join()).isSameAs(principal);
+		assertThat(subscriptions).hasValue(1);
+	}
+
+	@Test
+	public void introspectWhenInvalidAndNegativeTtlThenRejectionCached() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		given(this.delegate.introspect("token"))
+			.willReturn(Mono.<OAuth2AuthenticatedPrincipal>error(new BadOpaqueTokenException("inactive"))
+				.doOnSubscribe((s) -> subscriptions.incrementAndGet()));
+		CachingReactiveOpaqueTokenIntrospector introspector = new CachingReactiveOpaqueTokenIntrospector(this.delegate);
+		introspector.setNegativeTtl(Duration.ofSeconds(30));
+		StepVerifier.create(introspector.introspect("token")).verifyError(BadOpaqueTokenException.class);
+		StepVerifier.create(introspector.introspect("token")).verifyError(BadOpaqueTokenException.class);
+		assertThat(subscriptions).hasValue(1);
+	}
+
+	@Test
+	public void introspectWhenEndpointFailsThenNotCached() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		given(this.delegate.introspect("token"))
+			.willReturn(Mono.<OAuth2AuthenticatedPrincipal>error(new OAuth2IntrospectionException("unavailable"))
+				.doOnSubscribe((s) -> subscriptions.incrementAndGet()));
+		CachingReactiveOpaqueTokenIntrospector introspector = new CachingReactiveOpaqueTokenIntrospector(this.delegate);
+		introspector.setNegativeTtl(Duration.ofSeconds(30));
+		StepVerifier.create(introspector.introspect("token")).verifyError(OAuth2IntrospectionException.class);
+		StepVerifier.create(introspector.introspect("token")).verifyError(OAuth2IntrospectionException.class);
+		assertThat(subscriptions).hasValue(2);
+	}
+
+}
@@ -105,6 +105,35 @@ public class DefaultBearerTokenResolverTests {
 			.withMessageContaining(("Bearer token is malformed"));
 	}
 
+	@Test
+	public void resolveWhenMixedCaseSchemeThenTokenIsResolved() {
+		String token = "a-Z_0.9~+/" + TEST_TOKEN + "=";
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Authorization", "bEaReR " + token);
+		assertThat(this.resolver.resolve(request)).isEqualTo(token);
+	}
+
+	@Test
+	public void resolveWhenHeaderHasCharactersAfterPaddingThenAuthenticationExceptionIsThrown() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Authorization", "Bearer " + TEST_TOKEN + "==a");
+		assertThatExceptionOfType(OAuth2AuthenticationException.class).isThrownBy(() -> this.resolver.resolve(request))
+			.withMessageContaining(("Bearer token is malformed"));
+	}
+
+	@Test
+	public void resolveWhenHeaderIsMalformedThenAuthenticationExceptionIsThrown() {
+		for (String authorization : new String[] { "Bearer", "Bearer=" + TEST_TOKEN, "Bearer  " + TEST_TOKEN,
+				"Bearer\t" + TEST_TOKEN, "Bearer =" + TEST_TOKEN, "Bearer " + TEST_TOKEN + " ",
+				"Bearer " + TEST_TOKEN + "\n", "Bearer t\u00e9st" }) {
+			MockHttpServletRequest request = new MockHttpServletRequest();
+			request.addHeader("Authorization", authorization);
+			assertThatExceptionOfType(OAuth2AuthenticationException.class)
+				.isThrownBy(() -> this.resolver.resolve(request))
+				.withMessageContaining(("Bearer token is malformed"));
+		}
+	}
+
 	@Test
 	public void resolveWhenValidHeaderIsPresentTogetherWithFormParameterThenAuthenticationExceptionIsThrown() {
 		MockHttpServletRequest request = new MockHttpServletRequest();
@@ -144,6 +144,30 @@ public class ServerBearerTokenAuthenticationConverterTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void resolveWhenMixedCaseSchemeThenTokenIsResolved() {
+		String token = "a-Z_0.9~+/" + TEST_TOKEN + "=";
+		// @formatter:off
+		MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/")
+				.header(HttpHeaders.AUTHORIZATION, "bEaReR " + token);
+		// @formatter:on
+		assertThat(convertToToken(request).getToken()).isEqualTo(token);
+	}
+
+	@Test
+	public void resolveWhenHeaderIsMalformedThenAuthenticationExceptionIsThrown() {
+		for (String authorization : new String[] { "Bearer", "Bearer=" + TEST_TOKEN, "Bearer  " + TEST_TOKEN,
+				"Bearer =" + TEST_TOKEN, "Bearer " + TEST_TOKEN + "==a", "Bearer " + TEST_TOKEN + " " }) {
+			// @formatter:off
+			MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/")
+					.header(HttpHeaders.AUTHORIZATION, authorization);
+			assertThatExceptionOfType(OAuth2AuthenticationException.class)
+					.isThrownBy(() -> convertToToken(request))
+					.withMessageContaining(("Bearer token is malformed"));
+			// @formatter:on
+		}
+	}
+
 	// gh-8865
 	@Test
 	public void resolveWhenHeaderWithInvalidCharactersIsPresentAndNotSubscribedThenNoneExceptionIsThrown() {
@@ -19,7 +19,11 @@ package org.springframework.security.web;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -35,6 +39,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.core.log.LogMessage;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
 import org.springframework.security.web.firewall.DefaultRequestRejectedHandler;
 import org.springframework.security.web.firewall.FirewalledRequest;
 import org.springframework.security.web.firewall.HttpFirewall;
@@ -146,6 +151,10 @@ public class FilterChainProxy extends GenericFilterBean {
 
 	private static final Log logger = LogFactory.getLog(FilterChainProxy.class);
 
+	private static final String FILTER_CHAIN_METRIC_NAME = "spring.security.filterchains";
+
+	private static final String FILTER_METRIC_NAME = "spring.security.filters";
+
 	private static final String FILTER_APPLIED = FilterChainProxy.class.getName().concat(".APPLIED");
 
 	private SecurityContextHolderStrategy securityContextHolderStrategy = SecurityContextHolder
@@ -161,6 +170,10 @@ public class FilterChainProxy extends GenericFilterBean {
 
 	private ThrowableAnalyzer throwableAnalyzer = new ThrowableAnalyzer();
 
+	private SecurityMetricsRecorder metricsRecorder;
+
+	private final Map<Class<?>, FilterTags> filterTags = new ConcurrentHashMap<>();
+
 	public FilterChainProxy() {
 	}
 
@@ -221,8 +234,21 @@ public class FilterChainProxy extends GenericFilterBean {
 		if (logger.isDebugEnabled()) {
 			logger.debug(LogMessage.of(() -> "Securing " + requestLine(firewallRequest)));
 		}
-		VirtualFilterChain virtualFilterChain = new VirtualFilterChain(firewallRequest, chain, filters);
-		virtualFilterChain.doFilter(firewallRequest, firewallResponse);
+		if (this.metricsRecorder == null) {
+			VirtualFilterChain virtualFilterChain = new VirtualFilterChain(firewallRequest, chain, filters);
+			virtualFilterChain.doFilter(firewallRequest, firewallResponse);
+			return;
+		}
+		InstrumentedVirtualFilterChain virtualFilterChain = new InstrumentedVirtualFilterChain(firewallRequest, chain,
+				filters, this.metricsRecorder, this::filterTags);
+		long start = System.nanoTime();
+		try {
+			virtualFilterChain.doFilter(firewallRequest, firewallResponse);
+		}
+		finally {
+			this.metricsRecorder.record(FILTER_CHAIN_METRIC_NAME, virtualFilterChain.outcome(),
+					System.nanoTime() - start);
+		}
 	}
 
 	/**
@@ -303,6 +329,36 @@ public class FilterChainProxy extends GenericFilterBean {
 		this.requestRejectedHandler = requestRejectedHandler;
 	}
 
+	/**
+	 * Sets the {@link SecurityMetricsRecorder} to record the time spent in the security
+	 * filter chain to. When set, each secured request is recorded in the
+	 * {@code spring.security.filterchains} metric, tagged with whether it was handed to
+	 * the rest of the application ({@code outcome} of {@code proceeded}) or not
+	 * ({@code stopped}). In addition, each filter is recorded in the
+	 * {@code spring.security.filters} metric, tagged with its {@code filter} class and
+	 * whether it called the rest of the chain. That measurement covers the filter's own
+	 * work up until it proceeds, and not the filters after it.
+	 * <p>
+	 * By default, nothing is measured.
+	 * @param metricsRecorder the {@link SecurityMetricsRecorder} to use
+	 * @since 5.8
+	 */
+	public void setMetricsRecorder(SecurityMetricsRecorder metricsRecorder) {
+		Assert.notNull(metricsRecorder, "metricsRecorder cannot be null");
+		this.metricsRecorder = metricsRecorder;
+		if (this.filterChains != null) {
+			for (SecurityFilterChain chain : this.filterChains) {
+				if (chain instanceof DefaultSecurityFilterChain) {
+					((DefaultSecurityFilterChain) chain).getFilters().forEach(this::filterTags);
+				}
+			}
+		}
+	}
+
+	private FilterTags filterTags(Filter filter) {
+		return this.filterTags.computeIfAbsent(filter.getClass(), FilterTags::new);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -331,14 +387,22 @@ public class FilterChainProxy extends GenericFilterBean {
 
 		private final int size;
 
+		private final InstrumentedVirtualFilterChain instrumented;
+
 		private int currentPosition = 0;
 
 		private VirtualFilterChain(FirewalledRequest firewalledRequest, FilterChain chain,
 				List<Filter> additionalFilters) {
+			this(firewalledRequest, chain, additionalFilters, null);
+		}
+
+		private VirtualFilterChain(FirewalledRequest firewalledRequest, FilterChain chain,
+				List<Filter> additionalFilters, InstrumentedVirtualFilterChain instrumented) {
 			this.originalChain = chain;
 			this.additionalFilters = additionalFilters;
 			this.size = additionalFilters.size();
 			this.firewalledRequest = firewalledRequest;
+			this.instrumented = instrumented;
 		}
 
 		@Override
@@ -349,6 +413,9 @@ public class FilterChainProxy extends GenericFilterBean {
 				}
 				// Deactivate path stripping as we exit the security filter chain
 				this.firewalledRequest.reset();
+				if (this.instrumented != null) {
+					this.instrumented.beforeOriginalChain();
+				}
 				this.originalChain.doFilter(request, response);
 				return;
 			}
@@ -358,7 +425,115 @@ public class FilterChainProxy extends GenericFilterBean {
 				logger.trace(LogMessage.format("Invoking %s (%d/%d)", nextFilter.getClass().getSimpleName(),
 						this.currentPosition, this.size));
 			}
-			nextFilter.doFilter(request, response, this);
+			if (this.instrumented == null) {
+				nextFilter.doFilter(request, response, this);
+				return;
+			}
+			int position = this.currentPosition - 1;
+			this.instrumented.beforeFilter(position);
+			try {
+				nextFilter.doFilter(request, response, this);
+			}
+			finally {
+				this.instrumented.afterFilter(position);
+			}
+		}
+
+	}
+
+	/**
+	 * A {@link VirtualFilterChain} that records how long each filter works before it
+	 * proceeds down the chain, or returns without doing so.
+	 */
+	private static final class InstrumentedVirtualFilterChain implements FilterChain {
+
+		private static final Map<String, String> PROCEEDED = Collections
+			.singletonMap(SecurityMetricsRecorder.OUTCOME_TAG, "proceeded");
+
+		private static final Map<String, String> STOPPED = Collections.singletonMap(SecurityMetricsRecorder.OUTCOME_TAG,
+				"stopped");
+
+		private final VirtualFilterChain delegate;
+
+		private final List<Filter> additionalFilters;
+
+		private final SecurityMetricsRecorder recorder;
+
+		private final Function<Filter, FilterTags> filterTags;
+
+		private int current = -1;
+
+		private long currentStart;
+
+		private boolean proceeded;
+
+		private InstrumentedVirtualFilterChain(FirewalledRequest firewalledRequest, FilterChain chain,
+				List<Filter> additionalFilters, SecurityMetricsRecorder recorder,
+				Function<Filter, FilterTags> filterTags) {
+			this.additionalFilters = additionalFilters;
+			this.recorder = recorder;
+			this.filterTags = filterTags;
+			this.delegate = new VirtualFilterChain(firewalledRequest, chain, additionalFilters, this);
+		}
+
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+			this.delegate.doFilter(request, response);
+		}
+
+		private void beforeFilter(int position) {
+			recordCurrent(true);
+			this.current = position;
+			this.currentStart = System.nanoTime();
+		}
+
+		private void afterFilter(int position) {
+			if (this.current == position) {
+				recordCurrent(false);
+			}
+		}
+
+		private void beforeOriginalChain() {
+			recordCurrent(true);
+			this.proceeded = true;
+		}
+
+		private void recordCurrent(boolean proceeded) {
+			if (this.current < 0) {
+				return;
+			}
+			long duration = System.nanoTime() - this.currentStart;
+			FilterTags tags = this.filterTags.apply(this.additionalFilters.get(this.current));
+			this.recorder.record(FILTER_METRIC_NAME, proceeded ? tags.proceeded : tags.stopped, duration);
+			this.current = -1;
+		}
+
+		private Map<String, String> outcome() {
+			return this.proceeded ? PROCEEDED : STOPPED;
+		}
+
+	}
+
+	/**
+	 * The immutable {@code spring.security.filters} tags of one filter class, one map per
+	 * outcome.
+	 */
+	private static final class FilterTags {
+
+		private final Map<String, String> proceeded;
+
+		private final Map<String, String> stopped;
+
+		private FilterTags(Class<?> filter) {
+			this.proceeded = tags(filter, "proceeded");
+			this.stopped = tags(filter, "stopped");
+		}
+
+		private static Map<String, String> tags(Class<?> filter, String outcome) {
+			Map<String, String> tags = new HashMap<>(4);
+			tags.put("filter", filter.getName());
+			tags.put(SecurityMetricsRecorder.OUTCOME_TAG, outcome);
+			return Collections.unmodifiableMap(tags);
 		}
 
 	}
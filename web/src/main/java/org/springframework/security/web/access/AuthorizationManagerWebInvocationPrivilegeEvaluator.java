@@ -16,6 +16,11 @@
 
 package org.springframework.security.web.access;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 
@@ -59,6 +64,27 @@ public final class AuthorizationManagerWebInvocationPrivilegeEvaluator
 		return decision == null || decision.isGranted();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The request handed to the {@link AuthorizationManager} is built once and re-pointed
+	 * at each URI in turn; duplicate URIs are only evaluated once.
+	 */
+	@Override
+	public Map<String, Boolean> areAllowed(Collection<String> uris, Authentication authentication) {
+		Assert.notNull(uris, "uris cannot be null");
+		Map<String, Boolean> result = new LinkedHashMap<>(uris.size() * 2);
+		ReusableFilterInvocationRequest request = new ReusableFilterInvocationRequest(null, null, this.servletContext);
+		Supplier<Authentication> supplier = () -> authentication;
+		for (String uri : uris) {
+			if (!result.containsKey(uri)) {
+				AuthorizationDecision decision = this.authorizationManager.check(supplier, request.withUri(uri));
+				result.put(uri, decision == null || decision.isGranted());
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public void setServletContext(ServletContext servletContext) {
 		this.servletContext = servletContext;
@@ -16,8 +16,13 @@
 
 package org.springframework.security.web.access;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -114,10 +119,70 @@ public final class RequestMatcherDelegatingWebInvocationPrivilegeEvaluator
 		return true;
 	}
 
+	/**
+	 * Determines whether the user represented by the supplied <tt>Authentication</tt>
+	 * object is allowed to invoke each of the supplied URIs.
+	 * <p>
+	 * All URIs are matched against the configured {@code RequestMatcher}s in a single
+	 * pass using one request, and are then handed in groups to the
+	 * {@code WebInvocationPrivilegeEvaluator}s of the entry they matched, so that those
+	 * delegates can evaluate them in bulk as well. A URI is allowed if no
+	 * {@code RequestMatcher} matches it or if every delegate of the matched entry allows
+	 * it.
+	 * @param uris the URIs excluding the context path (a default context path setting
+	 * will be used)
+	 * @param authentication the <tt>Authentication</tt> instance whose authorities should
+	 * be used in evaluation whether access should be granted.
+	 * @return a map, in the iteration order of {@code uris}, from each URI to whether
+	 * access is allowed
+	 * @since 5.8
+	 */
+	@Override
+	public Map<String, Boolean> areAllowed(Collection<String> uris, Authentication authentication) {
+		Assert.notNull(uris, "uris cannot be null");
+		Map<String, Boolean> result = new LinkedHashMap<>(uris.size() * 2);
+		Map<List<WebInvocationPrivilegeEvaluator>, List<String>> urisByDelegate = new IdentityHashMap<>();
+		ReusableFilterInvocationRequest request = new ReusableFilterInvocationRequest(null, null, this.servletContext);
+		for (String uri : uris) {
+			if (result.containsKey(uri)) {
+				continue;
+			}
+			result.put(uri, Boolean.TRUE);
+			List<WebInvocationPrivilegeEvaluator> privilegeEvaluators = getDelegate(request.withUri(uri));
+			if (!privilegeEvaluators.isEmpty()) {
+				urisByDelegate.computeIfAbsent(privilegeEvaluators, (key) -> new ArrayList<>()).add(uri);
+			}
+		}
+		urisByDelegate.forEach((privilegeEvaluators, delegateUris) -> {
+			List<String> remaining = delegateUris;
+			for (WebInvocationPrivilegeEvaluator evaluator : privilegeEvaluators) {
+				Map<String, Boolean> decisions = evaluator.areAllowed(remaining, authentication);
+				List<String> allowed = new ArrayList<>(remaining.size());
+				for (String uri : remaining) {
+					if (Boolean.TRUE.equals(decisions.get(uri))) {
+						allowed.add(uri);
+					}
+					else {
+						result.put(uri, Boolean.FALSE);
+					}
+				}
+				if (allowed.isEmpty()) {
+					break;
+				}
+				remaining = allowed;
+			}
+		});
+		return result;
+	}
+
 	private List<WebInvocationPrivilegeEvaluator> getDelegate(String contextPath, String uri, String method) {
 		FilterInvocation filterInvocation = new FilterInvocation(contextPath, uri, method, this.servletContext);
+		return getDelegate(filterInvocation.getHttpRequest());
+	}
+
+	private List<WebInvocationPrivilegeEvaluator> getDelegate(HttpServletRequest request) {
 		for (RequestMatcherEntry<List<WebInvocationPrivilegeEvaluator>> delegate : this.delegates) {
-			if (delegate.getRequestMatcher().matches(filterInvocation.getHttpRequest())) {
+			if (delegate.getRequestMatcher().matches(request)) {
 				return delegate.getEntry();
 			}
 		}
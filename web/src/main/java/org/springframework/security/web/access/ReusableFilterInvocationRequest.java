@@ -0,0 +1,66 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.access;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.springframework.security.web.FilterInvocation;
+
+/**
+ * A request built once from a {@link FilterInvocation} whose URI can be swapped, so that
+ * many URIs can be evaluated without creating a new {@link FilterInvocation} for each of
+ * them.
+ *
+ * <p>
+ * Not thread-safe; an instance is meant to be confined to a single bulk evaluation.
+ *
+ * @since 5.8
+ */
+final class ReusableFilterInvocationRequest extends HttpServletRequestWrapper {
+
+	private String servletPath;
+
+	private String requestURI;
+
+	ReusableFilterInvocationRequest(String contextPath, String method, ServletContext servletContext) {
+		super(new FilterInvocation(contextPath, "", method, servletContext).getHttpRequest());
+	}
+
+	/**
+	 * Point this request at the given URI
+	 * @param uri the URI excluding the context path
+	 * @return this request
+	 */
+	HttpServletRequest withUri(String uri) {
+		this.servletPath = uri;
+		this.requestURI = getContextPath() + uri;
+		return this;
+	}
+
+	@Override
+	public String getServletPath() {
+		return this.servletPath;
+	}
+
+	@Override
+	public String getRequestURI() {
+		return this.requestURI;
+	}
+
+}
@@ -16,6 +16,10 @@
 
 package org.springframework.security.web.access;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.springframework.security.core.Authentication;
 
 /**
@@ -52,4 +56,27 @@ public interface WebInvocationPrivilegeEvaluator {
 	 */
 	boolean isAllowed(String contextPath, String uri, String method, Authentication authentication);
 
+	/**
+	 * Determines whether the user represented by the supplied <tt>Authentication</tt>
+	 * object is allowed to invoke each of the supplied URIs.
+	 * <p>
+	 * This is useful when rendering many links at once. The default implementation simply
+	 * calls {@link #isAllowed(String, Authentication)} for each URI; implementations are
+	 * encouraged to override it and share work between the URIs.
+	 * @param uris the URIs excluding the context path (a default context path setting
+	 * will be used)
+	 * @param authentication the <tt>Authentication</tt> instance whose authorities should
+	 * be used in evaluation whether access should be granted.
+	 * @return a map, in the iteration order of {@code uris}, from each URI to whether
+	 * access is allowed
+	 * @since 5.8
+	 */
+	default Map<String, Boolean> areAllowed(Collection<String> uris, Authentication authentication) {
+		Map<String, Boolean> result = new LinkedHashMap<>();
+		for (String uri : uris) {
+			result.computeIfAbsent(uri, (u) -> isAllowed(u, authentication));
+		}
+		return result;
+	}
+
 }
@@ -18,7 +18,9 @@ package org.springframework.security.web;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -30,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.stubbing.Answer;
 
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -37,6 +40,7 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.metrics.SecurityMetricsRecorder;
 import org.springframework.security.web.firewall.FirewalledRequest;
 import org.springframework.security.web.firewall.HttpFirewall;
 import org.springframework.security.web.firewall.RequestRejectedException;
@@ -47,11 +51,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -277,4 +283,56 @@ public class FilterChainProxyTests {
 		verify(rjh).handle(eq(this.request), eq(this.response), eq((requestRejectedException)));
 	}
 
+	@Test
+	public void setMetricsRecorderWhenNullThenIllegalArgument() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.fcp.setMetricsRecorder(null));
+	}
+
+	@Test
+	public void doFilterWhenMetricsRecorderAndChainProceedsThenRecordsFiltersAndChain() throws Exception {
+		SecurityMetricsRecorder recorder = mock(SecurityMetricsRecorder.class);
+		this.fcp.setMetricsRecorder(recorder);
+		given(this.matcher.matches(any())).willReturn(true);
+		this.fcp.doFilter(this.request, this.response, this.chain);
+		Map<String, String> filter = new HashMap<>();
+		filter.put("filter", this.filter.getClass().getName());
+		filter.put("outcome", "proceeded");
+		verify(recorder).record(eq("spring.security.filters"), eq(filter), anyLong());
+		verify(recorder).record(eq("spring.security.filterchains"),
+				eq(Collections.singletonMap("outcome", "proceeded")), anyLong());
+		verifyNoMoreInteractions(recorder);
+	}
+
+	@Test
+	public void doFilterWhenMetricsRecorderAndFilterStopsThenRecordsStopped() throws Exception {
+		SecurityMetricsRecorder recorder = mock(SecurityMetricsRecorder.class);
+		Filter stopping = mock(Filter.class);
+		this.fcp = new FilterChainProxy(new DefaultSecurityFilterChain(this.matcher, this.filter, stopping));
+		this.fcp.setMetricsRecorder(recorder);
+		given(this.matcher.matches(any())).willReturn(true);
+		this.fcp.doFilter(this.request, this.response, this.chain);
+		verifyNoMoreInteractions(this.chain);
+		Map<String, String> stopped = new HashMap<>();
+		stopped.put("filter", stopping.getClass().getName());
+		stopped.put("outcome", "stopped");
+		verify(recorder).record(eq("spring.security.filters"), eq(stopped), anyLong());
+		verify(recorder).record(eq("spring.security.filterchains"), eq(Collections.singletonMap("outcome", "stopped")),
+				anyLong());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void doFilterWhenMetricsRecorderThenReusesFilterTags() throws Exception {
+		SecurityMetricsRecorder recorder = mock(SecurityMetricsRecorder.class);
+		this.fcp.setMetricsRecorder(recorder);
+		given(this.matcher.matches(any())).willReturn(true);
+		this.fcp.doFilter(this.request, this.response, this.chain);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+		request.setServletPath("/path");
+		this.fcp.doFilter(request, new MockHttpServletResponse(), this.chain);
+		ArgumentCaptor<Map<String, String>> tags = ArgumentCaptor.forClass(Map.class);
+		verify(recorder, times(2)).record(eq("spring.security.filters"), tags.capture(), anyLong());
+		assertThat(tags.getAllValues().get(0)).isSameAs(tags.getAllValues().get(1));
+	}
+
 }
@@ -16,6 +16,11 @@
 
 package org.springframework.security.web.access;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 
@@ -33,8 +38,10 @@ import org.springframework.security.authorization.AuthorizationManager;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
@@ -85,4 +92,33 @@ class AuthorizationManagerWebInvocationPrivilegeEvaluatorTests {
 		assertThat(captor.getValue().getServletContext()).isSameAs(servletContext);
 	}
 
+	@Test
+	void areAllowedWhenManyUrisThenEachUriCheckedOnce() {
+		List<String> checked = new ArrayList<>();
+		given(this.authorizationManager.check(any(), any())).willAnswer((invocation) -> {
+			HttpServletRequest request = invocation.getArgument(1);
+			checked.add(request.getServletPath());
+			return new AuthorizationDecision(!request.getServletPath().startsWith("/admin"));
+		});
+		Map<String, Boolean> allowed = this.privilegeEvaluator
+			.areAllowed(Arrays.asList("/test", "/admin/test", "/test"), TestAuthentication.authenticatedUser());
+		assertThat(allowed).containsExactly(entry("/test", true), entry("/admin/test", false));
+		assertThat(checked).containsExactly("/test", "/admin/test");
+		verify(this.authorizationManager, times(2)).check(any(), any());
+	}
+
+	@Test
+	void areAllowedWhenManyUrisThenRequestUriIncludesContextPath() {
+		List<String> requestUris = new ArrayList<>();
+		given(this.authorizationManager.check(any(), any())).willAnswer((invocation) -> {
+			HttpServletRequest request = invocation.getArgument(1);
+			requestUris.add(request.getRequestURI());
+			return null;
+		});
+		Map<String, Boolean> allowed = this.privilegeEvaluator.areAllowed(Arrays.asList("/a", "/b"),
+				TestAuthentication.authenticatedUser());
+		assertThat(allowed).containsOnly(entry("/a", true), entry("/b", true));
+		assertThat(requestUris).containsExactly("/cp/a", "/cp/b");
+	}
+
 }
@@ -18,7 +18,9 @@ package org.springframework.security.web.access;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -29,11 +31,13 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.mock.web.MockServletContext;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcherEntry;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
@@ -179,6 +183,55 @@ class RequestMatcherDelegatingWebInvocationPrivilegeEvaluatorTests {
 		assertThat(argumentCaptor.getValue().getServletContext()).isNotNull();
 	}
 
+	@Test
+	void areAllowedWhenManyUrisThenEachMatchedOnceAndGroupedByDelegate() {
+		RequestMatcherEntry<List<WebInvocationPrivilegeEvaluator>> admin = new RequestMatcherEntry<>(
+				new AntPathRequestMatcher("/admin/**"),
+				Collections.singletonList(TestWebInvocationPrivilegeEvaluator.alwaysDeny()));
+		WebInvocationPrivilegeEvaluator spyAllow = spy(TestWebInvocationPrivilegeEvaluator.alwaysAllow());
+		RequestMatcherEntry<List<WebInvocationPrivilegeEvaluator>> user = new RequestMatcherEntry<>(
+				new AntPathRequestMatcher("/user/**"), Collections.singletonList(spyAllow));
+		RequestMatcherDelegatingWebInvocationPrivilegeEvaluator delegating = new RequestMatcherDelegatingWebInvocationPrivilegeEvaluator(
+				Arrays.asList(admin, user));
+		Map<String, Boolean> allowed = delegating
+			.areAllowed(Arrays.asList("/admin/a", "/user/a", "/other", "/user/b", "/user/a"), this.authentication);
+		assertThat(allowed).containsExactly(entry("/admin/a", false), entry("/user/a", true), entry("/other", true),
+				entry("/user/b", true));
+		verify(spyAllow).areAllowed(Arrays.asList("/user/a", "/user/b"), this.authentication);
+	}
+
+	@Test
+	void areAllowedWhenManyUrisAndFirstDelegateDeniesSomeThenOthersOnlySeeRemaining() {
+		Map<String, Boolean> decisions = new HashMap<>();
+		decisions.put("/secret", Boolean.FALSE);
+		decisions.put("/public", Boolean.TRUE);
+		WebInvocationPrivilegeEvaluator denySecret = mock(WebInvocationPrivilegeEvaluator.class);
+		given(denySecret.areAllowed(any(List.class), any())).willReturn(decisions);
+		WebInvocationPrivilegeEvaluator spyAllow = spy(TestWebInvocationPrivilegeEvaluator.alwaysAllow());
+		RequestMatcherEntry<List<WebInvocationPrivilegeEvaluator>> delegate = new RequestMatcherEntry<>(
+				this.alwaysMatch, Arrays.asList(denySecret, spyAllow));
+		RequestMatcherDelegatingWebInvocationPrivilegeEvaluator delegating = new RequestMatcherDelegatingWebInvocationPrivilegeEvaluator(
+				Collections.singletonList(delegate));
+		Map<String, Boolean> allowed = delegating.areAllowed(Arrays.asList("/secret", "/public"), this.authentication);
+		assertThat(allowed).containsExactly(entry("/secret", false), entry("/public", true));
+		verify(spyAllow).areAllowed(Collections.singletonList("/public"), this.authentication);
+	}
+
+	@Test
+	void areAllowedWhenManyUrisAndServletContextIsSetThenRequestHasServletContext() {
+		MockServletContext servletContext = new MockServletContext();
+		ArgumentCaptor<HttpServletRequest> argumentCaptor = ArgumentCaptor.forClass(HttpServletRequest.class);
+		RequestMatcher requestMatcher = mock(RequestMatcher.class);
+		RequestMatcherEntry<List<WebInvocationPrivilegeEvaluator>> delegate = new RequestMatcherEntry<>(requestMatcher,
+				Collections.singletonList(TestWebInvocationPrivilegeEvaluator.alwaysAllow()));
+		RequestMatcherDelegatingWebInvocationPrivilegeEvaluator delegating = new RequestMatcherDelegatingWebInvocationPrivilegeEvaluator(
+				Collections.singletonList(delegate));
+		delegating.setServletContext(servletContext);
+		delegating.areAllowed(Arrays.asList("/a", "/b"), this.authentication);
+		verify(requestMatcher, times(2)).matches(argumentCaptor.capture());
+		assertThat(argumentCaptor.getValue().getServletContext()).isSameAs(servletContext);
+	}
+
 	@Test
 	void constructorWhenPrivilegeEvaluatorsNullThenException() {
 		RequestMatcherEntry<List<WebInvocationPrivilegeEvaluator>> entry = new RequestMatcherEntry<>(this.alwaysMatch,